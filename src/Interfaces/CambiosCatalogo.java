@@ -0,0 +1,227 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Producto;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cambios que una operación de ProductoManager hizo sobre el catálogo, informados
+ * de una sola vez a los oyentes al terminar la operación.
+ *
+ * Cada cambio indica el producto y su posición en el orden de la lista, sin contar
+ * las posiciones libres. Las posiciones se dan en secuencia: cada una vale para la
+ * lista ya modificada por los cambios anteriores del mismo lote, como en una
+ * ListChangeListener de JavaFX.
+ *
+ * Las operaciones que reemplazan o reordenan todo el catálogo (cargas, ordenarPor,
+ * aplicar) o que cambian más de MAXIMO_CAMBIOS productos se informan como un cambio
+ * completo, sin detalle: quien escucha debe volver a leer el catálogo.
+ *
+ * @author joaxx
+ */
+public class CambiosCatalogo {
+
+    /** Cantidad máxima de cambios que se informan uno por uno. */
+    public static final int MAXIMO_CAMBIOS = 1024;
+
+    /**
+     * Tipo de un cambio.
+     */
+    public enum Tipo {
+        AGREGADO, MODIFICADO, ELIMINADO
+    }
+
+    /**
+     * Recibe los cambios del catálogo. Se llama desde el hilo que hizo la modificación,
+     * con el catálogo bloqueado, así que debe terminar rápido y no lanzar excepciones;
+     * una interfaz gráfica debe pasar los cambios a su propio hilo.
+     */
+    @FunctionalInterface
+    public interface Oyente {
+        /**
+         * Informa los cambios de una operación.
+         *
+         * @param cambios Cambios de la operación.
+         */
+        void catalogoCambiado(CambiosCatalogo cambios);
+    }
+
+    /**
+     * Cambio sobre un producto.
+     */
+    public static class Cambio {
+        private final Tipo tipo;
+        private final int id;
+        private final int posicion;
+        private final Producto producto;
+        private final Producto anterior;
+
+        /**
+         * Constructor del cambio.
+         *
+         * @param tipo Tipo del cambio.
+         * @param id ID del producto.
+         * @param posicion Posición del producto en la lista, sin contar las posiciones libres.
+         * @param producto Producto después del cambio, o null si se eliminó.
+         * @param anterior Producto antes del cambio, o null si se agregó.
+         */
+        public Cambio(Tipo tipo, int id, int posicion, Producto producto, Producto anterior) {
+            this.tipo = tipo;
+            this.id = id;
+            this.posicion = posicion;
+            this.producto = producto;
+            this.anterior = anterior;
+        }
+
+        /**
+         * Obtiene el tipo del cambio.
+         *
+         * @return Tipo del cambio.
+         */
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        /**
+         * Obtiene el ID del producto.
+         *
+         * @return ID del producto.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Obtiene la posición del producto: la nueva si se agregó o modificó, la que
+         * tenía si se eliminó.
+         *
+         * @return Posición en la lista, sin contar las posiciones libres.
+         */
+        public int getPosicion() {
+            return posicion;
+        }
+
+        /**
+         * Obtiene el producto después del cambio.
+         *
+         * @return Producto, o null si se eliminó.
+         */
+        public Producto getProducto() {
+            return producto;
+        }
+
+        /**
+         * Obtiene el producto antes del cambio. Si se modificó en el lugar
+         * (por ejemplo con setPrecio) es el mismo objeto que getProducto.
+         *
+         * @return Producto anterior, o null si se agregó.
+         */
+        public Producto getAnterior() {
+            return anterior;
+        }
+
+        @Override
+        public String toString() {
+            return tipo + " id " + id + " en " + posicion;
+        }
+    }
+
+    private final long versionAnterior;
+    private long version;
+    private boolean completo;
+    private List<Cambio> cambios = new ArrayList<>();
+
+    /**
+     * Constructor del lote, vacío hasta que la operación agregue sus cambios.
+     *
+     * @param versionAnterior Versión del catálogo antes de la operación.
+     */
+    CambiosCatalogo(long versionAnterior) {
+        this.versionAnterior = versionAnterior;
+    }
+
+    /**
+     * Agrega un cambio al lote. Pasado MAXIMO_CAMBIOS, el lote pasa a ser completo.
+     *
+     * @param tipo Tipo del cambio.
+     * @param id ID del producto.
+     * @param posicion Posición sin contar las posiciones libres.
+     * @param producto Producto después del cambio, o null.
+     * @param anterior Producto antes del cambio, o null.
+     */
+    void agregar(Tipo tipo, int id, int posicion, Producto producto, Producto anterior) {
+        if (completo) {
+            return;
+        }
+        if (cambios.size() == MAXIMO_CAMBIOS) {
+            marcarCompleto();
+            return;
+        }
+        cambios.add(new Cambio(tipo, id, posicion, producto, anterior));
+    }
+
+    /**
+     * Indica que cambió todo el catálogo y descarta el detalle.
+     */
+    void marcarCompleto() {
+        completo = true;
+        cambios = Collections.emptyList();
+    }
+
+    /**
+     * Cierra el lote con la versión del catálogo al terminar la operación.
+     *
+     * @param version Versión después de la operación.
+     */
+    void cerrar(long version) {
+        this.version = version;
+        cambios = Collections.unmodifiableList(cambios);
+    }
+
+    /**
+     * Obtiene la versión del catálogo antes de la operación. Quien muestra el catálogo
+     * en esa versión puede aplicar los cambios; si no, debe volver a leerlo.
+     *
+     * @return Versión anterior.
+     */
+    public long getVersionAnterior() {
+        return versionAnterior;
+    }
+
+    /**
+     * Obtiene la versión del catálogo después de la operación.
+     *
+     * @return Versión nueva.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Indica si cambió todo el catálogo, en cuyo caso no hay detalle de cambios.
+     *
+     * @return true si hay que volver a leer el catálogo.
+     */
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    /**
+     * Obtiene los cambios en el orden en que se hicieron.
+     *
+     * @return Lista inmodificable de cambios; vacía si el lote es completo.
+     */
+    public List<Cambio> getCambios() {
+        return cambios;
+    }
+
+    @Override
+    public String toString() {
+        return "Cambios " + versionAnterior + " -> " + version + (completo ? ": completo" : ": " + cambios);
+    }
+}
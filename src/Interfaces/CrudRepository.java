@@ -4,6 +4,7 @@
  */
 package Interfaces;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -50,4 +51,40 @@ public interface CrudRepository<T> {
      * @param id Identificador del elemento a eliminar.
      */
     void eliminar(int id);
+
+    /**
+     * Agrega varios elementos al repositorio.
+     * La implementación por defecto los agrega de a uno.
+     *
+     * @param elementos Elementos a agregar.
+     */
+    default void agregarTodos(Collection<? extends T> elementos) {
+        for (T elemento : elementos) {
+            agregar(elemento);
+        }
+    }
+
+    /**
+     * Actualiza varios elementos existentes en el repositorio.
+     * La implementación por defecto los actualiza de a uno.
+     *
+     * @param elementos Elementos con los datos actualizados.
+     */
+    default void actualizarTodos(Collection<? extends T> elementos) {
+        for (T elemento : elementos) {
+            actualizar(elemento);
+        }
+    }
+
+    /**
+     * Elimina varios elementos del repositorio por sus identificadores.
+     * La implementación por defecto los elimina de a uno.
+     *
+     * @param ids Identificadores de los elementos a eliminar.
+     */
+    default void eliminarTodos(int[] ids) {
+        for (int id : ids) {
+            eliminar(id);
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Producto;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Copia inmutable y versionada del catálogo en un momento dado.
+ * Puede recorrerse desde cualquier hilo mientras otros modifican el catálogo,
+ * sin bloqueos ni ConcurrentModificationException.
+ *
+ * La instantánea fija qué productos hay y en qué orden. Los cambios hechos
+ * en el lugar sobre un producto (por ejemplo con setPrecio) sí se ven a través de ella.
+ *
+ * También guarda la última copia ordenada que se le pidió (ver ordenados), para que
+ * las páginas de un orden se lean sin volver a ordenar ni bloquear el catálogo.
+ *
+ * @author joaxx
+ */
+public class InstantaneaProductos implements Iterable<Producto> {
+
+    private static final int TRAMO = 4096; // Elementos que se ordenan juntos y entre avisos de avance
+
+    private final long version;
+    private final List<Producto> productos;
+    private volatile Ordenados ordenados; // Última copia ordenada, null si no se pidió ninguna
+
+    /**
+     * Copia ordenada de los productos junto con el comparador que la define.
+     */
+    private static class Ordenados {
+        private final Comparator<Producto> orden;
+        private final List<Producto> productos;
+
+        Ordenados(Comparator<Producto> orden, List<Producto> productos) {
+            this.orden = orden;
+            this.productos = productos;
+        }
+    }
+
+    /**
+     * Constructor de la instantánea.
+     *
+     * @param version Versión del catálogo que representa.
+     * @param productos Productos de esa versión; se copian a una lista inmutable.
+     */
+    public InstantaneaProductos(long version, List<Producto> productos) {
+        this.version = version;
+        this.productos = List.copyOf(productos);
+    }
+
+    /**
+     * Obtiene la versión del catálogo que representa esta instantánea.
+     * Cada modificación del catálogo incrementa la versión.
+     *
+     * @return Versión del catálogo.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene los productos de la instantánea.
+     *
+     * @return Lista inmutable de productos.
+     */
+    public List<Producto> getProductos() {
+        return productos;
+    }
+
+    /**
+     * Obtiene la cantidad de productos de la instantánea.
+     *
+     * @return Cantidad de productos.
+     */
+    public int size() {
+        return productos.size();
+    }
+
+    /**
+     * Obtiene los productos de la instantánea en el orden de un comparador.
+     * La copia ordenada se guarda y se reutiliza mientras se pida el mismo comparador.
+     *
+     * @param orden Comparador que define el orden; se compara por identidad.
+     * @return Lista inmutable con los productos ordenados.
+     */
+    public List<Producto> ordenados(Comparator<Producto> orden) {
+        try {
+            return ordenados(orden, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ordenamiento interrumpido", ex);
+        }
+    }
+
+    /**
+     * Obtiene los productos de la instantánea en el orden de un comparador, informando
+     * el avance si hay que ordenarlos. Ordena por mezcla: primero tramos de TRAMO
+     * productos y luego cada pasada de mezcla, por lo que el avance es la fracción de
+     * comparaciones hechas. La copia ordenada se guarda como en {@link #ordenados(Comparator)}.
+     *
+     * @param orden Comparador que define el orden; se compara por identidad.
+     * @param avance Recibe la fracción ordenada entre 0 y 1; puede ser null.
+     * @return Lista inmutable con los productos ordenados.
+     * @throws InterruptedException Si el hilo se interrumpe mientras ordena; no se guarda nada.
+     */
+    public List<Producto> ordenados(Comparator<Producto> orden, DoubleConsumer avance) throws InterruptedException {
+        Ordenados actual = ordenados;
+        if (actual != null && actual.orden == orden) {
+            return actual.productos;
+        }
+        List<Producto> lista = Arrays.asList(ordenar(productos.toArray(new Producto[0]), orden, avance));
+        Ordenados nuevos = new Ordenados(orden, Collections.unmodifiableList(lista));
+        ordenados = nuevos;
+        return nuevos.productos;
+    }
+
+    /**
+     * Devuelve un iterador sobre los productos de la instantánea.
+     *
+     * @return Iterador de productos.
+     */
+    @Override
+    public Iterator<Producto> iterator() {
+        return productos.iterator();
+    }
+
+    /**
+     * Ordena un arreglo en forma estable: ordena tramos de TRAMO elementos y luego los
+     * mezcla de a pares hasta tener uno solo. Entre tramo y tramo, y cada TRAMO elementos
+     * mezclados, informa el avance y revisa si el hilo se interrumpió.
+     *
+     * @param a Arreglo a ordenar.
+     * @param orden Comparador que define el orden.
+     * @param avance Recibe la fracción ordenada; puede ser null.
+     * @return Arreglo ordenado, que puede ser a o uno nuevo.
+     * @throws InterruptedException Si el hilo se interrumpe.
+     */
+    private static Producto[] ordenar(Producto[] a, Comparator<Producto> orden, DoubleConsumer avance) throws InterruptedException {
+        int n = a.length;
+        int pasadas = 0;
+        for (long ancho = TRAMO; ancho < n; ancho *= 2) {
+            pasadas++;
+        }
+        double total = (double) n * (pasadas + 1);
+        long hechos = 0;
+        for (int desde = 0; desde < n; desde += TRAMO) {
+            int hasta = (int) Math.min(n, (long) desde + TRAMO);
+            Arrays.sort(a, desde, hasta, orden);
+            hechos += hasta - desde;
+            informar(avance, hechos / total);
+        }
+        Producto[] destino = new Producto[n];
+        for (long ancho = TRAMO; ancho < n; ancho *= 2) {
+            for (long izquierda = 0; izquierda < n; izquierda += 2 * ancho) {
+                int medio = (int) Math.min(n, izquierda + ancho);
+                int fin = (int) Math.min(n, izquierda + 2 * ancho);
+                int i = (int) izquierda;
+                int j = medio;
+                for (int k = i; k < fin; k++) {
+                    // Con empate se toma el de la izquierda para que el orden sea estable
+                    destino[k] = j >= fin || (i < medio && orden.compare(a[i], a[j]) <= 0) ? a[i++] : a[j++];
+                    if (++hechos % TRAMO == 0) {
+                        informar(avance, hechos / total);
+                    }
+                }
+            }
+            Producto[] mezclado = destino;
+            destino = a;
+            a = mezclado;
+        }
+        informar(avance, 1);
+        return a;
+    }
+
+    /**
+     * Informa el avance de un ordenamiento y revisa si el hilo se interrumpió.
+     *
+     * @param avance Receptor del avance; puede ser null.
+     * @param fraccion Fracción ordenada.
+     * @throws InterruptedException Si el hilo se interrumpió.
+     */
+    private static void informar(DoubleConsumer avance, double fraccion) throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Ordenamiento interrumpido");
+        }
+        if (avance != null) {
+            avance.accept(fraccion);
+        }
+    }
+}
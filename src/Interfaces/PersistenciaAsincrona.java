@@ -0,0 +1,442 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Producto;
+import persistence.ResultadoImportacion;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Servicio que ejecuta los guardados, las cargas y otras operaciones largas de
+ * ProductoManager en segundo plano, sobre hilos virtuales, y devuelve un
+ * CompletableFuture por cada operación.
+ *
+ * Los guardados se escriben en un archivo temporal propio de cada escritura, que luego
+ * reemplaza al destino, por lo que un corte nunca deja un archivo a medio escribir. Los
+ * guardados sobre un mismo archivo se escriben de a uno: cada uno espera a que la escritura
+ * anterior termine de verdad, aunque su futuro ya se haya cancelado. Los pedidos de guardado
+ * sobre un mismo archivo que llegan mientras otro espera su turno se unen en una sola
+ * escritura, que toma el estado del catálogo al momento de ejecutarse.
+ *
+ * El avance y la finalización se informan a un {@link Progreso} a través del ejecutor
+ * de notificaciones indicado (por ejemplo, Platform::runLater en JavaFX). Las cargas
+ * informan la fracción leída del archivo y las operaciones pasadas como {@link Tarea}
+ * la fracción que ellas mismas informan; el resto, avance indeterminado. Una operación
+ * que termina con error informa FALLIDO, no 1; el error llega por su futuro.
+ *
+ * Cancelar el futuro de una operación interrumpe su hilo. Las cargas arman el catálogo
+ * nuevo aparte, así que una carga cancelada deja el catálogo sin cambios; un guardado
+ * cancelado no reemplaza el archivo destino.
+ *
+ * @author joaxx
+ */
+public class PersistenciaAsincrona implements AutoCloseable {
+
+    /** Avance que indica que la operación está en curso pero no se puede medir. */
+    public static final double INDETERMINADO = -1;
+
+    /** Avance que indica que la operación terminó porque se canceló. */
+    public static final double CANCELADO = -2;
+
+    /** Avance que indica que la operación terminó con un error. */
+    public static final double FALLIDO = -3;
+
+    private static final long DEMORA_PREDETERMINADA_MS = 100;
+
+    /**
+     * Receptor del avance de las operaciones.
+     */
+    @FunctionalInterface
+    public interface Progreso {
+        /**
+         * Informa el avance de una operación.
+         *
+         * @param operacion Descripción de la operación.
+         * @param avance Fracción completada entre 0 y 1, INDETERMINADO, CANCELADO o FALLIDO.
+         */
+        void informar(String operacion, double avance);
+    }
+
+    /**
+     * Escritura de un archivo completo en la ruta indicada.
+     */
+    @FunctionalInterface
+    private interface Escritura {
+        void escribir(String ruta) throws Exception;
+    }
+
+    /**
+     * Operación en segundo plano que informa su avance.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Tarea<T> {
+        /**
+         * Ejecuta la operación.
+         *
+         * @param avance Recibe la fracción completada entre 0 y 1, desde cualquier hilo.
+         * @return Resultado de la operación.
+         * @throws Exception Si la operación falla o se interrumpe.
+         */
+        T ejecutar(DoubleConsumer avance) throws Exception;
+    }
+
+    /**
+     * Guardado pedido para un destino que todavía no empezó a escribirse.
+     */
+    private static class Guardado {
+        private final String operacion;
+        private final CompletableFuture<Void> futuro = new CompletableFuture<>();
+        private final CompletableFuture<Void> terminado = new CompletableFuture<>(); // Al dejar de escribir, incluso si se canceló
+        private Escritura escritura;
+
+        Guardado(String operacion, Escritura escritura) {
+            this.operacion = operacion;
+            this.escritura = escritura;
+        }
+    }
+
+    private final ProductoManager manager;
+    private final Executor notificador;
+    private final Progreso progreso;
+    private final long demoraMs;
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<Path, Guardado> enEspera = new HashMap<>(); // Guardados que aún aceptan unirse
+    private final Map<Path, CompletableFuture<Void>> ultimos = new HashMap<>(); // Fin de la última escritura por destino
+
+    /**
+     * Constructor con la demora predeterminada para agrupar guardados.
+     *
+     * @param manager Catálogo a guardar y cargar.
+     * @param notificador Ejecutor donde se informa el avance.
+     * @param progreso Receptor del avance.
+     */
+    public PersistenciaAsincrona(ProductoManager manager, Executor notificador, Progreso progreso) {
+        this(manager, notificador, progreso, DEMORA_PREDETERMINADA_MS);
+    }
+
+    /**
+     * Constructor del servicio.
+     *
+     * @param manager Catálogo a guardar y cargar.
+     * @param notificador Ejecutor donde se informa el avance.
+     * @param progreso Receptor del avance.
+     * @param demoraMs Espera antes de escribir, durante la cual los pedidos repetidos se unen.
+     */
+    public PersistenciaAsincrona(ProductoManager manager, Executor notificador, Progreso progreso, long demoraMs) {
+        this.manager = manager;
+        this.notificador = notificador;
+        this.progreso = progreso;
+        this.demoraMs = demoraMs;
+    }
+
+    /**
+     * Guarda el catálogo en un archivo CSV en segundo plano.
+     *
+     * @param destino Ruta del archivo CSV.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    public CompletableFuture<Void> guardarCSV(Path destino) {
+        return guardar(destino, "Guardar CSV", manager::guardarCSV);
+    }
+
+    /**
+     * Guarda el catálogo en un archivo JSON en segundo plano.
+     *
+     * @param destino Ruta del archivo JSON.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    public CompletableFuture<Void> guardarJSON(Path destino) {
+        return guardar(destino, "Guardar JSON", manager::guardarJSON);
+    }
+
+    /**
+     * Serializa el catálogo en un archivo binario en segundo plano.
+     *
+     * @param destino Ruta del archivo binario.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    public CompletableFuture<Void> serializar(Path destino) {
+        return guardar(destino, "Serializar", manager::serializar);
+    }
+
+    /**
+     * Exporta una lista de productos a un archivo de texto en segundo plano.
+     *
+     * @param destino Ruta del archivo de texto.
+     * @param productos Productos a exportar.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    public CompletableFuture<Void> exportarTxt(Path destino, List<Producto> productos) {
+        return guardar(destino, "Exportar TXT", ruta -> manager.exportarTxt(ruta, productos));
+    }
+
+    /**
+     * Exporta a un archivo de texto, en segundo plano, los productos que cumplen un filtro.
+     *
+     * @param destino Ruta del archivo de texto.
+     * @param filtro Condición que deben cumplir los productos exportados.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    public CompletableFuture<Void> exportarTxt(Path destino, Predicate<Producto> filtro) {
+        return guardar(destino, "Exportar TXT", ruta -> manager.exportarTxt(ruta, filtro));
+    }
+
+    /**
+     * Carga el catálogo desde un archivo CSV en segundo plano.
+     *
+     * @param origen Ruta del archivo CSV.
+     * @return Futuro que se completa con el resultado de la importación.
+     */
+    public CompletableFuture<ResultadoImportacion> cargarCSV(Path origen) {
+        return cargarCSV(origen, null);
+    }
+
+    /**
+     * Carga el catálogo desde un archivo CSV en segundo plano, informando las líneas
+     * rechazadas en un archivo.
+     *
+     * @param origen Ruta del archivo CSV.
+     * @param rechazos Archivo donde informar las líneas rechazadas, o null.
+     * @return Futuro que se completa con el resultado de la importación.
+     */
+    public CompletableFuture<ResultadoImportacion> cargarCSV(Path origen, Path rechazos) {
+        return ejecutar("Cargar CSV", avance -> manager.cargarCSV(origen.toString(), rechazos == null ? null : rechazos.toString(), avance));
+    }
+
+    /**
+     * Carga el catálogo desde un archivo JSON en segundo plano.
+     *
+     * @param origen Ruta del archivo JSON.
+     * @return Futuro que se completa al terminar la carga.
+     */
+    public CompletableFuture<Void> cargarJSON(Path origen) {
+        return ejecutar("Cargar JSON", avance -> {
+            manager.cargarJSON(origen.toString(), avance);
+            return null;
+        });
+    }
+
+    /**
+     * Carga el catálogo desde un archivo binario en segundo plano.
+     *
+     * @param origen Ruta del archivo binario.
+     * @return Futuro que se completa al terminar la carga.
+     */
+    public CompletableFuture<Void> deserializar(Path origen) {
+        return deserializar(origen, false);
+    }
+
+    /**
+     * Carga el catálogo desde un archivo binario en segundo plano, con la opción de
+     * diferir la lectura de los campos propios de cada tipo hasta que se usen.
+     *
+     * @param origen Ruta del archivo binario.
+     * @param detallesDiferidos true para leer los campos propios recién al usarlos.
+     * @return Futuro que se completa al terminar la carga.
+     */
+    public CompletableFuture<Void> deserializar(Path origen, boolean detallesDiferidos) {
+        return ejecutar("Deserializar", avance -> {
+            manager.deserializar(origen.toString(), detallesDiferidos, avance);
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta en segundo plano otra operación larga sobre el catálogo, por ejemplo
+     * preparar un orden o filtrar, con avance indeterminado.
+     *
+     * @param <T> Tipo del resultado.
+     * @param operacion Descripción de la operación, o null para no informar su avance
+     *                  (por ejemplo en búsquedas breves y frecuentes).
+     * @param tarea Operación a ejecutar; si se cancela, su hilo se interrumpe.
+     * @return Futuro que se completa con el resultado de la operación.
+     */
+    public <T> CompletableFuture<T> ejecutar(String operacion, Callable<T> tarea) {
+        return ejecutar(operacion, avance -> tarea.call());
+    }
+
+    /**
+     * Espera a que terminen los guardados pendientes y libera los hilos del servicio.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<?>[] pendientes;
+        synchronized (this) {
+            pendientes = ultimos.values().toArray(new CompletableFuture<?>[0]);
+        }
+        CompletableFuture.allOf(pendientes).exceptionally(ex -> null).join();
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pide un guardado sobre un destino. Si ya hay uno esperando su turno para ese
+     * destino, el pedido se une a él; si no, se agrega uno nuevo después del último.
+     *
+     * @param destino Ruta del archivo a escribir.
+     * @param operacion Descripción de la operación.
+     * @param escritura Escritura del archivo completo.
+     * @return Futuro que se completa al terminar la escritura.
+     */
+    private synchronized CompletableFuture<Void> guardar(Path destino, String operacion, Escritura escritura) {
+        Path clave = destino.toAbsolutePath().normalize();
+        Guardado pendiente = enEspera.get(clave);
+        if (pendiente != null && pendiente.operacion.equals(operacion)) {
+            pendiente.escritura = escritura; // El pedido más reciente reemplaza al anterior
+            return pendiente.futuro;
+        }
+        Guardado g = new Guardado(operacion, escritura);
+        enEspera.put(clave, g);
+        CompletableFuture<Void> anterior = ultimos.getOrDefault(clave, CompletableFuture.completedFuture(null));
+        ultimos.put(clave, g.terminado);
+        notificar(operacion, 0);
+        Executor demorado = CompletableFuture.delayedExecutor(demoraMs, TimeUnit.MILLISECONDS, ejecutor);
+        anterior.whenComplete((r, ex) -> demorado.execute(() -> escribir(clave, g)));
+        return g.futuro;
+    }
+
+    /**
+     * Ejecuta un guardado: escribe un archivo temporal y lo mueve sobre el destino.
+     *
+     * @param destino Ruta del archivo a escribir.
+     * @param g Guardado a ejecutar.
+     */
+    private void escribir(Path destino, Guardado g) {
+        Escritura escritura;
+        synchronized (this) {
+            enEspera.remove(destino, g); // Desde aquí los pedidos nuevos esperan al siguiente turno
+            escritura = g.escritura;
+        }
+        if (g.futuro.isCancelled()) {
+            terminar(destino, g);
+            notificar(g.operacion, CANCELADO);
+            return;
+        }
+        interrumpirAlCancelar(g.futuro);
+        Path temporal = null;
+        try {
+            // Nombre único que termina con el del destino, para conservar la extensión que define la compresión
+            temporal = Files.createTempFile(destino.getParent(), "~", "-" + destino.getFileName());
+            notificar(g.operacion, INDETERMINADO);
+            escritura.escribir(temporal.toString());
+            if (g.futuro.isCancelled()) {
+                throw new InterruptedIOException("Guardado cancelado");
+            }
+            try {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+            notificar(g.operacion, 1);
+            g.futuro.complete(null);
+        } catch (Exception ex) {
+            try {
+                if (temporal != null) {
+                    Files.deleteIfExists(temporal);
+                }
+            } catch (IOException ignorada) {
+                ex.addSuppressed(ignorada);
+            }
+            notificar(g.operacion, g.futuro.isCancelled() ? CANCELADO : FALLIDO);
+            g.futuro.completeExceptionally(ex);
+        } finally {
+            terminar(destino, g);
+        }
+    }
+
+    /**
+     * Marca que un guardado dejó de escribir, lo que habilita al siguiente sobre el mismo destino.
+     *
+     * @param destino Ruta del archivo.
+     * @param g Guardado que terminó.
+     */
+    private void terminar(Path destino, Guardado g) {
+        synchronized (this) {
+            ultimos.remove(destino, g.terminado);
+        }
+        g.terminado.complete(null);
+    }
+
+    /**
+     * Ejecuta en un hilo virtual una operación que devuelve un resultado, informando su avance,
+     * por ejemplo preparar un orden o incrementar los precios.
+     *
+     * @param <T> Tipo del resultado.
+     * @param operacion Descripción de la operación, o null para no informar su avance.
+     * @param tarea Operación a ejecutar.
+     * @return Futuro que se completa con el resultado; cancelarlo interrumpe la operación.
+     */
+    public <T> CompletableFuture<T> ejecutar(String operacion, Tarea<T> tarea) {
+        notificar(operacion, INDETERMINADO);
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        ejecutor.execute(() -> {
+            if (futuro.isCancelled()) {
+                notificar(operacion, CANCELADO);
+                return;
+            }
+            interrumpirAlCancelar(futuro);
+            try {
+                T resultado = tarea.ejecutar(avance -> notificar(operacion, Math.min(avance, 0.99)));
+                notificar(operacion, futuro.isCancelled() ? CANCELADO : 1);
+                futuro.complete(resultado);
+            } catch (Exception ex) {
+                notificar(operacion, futuro.isCancelled() ? CANCELADO : FALLIDO);
+                futuro.completeExceptionally(ex);
+            }
+        });
+        return futuro;
+    }
+
+    /**
+     * Hace que cancelar un futuro interrumpa al hilo que llama, que es el que lo ejecuta.
+     * Cada operación corre en su propio hilo virtual, así que una interrupción tardía
+     * no afecta a otra operación.
+     *
+     * @param futuro Futuro de la operación en curso.
+     */
+    private static void interrumpirAlCancelar(CompletableFuture<?> futuro) {
+        Thread hilo = Thread.currentThread();
+        futuro.whenComplete((r, ex) -> {
+            if (futuro.isCancelled()) {
+                hilo.interrupt();
+            }
+        });
+    }
+
+    /**
+     * Informa el avance de una operación a través del ejecutor de notificaciones.
+     *
+     * @param operacion Descripción de la operación; si es null no se informa.
+     * @param avance Fracción completada, INDETERMINADO, CANCELADO o FALLIDO.
+     */
+    private void notificar(String operacion, double avance) {
+        if (progreso != null && operacion != null) {
+            notificador.execute(() -> progreso.informar(operacion, avance));
+        }
+    }
+}
@@ -7,33 +7,65 @@ package Interfaces;
 import model.Producto.Producto;
 import model.Producto.Alimento; 
 import exceptions.ProductoNoEncontradoException;
+import comparators.ComparadorPorNombre;
+import comparators.ComparadorPorPrecio;
+import indexes.IndiceHuecos;
+import indexes.IndicesSecundarios;
+import indexes.MapaEnteros;
+import query.Consulta;
+import query.PlanConsulta;
+import query.ProcesamientoParalelo;
+import persistence.CargadorCSV;
+import persistence.Compresion;
+import persistence.DeltaCatalogo;
+import persistence.DiarioCambios;
+import persistence.InstantaneaBinaria;
+import persistence.ImportacionCSV;
+import persistence.ProductosJSON;
+import persistence.ReporteTxt;
+import persistence.ResultadoImportacion;
 import java.util.*;
 import java.util.function.*;
 import java.io.*;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.reflect.TypeToken;
-import exceptions.PrecioInvalidoException;
-import model.Producto.Electronico;
-import model.Producto.Ropa;
-import model.enums.MarcaElectronicos;
-import model.enums.TallaRopa;
-import model.enums.TipoAlimento;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Clase que gestiona una lista de productos, proporcionando operaciones CRUD,
  * filtrado, ordenamiento, persistencia en diferentes formatos, y exportación de datos.
  * 
+ * Las operaciones que leen o modifican la lista están sincronizadas. Las lecturas
+ * completas (obtenerTodos, iterator y las exportaciones) trabajan sobre una
+ * instantánea inmutable, por lo que pueden ejecutarse en otro hilo mientras se edita.
+ * 
+ * Cada operación que modifica el catálogo informa sus cambios a los oyentes
+ * registrados con agregarOyente, en un solo lote por operación (ver CambiosCatalogo).
+ * 
  * @author joaxx
  */
 public class ProductoManager implements CrudRepository<Producto>, Serializable {
 
-    private List<Producto> productos = new ArrayList<>();
+    private ArrayList<Producto> productos = new ArrayList<>();
     private int nextId = 1; // Id autoincremental
+    private MapaEnteros indicePorId = new MapaEnteros(); // Id -> posición en la lista
+    private int huecos = 0; // Posiciones liberadas por eliminar, pendientes de compactar
+    private IndiceHuecos posicionesLibres; // Posiciones liberadas, null si no hay huecos
+    private IndicesSecundarios indices = new IndicesSecundarios(); // Por tipo, precio y nombre
+    private int umbralParalelo = 20_000; // Tamaño de bloque de las operaciones paralelas
+    private long version = 0; // Se incrementa con cada modificación del catálogo
+    private transient volatile InstantaneaProductos instantanea; // Última instantánea publicada
+    private transient DiarioCambios diario; // Diario de cambios, null si no se usa
+    private MapaEnteros cambiosPendientes = new MapaEnteros(); // Id -> cambio desde el último guardado incremental
+    private transient Path baseIncremental; // Base con la que está sincronizado el catálogo, null si no hay
+    private transient int sumaBase; // CRC de baseIncremental
+    private transient List<CambiosCatalogo.Oyente> oyentes; // null hasta registrar el primero
+
+    private static final int CAMBIO_AGREGADO = 0;
+    private static final int CAMBIO_MODIFICADO = 1;
+    private static final int CAMBIO_ELIMINADO = 2;
+    private static final int AVISO_CARGA = 1 << 16; // Productos entre avisos de avance y revisiones de cancelación
 
     /**
      * Agrega un producto a la lista, asignándole un ID único.
@@ -41,9 +73,27 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
      * @param p Producto a agregar.
      */
     @Override
-    public void agregar(Producto p) {
-        p.setId(nextId++);
+    public synchronized void agregar(Producto p) {
+        CambiosCatalogo cambios = nuevosCambios();
+        int idAnterior = p.getId();
+        p.setId(nextId);
+        try {
+            registrar(d -> d.registrarAgregar(p));
+        } catch (UncheckedIOException ex) {
+            p.setId(idAnterior);
+            throw ex;
+        }
+        nextId++;
+        indicePorId.put(p.getId(), productos.size());
         productos.add(p);
+        indices.agregar(p);
+        nuevaVersion();
+        marcarCambio(p.getId(), CAMBIO_AGREGADO);
+        puntoDeControlPendiente();
+        if (cambios != null) {
+            cambios.agregar(CambiosCatalogo.Tipo.AGREGADO, p.getId(), cantidad() - 1, p, null);
+        }
+        avisar(cambios);
     }
 
     /**
@@ -54,59 +104,772 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
      * @throws ProductoNoEncontradoException Si no se encuentra el producto.
      */
     @Override
-    public Producto obtenerPorId(int id) {
-        return productos.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElseThrow(() -> new ProductoNoEncontradoException("No se encontró producto con id " + id));
+    public synchronized Producto obtenerPorId(int id) {
+        int pos = indicePorId.get(id);
+        if (pos == MapaEnteros.AUSENTE) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+        return productos.get(pos);
     }
 
     /**
-     * Devuelve una lista inmodificable de todos los productos.
+     * Devuelve una lista inmutable de todos los productos.
+     * La lista es la de la instantánea actual: no cambia si luego se modifica el catálogo.
      * 
      * @return Lista de productos.
      */
     @Override
     public List<Producto> obtenerTodos() {
-        return Collections.unmodifiableList(productos);
+        return obtenerInstantanea().getProductos();
+    }
+
+    /**
+     * Obtiene una instantánea inmutable y versionada del catálogo.
+     * Mientras no haya modificaciones se devuelve siempre la misma instantánea;
+     * la primera lectura después de una modificación copia la lista una vez.
+     * Quien ya tiene una instantánea puede recorrerla sin bloquear a los escritores.
+     * 
+     * @return Instantánea actual del catálogo.
+     */
+    public InstantaneaProductos obtenerInstantanea() {
+        InstantaneaProductos actual = instantanea;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (instantanea == null) {
+                instantanea = new InstantaneaProductos(version, listaCompacta());
+            }
+            return instantanea;
+        }
+    }
+
+    /**
+     * Registra una modificación del catálogo, descartando la instantánea publicada.
+     */
+    private void nuevaVersion() {
+        version++;
+        instantanea = null;
+    }
+
+    /**
+     * Registra un oyente que recibirá los cambios de cada operación sobre el catálogo.
+     * 
+     * @param oyente Oyente a registrar.
+     */
+    public synchronized void agregarOyente(CambiosCatalogo.Oyente oyente) {
+        if (oyentes == null) {
+            oyentes = new CopyOnWriteArrayList<>();
+        }
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Quita un oyente registrado con {@link #agregarOyente(CambiosCatalogo.Oyente)}.
+     * 
+     * @param oyente Oyente a quitar.
+     */
+    public synchronized void quitarOyente(CambiosCatalogo.Oyente oyente) {
+        if (oyentes != null) {
+            oyentes.remove(oyente);
+        }
+    }
+
+    /**
+     * Obtiene la versión actual del catálogo, que se incrementa con cada modificación.
+     * 
+     * @return Versión del catálogo.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Empieza el lote de cambios de una operación.
+     * 
+     * @return Lote vacío, o null si no hay oyentes y no hace falta registrar cambios.
+     */
+    private CambiosCatalogo nuevosCambios() {
+        return oyentes == null || oyentes.isEmpty() ? null : new CambiosCatalogo(version);
+    }
+
+    /**
+     * Empieza el lote de una operación que cambia todo el catálogo.
+     * 
+     * @return Lote completo, o null si no hay oyentes.
+     */
+    private CambiosCatalogo cambiosCompletos() {
+        CambiosCatalogo cambios = nuevosCambios();
+        if (cambios != null) {
+            cambios.marcarCompleto();
+        }
+        return cambios;
+    }
+
+    /**
+     * Informa a los oyentes el lote de cambios de una operación terminada.
+     * 
+     * @param cambios Lote de la operación, o null si no hay oyentes.
+     */
+    private void avisar(CambiosCatalogo cambios) {
+        if (cambios == null || cambios.getVersionAnterior() == version) {
+            return; // Sin oyentes o sin modificaciones
+        }
+        cambios.cerrar(version);
+        for (CambiosCatalogo.Oyente oyente : oyentes) {
+            oyente.catalogoCambiado(cambios);
+        }
+    }
+
+    /**
+     * Comienza a registrar las modificaciones en un diario de cambios.
+     * Toma un punto de control inmediato para que el diario parta del estado actual.
+     * 
+     * @param diario Diario donde registrar las modificaciones, o null para dejar de registrar.
+     * @throws IOException Si ocurre un error al escribir el punto de control.
+     */
+    public synchronized void usarDiario(DiarioCambios diario) throws IOException {
+        this.diario = diario;
+        if (diario != null) {
+            diario.puntoDeControl(listaCompacta());
+        }
+    }
+
+    /**
+     * Reconstruye el catálogo a partir de la última instantánea y del diario de cambios.
+     * Se usa al iniciar, antes de {@link #usarDiario(DiarioCambios)}.
+     * 
+     * @param archivoInstantanea Ruta de la instantánea del último punto de control.
+     * @param archivoDiario Ruta del diario de cambios.
+     * @return Cantidad de registros del diario reproducidos.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws ClassNotFoundException Si la instantánea contiene clases desconocidas.
+     */
+    public synchronized int recuperar(Path archivoInstantanea, Path archivoDiario) throws IOException, ClassNotFoundException {
+        CambiosCatalogo cambios = cambiosCompletos();
+        limpiar();
+        try {
+            return DiarioCambios.recuperar(archivoInstantanea, archivoDiario, this::reemplazarCargado, this::quitar);
+        } finally {
+            avisar(cambios);
+        }
+    }
+
+    /**
+     * Guarda el catálogo en forma incremental sobre una instantánea base.
+     * Si el catálogo ya está sincronizado con esa base, solo escribe un parche con los
+     * productos agregados, modificados y eliminados desde el guardado anterior, por lo que
+     * el tiempo depende de la cantidad de cambios. Los productos se escriben en el orden de
+     * la lista, para que al cargar las altas queden en el mismo orden. Si no hay base, si el
+     * catálogo se cargó desde otro lugar o si los parches ya ocupan más que la base, compacta.
+     * 
+     * @param nombreArchivo Ruta de la instantánea base.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void guardarIncremental(String nombreArchivo) throws IOException {
+        Path base = Path.of(nombreArchivo);
+        Path delta = DeltaCatalogo.archivoDelta(base);
+        if (!base.equals(baseIncremental) || !Files.exists(base)
+                || (Files.exists(delta) && Files.size(delta) > Files.size(base))) {
+            compactar(nombreArchivo);
+            return;
+        }
+        if (cambiosPendientes.size() == 0) {
+            return;
+        }
+        int[] ids = cambiosPendientes.claves();
+        int[] posiciones = new int[ids.length];
+        int cantidadGuardados = 0;
+        int eliminados = 0;
+        for (int id : ids) {
+            if (cambiosPendientes.get(id) == CAMBIO_ELIMINADO) {
+                ids[eliminados++] = id;
+            } else {
+                posiciones[cantidadGuardados++] = indicePorId.get(id);
+            }
+        }
+        Arrays.sort(posiciones, 0, cantidadGuardados); // Las claves salen en el orden del mapa, no de la lista
+        List<Producto> guardados = new ArrayList<>(cantidadGuardados);
+        for (int i = 0; i < cantidadGuardados; i++) {
+            guardados.add(productos.get(posiciones[i]));
+        }
+        DeltaCatalogo.agregarParche(base, sumaBase, guardados, Arrays.copyOf(ids, eliminados));
+        cambiosPendientes = new MapaEnteros();
+    }
+
+    /**
+     * Escribe una instantánea base nueva con el catálogo completo y descarta los parches anteriores.
+     * 
+     * @param nombreArchivo Ruta de la instantánea base.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void compactar(String nombreArchivo) throws IOException {
+        Path base = Path.of(nombreArchivo);
+        sumaBase = DeltaCatalogo.compactar(base, listaCompacta());
+        baseIncremental = base;
+        cambiosPendientes = new MapaEnteros();
+    }
+
+    /**
+     * Carga el catálogo desde una instantánea base y sus parches incrementales.
+     * Luego los guardados incrementales sobre la misma base escriben solo los cambios.
+     * 
+     * @param nombreArchivo Ruta de la instantánea base.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public synchronized void cargarIncremental(String nombreArchivo) throws IOException {
+        Path base = Path.of(nombreArchivo);
+        CambiosCatalogo cambios = cambiosCompletos();
+        limpiar();
+        try {
+            sumaBase = DeltaCatalogo.cargar(base, this::reemplazarCargado, this::quitar);
+            baseIncremental = base;
+            puntoDeControlTrasCarga();
+        } finally {
+            avisar(cambios);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de productos agregados, modificados o eliminados desde el último guardado incremental.
+     * 
+     * @return Cantidad de cambios pendientes.
+     */
+    public synchronized int cantidadCambiosPendientes() {
+        return cambiosPendientes.size();
+    }
+
+    /**
+     * Registra que un producto cambió desde el último guardado incremental.
+     * Un producto agregado sigue siendo un alta aunque luego se modifique, y si se
+     * elimina antes de guardarse deja de ser un cambio pendiente.
+     * 
+     * @param id ID del producto.
+     * @param cambio CAMBIO_AGREGADO, CAMBIO_MODIFICADO o CAMBIO_ELIMINADO.
+     */
+    private void marcarCambio(int id, int cambio) {
+        int anterior = cambiosPendientes.get(id);
+        if (anterior == CAMBIO_AGREGADO) {
+            if (cambio == CAMBIO_ELIMINADO) {
+                cambiosPendientes.remove(id);
+            }
+            return;
+        }
+        cambiosPendientes.put(id, cambio);
+    }
+
+    /**
+     * Operación de escritura sobre el diario de cambios.
+     */
+    private interface OperacionDiario {
+        void escribir(DiarioCambios diario) throws IOException;
+    }
+
+    /**
+     * Escribe una modificación en el diario, si hay uno en uso. Se llama antes de
+     * modificar el catálogo, de modo que si falla el catálogo queda sin cambios.
+     * 
+     * @param operacion Operación a registrar.
+     * @throws UncheckedIOException Si ocurre un error al escribir el diario.
+     */
+    private void registrar(OperacionDiario operacion) {
+        if (diario == null) {
+            return;
+        }
+        try {
+            operacion.escribir(diario);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Error al escribir el diario de cambios", ex);
+        }
+    }
+
+    /**
+     * Registra en el diario productos que una acción ya modificó en el lugar, y por eso
+     * no pudieron registrarse antes. Si falla, los cambios quedan aplicados e indexados
+     * pero fuera del diario hasta el próximo punto de control.
+     * 
+     * @param modificados Productos modificados.
+     * @throws UncheckedIOException Si ocurre un error al escribir el diario.
+     */
+    private void registrarModificados(List<? extends Producto> modificados) {
+        if (diario == null) {
+            return;
+        }
+        for (Producto p : modificados) {
+            registrar(d -> d.registrarActualizar(p));
+        }
+        puntoDeControlPendiente();
+    }
+
+    /**
+     * Toma un punto de control si el diario acumuló suficientes registros. Se llama después
+     * de aplicar la modificación, para que la instantánea la incluya. Si falla, el diario
+     * conserva sus registros y el punto de control se reintenta en la siguiente modificación.
+     */
+    private void puntoDeControlPendiente() {
+        if (diario != null && diario.requierePuntoControl()) {
+            try {
+                diario.puntoDeControl(listaCompacta());
+            } catch (IOException ex) {
+                // El cambio ya está en el diario; reproducirlo sobre la instantánea anterior no pierde nada
+            }
+        }
+    }
+
+    /**
+     * Toma un punto de control después de reemplazar el catálogo desde un archivo.
+     * 
+     * @throws IOException Si ocurre un error al escribir el punto de control.
+     */
+    private void puntoDeControlTrasCarga() throws IOException {
+        if (diario != null) {
+            diario.puntoDeControl(listaCompacta());
+        }
     }
 
     /**
      * Actualiza un producto existente.
+     * También sirve para volver a indexar un producto modificado en el lugar
+     * (por ejemplo, con setPrecio o setNombre).
      * 
      * @param elemento Producto con los datos actualizados.
      * @throws ProductoNoEncontradoException Si no se encuentra el producto a actualizar.
      */
     @Override
-    public void actualizar(Producto elemento) {
-        for (int i = 0; i < productos.size(); i++) {
-            if (productos.get(i).getId() == elemento.getId()) {
-                productos.set(i, elemento);
-                return;
-            }
+    public synchronized void actualizar(Producto elemento) {
+        int pos = indicePorId.get(elemento.getId());
+        if (pos == MapaEnteros.AUSENTE) {
+            throw new ProductoNoEncontradoException("No se encontró producto para actualizar con id " + elemento.getId());
+        }
+        CambiosCatalogo cambios = nuevosCambios();
+        registrar(d -> d.registrarActualizar(elemento));
+        Producto anterior = productos.set(pos, elemento);
+        indices.actualizar(elemento);
+        nuevaVersion();
+        marcarCambio(elemento.getId(), CAMBIO_MODIFICADO);
+        puntoDeControlPendiente();
+        if (cambios != null) {
+            cambios.agregar(CambiosCatalogo.Tipo.MODIFICADO, elemento.getId(), posicionCompacta(pos), elemento, anterior);
         }
-        throw new ProductoNoEncontradoException("No se encontró producto para actualizar con id " + elemento.getId());
+        avisar(cambios);
     }
 
     /**
      * Elimina un producto por su ID.
+     * La posición queda libre y se compacta en la siguiente lectura completa de la lista,
+     * por lo que el orden de los demás productos se conserva.
      * 
      * @param id ID del producto a eliminar.
      * @throws ProductoNoEncontradoException Si no se encuentra el producto a eliminar.
      */
     @Override
-    public void eliminar(int id) {
-        Producto p = obtenerPorId(id);
-        productos.remove(p);
+    public synchronized void eliminar(int id) {
+        if (!indicePorId.contiene(id)) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+        CambiosCatalogo cambios = nuevosCambios();
+        registrar(d -> d.registrarEliminar(id));
+        quitar(id, cambios);
+        marcarCambio(id, CAMBIO_ELIMINADO);
+        puntoDeControlPendiente();
+        avisar(cambios);
+    }
+
+    /**
+     * Quita un producto de la lista y de los índices, si existe.
+     * 
+     * @param id ID del producto a quitar.
+     * @return true si el producto existía, false en caso contrario.
+     */
+    private boolean quitar(int id) {
+        return quitar(id, null);
+    }
+
+    /**
+     * Quita un producto de la lista y de los índices, si existe, y registra la
+     * eliminación en un lote de cambios.
+     * 
+     * @param id ID del producto a quitar.
+     * @param cambios Lote de la operación, o null.
+     * @return true si el producto existía, false en caso contrario.
+     */
+    private boolean quitar(int id, CambiosCatalogo cambios) {
+        int pos = indicePorId.remove(id);
+        if (pos == MapaEnteros.AUSENTE) {
+            return false;
+        }
+        if (cambios != null) {
+            cambios.agregar(CambiosCatalogo.Tipo.ELIMINADO, id, posicionCompacta(pos), null, productos.get(pos));
+        }
+        productos.set(pos, null);
+        if (posicionesLibres == null) {
+            posicionesLibres = new IndiceHuecos(productos.size());
+        }
+        posicionesLibres.marcar(pos);
+        huecos++;
+        indices.eliminar(id);
+        nuevaVersion();
+        return true;
+    }
+
+    /**
+     * Traduce una posición de la lista a la que tendría sin las posiciones libres.
+     * 
+     * @param pos Posición en la lista.
+     * @return Posición sin contar los huecos anteriores.
+     */
+    private int posicionCompacta(int pos) {
+        return posicionesLibres == null ? pos : pos - posicionesLibres.huecosAntes(pos);
+    }
+
+    /**
+     * Agrega varios productos, con IDs consecutivos.
+     * La lista y el índice por ID se agrandan una sola vez. Cada producto se registra en el
+     * diario antes de agregarse: si el diario falla, quedan agregados solo los anteriores.
+     * 
+     * @param elementos Productos a agregar.
+     * @throws UncheckedIOException Si ocurre un error al escribir el diario.
+     */
+    @Override
+    public synchronized void agregarTodos(Collection<? extends Producto> elementos) {
+        CambiosCatalogo cambios = nuevosCambios();
+        int posicion = cantidad();
+        productos.ensureCapacity(productos.size() + elementos.size());
+        indicePorId.asegurarCapacidad(indicePorId.size() + elementos.size());
+        try {
+            for (Producto p : elementos) {
+                int idAnterior = p.getId();
+                p.setId(nextId);
+                try {
+                    registrar(d -> d.registrarAgregar(p));
+                } catch (UncheckedIOException ex) {
+                    p.setId(idAnterior);
+                    throw ex;
+                }
+                nextId++;
+                indicePorId.put(p.getId(), productos.size());
+                productos.add(p);
+                indices.agregar(p);
+                marcarCambio(p.getId(), CAMBIO_AGREGADO);
+                if (cambios != null) {
+                    cambios.agregar(CambiosCatalogo.Tipo.AGREGADO, p.getId(), posicion++, p, null);
+                }
+            }
+        } finally {
+            nuevaVersion();
+            avisar(cambios);
+        }
+        puntoDeControlPendiente();
+    }
+
+    /**
+     * Actualiza varios productos existentes.
+     * Primero verifica que todos existan, de modo que si alguno falta no se modifica ninguno.
+     * Cada producto se registra en el diario antes de reemplazarse: si el diario falla,
+     * quedan actualizados solo los anteriores.
+     * 
+     * @param elementos Productos con los datos actualizados.
+     * @throws ProductoNoEncontradoException Si alguno de los productos no existe.
+     * @throws UncheckedIOException Si ocurre un error al escribir el diario.
+     */
+    @Override
+    public synchronized void actualizarTodos(Collection<? extends Producto> elementos) {
+        for (Producto p : elementos) {
+            if (!indicePorId.contiene(p.getId())) {
+                throw new ProductoNoEncontradoException("No se encontró producto para actualizar con id " + p.getId());
+            }
+        }
+        CambiosCatalogo cambios = nuevosCambios();
+        try {
+            for (Producto p : elementos) {
+                registrar(d -> d.registrarActualizar(p));
+                int pos = indicePorId.get(p.getId());
+                Producto anterior = productos.set(pos, p);
+                indices.actualizar(p);
+                marcarCambio(p.getId(), CAMBIO_MODIFICADO);
+                if (cambios != null) {
+                    cambios.agregar(CambiosCatalogo.Tipo.MODIFICADO, p.getId(), posicionCompacta(pos), p, anterior);
+                }
+            }
+        } finally {
+            nuevaVersion();
+            avisar(cambios);
+        }
+        puntoDeControlPendiente();
+    }
+
+    /**
+     * Elimina varios productos por sus IDs.
+     * Primero verifica que todos existan, de modo que si alguno falta no se elimina ninguno.
+     * Las posiciones liberadas se compactan juntas en una sola pasada. Cada baja se registra
+     * en el diario antes de aplicarse: si el diario falla, quedan eliminados solo los anteriores.
+     * 
+     * @param ids IDs de los productos a eliminar.
+     * @throws ProductoNoEncontradoException Si alguno de los productos no existe.
+     * @throws UncheckedIOException Si ocurre un error al escribir el diario.
+     */
+    @Override
+    public synchronized void eliminarTodos(int[] ids) {
+        for (int id : ids) {
+            if (!indicePorId.contiene(id)) {
+                throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+            }
+        }
+        CambiosCatalogo cambios = nuevosCambios();
+        try {
+            for (int id : ids) {
+                if (indicePorId.contiene(id)) { // Un ID repetido ya fue eliminado
+                    registrar(d -> d.registrarEliminar(id));
+                    quitar(id, cambios);
+                    marcarCambio(id, CAMBIO_ELIMINADO);
+                }
+            }
+        } finally {
+            avisar(cambios);
+        }
+        puntoDeControlPendiente();
     }
 
     /**
      * Ordena la lista de productos según un comparador dado.
+     * Modifica el orden de la lista de forma permanente; para obtener un orden
+     * sin alterar la lista usar {@link #obtenerOrdenados(Comparator)}.
      * 
      * @param comparator Comparador para determinar el orden de los productos.
      */
-    public void ordenarPor(Comparator<Producto> comparator) {
-        productos.sort(comparator);
+    public synchronized void ordenarPor(Comparator<Producto> comparator) {
+        CambiosCatalogo cambios = cambiosCompletos();
+        listaCompacta().sort(comparator);
+        reindexar();
+        nuevaVersion();
+        baseIncremental = null; // Los parches no guardan el orden: el próximo guardado incremental compacta
+        avisar(cambios);
+    }
+
+    /**
+     * Devuelve los productos en el orden de un comparador, sin modificar la lista.
+     * Para ComparadorPorNombre y ComparadorPorPrecio se usa la vista ordenada que
+     * los índices mantienen en cada cambio, por lo que no se ordena nada.
+     * Para otros comparadores se ordena una copia.
+     * 
+     * @param comparator Comparador que define el orden.
+     * @return Lista nueva con los productos ordenados.
+     */
+    public synchronized List<Producto> obtenerOrdenados(Comparator<Producto> comparator) {
+        if (comparator instanceof ComparadorPorNombre) {
+            return new ArrayList<>(indices.vistaPorNombre());
+        }
+        if (comparator instanceof ComparadorPorPrecio) {
+            return new ArrayList<>(indices.vistaPorPrecio());
+        }
+        List<Producto> copia = new ArrayList<>(listaCompacta());
+        copia.sort(comparator);
+        return copia;
+    }
+
+    /**
+     * Obtiene la cantidad de productos del catálogo.
+     * 
+     * @return Cantidad de productos.
+     */
+    public synchronized int cantidad() {
+        return productos.size() - huecos;
+    }
+
+    /**
+     * Obtiene los productos de un rango de posiciones, sin copiar el resto del catálogo.
+     * Sin comparador, las posiciones son las del orden de la lista, sin contar las libres.
+     * Con comparador, las del orden que define (ver InstantaneaProductos.ordenados).
+     * 
+     * Las páginas se leen de la instantánea actual, sin bloquear el catálogo: la interfaz
+     * puede pedir páginas mientras otro hilo ordena, incrementa precios o aplica descuentos.
+     * Solo la primera lectura después de una modificación bloquea el catálogo para armar
+     * la instantánea nueva (ver obtenerInstantanea). La copia ordenada se arma en la primera
+     * página de cada instantánea; prepararOrden la arma antes, en segundo plano.
+     * 
+     * @param orden Comparador que define el orden, o null para el orden de la lista.
+     * @param desde Posición inicial, incluida.
+     * @param hasta Posición final, excluida.
+     * @return Lista nueva con los productos del rango; puede tener menos si el catálogo es más chico.
+     */
+    public List<Producto> obtenerPagina(Comparator<Producto> orden, int desde, int hasta) {
+        InstantaneaProductos actual = obtenerInstantanea();
+        List<Producto> lista = orden == null ? actual.getProductos() : actual.ordenados(orden);
+        int fin = Math.min(hasta, lista.size());
+        int inicio = Math.max(0, Math.min(desde, fin));
+        return new ArrayList<>(lista.subList(inicio, fin));
+    }
+
+    /**
+     * Prepara la copia ordenada que obtenerPagina usa, para que las páginas que luego pida
+     * la interfaz no ordenen nada mientras el catálogo no cambie.
+     * 
+     * @param orden Comparador que define el orden; debe ser el mismo objeto que luego se pase a obtenerPagina.
+     * @see #prepararOrden(Comparator, DoubleConsumer)
+     */
+    public void prepararOrden(Comparator<Producto> orden) {
+        try {
+            prepararOrden(orden, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prepara la copia ordenada que obtenerPagina usa, informando el avance.
+     * Pensado para llamarse desde un hilo en segundo plano: ordena la instantánea actual
+     * sin bloquear el catálogo, así que las modificaciones y las páginas de otros hilos
+     * no esperan al ordenamiento.
+     * 
+     * @param orden Comparador que define el orden; debe ser el mismo objeto que luego se pase a obtenerPagina.
+     * @param avance Recibe la fracción ordenada entre 0 y 1; puede ser null.
+     * @return Instantánea ordenada; su método ordenados devuelve la copia sin volver a ordenar.
+     * @throws InterruptedException Si el hilo se interrumpe mientras ordena.
+     */
+    public InstantaneaProductos prepararOrden(Comparator<Producto> orden, DoubleConsumer avance) throws InterruptedException {
+        InstantaneaProductos actual = obtenerInstantanea();
+        actual.ordenados(orden, avance);
+        return actual;
+    }
+
+    /**
+     * Devuelve la lista de productos sin posiciones libres.
+     * Si hubo eliminaciones desde la última compactación, desplaza los productos
+     * restantes en una sola pasada y actualiza sus posiciones en el índice.
+     * 
+     * @return Lista interna de productos, sin huecos.
+     */
+    private List<Producto> listaCompacta() {
+        if (huecos > 0) {
+            productos.removeIf(Objects::isNull);
+            huecos = 0;
+            posicionesLibres = null;
+            reindexar();
+        }
+        return productos;
+    }
+
+    /**
+     * Reconstruye el índice por ID a partir del orden actual de la lista.
+     */
+    private void reindexar() {
+        indicePorId.clear();
+        for (int i = 0; i < productos.size(); i++) {
+            indicePorId.put(productos.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * Vacía la lista y el índice antes de una carga desde archivo.
+     */
+    private void limpiar() {
+        productos.clear();
+        indicePorId.clear();
+        huecos = 0;
+        posicionesLibres = null;
+        indices.limpiar();
+        nuevaVersion();
+        cambiosPendientes = new MapaEnteros();
+        baseIncremental = null;
+    }
+
+    /**
+     * Catálogo que una carga arma aparte, con sus índices, sin bloquear el actual.
+     */
+    private static class CatalogoNuevo implements Consumer<Producto> {
+        private final ArrayList<Producto> productos;
+        private final MapaEnteros indicePorId;
+        private final IndicesSecundarios indices = new IndicesSecundarios();
+        private int mayorId;
+
+        /**
+         * Constructor del catálogo vacío.
+         * 
+         * @param esperados Cantidad de productos que se espera cargar, o 0 si no se conoce.
+         */
+        CatalogoNuevo(int esperados) {
+            productos = new ArrayList<>(esperados);
+            indicePorId = new MapaEnteros(esperados);
+        }
+
+        /**
+         * Agrega un producto cargado, o reemplaza al anterior con el mismo ID.
+         * 
+         * @param p Producto cargado.
+         */
+        @Override
+        public void accept(Producto p) {
+            int pos = indicePorId.get(p.getId());
+            if (pos == MapaEnteros.AUSENTE) {
+                indicePorId.put(p.getId(), productos.size());
+                productos.add(p);
+                indices.agregar(p);
+            } else {
+                productos.set(pos, p);
+                indices.actualizar(p);
+            }
+            mayorId = Math.max(mayorId, p.getId());
+        }
+    }
+
+    /**
+     * Reemplaza todo el catálogo por uno armado aparte, de una sola vez, e informa
+     * el cambio a los oyentes. Mantiene el ID autoincremental por encima de los IDs cargados.
+     * 
+     * @param nuevo Catálogo cargado, con sus índices ya construidos.
+     * @throws IOException Si ocurre un error al escribir el punto de control del diario.
+     */
+    private synchronized void reemplazarCatalogo(CatalogoNuevo nuevo) throws IOException {
+        CambiosCatalogo cambios = cambiosCompletos();
+        productos = nuevo.productos;
+        indicePorId = nuevo.indicePorId;
+        indices = nuevo.indices;
+        huecos = 0;
+        posicionesLibres = null;
+        if (nuevo.mayorId >= nextId) {
+            nextId = nuevo.mayorId + 1;
+        }
+        nuevaVersion();
+        cambiosPendientes = new MapaEnteros();
+        baseIncremental = null;
+        try {
+            puntoDeControlTrasCarga();
+        } finally {
+            avisar(cambios);
+        }
+    }
+
+    /**
+     * Agrega un producto leído desde un archivo o lo reemplaza si su ID ya existe.
+     * 
+     * @param p Producto cargado.
+     */
+    private void reemplazarCargado(Producto p) {
+        int pos = indicePorId.get(p.getId());
+        if (pos == MapaEnteros.AUSENTE) {
+            agregarCargado(p);
+        } else {
+            productos.set(pos, p);
+            indices.actualizar(p);
+            nuevaVersion();
+        }
+    }
+
+    /**
+     * Agrega un producto leído desde un archivo conservando su ID.
+     * Mantiene el índice sincronizado y avanza el ID autoincremental
+     * para que los productos agregados luego no repitan IDs.
+     * 
+     * @param p Producto cargado.
+     */
+    private void agregarCargado(Producto p) {
+        indicePorId.put(p.getId(), productos.size());
+        productos.add(p);
+        indices.agregar(p);
+        if (p.getId() >= nextId) {
+            nextId = p.getId() + 1;
+        }
+        nuevaVersion();
     }
 
     /**
@@ -115,9 +878,9 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
      * @param filtro Predicado que define el criterio de filtrado.
      * @return Lista de productos que cumplen el criterio.
      */
-    public List<Producto> filtrar(Predicate<Producto> filtro) {
+    public synchronized List<Producto> filtrar(Predicate<Producto> filtro) {
         List<Producto> resultado = new ArrayList<>();
-        for (Producto p : productos) {
+        for (Producto p : listaCompacta()) {
             if (filtro.test(p)) {
                 resultado.add(p);
             }
@@ -125,13 +888,172 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
         return resultado;
     }
 
+    /**
+     * Filtra los productos en paralelo según un criterio especificado.
+     * El resultado conserva el orden de la lista, igual que {@link #filtrar(Predicate)}.
+     * 
+     * @param filtro Predicado sin efectos secundarios que define el criterio de filtrado.
+     * @return Lista de productos que cumplen el criterio.
+     */
+    public synchronized List<Producto> filtrarParalelo(Predicate<Producto> filtro) {
+        return ProcesamientoParalelo.filtrar(listaCompacta(), filtro, umbralParalelo);
+    }
+
+    /**
+     * Obtiene el tamaño de bloque de las operaciones paralelas.
+     * 
+     * @return Cantidad de productos por bloque.
+     */
+    public int getUmbralParalelo() {
+        return umbralParalelo;
+    }
+
+    /**
+     * Establece el tamaño de bloque de las operaciones paralelas.
+     * Con menos productos que el umbral, las operaciones paralelas se ejecutan
+     * en el hilo que las llama.
+     * 
+     * @param umbralParalelo Cantidad de productos por bloque.
+     * @throws IllegalArgumentException Si el umbral no es positivo.
+     */
+    public void setUmbralParalelo(int umbralParalelo) {
+        if (umbralParalelo <= 0) {
+            throw new IllegalArgumentException("El umbral debe ser positivo: " + umbralParalelo);
+        }
+        this.umbralParalelo = umbralParalelo;
+    }
+
+    /**
+     * Filtra los productos cuyo precio está en el rango [desde, hasta).
+     * Utiliza el índice por precio, por lo que no recorre todo el catálogo.
+     * 
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Lista de productos en el rango, ordenados por precio.
+     */
+    public synchronized List<Producto> filtrarPorPrecio(double desde, double hasta) {
+        return indices.porRangoPrecio(desde, hasta);
+    }
+
+    /**
+     * Busca los productos cuyo nombre comienza con un prefijo.
+     * Utiliza el índice por nombre, por lo que no recorre todo el catálogo.
+     * 
+     * @param prefijo Prefijo del nombre, distinguiendo mayúsculas y minúsculas.
+     * @return Lista de productos encontrados, ordenados por nombre.
+     */
+    public synchronized List<Producto> buscarPorPrefijo(String prefijo) {
+        return indices.porPrefijoNombre(prefijo);
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene un texto en cualquier posición, sin distinguir
+     * mayúsculas, minúsculas ni tildes. Utiliza el índice de trigramas del nombre, que se
+     * mantiene al día con cada alta, modificación y baja.
+     * Si se interrumpe el hilo, devuelve lo encontrado hasta ese momento.
+     * 
+     * @param texto Texto a buscar.
+     * @param limite Cantidad máxima de productos a devolver.
+     * @return Lista de hasta limite productos, ordenados por nombre.
+     */
+    public synchronized List<Producto> buscarPorNombre(String texto, int limite) {
+        return indices.buscarPorNombre(texto, limite);
+    }
+
+    /**
+     * Crea una consulta que combina tipo, rango de precios, prefijo de nombre, orden y límite.
+     * La consulta elige el índice más conveniente y no reordena la lista de productos.
+     * Al ejecutarla o explicarla se usa {@link #ejecutar(Consulta)} o {@link #explicar(Consulta)}.
+     * 
+     * @return Consulta nueva sobre el catálogo.
+     */
+    public Consulta consulta() {
+        return new Consulta(this::explicar, this::ejecutar);
+    }
+
+    /**
+     * Ejecuta una consulta con el catálogo bloqueado, sobre los índices actuales.
+     * 
+     * @param consulta Consulta a ejecutar.
+     * @return Productos que cumplen la consulta, en el orden pedido.
+     */
+    public synchronized List<Producto> ejecutar(Consulta consulta) {
+        return consulta.resolver(indices, cantidad(), this::obtenerTodos);
+    }
+
+    /**
+     * Calcula el plan de una consulta con el catálogo bloqueado, sin ejecutarla.
+     * 
+     * @param consulta Consulta a explicar.
+     * @return Plan elegido.
+     */
+    public synchronized PlanConsulta explicar(Consulta consulta) {
+        return consulta.planear(indices, cantidad());
+    }
+
     /**
      * Aplica una acción a todos los productos de la lista.
+     * Luego vuelve a indexar cada producto, ya que la acción puede modificarlos.
+     * 
+     * @param accion Acción a aplicar a cada producto.
+     */
+    public synchronized void aplicar(Consumer<Producto> accion) {
+        obtenerInstantanea(); // Mientras dura la operación, obtenerPagina lee la versión anterior
+        CambiosCatalogo cambios = cambiosCompletos();
+        List<Producto> lista = listaCompacta();
+        for (Producto p : lista) {
+            accion.accept(p);
+            indices.actualizar(p);
+            marcarCambio(p.getId(), CAMBIO_MODIFICADO);
+        }
+        nuevaVersion();
+        try {
+            registrarModificados(lista);
+        } finally {
+            avisar(cambios);
+        }
+    }
+
+    /**
+     * Aplica una acción a todos los productos de la lista en paralelo.
+     * Cada producto es procesado por un solo hilo; la acción no debe acceder a otros productos.
+     * Los índices se actualizan al terminar, desde el hilo que llama.
      * 
      * @param accion Acción a aplicar a cada producto.
      */
-    public void aplicar(Consumer<Producto> accion) {
-        productos.forEach(accion);
+    public void aplicarParalelo(Consumer<Producto> accion) {
+        aplicarParalelo(accion, null);
+    }
+
+    /**
+     * Aplica una acción a todos los productos de la lista en paralelo, informando el avance.
+     * La primera mitad del avance corresponde a los bloques procesados y la segunda a los
+     * productos vueltos a indexar. Mientras dura la operación, obtenerPagina sigue leyendo
+     * la instantánea anterior sin esperar al bloqueo.
+     * 
+     * @param accion Acción a aplicar a cada producto.
+     * @param avance Recibe la fracción completada entre 0 y 1, desde cualquier hilo; puede ser null.
+     * @see #aplicarParalelo(Consumer)
+     */
+    public synchronized void aplicarParalelo(Consumer<Producto> accion, DoubleConsumer avance) {
+        obtenerInstantanea();
+        CambiosCatalogo cambios = cambiosCompletos();
+        List<Producto> lista = listaCompacta();
+        ProcesamientoParalelo.aplicar(lista, accion, umbralParalelo, avance == null ? null : f -> avance.accept(f / 2));
+        for (int i = 0; i < lista.size(); i++) {
+            Producto p = lista.get(i);
+            indices.actualizar(p);
+            marcarCambio(p.getId(), CAMBIO_MODIFICADO);
+            if (avance != null && (i + 1) % AVISO_CARGA == 0) {
+                avance.accept(0.5 + 0.5 * (i + 1) / lista.size());
+            }
+        }
+        nuevaVersion();
+        try {
+            registrarModificados(lista);
+        } finally {
+            avisar(cambios);
+        }
     }
 
     /**
@@ -142,145 +1064,213 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
      * @throws IOException Si ocurre un error al escribir el archivo.
      */
     public void exportarTxt(String nombreArchivo, List<Producto> listaFiltrada) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(nombreArchivo))) {
-            bw.write("Reporte de Productos Filtrados\n");
-            bw.write("-----------------------------\n");
-            for (Producto p : listaFiltrada) {
-                bw.write(p.getClass().getSimpleName() + ": " + p.getDescripcion() + " - Precio: " + p.getPrecio() + "\n");
-            }
-        }
+        ReporteTxt.exportar(Path.of(nombreArchivo), listaFiltrada, p -> true);
+    }
+
+    /**
+     * Exporta a un archivo de texto los productos que cumplen un filtro.
+     * Recorre una instantánea del catálogo sin armar la lista filtrada,
+     * por lo que puede ejecutarse en otro hilo mientras se edita.
+     * 
+     * @param nombreArchivo Ruta del archivo donde se exportarán los datos.
+     * @param filtro Condición que deben cumplir los productos exportados.
+     * @return Cantidad de productos exportados.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public int exportarTxt(String nombreArchivo, Predicate<Producto> filtro) throws IOException {
+        return ReporteTxt.exportar(Path.of(nombreArchivo), obtenerInstantanea().getProductos(), filtro);
+    }
+
+    /**
+     * Abre un archivo de texto UTF-8 para escribir, comprimido según su extensión.
+     * 
+     * @param nombreArchivo Ruta del archivo.
+     * @return Escritor del archivo.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    private static BufferedWriter abrirTexto(String nombreArchivo) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Compresion.abrirEscritura(Path.of(nombreArchivo)), StandardCharsets.UTF_8));
     }
 
     /**
      * Guarda la lista de productos en un archivo CSV.
+     * Los nombres con comas, comillas o saltos de línea se escriben entre comillas.
      * 
      * @param nombreArchivo Ruta del archivo CSV.
      * @throws IOException Si ocurre un error al escribir el archivo.
      */
     public void guardarCSV(String nombreArchivo) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(nombreArchivo))) {
-            for (Producto p : productos) {
-                bw.write(p.getId() + "," + p.getNombre() + "," + p.getPrecio() + "," + p.getClass().getSimpleName());
+        try (BufferedWriter bw = abrirTexto(nombreArchivo)) {
+            for (Producto p : obtenerInstantanea()) {
+                bw.write(p.getId() + "," + CargadorCSV.campo(p.getNombre()) + "," + p.getPrecio() + "," + p.getClass().getSimpleName());
                 bw.newLine();
             }
         }
     }
 
     /**
-     * Carga productos desde un archivo CSV.
+     * Carga productos desde un archivo CSV, sin informar las líneas rechazadas en un archivo.
      * 
      * @param nombreArchivo Ruta del archivo CSV.
+     * @return Resultado de la importación, con los rechazos y las métricas por etapa.
      * @throws IOException Si ocurre un error al leer el archivo.
-     * @throws PrecioInvalidoException Si algún precio es inválido.
+     * @see #cargarCSV(String, String)
      */
-    public void cargarCSV(String nombreArchivo) throws IOException, PrecioInvalidoException {
-        productos.clear();
-        try (BufferedReader br = new BufferedReader(new FileReader(nombreArchivo))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                String[] parts = linea.split(",");
-                int id = Integer.parseInt(parts[0]);
-                String nombre = parts[1];
-                double precio = Double.parseDouble(parts[2]);
-                String tipo = parts[3];
-
-                switch (tipo) {
-                    case "Alimento":
-                        productos.add(new Alimento(id, nombre, precio, TipoAlimento.NO_PERECEDERO, 100));
-                        break;
-                    case "Electronico":
-                        productos.add(new Electronico(id, nombre, precio, MarcaElectronicos.SAMSUNG, 12));
-                        break;
-                    case "Ropa":
-                        productos.add(new Ropa(id, nombre, precio, TallaRopa.M, "Algodón"));
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Tipo desconocido: " + tipo);
-                }
-            }
-        }
+    public ResultadoImportacion cargarCSV(String nombreArchivo) throws IOException {
+        return cargarCSV(nombreArchivo, null);
+    }
+
+    /**
+     * Carga productos desde un archivo CSV.
+     * El archivo se procesa con ImportacionCSV, en etapas paralelas y sin bloquear el catálogo:
+     * las líneas inválidas y los IDs repetidos se rechazan y el resto se importa. El nuevo
+     * catálogo se arma aparte, con sus índices, y reemplaza al actual de una sola vez al
+     * terminar; si la lectura falla, el catálogo actual queda sin cambios.
+     * 
+     * @param nombreArchivo Ruta del archivo CSV.
+     * @param archivoRechazos Archivo donde informar las líneas rechazadas, o null.
+     * @return Resultado de la importación, con los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     */
+    public ResultadoImportacion cargarCSV(String nombreArchivo, String archivoRechazos) throws IOException {
+        return cargarCSV(nombreArchivo, archivoRechazos, null);
+    }
+
+    /**
+     * Carga productos desde un archivo CSV, informando la fracción del archivo leída.
+     * 
+     * @param nombreArchivo Ruta del archivo CSV.
+     * @param archivoRechazos Archivo donde informar las líneas rechazadas, o null.
+     * @param avance Recibe la fracción leída entre 0 y 1 desde otro hilo; puede ser null.
+     * @return Resultado de la importación, con los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     * @throws InterruptedIOException Si el hilo se interrumpe; el catálogo actual queda sin cambios.
+     * @see #cargarCSV(String, String)
+     */
+    public ResultadoImportacion cargarCSV(String nombreArchivo, String archivoRechazos, DoubleConsumer avance) throws IOException {
+        CatalogoNuevo nuevo = new CatalogoNuevo(0);
+        ResultadoImportacion resultado = ImportacionCSV.importar(Path.of(nombreArchivo),
+                archivoRechazos == null ? null : Path.of(archivoRechazos), nuevo, avance);
+        reemplazarCatalogo(nuevo);
+        return resultado;
     }
 
     /**
      * Guarda los productos en formato JSON.
+     * Cada producto se escribe directamente en el archivo con ProductosJSON,
+     * sin armar el documento completo en memoria.
      * 
      * @param nombreArchivo Ruta del archivo JSON.
      * @throws IOException Si ocurre un error al escribir el archivo.
      */
     public void guardarJSON(String nombreArchivo) throws IOException {
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter fw = new FileWriter(nombreArchivo)) {
-            JsonArray jsonArray = new JsonArray();
-            for (Producto p : productos) {
-                JsonObject jsonObject = new JsonObject();
-                jsonObject.addProperty("tipo", p.getClass().getSimpleName());
-                jsonObject.add("datos", gson.toJsonTree(p));
-                jsonArray.add(jsonObject);
-            }
-            gson.toJson(jsonArray, fw);
-        }
+        ProductosJSON.guardar(Path.of(nombreArchivo), obtenerInstantanea());
     }
 
-
-        /**
+    /**
      * Carga productos desde un archivo JSON.
+     * El archivo se lee por streaming con ProductosJSON; si algún elemento es
+     * inválido el catálogo actual queda sin cambios.
      * 
      * @param nombreArchivo Ruta del archivo JSON.
      * @throws IOException Si ocurre un error al leer el archivo.
      */
     public void cargarJSON(String nombreArchivo) throws IOException {
-        Gson gson = new Gson();
-        try (FileReader fr = new FileReader(nombreArchivo)) {
-            productos.clear();
-            JsonArray jsonArray = JsonParser.parseReader(fr).getAsJsonArray();
-            for (JsonElement element : jsonArray) {
-                JsonObject obj = element.getAsJsonObject();
-                String tipo = obj.get("tipo").getAsString();
-                JsonObject datos = obj.getAsJsonObject("datos");
-
-                Producto p;
-                switch (tipo) {
-                    case "Alimento":
-                        p = gson.fromJson(datos, Alimento.class);
-                        break;
-                    case "Electronico":
-                        p = gson.fromJson(datos, Electronico.class);
-                        break;
-                    case "Ropa":
-                        p = gson.fromJson(datos, Ropa.class);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Tipo de producto desconocido: " + tipo);
-                }
-                productos.add(p);
-            }
-        }
+        cargarJSON(nombreArchivo, null);
+    }
+
+    /**
+     * Carga productos desde un archivo JSON, informando la fracción del archivo leída.
+     * El nuevo catálogo se arma aparte mientras se lee, sin bloquear el actual, y lo
+     * reemplaza de una sola vez al terminar.
+     * 
+     * @param nombreArchivo Ruta del archivo JSON.
+     * @param avance Recibe la fracción leída entre 0 y 1; puede ser null.
+     * @throws IOException Si ocurre un error al leer el archivo o se interrumpe el hilo;
+     *                     en ese caso el catálogo actual queda sin cambios.
+     */
+    public void cargarJSON(String nombreArchivo, DoubleConsumer avance) throws IOException {
+        CatalogoNuevo nuevo = new CatalogoNuevo(0);
+        ProductosJSON.cargar(Path.of(nombreArchivo), nuevo, avance);
+        reemplazarCatalogo(nuevo);
     }
 
     /**
      * Serializa la lista de productos a un archivo binario.
+     * Usa el formato de InstantaneaBinaria en lugar de la serialización de Java.
      * 
      * @param nombreArchivo Ruta del archivo binario.
      * @throws IOException Si ocurre un error al escribir el archivo.
      */
     public void serializar(String nombreArchivo) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(nombreArchivo))) {
-            oos.writeObject(productos);
-        }
+        InstantaneaBinaria.escribir(Path.of(nombreArchivo), obtenerTodos());
     }
 
     /**
      * Deserializa la lista de productos desde un archivo binario.
+     * Acepta el formato de InstantaneaBinaria y archivos del formato anterior.
      * 
      * @param nombreArchivo Ruta del archivo binario.
      * @throws IOException Si ocurre un error al leer el archivo.
      * @throws ClassNotFoundException Si no se puede encontrar la clase durante la deserialización.
      */
     public void deserializar(String nombreArchivo) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(nombreArchivo))) {
-            List<Producto> lista = (List<Producto>) ois.readObject();
-            productos.clear();
-            productos.addAll(lista);
+        deserializar(nombreArchivo, false);
+    }
+
+    /**
+     * Deserializa la lista de productos desde un archivo binario, con la opción de diferir
+     * la lectura de los campos propios de cada tipo (calorías, marca, garantía, talla y material).
+     * En ese modo solo se leen el ID, el nombre y el precio; el resto se lee del archivo
+     * la primera vez que se accede a esos campos o a la descripción. Los archivos del
+     * formato anterior se cargan siempre completos.
+     * 
+     * @param nombreArchivo Ruta del archivo binario.
+     * @param detallesDiferidos true para leer los campos propios recién al usarlos.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     * @throws ClassNotFoundException Si no se puede encontrar la clase durante la deserialización.
+     */
+    public void deserializar(String nombreArchivo, boolean detallesDiferidos) throws IOException, ClassNotFoundException {
+        deserializar(nombreArchivo, detallesDiferidos, null);
+    }
+
+    /**
+     * Deserializa la lista de productos desde un archivo binario, informando la fracción
+     * de productos agregados. El nuevo catálogo se arma aparte, sin bloquear el actual,
+     * y lo reemplaza de una sola vez al terminar.
+     * 
+     * @param nombreArchivo Ruta del archivo binario.
+     * @param detallesDiferidos true para leer los campos propios recién al usarlos.
+     * @param avance Recibe la fracción cargada entre 0 y 1; puede ser null.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     * @throws InterruptedIOException Si el hilo se interrumpe; el catálogo actual queda sin cambios.
+     * @throws ClassNotFoundException Si no se puede encontrar la clase durante la deserialización.
+     */
+    public void deserializar(String nombreArchivo, boolean detallesDiferidos, DoubleConsumer avance) throws IOException, ClassNotFoundException {
+        List<Producto> lista = InstantaneaBinaria.cargar(Path.of(nombreArchivo));
+        InstantaneaBinaria diferida = detallesDiferidos && lista instanceof InstantaneaBinaria ? (InstantaneaBinaria) lista : null;
+        CatalogoNuevo nuevo = new CatalogoNuevo(lista.size());
+        try {
+            for (int i = 0; i < lista.size(); i++) {
+                nuevo.accept(diferida != null ? diferida.getEsqueleto(i) : lista.get(i));
+                if ((i & (AVISO_CARGA - 1)) == AVISO_CARGA - 1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Carga cancelada");
+                    }
+                    if (avance != null) {
+                        avance.accept((double) (i + 1) / lista.size());
+                    }
+                }
+            }
+        } finally {
+            if (lista instanceof InstantaneaBinaria) {
+                // Sin esqueletos libera el mapeo; con esqueletos, el mapeo queda a cargo de ellos
+                ((InstantaneaBinaria) lista).close();
+            }
+        }
+        reemplazarCatalogo(nuevo);
+        if (avance != null) {
+            avance.accept(1);
         }
     }
 
@@ -302,19 +1292,65 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
         return result;
     }
 
+    /**
+     * Filtra productos por tipo específico en paralelo, conservando el orden de la lista.
+     * 
+     * @param lista Lista de productos a filtrar.
+     * @param tipo Clase del tipo de producto deseado.
+     * @param <U> Tipo de producto filtrado.
+     * @return Lista de productos del tipo especificado.
+     */
+    public <U extends Producto> List<U> filtrarPorTipoParalelo(List<? extends Producto> lista, Class<U> tipo) {
+        List<Producto> filtrados = ProcesamientoParalelo.filtrar(lista, tipo::isInstance, umbralParalelo);
+        List<U> result = new ArrayList<>(filtrados.size());
+        for (Producto p : filtrados) {
+            result.add(tipo.cast(p));
+        }
+        return result;
+    }
+
+    /**
+     * Filtra los productos del catálogo por tipo específico.
+     * Utiliza el índice por tipo, por lo que no recorre todo el catálogo.
+     * 
+     * @param tipo Clase del tipo de producto deseado.
+     * @param <U> Tipo de producto filtrado.
+     * @return Lista de productos del tipo especificado, ordenados por ID.
+     */
+    public synchronized <U extends Producto> List<U> filtrarPorTipo(Class<U> tipo) {
+        return indices.porTipo(tipo);
+    }
+
     /**
      * Aplica un descuento a todos los alimentos de una lista.
      * 
      * @param lista Lista que puede contener alimentos.
      * @param porcentaje Porcentaje de descuento a aplicar.
      */
-    public void aplicarDescuentoAlimentos(List<? super Alimento> lista, double porcentaje) {
+    public synchronized void aplicarDescuentoAlimentos(List<? super Alimento> lista, double porcentaje) {
+        obtenerInstantanea(); // Mientras dura la operación, obtenerPagina lee la versión anterior
+        CambiosCatalogo cambios = nuevosCambios();
+        List<Alimento> modificados = new ArrayList<>();
         for (Object obj : lista) {
             if (obj instanceof Alimento) {
                 Alimento a = (Alimento) obj;
                 a.aplicarDescuento(porcentaje);
+                if (indices.contiene(a)) {
+                    indices.actualizar(a);
+                    marcarCambio(a.getId(), CAMBIO_MODIFICADO);
+                    modificados.add(a);
+                    if (cambios != null) {
+                        cambios.agregar(CambiosCatalogo.Tipo.MODIFICADO, a.getId(), posicionCompacta(indicePorId.get(a.getId())), a, a);
+                    }
+                }
             }
         }
+        nuevaVersion();
+        try {
+            registrarModificados(modificados);
+        } finally {
+            avisar(cambios);
+        }
     }
 
     /**
@@ -323,7 +1359,7 @@ public class ProductoManager implements CrudRepository<Producto>, Serializable {
      * @return Iterador de productos.
      */
     public Iterator<Producto> iterator() {
-        return new ProductoIterator(productos);
+        return new ProductoIterator(obtenerTodos());
     }
 
     /**
@@ -0,0 +1,129 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Producto;
+import exceptions.ProductoNoEncontradoException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
+
+/**
+ * Implementación del repositorio de productos segura para múltiples hilos.
+ * Pensada para cargas donde importaciones, actualizaciones de precios y ediciones
+ * desde la interfaz escriben al mismo tiempo.
+ *
+ * Los productos se guardan en un mapa ordenado por ID sin bloqueos, y los IDs
+ * se generan con un contador atómico. Las lecturas nunca se bloquean y recorren
+ * una vista débilmente consistente que no lanza ConcurrentModificationException.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerConcurrente implements CrudRepository<Producto> {
+
+    private final ConcurrentSkipListMap<Integer, Producto> productos = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1); // Id autoincremental
+
+    /**
+     * Agrega un producto al repositorio, asignándole un ID único.
+     *
+     * @param p Producto a agregar.
+     */
+    @Override
+    public void agregar(Producto p) {
+        int id = nextId.getAndIncrement();
+        p.setId(id);
+        productos.put(id, p);
+    }
+
+    /**
+     * Obtiene un producto por su ID.
+     *
+     * @param id ID del producto a buscar.
+     * @return Producto encontrado.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto.
+     */
+    @Override
+    public Producto obtenerPorId(int id) {
+        Producto p = productos.get(id);
+        if (p == null) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+        return p;
+    }
+
+    /**
+     * Devuelve una copia inmodificable de los productos, ordenados por ID.
+     * La copia no se ve afectada por escrituras posteriores.
+     *
+     * @return Lista de productos.
+     */
+    @Override
+    public List<Producto> obtenerTodos() {
+        return Collections.unmodifiableList(new ArrayList<>(productos.values()));
+    }
+
+    /**
+     * Actualiza un producto existente de forma atómica.
+     *
+     * @param elemento Producto con los datos actualizados.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a actualizar.
+     */
+    @Override
+    public void actualizar(Producto elemento) {
+        if (productos.replace(elemento.getId(), elemento) == null) {
+            throw new ProductoNoEncontradoException("No se encontró producto para actualizar con id " + elemento.getId());
+        }
+    }
+
+    /**
+     * Elimina un producto por su ID de forma atómica.
+     *
+     * @param id ID del producto a eliminar.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a eliminar.
+     */
+    @Override
+    public void eliminar(int id) {
+        if (productos.remove(id) == null) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+    }
+
+    /**
+     * Filtra los productos según un criterio especificado, sin bloquear a los escritores.
+     *
+     * @param filtro Predicado que define el criterio de filtrado.
+     * @return Lista de productos que cumplen el criterio, ordenados por ID.
+     */
+    public List<Producto> filtrar(Predicate<Producto> filtro) {
+        List<Producto> resultado = new ArrayList<>();
+        for (Producto p : productos.values()) {
+            if (filtro.test(p)) {
+                resultado.add(p);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica una acción a todos los productos presentes al momento de recorrerlos.
+     * La acción debe ser segura si otro hilo modifica el mismo producto.
+     *
+     * @param accion Acción a aplicar a cada producto.
+     */
+    public void aplicar(Consumer<Producto> accion) {
+        productos.values().forEach(accion);
+    }
+
+    /**
+     * Obtiene la cantidad de productos en el repositorio.
+     *
+     * @return Cantidad de productos.
+     */
+    public int cantidad() {
+        return productos.size();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package indexes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Cuenta las posiciones libres de una lista con huecos, para traducir entre la posición
+ * en la lista y la posición que tendría el elemento si la lista estuviera compactada.
+ *
+ * Es un árbol de Fenwick sobre las posiciones marcadas como libres, por lo que marcar
+ * una posición y traducir en cualquiera de los dos sentidos cuestan O(log n), sin
+ * recorrer la lista. Las posiciones más allá del tamaño del árbol se consideran ocupadas.
+ *
+ * Se utiliza en ProductoManager entre una eliminación y la siguiente compactación.
+ *
+ * @author joaxx
+ */
+public class IndiceHuecos implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int[] arbol; // Posición i del árbol (desde 1) suma los huecos de (i - lowbit(i), i]
+    private int tamanio; // Potencia de dos
+
+    /**
+     * Constructor que inicializa el índice sin huecos.
+     *
+     * @param posiciones Cantidad de posiciones de la lista.
+     */
+    public IndiceHuecos(int posiciones) {
+        tamanio = Integer.highestOneBit(Math.max(1, posiciones));
+        if (tamanio < posiciones) {
+            tamanio <<= 1;
+        }
+        arbol = new int[tamanio + 1];
+    }
+
+    /**
+     * Marca una posición como libre. Cada posición debe marcarse una sola vez.
+     *
+     * @param posicion Posición en la lista.
+     */
+    public void marcar(int posicion) {
+        while (posicion >= tamanio) {
+            crecer();
+        }
+        for (int i = posicion + 1; i <= tamanio; i += i & -i) {
+            arbol[i]++;
+        }
+    }
+
+    /**
+     * Cuenta las posiciones libres antes de una posición.
+     *
+     * @param posicion Posición en la lista.
+     * @return Cantidad de huecos en [0, posicion).
+     */
+    public int huecosAntes(int posicion) {
+        int suma = 0;
+        for (int i = Math.min(posicion, tamanio); i > 0; i -= i & -i) {
+            suma += arbol[i];
+        }
+        return suma;
+    }
+
+    /**
+     * Obtiene la posición en la lista del elemento ocupado número compacta,
+     * es decir, su posición si se quitaran los huecos.
+     *
+     * @param compacta Posición sin contar los huecos.
+     * @return Posición en la lista.
+     */
+    public int posicionReal(int compacta) {
+        int restantes = compacta + 1; // Ocupadas que faltan contar, incluida la buscada
+        int posicion = 0; // Última posición (desde 1) con menos de compacta + 1 ocupadas hasta ella
+        for (int paso = tamanio; paso > 0; paso >>= 1) {
+            int siguiente = posicion + paso;
+            if (siguiente <= tamanio) {
+                int ocupadas = paso - arbol[siguiente];
+                if (ocupadas < restantes) {
+                    posicion = siguiente;
+                    restantes -= ocupadas;
+                }
+            }
+        }
+        return posicion + restantes - 1; // Pasado el árbol no hay huecos
+    }
+
+    /**
+     * Duplica el tamaño del árbol. Con tamaños potencia de dos, los nodos existentes
+     * no cambian y el único nodo nuevo no vacío es la raíz, que suma todos los huecos.
+     */
+    private void crecer() {
+        arbol = Arrays.copyOf(arbol, tamanio * 2 + 1);
+        arbol[tamanio * 2] = arbol[tamanio];
+        tamanio *= 2;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package indexes;
+
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice de trigramas para buscar texto contenido en cualquier parte de un nombre.
+ *
+ * Cada nombre se normaliza (minúsculas y sin tildes, ver {@link #normalizar(String)}) y se
+ * parte en todas sus secuencias de tres caracteres. Por cada trigrama se guarda la lista
+ * de IDs cuyos nombres lo contienen, ordenada por ID. Un texto de tres o más caracteres
+ * solo puede estar en los nombres que contienen todos sus trigramas, así que la búsqueda
+ * recorre la lista más corta y descarta los IDs que faltan en las demás. El resultado son
+ * candidatos: quien busca debe confirmar que el texto aparece seguido en el nombre.
+ *
+ * Los trigramas se guardan como enteros de 10 bits por carácter; los caracteres fuera
+ * de ese rango pueden compartir trigrama, lo que solo agrega candidatos.
+ *
+ * @author joaxx
+ */
+public class IndiceTrigramas implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Largo mínimo del texto normalizado para buscar con el índice. */
+    public static final int LARGO_MINIMO = 3;
+
+    static final int REVISION_INTERRUPCION = 4096; // Candidatos entre revisiones de cancelación
+
+    private final MapaEnteros listaDeTrigrama = new MapaEnteros(); // Trigrama -> posición en listas
+    private final ArrayList<ListaIds> listas = new ArrayList<>();
+
+    /**
+     * Normaliza un texto para indexarlo o buscarlo: minúsculas y sin marcas diacríticas,
+     * de modo que "Café" y "cafe" coinciden.
+     *
+     * @param texto Texto a normalizar; puede ser null.
+     * @return Texto normalizado, vacío si era null.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                String sinMarcas = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                return sinMarcas.toLowerCase(Locale.ROOT);
+            }
+        }
+        return texto.toLowerCase(Locale.ROOT); // ASCII: no hay marcas que quitar
+    }
+
+    /**
+     * Indexa un nombre.
+     *
+     * @param id ID del producto.
+     * @param normalizado Nombre ya normalizado.
+     */
+    public void agregar(int id, String normalizado) {
+        for (int trigrama : trigramas(normalizado)) {
+            int posicion = listaDeTrigrama.get(trigrama);
+            if (posicion == MapaEnteros.AUSENTE) {
+                posicion = listas.size();
+                listas.add(new ListaIds());
+                listaDeTrigrama.put(trigrama, posicion);
+            }
+            listas.get(posicion).agregar(id);
+        }
+    }
+
+    /**
+     * Quita un nombre indexado con {@link #agregar(int, String)}.
+     *
+     * @param id ID del producto.
+     * @param normalizado Nombre normalizado con el que se indexó.
+     */
+    public void eliminar(int id, String normalizado) {
+        for (int trigrama : trigramas(normalizado)) {
+            int posicion = listaDeTrigrama.get(trigrama);
+            if (posicion != MapaEnteros.AUSENTE) {
+                listas.get(posicion).quitar(id);
+            }
+        }
+    }
+
+    /**
+     * Quita todos los nombres.
+     */
+    public void limpiar() {
+        listaDeTrigrama.clear();
+        listas.clear();
+    }
+
+    /**
+     * Recorre en orden de ID los candidatos para un texto: los IDs cuyos nombres contienen
+     * todos sus trigramas. Se detiene cuando el receptor devuelve false o si se interrumpe
+     * el hilo.
+     *
+     * @param normalizado Texto ya normalizado, de al menos LARGO_MINIMO caracteres.
+     * @param receptor Recibe cada candidato y devuelve false para detener el recorrido.
+     */
+    public void candidatos(String normalizado, IntPredicate receptor) {
+        int[] claves = trigramas(normalizado);
+        ListaIds[] requeridas = new ListaIds[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            int posicion = listaDeTrigrama.get(claves[i]);
+            if (posicion == MapaEnteros.AUSENTE) {
+                return; // Ningún nombre tiene este trigrama
+            }
+            requeridas[i] = listas.get(posicion);
+            requeridas[i].ordenar();
+        }
+        if (requeridas.length == 0) {
+            return;
+        }
+        Arrays.sort(requeridas, (a, b) -> Integer.compare(a.vivos(), b.vivos()));
+        ListaIds menor = requeridas[0];
+        int[] desde = new int[requeridas.length]; // Los IDs crecen, así que cada búsqueda sigue desde la anterior
+        siguiente:
+        for (int k = 0; k < menor.cantidad; k++) {
+            if (k % REVISION_INTERRUPCION == REVISION_INTERRUPCION - 1 && Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            int id = menor.ids[k];
+            if (id < 0) {
+                continue; // Quitado
+            }
+            for (int i = 1; i < requeridas.length; i++) {
+                ListaIds otra = requeridas[i];
+                int encontrado = otra.buscar(desde[i], id);
+                if (encontrado < 0) {
+                    desde[i] = -encontrado - 1;
+                    continue siguiente;
+                }
+                desde[i] = encontrado + 1;
+                if (otra.ids[encontrado] < 0) {
+                    continue siguiente;
+                }
+            }
+            if (!receptor.test(id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Calcula los trigramas distintos de un texto normalizado.
+     *
+     * @param normalizado Texto normalizado.
+     * @return Claves de los trigramas, sin repetir.
+     */
+    private static int[] trigramas(String normalizado) {
+        int cantidad = Math.max(0, normalizado.length() - 2);
+        int[] claves = new int[cantidad];
+        int distintos = 0;
+        siguiente:
+        for (int i = 0; i < cantidad; i++) {
+            int clave = (normalizado.charAt(i) & 0x3FF) << 20
+                    | (normalizado.charAt(i + 1) & 0x3FF) << 10
+                    | (normalizado.charAt(i + 2) & 0x3FF);
+            for (int j = 0; j < distintos; j++) {
+                if (claves[j] == clave) {
+                    continue siguiente;
+                }
+            }
+            claves[distintos++] = clave;
+        }
+        return distintos == cantidad ? claves : Arrays.copyOf(claves, distintos);
+    }
+
+    /**
+     * IDs de los nombres que contienen un trigrama. Se agregan al final mientras los IDs
+     * crecen, que es el caso de las altas y las cargas; si llegan desordenados, la lista
+     * se ordena recién en la siguiente búsqueda o eliminación.
+     *
+     * Quitar un ID no mueve los demás: se marca negándolo, y la lista se ordena por valor
+     * absoluto. Las marcas se descartan de una sola pasada cuando llegan a la mitad de la
+     * lista o antes de ordenarla, así que quitar muchos IDs cuesta O(log n) por ID en promedio.
+     * Un ID quitado que se vuelve a agregar recupera su marca.
+     */
+    private static class ListaIds implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int[] ids = new int[4]; // Los negativos son IDs quitados
+        private int cantidad;
+        private int quitados;
+        private boolean ordenada = true;
+
+        /**
+         * Agrega un ID que no estaba en la lista.
+         *
+         * @param id ID a agregar.
+         */
+        void agregar(int id) {
+            if (ordenada && quitados > 0) {
+                int posicion = buscar(0, id);
+                if (posicion >= 0) {
+                    if (ids[posicion] < 0) {
+                        ids[posicion] = id;
+                        quitados--;
+                    }
+                    return;
+                }
+            }
+            if (cantidad == ids.length) {
+                ids = Arrays.copyOf(ids, cantidad * 2);
+            }
+            if (ordenada && cantidad > 0 && id < Math.abs(ids[cantidad - 1])) {
+                int posicion = buscar(0, id);
+                if (posicion >= 0) {
+                    return;
+                }
+                posicion = -posicion - 1;
+                if (cantidad - posicion <= ids.length / 8) { // Cerca del final: insertar es barato
+                    System.arraycopy(ids, posicion, ids, posicion + 1, cantidad - posicion);
+                    ids[posicion] = id;
+                    cantidad++;
+                    return;
+                }
+                ordenada = false;
+            }
+            ids[cantidad++] = id;
+        }
+
+        /**
+         * Quita un ID, si está.
+         *
+         * @param id ID a quitar.
+         */
+        void quitar(int id) {
+            ordenar();
+            int posicion = buscar(0, id);
+            if (posicion >= 0 && ids[posicion] > 0) {
+                ids[posicion] = -id;
+                if (++quitados > cantidad / 2) {
+                    compactar();
+                }
+            }
+        }
+
+        /**
+         * Ordena la lista si se agregaron IDs desordenados, descartando antes los quitados.
+         */
+        void ordenar() {
+            if (!ordenada) {
+                compactar();
+                Arrays.sort(ids, 0, cantidad);
+                ordenada = true;
+            }
+        }
+
+        /**
+         * Obtiene la cantidad de IDs sin contar los quitados.
+         *
+         * @return IDs presentes.
+         */
+        int vivos() {
+            return cantidad - quitados;
+        }
+
+        /**
+         * Busca un ID por valor absoluto en la lista ordenada, como Arrays.binarySearch.
+         *
+         * @param desde Posición desde la que buscar.
+         * @param id ID a buscar, positivo.
+         * @return Posición del ID, quitado o no; si no está, -(posición de inserción) - 1.
+         */
+        int buscar(int desde, int id) {
+            int bajo = desde;
+            int alto = cantidad - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                int valor = Math.abs(ids[medio]);
+                if (valor < id) {
+                    bajo = medio + 1;
+                } else if (valor > id) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+
+        /**
+         * Descarta los IDs quitados de una sola pasada, conservando el orden de los demás.
+         */
+        private void compactar() {
+            if (quitados == 0) {
+                return;
+            }
+            int n = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (ids[i] > 0) {
+                    ids[n++] = ids[i];
+                }
+            }
+            cantidad = n;
+            quitados = 0;
+        }
+    }
+}
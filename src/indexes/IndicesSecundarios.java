@@ -0,0 +1,551 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package indexes;
+
+import model.Producto.Producto;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Índices secundarios de productos: por tipo concreto, por precio, por nombre y por
+ * trigramas del nombre. Permiten resolver consultas por tipo, por rango de precios, por
+ * prefijo de nombre y por texto contenido en el nombre en un costo proporcional al tamaño
+ * del resultado, sin recorrer todo el catálogo.
+ *
+ * Cada producto se indexa con una copia de su precio y su nombre al momento de
+ * agregarlo. Si un producto se modifica en el lugar (por ejemplo con setPrecio),
+ * debe volver a indexarse con {@link #actualizar(Producto)}.
+ *
+ * @author joaxx
+ */
+public class IndicesSecundarios implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final HashMap<Integer, Registro> porId = new HashMap<>();
+    private final HashMap<Class<?>, NavigableMap<Integer, Producto>> porTipo = new HashMap<>();
+    private final TreeSet<Registro> porPrecio = new TreeSet<>(new OrdenPorPrecio());
+    private final TreeSet<Registro> porNombre = new TreeSet<>(new OrdenPorNombre());
+    private final IndiceTrigramas porTrigramas = new IndiceTrigramas();
+
+    /**
+     * Indexa un producto. Si ya había un producto con el mismo ID, lo reemplaza.
+     *
+     * @param p Producto a indexar.
+     */
+    public void agregar(Producto p) {
+        Registro anterior = porId.get(p.getId());
+        Registro r = new Registro(p.getId(), p.getPrecio(), p.getNombre(), p);
+        r.normalizado = anterior != null && Objects.equals(anterior.nombre, r.nombre)
+                ? anterior.normalizado
+                : IndiceTrigramas.normalizar(r.nombre);
+        if (anterior != null) {
+            quitar(anterior, !anterior.normalizado.equals(r.normalizado));
+        }
+        if (anterior == null || !anterior.normalizado.equals(r.normalizado)) {
+            porTrigramas.agregar(r.id, r.normalizado);
+        }
+        porId.put(r.id, r);
+        porTipo.computeIfAbsent(p.getClass(), k -> new TreeMap<>()).put(r.id, p);
+        porPrecio.add(r);
+        porNombre.add(r);
+    }
+
+    /**
+     * Vuelve a indexar un producto con sus valores actuales.
+     *
+     * @param p Producto modificado o reemplazado.
+     */
+    public void actualizar(Producto p) {
+        agregar(p);
+    }
+
+    /**
+     * Quita un producto de todos los índices.
+     *
+     * @param id ID del producto a quitar.
+     */
+    public void eliminar(int id) {
+        Registro r = porId.get(id);
+        if (r != null) {
+            quitar(r, true);
+        }
+    }
+
+    /**
+     * Quita un registro de todos los índices.
+     *
+     * @param r Registro a quitar.
+     * @param trigramas false para dejar sus trigramas, porque se vuelve a indexar con el mismo nombre.
+     */
+    private void quitar(Registro r, boolean trigramas) {
+        porId.remove(r.id);
+        porTipo.get(r.producto.getClass()).remove(r.id);
+        porPrecio.remove(r);
+        porNombre.remove(r);
+        if (trigramas) {
+            porTrigramas.eliminar(r.id, r.normalizado);
+        }
+    }
+
+    /**
+     * Quita todos los productos de los índices.
+     */
+    public void limpiar() {
+        porId.clear();
+        porTipo.clear();
+        porPrecio.clear();
+        porNombre.clear();
+        porTrigramas.limpiar();
+    }
+
+    /**
+     * Verifica si el producto indexado con ese ID es exactamente la instancia dada.
+     *
+     * @param p Producto a verificar.
+     * @return true si la instancia está indexada, false en caso contrario.
+     */
+    public boolean contiene(Producto p) {
+        Registro r = porId.get(p.getId());
+        return r != null && r.producto == p;
+    }
+
+    /**
+     * Obtiene los productos que son instancia del tipo indicado, ordenados por ID.
+     *
+     * @param tipo Clase del tipo de producto deseado.
+     * @param <U> Tipo de producto filtrado.
+     * @return Lista de productos del tipo especificado.
+     */
+    public <U extends Producto> List<U> porTipo(Class<U> tipo) {
+        List<U> resultado = new ArrayList<>();
+        int grupos = 0;
+        for (Map.Entry<Class<?>, NavigableMap<Integer, Producto>> e : porTipo.entrySet()) {
+            if (tipo.isAssignableFrom(e.getKey()) && !e.getValue().isEmpty()) {
+                for (Producto p : e.getValue().values()) {
+                    resultado.add(tipo.cast(p));
+                }
+                grupos++;
+            }
+        }
+        if (grupos > 1) {
+            resultado.sort(Comparator.comparingInt(Producto::getId));
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene los productos cuyo precio está en el rango [desde, hasta), ordenados por precio.
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Lista de productos en el rango.
+     */
+    public List<Producto> porRangoPrecio(double desde, double hasta) {
+        List<Producto> resultado = new ArrayList<>();
+        for (Producto p : iterarRangoPrecio(desde, hasta)) {
+            resultado.add(p);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene los productos cuyo nombre comienza con el prefijo indicado, ordenados por nombre.
+     * La comparación distingue entre mayúsculas y minúsculas, igual que ComparadorPorNombre.
+     *
+     * @param prefijo Prefijo del nombre.
+     * @return Lista de productos cuyo nombre comienza con el prefijo.
+     */
+    public List<Producto> porPrefijoNombre(String prefijo) {
+        List<Producto> resultado = new ArrayList<>();
+        for (Producto p : iterarPrefijo(prefijo)) {
+            resultado.add(p);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los productos cuyo nombre contiene el texto en cualquier posición, sin distinguir
+     * mayúsculas, minúsculas ni tildes. Con tres o más caracteres se usan los trigramas y solo
+     * se revisan los nombres que los contienen todos; de todas las coincidencias se conservan las
+     * primeras por nombre en un montículo de tamaño limite. Con menos caracteres se recorre el
+     * índice por nombre hasta juntar el límite. Si se interrumpe el hilo, devuelve lo encontrado
+     * hasta ese momento.
+     *
+     * @param texto Texto a buscar.
+     * @param limite Cantidad máxima de productos a devolver.
+     * @return Hasta limite productos, ordenados por nombre y luego por ID.
+     */
+    public List<Producto> buscarPorNombre(String texto, int limite) {
+        String buscado = IndiceTrigramas.normalizar(texto);
+        List<Registro> encontrados = new ArrayList<>();
+        if (limite <= 0) {
+            return Collections.emptyList();
+        }
+        if (buscado.length() >= IndiceTrigramas.LARGO_MINIMO) {
+            // Los candidatos llegan en orden de ID: el montículo deja en la cima el peor por nombre
+            Comparator<? super Registro> orden = porNombre.comparator();
+            PriorityQueue<Registro> mejores = new PriorityQueue<>(Math.min(limite, 1024) + 1, orden.reversed());
+            porTrigramas.candidatos(buscado, id -> {
+                Registro r = porId.get(id);
+                if (r != null && r.normalizado.contains(buscado)) {
+                    if (mejores.size() < limite) {
+                        mejores.offer(r);
+                    } else if (orden.compare(r, mejores.peek()) < 0) {
+                        mejores.poll();
+                        mejores.offer(r);
+                    }
+                }
+                return true;
+            });
+            encontrados.addAll(mejores);
+            encontrados.sort(orden);
+        } else {
+            int revisados = 0;
+            for (Registro r : porNombre) {
+                if (++revisados % IndiceTrigramas.REVISION_INTERRUPCION == 0 && Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (r.normalizado.contains(buscado)) {
+                    encontrados.add(r);
+                    if (encontrados.size() == limite) {
+                        break;
+                    }
+                }
+            }
+        }
+        List<Producto> resultado = new ArrayList<>(encontrados.size());
+        for (Registro r : encontrados) {
+            resultado.add(r.producto);
+        }
+        return resultado;
+    }
+
+    /**
+     * Devuelve una vista de todos los productos ordenados por precio y luego por ID.
+     * La vista se mantiene al día con cada cambio y obtenerla no copia datos, así que
+     * solo puede recorrerse mientras nadie modifica los índices.
+     *
+     * @return Colección inmodificable en orden de precio.
+     */
+    public Collection<Producto> vistaPorPrecio() {
+        return vista(porPrecio);
+    }
+
+    /**
+     * Devuelve una vista de todos los productos ordenados por nombre y luego por ID.
+     * La vista se mantiene al día con cada cambio y obtenerla no copia datos, así que
+     * solo puede recorrerse mientras nadie modifica los índices.
+     *
+     * @return Colección inmodificable en orden de nombre.
+     */
+    public Collection<Producto> vistaPorNombre() {
+        return vista(porNombre);
+    }
+
+    /**
+     * Obtiene los productos de un rango de posiciones en el orden por nombre.
+     *
+     * @param desde Posición inicial, incluida.
+     * @param hasta Posición final, excluida.
+     * @return Productos del rango; menos si el índice tiene menos productos.
+     * @see #pagina(NavigableSet, int, int)
+     */
+    public List<Producto> paginaPorNombre(int desde, int hasta) {
+        return pagina(porNombre, desde, hasta);
+    }
+
+    /**
+     * Obtiene los productos de un rango de posiciones en el orden por precio.
+     *
+     * @param desde Posición inicial, incluida.
+     * @param hasta Posición final, excluida.
+     * @return Productos del rango; menos si el índice tiene menos productos.
+     * @see #pagina(NavigableSet, int, int)
+     */
+    public List<Producto> paginaPorPrecio(int desde, int hasta) {
+        return pagina(porPrecio, desde, hasta);
+    }
+
+    /**
+     * Obtiene la cantidad de productos que son instancia del tipo indicado.
+     *
+     * @param tipo Clase del tipo de producto.
+     * @return Cantidad de productos del tipo.
+     */
+    public int cantidadPorTipo(Class<?> tipo) {
+        int cantidad = 0;
+        for (Map.Entry<Class<?>, NavigableMap<Integer, Producto>> e : porTipo.entrySet()) {
+            if (tipo.isAssignableFrom(e.getKey())) {
+                cantidad += e.getValue().size();
+            }
+        }
+        return cantidad;
+    }
+
+    /**
+     * Recorre los productos que son instancia del tipo indicado, agrupados por clase concreta.
+     *
+     * @param tipo Clase del tipo de producto.
+     * @return Productos del tipo, sin crear una lista intermedia.
+     */
+    public Iterable<Producto> iterarPorTipo(Class<?> tipo) {
+        List<Collection<Producto>> grupos = new ArrayList<>();
+        for (Map.Entry<Class<?>, NavigableMap<Integer, Producto>> e : porTipo.entrySet()) {
+            if (tipo.isAssignableFrom(e.getKey())) {
+                grupos.add(e.getValue().values());
+            }
+        }
+        return () -> grupos.stream().flatMap(Collection::stream).iterator();
+    }
+
+    /**
+     * Cuenta los productos con precio en [desde, hasta), deteniéndose al alcanzar el tope.
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @param tope Cantidad a partir de la cual se deja de contar.
+     * @return Cantidad de productos en el rango, como máximo el tope.
+     */
+    public int contarRangoPrecio(double desde, double hasta, int tope) {
+        return contarHasta(rangoPrecio(desde, hasta), tope);
+    }
+
+    /**
+     * Recorre los productos con precio en [desde, hasta), ordenados por precio y luego por ID.
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Productos en el rango, sin crear una lista intermedia.
+     */
+    public Iterable<Producto> iterarRangoPrecio(double desde, double hasta) {
+        return productosDe(rangoPrecio(desde, hasta));
+    }
+
+    /**
+     * Cuenta los productos cuyo nombre comienza con el prefijo, deteniéndose al alcanzar el tope.
+     *
+     * @param prefijo Prefijo del nombre.
+     * @param tope Cantidad a partir de la cual se deja de contar.
+     * @return Cantidad de productos encontrados, como máximo el tope.
+     */
+    public int contarPrefijo(String prefijo, int tope) {
+        return contarHasta(rangoPrefijo(prefijo), tope);
+    }
+
+    /**
+     * Recorre los productos cuyo nombre comienza con el prefijo, ordenados por nombre y luego por ID.
+     *
+     * @param prefijo Prefijo del nombre.
+     * @return Productos encontrados, sin crear una lista intermedia.
+     */
+    public Iterable<Producto> iterarPrefijo(String prefijo) {
+        return productosDe(rangoPrefijo(prefijo));
+    }
+
+    /**
+     * Obtiene el subconjunto del índice por precio correspondiente a [desde, hasta).
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Vista del índice por precio.
+     */
+    private NavigableSet<Registro> rangoPrecio(double desde, double hasta) {
+        if (!(desde < hasta)) {
+            return Collections.emptyNavigableSet();
+        }
+        Registro inicio = new Registro(Integer.MIN_VALUE, desde, null, null);
+        Registro fin = new Registro(Integer.MIN_VALUE, hasta, null, null);
+        return porPrecio.subSet(inicio, true, fin, false);
+    }
+
+    /**
+     * Obtiene el subconjunto del índice por nombre cuyos nombres comienzan con el prefijo.
+     *
+     * @param prefijo Prefijo del nombre.
+     * @return Vista del índice por nombre.
+     */
+    private NavigableSet<Registro> rangoPrefijo(String prefijo) {
+        Registro inicio = new Registro(Integer.MIN_VALUE, 0, prefijo, null);
+        String siguiente = siguientePrefijo(prefijo);
+        return siguiente == null
+                ? porNombre.tailSet(inicio, true)
+                : porNombre.subSet(inicio, true, new Registro(Integer.MIN_VALUE, 0, siguiente, null), false);
+    }
+
+    /**
+     * Cuenta los registros de un subconjunto sin superar el tope.
+     *
+     * @param rango Subconjunto a contar.
+     * @param tope Cantidad máxima a contar.
+     * @return Cantidad de registros, como máximo el tope.
+     */
+    private static int contarHasta(NavigableSet<Registro> rango, int tope) {
+        int cantidad = 0;
+        Iterator<Registro> it = rango.iterator();
+        while (cantidad < tope && it.hasNext()) {
+            it.next();
+            cantidad++;
+        }
+        return cantidad;
+    }
+
+    /**
+     * Adapta un índice ordenado como colección inmodificable de productos.
+     *
+     * @param orden Índice ordenado.
+     * @return Vista de los productos en el orden del índice.
+     */
+    private static Collection<Producto> vista(NavigableSet<Registro> orden) {
+        return new AbstractCollection<Producto>() {
+            @Override
+            public Iterator<Producto> iterator() {
+                Iterator<Registro> it = orden.iterator();
+                return new Iterator<Producto>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Producto next() {
+                        return it.next().producto;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return orden.size();
+            }
+        };
+    }
+
+    /**
+     * Obtiene los productos de un rango de posiciones de un índice ordenado.
+     * El árbol no guarda posiciones, así que se avanza desde el extremo más cercano al rango:
+     * el costo es proporcional a la distancia a ese extremo, como mucho la mitad del índice.
+     *
+     * @param orden Índice ordenado.
+     * @param desde Posición inicial, incluida.
+     * @param hasta Posición final, excluida.
+     * @return Productos del rango, en orden.
+     */
+    private static List<Producto> pagina(NavigableSet<Registro> orden, int desde, int hasta) {
+        int total = orden.size();
+        desde = Math.max(0, desde);
+        hasta = Math.min(hasta, total);
+        if (desde >= hasta) {
+            return Collections.emptyList();
+        }
+        List<Producto> pagina = new ArrayList<>(hasta - desde);
+        if (desde <= total - hasta) {
+            Iterator<Registro> it = orden.iterator();
+            for (int i = 0; i < desde; i++) {
+                it.next();
+            }
+            for (int i = desde; i < hasta; i++) {
+                pagina.add(it.next().producto);
+            }
+        } else {
+            Iterator<Registro> it = orden.descendingIterator();
+            for (int i = total; i > hasta; i--) {
+                it.next();
+            }
+            for (int i = hasta; i > desde; i--) {
+                pagina.add(it.next().producto);
+            }
+            Collections.reverse(pagina);
+        }
+        return pagina;
+    }
+
+    /**
+     * Adapta un subconjunto de registros para recorrer sus productos.
+     *
+     * @param rango Subconjunto de registros.
+     * @return Productos del subconjunto, en el mismo orden.
+     */
+    private static Iterable<Producto> productosDe(NavigableSet<Registro> rango) {
+        return () -> rango.stream().map(r -> r.producto).iterator();
+    }
+
+    /**
+     * Calcula la menor cadena mayor que todas las que comienzan con el prefijo.
+     *
+     * @param prefijo Prefijo del nombre.
+     * @return Cota superior exclusiva, o null si no existe.
+     */
+    private static String siguientePrefijo(String prefijo) {
+        StringBuilder sb = new StringBuilder(prefijo);
+        for (int i = sb.length() - 1; i >= 0; i--) {
+            char c = sb.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                sb.setCharAt(i, (char) (c + 1));
+                sb.setLength(i + 1);
+                return sb.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entrada de los índices con los valores del producto al momento de indexarlo.
+     */
+    private static class Registro implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int id;
+        private final double precio;
+        private final String nombre;
+        private final Producto producto;
+        private String normalizado; // Nombre normalizado para los trigramas; solo en registros indexados
+
+        /**
+         * Constructor del registro.
+         *
+         * @param id ID del producto.
+         * @param precio Precio indexado.
+         * @param nombre Nombre indexado.
+         * @param producto Producto indexado.
+         */
+        Registro(int id, double precio, String nombre, Producto producto) {
+            this.id = id;
+            this.precio = precio;
+            this.nombre = nombre;
+            this.producto = producto;
+        }
+    }
+
+    /**
+     * Ordena los registros por precio y, a igual precio, por ID.
+     */
+    private static class OrdenPorPrecio implements Comparator<Registro>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Registro a, Registro b) {
+            int c = Double.compare(a.precio, b.precio);
+            return c != 0 ? c : Integer.compare(a.id, b.id);
+        }
+    }
+
+    /**
+     * Ordena los registros por nombre y, a igual nombre, por ID.
+     * Los nombres nulos quedan primero.
+     */
+    private static class OrdenPorNombre implements Comparator<Registro>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Registro a, Registro b) {
+            int c;
+            if (a.nombre == null || b.nombre == null) {
+                c = a.nombre == null ? (b.nombre == null ? 0 : -1) : 1;
+            } else {
+                c = a.nombre.compareTo(b.nombre);
+            }
+            return c != 0 ? c : Integer.compare(a.id, b.id);
+        }
+    }
+}
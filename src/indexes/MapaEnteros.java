@@ -0,0 +1,238 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package indexes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mapa de claves enteras a valores enteros no negativos, sin boxing.
+ * Utiliza direccionamiento abierto con sondeo lineal sobre arreglos primitivos,
+ * por lo que agregar, buscar y eliminar cuestan O(1) en promedio.
+ *
+ * Se utiliza como índice primario de ProductoManager (id a posición).
+ *
+ * @author joaxx
+ */
+public class MapaEnteros implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Valor devuelto por {@link #get(int)} cuando la clave no existe. */
+    public static final int AUSENTE = -1;
+
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final float FACTOR_CARGA = 0.5f;
+
+    private int[] claves;
+    private int[] valores; // AUSENTE marca una celda libre
+    private int tamanio;
+
+    /**
+     * Constructor que inicializa el mapa vacío con la capacidad predeterminada.
+     */
+    public MapaEnteros() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Constructor que inicializa el mapa con capacidad para la cantidad indicada de claves.
+     *
+     * @param esperados Cantidad de claves que se espera almacenar.
+     */
+    public MapaEnteros(int esperados) {
+        int capacidad = CAPACIDAD_INICIAL;
+        while (capacidad * FACTOR_CARGA < esperados) {
+            capacidad <<= 1;
+        }
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(valores, AUSENTE);
+    }
+
+    /**
+     * Obtiene el valor asociado a una clave.
+     *
+     * @param clave Clave a buscar.
+     * @return Valor asociado, o {@link #AUSENTE} si la clave no existe.
+     */
+    public int get(int clave) {
+        int mascara = claves.length - 1;
+        for (int i = mezclar(clave) & mascara; valores[i] != AUSENTE; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                return valores[i];
+            }
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Verifica si el mapa contiene una clave.
+     *
+     * @param clave Clave a buscar.
+     * @return true si la clave existe, false en caso contrario.
+     */
+    public boolean contiene(int clave) {
+        return get(clave) != AUSENTE;
+    }
+
+    /**
+     * Asocia un valor a una clave, reemplazando el valor anterior si existía.
+     *
+     * @param clave Clave a asociar.
+     * @param valor Valor no negativo.
+     * @throws IllegalArgumentException Si el valor es negativo.
+     */
+    public void put(int clave, int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("El valor no puede ser negativo: " + valor);
+        }
+        if (tamanio + 1 > claves.length * FACTOR_CARGA) {
+            redimensionar(claves.length << 1);
+        }
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (valores[i] != AUSENTE) {
+            if (claves[i] == clave) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        tamanio++;
+    }
+
+    /**
+     * Elimina una clave del mapa.
+     * Reubica las claves siguientes del mismo grupo para no dejar marcas de borrado.
+     *
+     * @param clave Clave a eliminar.
+     * @return Valor que estaba asociado, o {@link #AUSENTE} si la clave no existía.
+     */
+    public int remove(int clave) {
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (valores[i] != AUSENTE) {
+            if (claves[i] == clave) {
+                int anterior = valores[i];
+                desplazarHaciaAtras(i);
+                tamanio--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Agranda las tablas de una sola vez para alojar la cantidad indicada de claves.
+     *
+     * @param esperados Cantidad total de claves que se espera almacenar.
+     */
+    public void asegurarCapacidad(int esperados) {
+        int capacidad = claves.length;
+        while (capacidad * FACTOR_CARGA < esperados) {
+            capacidad <<= 1;
+        }
+        if (capacidad != claves.length) {
+            redimensionar(capacidad);
+        }
+    }
+
+    /**
+     * Elimina todas las claves del mapa.
+     */
+    public void clear() {
+        Arrays.fill(valores, AUSENTE);
+        tamanio = 0;
+    }
+
+    /**
+     * Obtiene la cantidad de claves almacenadas.
+     *
+     * @return Cantidad de claves.
+     */
+    public int size() {
+        return tamanio;
+    }
+
+    /**
+     * Obtiene todas las claves almacenadas, sin un orden definido.
+     *
+     * @return Arreglo nuevo con las claves.
+     */
+    public int[] claves() {
+        int[] resultado = new int[tamanio];
+        int n = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (valores[i] != AUSENTE) {
+                resultado[n++] = claves[i];
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Cierra el hueco dejado en la posición indicada moviendo hacia atrás
+     * las claves que quedarían inalcanzables.
+     *
+     * @param hueco Posición liberada.
+     */
+    private void desplazarHaciaAtras(int hueco) {
+        int mascara = claves.length - 1;
+        int i = hueco;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (valores[i] == AUSENTE) {
+                break;
+            }
+            int ideal = mezclar(claves[i]) & mascara;
+            // La clave en i puede ocupar el hueco si su posición ideal no está entre el hueco y i
+            boolean mover = hueco <= i ? (ideal <= hueco || ideal > i) : (ideal <= hueco && ideal > i);
+            if (mover) {
+                claves[hueco] = claves[i];
+                valores[hueco] = valores[i];
+                hueco = i;
+            }
+        }
+        valores[hueco] = AUSENTE;
+    }
+
+    /**
+     * Reconstruye las tablas con una nueva capacidad.
+     *
+     * @param capacidad Nueva capacidad, potencia de dos.
+     */
+    private void redimensionar(int capacidad) {
+        int[] viejasClaves = claves;
+        int[] viejosValores = valores;
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(valores, AUSENTE);
+        int mascara = capacidad - 1;
+        for (int j = 0; j < viejasClaves.length; j++) {
+            if (viejosValores[j] != AUSENTE) {
+                int i = mezclar(viejasClaves[j]) & mascara;
+                while (valores[i] != AUSENTE) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = viejasClaves[j];
+                valores[i] = viejosValores[j];
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits de la clave para evitar agrupamientos con ids consecutivos.
+     *
+     * @param clave Clave a dispersar.
+     * @return Valor dispersado.
+     */
+    private static int mezclar(int clave) {
+        int h = clave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
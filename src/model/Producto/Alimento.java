@@ -13,6 +13,7 @@ import exceptions.PrecioInvalidoException;
  * @author joaxx
  */
 public class Alimento extends Producto implements Descontable {
+    private static final long serialVersionUID = 5435706837875695711L; // El de la versión original
     private TipoAlimento tipo; // Tipo de alimento (perecedero o no perecedero)
     private int calorias; // Cantidad de calorías del producto
 
@@ -64,6 +65,7 @@ public class Alimento extends Producto implements Descontable {
      * @return Tipo de alimento.
      */
     public TipoAlimento getTipo() {
+        cargarDetalles();
         return tipo;
     }
 
@@ -73,6 +75,7 @@ public class Alimento extends Producto implements Descontable {
      * @param tipo Tipo de alimento.
      */
     public void setTipo(TipoAlimento tipo) {
+        cargarDetalles();
         this.tipo = tipo;
     }
 
@@ -82,6 +85,7 @@ public class Alimento extends Producto implements Descontable {
      * @return Cantidad de calorías.
      */
     public int getCalorias() {
+        cargarDetalles();
         return calorias;
     }
 
@@ -91,6 +95,7 @@ public class Alimento extends Producto implements Descontable {
      * @param calorias Cantidad de calorías.
      */
     public void setCalorias(int calorias) {
+        cargarDetalles();
         this.calorias = calorias;
     }
 
@@ -101,6 +106,7 @@ public class Alimento extends Producto implements Descontable {
      */
     @Override
     public String getDescripcion() {
+        cargarDetalles();
         return "Alimento " + getNombre() + " (" + tipo + "), " + calorias + " calorías.";
     }
 
@@ -111,6 +117,7 @@ public class Alimento extends Producto implements Descontable {
      */
     @Override
     public double calcularDescuentoEspecial() {
+        cargarDetalles();
         if (tipo == TipoAlimento.PERECEDERO) {
             return getPrecio() * 0.15;
         } else {
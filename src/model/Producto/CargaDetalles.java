@@ -0,0 +1,22 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model.Producto;
+
+/**
+ * Interfaz que define el origen de los campos propios de un producto cargado de forma diferida.
+ * 
+ * @author joaxx
+ */
+@FunctionalInterface
+public interface CargaDetalles {
+    /**
+     * Lee los campos propios del producto y los asigna con sus setters.
+     * Puede llamarse desde distintos hilos para distintos productos.
+     *
+     * @param p Producto a completar.
+     * @param posicion Posición del producto en el origen.
+     */
+    void completar(Producto p, int posicion);
+}
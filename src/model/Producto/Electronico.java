@@ -13,6 +13,7 @@ import exceptions.PrecioInvalidoException;
  * @author joaxx
  */
 public class Electronico extends Producto {
+    private static final long serialVersionUID = -8940753444084744171L; // El de la versión original
     private MarcaElectronicos marca; // Marca del producto electrónico
     private int garantiaMeses; // Duración de la garantía en meses
 
@@ -64,6 +65,7 @@ public class Electronico extends Producto {
      * @return Marca del producto.
      */
     public MarcaElectronicos getMarca() {
+        cargarDetalles();
         return marca;
     }
 
@@ -73,6 +75,7 @@ public class Electronico extends Producto {
      * @param marca Marca del producto.
      */
     public void setMarca(MarcaElectronicos marca) {
+        cargarDetalles();
         this.marca = marca;
     }
 
@@ -82,6 +85,7 @@ public class Electronico extends Producto {
      * @return Duración de la garantía en meses.
      */
     public int getGarantiaMeses() {
+        cargarDetalles();
         return garantiaMeses;
     }
 
@@ -91,6 +95,7 @@ public class Electronico extends Producto {
      * @param garantiaMeses Duración de la garantía en meses.
      */
     public void setGarantiaMeses(int garantiaMeses) {
+        cargarDetalles();
         this.garantiaMeses = garantiaMeses;
     }
 
@@ -101,6 +106,7 @@ public class Electronico extends Producto {
      */
     @Override
     public String getDescripcion() {
+        cargarDetalles();
         return "Electrónico " + getNombre() + " de marca " + marca + ", garantía: " + garantiaMeses + " meses";
     }
 }
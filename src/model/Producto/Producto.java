@@ -3,6 +3,8 @@
  * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.Producto to edit this template
  */
 package model.Producto;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import exceptions.PrecioInvalidoException;
 /**
@@ -11,12 +13,19 @@ import exceptions.PrecioInvalidoException;
  * Implementa la interfaz Comparable para permitir su ordenamiento por ID.
  * Implementa Serializable para habilitar la persistencia.
  * 
+ * Los campos propios de cada subclase pueden cargarse de forma diferida: si se indicó
+ * un origen con diferirDetalles, se leen de él la primera vez que se accede a alguno.
+ * 
  * @author joaxx
  */
 public abstract class Producto implements Comparable<Producto>, Serializable {
+    private static final long serialVersionUID = -8618077089402273362L; // El de la versión original, para leer archivos ya guardados
     private int id; // Identificador único del producto
     private String nombre; // Nombre del producto
     private double precio; // Precio del producto
+    private transient volatile CargaDetalles cargaDetalles; // Origen de los campos propios aún no leídos
+    private transient int posicionDetalles; // Posición del producto en ese origen
+    private transient boolean completando; // Evita volver a cargar mientras se asignan los campos
 
     /**
      * Constructor que inicializa todos los atributos del producto.
@@ -133,6 +142,55 @@ public abstract class Producto implements Comparable<Producto>, Serializable {
     }
 
 
+    /**
+     * Indica que los campos propios de la subclase todavía no se leyeron y de dónde leerlos.
+     * Se leerán la primera vez que se acceda a alguno de ellos o a la descripción.
+     * 
+     * @param carga Origen de los campos propios.
+     * @param posicion Posición del producto en el origen.
+     */
+    public void diferirDetalles(CargaDetalles carga, int posicion) {
+        this.posicionDetalles = posicion;
+        this.cargaDetalles = carga;
+    }
+
+    /**
+     * Lee los campos propios de la subclase si la carga está diferida.
+     * Las subclases lo llaman antes de usar sus campos.
+     */
+    protected final void cargarDetalles() {
+        if (cargaDetalles != null) {
+            completarDetalles();
+        }
+    }
+
+    /**
+     * Completa los campos propios una sola vez, aunque se pidan desde varios hilos.
+     */
+    private synchronized void completarDetalles() {
+        CargaDetalles carga = cargaDetalles;
+        if (carga != null && !completando) {
+            completando = true;
+            try {
+                carga.completar(this, posicionDetalles);
+                cargaDetalles = null;
+            } finally {
+                completando = false;
+            }
+        }
+    }
+
+    /**
+     * Completa los campos diferidos antes de serializar, ya que los de la subclase se escriben después.
+     * 
+     * @param out Flujo de salida.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        cargarDetalles();
+        out.defaultWriteObject();
+    }
+
     /**
      * Método abstracto para obtener una descripción del producto.
      * Debe ser implementado por las subclases.
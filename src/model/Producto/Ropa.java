@@ -13,6 +13,7 @@ import exceptions.PrecioInvalidoException;
  * @author joaxx
  */
 public class Ropa extends Producto {
+    private static final long serialVersionUID = -1482402058610211978L; // El de la versión original
     private TallaRopa talla; // Talla de la prenda
     private String material; // Material de la prenda
 
@@ -64,6 +65,7 @@ public class Ropa extends Producto {
      * @return Talla de la prenda.
      */
     public TallaRopa getTalla() {
+        cargarDetalles();
         return talla;
     }
 
@@ -73,6 +75,7 @@ public class Ropa extends Producto {
      * @param talla Talla de la prenda.
      */
     public void setTalla(TallaRopa talla) {
+        cargarDetalles();
         this.talla = talla;
     }
 
@@ -82,6 +85,7 @@ public class Ropa extends Producto {
      * @return Material de la prenda.
      */
     public String getMaterial() {
+        cargarDetalles();
         return material;
     }
 
@@ -91,6 +95,7 @@ public class Ropa extends Producto {
      * @param material Material de la prenda.
      */
     public void setMaterial(String material) {
+        cargarDetalles();
         this.material = material;
     }
 
@@ -101,6 +106,7 @@ public class Ropa extends Producto {
      */
     @Override
     public String getDescripcion() {
+        cargarDetalles();
         return "Ropa: " + getNombre() + " - Talla: " + talla + " - Material: " + material;
     }
 }
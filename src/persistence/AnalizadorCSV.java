@@ -0,0 +1,507 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import exceptions.PrecioInvalidoException;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Intérprete de las líneas de un CSV de productos (id,nombre,precio,tipo) sobre bytes en memoria.
+ *
+ * Los números se interpretan directamente desde los bytes, sin crear Strings intermedios;
+ * solo se crea el String del nombre. Los campos pueden ir entre comillas dobles (con ""
+ * para una comilla) y así contener comas y saltos de línea, como los escribe
+ * CargadorCSV.campo; un registro puede ocupar entonces varias líneas del archivo.
+ * Lo usa ImportacionCSV, cada hilo con su propio intérprete sobre su porción de los datos,
+ * que debe empezar y terminar entre registros (ver {@link #finDeRegistros(ByteBuffer, int)}).
+ *
+ * @author joaxx
+ */
+class AnalizadorCSV {
+
+    static final byte TIPO_DESCONOCIDO = 0;
+    static final byte TIPO_ALIMENTO = 1;
+    static final byte TIPO_ELECTRONICO = 2;
+    static final byte TIPO_ROPA = 3;
+
+    private static final byte[] ALIMENTO = "Alimento".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ELECTRONICO = "Electronico".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROPA = "Ropa".getBytes(StandardCharsets.US_ASCII);
+
+    private static final double[] POTENCIAS_DE_DIEZ = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int LARGO_MAXIMO_LINEA = 200; // Caracteres de una línea rechazada que se conservan
+
+    private final ByteBuffer datos;
+    private int pos;
+
+    private byte[] campo = new byte[64]; // Último campo leído, reutilizado en cada línea
+    private int largo; // Bytes válidos en campo
+    private int inicioLinea;
+    private int saltosEntreComillas; // Saltos de línea dentro de campos de la última línea leída
+
+    // Campos de la última línea leída con leerLinea
+    private int id;
+    private String nombre;
+    private double precio;
+    private byte tipo;
+    private String tipoLeido; // Texto del tipo, solo si es desconocido
+
+    /**
+     * Constructor del intérprete.
+     *
+     * @param datos Bytes a interpretar, mapeados o descomprimidos en memoria.
+     */
+    AnalizadorCSV(ByteBuffer datos) {
+        this.datos = datos;
+    }
+
+    /**
+     * Indica si quedan líneas por leer.
+     *
+     * @return true si la posición no llegó al final de los datos.
+     */
+    boolean hayLineas() {
+        return pos < datos.limit();
+    }
+
+    /**
+     * Consume la línea actual si está vacía.
+     *
+     * @return true si la línea estaba vacía.
+     */
+    boolean saltarVacia() {
+        inicioLinea = pos;
+        if (finDeLinea()) {
+            saltarFinDeLinea();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lee los cuatro campos de la línea actual y consume la línea completa.
+     * Los campos adicionales se ignoran.
+     *
+     * @throws NumberFormatException Si el ID o el precio no es numérico.
+     * @throws IllegalArgumentException Si la línea está incompleta.
+     */
+    void leerLinea() {
+        inicioLinea = pos;
+        saltosEntreComillas = 0;
+        leerCampo();
+        id = entero();
+        exigirSeparador();
+        leerCampo();
+        nombre = new String(campo, 0, largo, StandardCharsets.UTF_8);
+        exigirSeparador();
+        leerCampo();
+        precio = decimal();
+        exigirSeparador();
+        leerCampo();
+        tipo = campoEs(ALIMENTO) ? TIPO_ALIMENTO
+                : campoEs(ELECTRONICO) ? TIPO_ELECTRONICO
+                : campoEs(ROPA) ? TIPO_ROPA
+                : TIPO_DESCONOCIDO;
+        tipoLeido = tipo == TIPO_DESCONOCIDO ? textoCampo() : null;
+        saltarLinea();
+    }
+
+    /**
+     * Avanza hasta el final de la línea actual y consume el fin de línea.
+     * Se usa para seguir con la línea siguiente después de un error.
+     */
+    void saltarLinea() {
+        int fin = datos.limit();
+        while (pos < fin && !finDeLinea()) {
+            pos++;
+        }
+        saltarFinDeLinea();
+    }
+
+    /**
+     * Obtiene la cantidad de saltos de línea que había dentro de campos entre comillas en
+     * la última línea leída, aunque la lectura haya fallado después. Se usa para seguir
+     * contando las líneas del archivo.
+     *
+     * @return Líneas adicionales que ocupó el registro.
+     */
+    int getSaltosEntreComillas() {
+        return saltosEntreComillas;
+    }
+
+    /**
+     * Busca el final del último registro completo de un bloque de datos que empieza al
+     * principio de un registro: la posición siguiente al último \n que no está dentro de
+     * un campo entre comillas. Las comillas se interpretan como en la lectura: solo abren
+     * un campo si están al principio del campo.
+     *
+     * Si todos los \n quedan dentro de comillas (por ejemplo, por una comilla sin cerrar)
+     * devuelve el último de todos, de modo que el error afecte a un solo bloque.
+     *
+     * @param datos Datos leídos, desde la posición 0.
+     * @param largo Bytes válidos.
+     * @return Posición siguiente al \n que cierra el último registro, o 0 si no hay ningún \n.
+     */
+    static int finDeRegistros(ByteBuffer datos, int largo) {
+        int corte = 0;
+        int ultimoSalto = 0;
+        boolean entreComillas = false;
+        boolean inicioCampo = true;
+        for (int i = 0; i < largo; i++) {
+            byte b = datos.get(i);
+            if (b == '\n') {
+                ultimoSalto = i + 1;
+            }
+            if (entreComillas) {
+                if (b == '"') {
+                    if (i + 1 < largo && datos.get(i + 1) == '"') {
+                        i++; // Comilla escapada
+                    } else {
+                        entreComillas = false;
+                    }
+                }
+            } else if (b == '"' && inicioCampo) {
+                entreComillas = true;
+                inicioCampo = false;
+            } else {
+                if (b == '\n') {
+                    corte = i + 1;
+                }
+                inicioCampo = b == ',' || b == '\n' || b == '\r';
+            }
+        }
+        return corte > 0 ? corte : ultimoSalto;
+    }
+
+    /**
+     * Obtiene la posición donde empieza la última línea leída o salteada.
+     *
+     * @return Posición en los datos.
+     */
+    int getInicioLinea() {
+        return inicioLinea;
+    }
+
+    /**
+     * Obtiene el texto de una línea, sin el fin de línea y recortado a LARGO_MAXIMO_LINEA
+     * caracteres. Se usa para informar líneas rechazadas.
+     *
+     * @param datos Bytes que contienen la línea.
+     * @param inicio Posición donde empieza la línea.
+     * @return Texto de la línea.
+     */
+    static String textoLinea(ByteBuffer datos, int inicio) {
+        int fin = inicio;
+        while (fin < datos.limit() && datos.get(fin) != '\n' && datos.get(fin) != '\r') {
+            fin++;
+        }
+        byte[] bytes = new byte[Math.min(fin - inicio, LARGO_MAXIMO_LINEA * 4)];
+        datos.get(inicio, bytes);
+        String texto = new String(bytes, StandardCharsets.UTF_8);
+        return texto.length() > LARGO_MAXIMO_LINEA ? texto.substring(0, LARGO_MAXIMO_LINEA) + "..." : texto;
+    }
+
+    /**
+     * Obtiene el ID de la última línea leída.
+     *
+     * @return ID leído.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Obtiene el nombre de la última línea leída.
+     *
+     * @return Nombre leído.
+     */
+    String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el precio de la última línea leída.
+     *
+     * @return Precio leído.
+     */
+    double getPrecio() {
+        return precio;
+    }
+
+    /**
+     * Obtiene el tipo de la última línea leída.
+     *
+     * @return Una de las constantes TIPO_.
+     */
+    byte getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene el texto del tipo de la última línea leída, si era desconocido.
+     *
+     * @return Texto del tipo, o null si el tipo es conocido.
+     */
+    String getTipoLeido() {
+        return tipoLeido;
+    }
+
+    /**
+     * Crea un producto con los valores predeterminados de su tipo.
+     *
+     * @param tipo Tipo leído con leerLinea.
+     * @param id ID del producto.
+     * @param nombre Nombre del producto.
+     * @param precio Precio del producto.
+     * @param tipoLeido Texto del tipo, para el mensaje de error.
+     * @return Producto creado.
+     * @throws PrecioInvalidoException Si el precio es inválido.
+     * @throws IllegalArgumentException Si el tipo es desconocido.
+     */
+    static Producto crear(byte tipo, int id, String nombre, double precio, String tipoLeido) throws PrecioInvalidoException {
+        switch (tipo) {
+            case TIPO_ALIMENTO:
+                return new Alimento(id, nombre, precio, TipoAlimento.NO_PERECEDERO, 100);
+            case TIPO_ELECTRONICO:
+                return new Electronico(id, nombre, precio, MarcaElectronicos.SAMSUNG, 12);
+            case TIPO_ROPA:
+                return new Ropa(id, nombre, precio, TallaRopa.M, "Algodón");
+            default:
+                throw new IllegalArgumentException("Tipo desconocido: " + tipoLeido);
+        }
+    }
+
+    /**
+     * Lee el siguiente campo, con o sin comillas, dejando sus bytes en campo.
+     * Se detiene antes de la coma o del fin de línea. Los campos entre comillas pueden
+     * contener saltos de línea, que se conservan en el campo y se cuentan en
+     * saltosEntreComillas.
+     *
+     * @throws IllegalArgumentException Si un campo entre comillas no se cierra antes del
+     * final de los datos; en ese caso la posición vuelve a la comilla de apertura, para que
+     * saltarLinea descarte solo esa línea.
+     */
+    private void leerCampo() {
+        int fin = datos.limit();
+        largo = 0;
+        if (pos < fin && datos.get(pos) == '"') {
+            int apertura = pos++;
+            int saltos = 0;
+            while (true) {
+                if (pos >= fin) {
+                    pos = apertura;
+                    throw new IllegalArgumentException("Comillas sin cerrar");
+                }
+                byte b = datos.get(pos++);
+                if (b == '\n' || (b == '\r' && (pos >= fin || datos.get(pos) != '\n'))) {
+                    saltos++; // \n, \r\n o \r sueltos cuentan una línea
+                }
+                if (b == '"') {
+                    if (pos < fin && datos.get(pos) == '"') {
+                        pos++; // Comilla escapada
+                    } else {
+                        break;
+                    }
+                }
+                agregar(b);
+            }
+            saltosEntreComillas += saltos;
+        } else {
+            while (pos < fin) {
+                byte b = datos.get(pos);
+                if (b == ',' || b == '\n' || b == '\r') {
+                    break;
+                }
+                agregar(b);
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Agrega un byte al campo actual, agrandando el arreglo si hace falta.
+     *
+     * @param b Byte a agregar.
+     */
+    private void agregar(byte b) {
+        if (largo == campo.length) {
+            campo = Arrays.copyOf(campo, largo * 2);
+        }
+        campo[largo++] = b;
+    }
+
+    /**
+     * Consume la coma que separa dos campos.
+     *
+     * @throws IllegalArgumentException Si la línea termina antes.
+     */
+    private void exigirSeparador() {
+        if (pos >= datos.limit() || datos.get(pos) != ',') {
+            throw new IllegalArgumentException("Línea incompleta, se esperaban 4 campos");
+        }
+        pos++;
+    }
+
+    /**
+     * Indica si la posición actual está en un fin de línea.
+     *
+     * @return true si hay un salto de línea en la posición actual.
+     */
+    private boolean finDeLinea() {
+        byte b = datos.get(pos);
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * Consume un fin de línea (\n, \r\n o \r) si lo hay.
+     */
+    private void saltarFinDeLinea() {
+        int fin = datos.limit();
+        if (pos < fin && datos.get(pos) == '\r') {
+            pos++;
+        }
+        if (pos < fin && datos.get(pos) == '\n') {
+            pos++;
+        }
+    }
+
+    /**
+     * Interpreta el campo actual como entero.
+     *
+     * @return Valor del campo.
+     * @throws NumberFormatException Si el campo no es un entero válido.
+     */
+    private int entero() {
+        int i = 0;
+        boolean negativo = largo > 0 && campo[0] == '-';
+        if (negativo || (largo > 0 && campo[0] == '+')) {
+            i++;
+        }
+        if (i == largo || largo - i > 10) {
+            return Integer.parseInt(textoCampo()); // Vacío o demasiado largo: informa el error estándar
+        }
+        long valor = 0;
+        for (; i < largo; i++) {
+            int d = campo[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException("For input string: \"" + textoCampo() + "\"");
+            }
+            valor = valor * 10 + d;
+        }
+        valor = negativo ? -valor : valor;
+        if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + textoCampo() + "\"");
+        }
+        return (int) valor;
+    }
+
+    /**
+     * Interpreta el campo actual como número decimal.
+     * Los valores con hasta 15 dígitos significativos y exponente chico se calculan
+     * exactamente a partir de los bytes; el resto se delega a Double.parseDouble.
+     *
+     * @return Valor del campo.
+     * @throws NumberFormatException Si el campo no es un número válido.
+     */
+    private double decimal() {
+        int i = 0;
+        boolean negativo = false;
+        if (i < largo && (campo[i] == '-' || campo[i] == '+')) {
+            negativo = campo[i] == '-';
+            i++;
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = 0;
+        boolean hayDigitos = false;
+        boolean enDecimales = false;
+        for (; i < largo; i++) {
+            byte b = campo[i];
+            if (b >= '0' && b <= '9') {
+                hayDigitos = true;
+                if (mantisa != 0 || b != '0') {
+                    digitos++;
+                }
+                if (digitos > 15) {
+                    return Double.parseDouble(textoCampo());
+                }
+                mantisa = mantisa * 10 + (b - '0');
+                if (enDecimales) {
+                    decimales++;
+                }
+            } else if (b == '.' && !enDecimales) {
+                enDecimales = true;
+            } else {
+                break;
+            }
+        }
+        int exponente = 0;
+        if (i < largo && (campo[i] == 'E' || campo[i] == 'e')) {
+            int j = i + 1;
+            boolean expNegativo = false;
+            if (j < largo && (campo[j] == '-' || campo[j] == '+')) {
+                expNegativo = campo[j] == '-';
+                j++;
+            }
+            if (j == largo || largo - j > 3) {
+                return Double.parseDouble(textoCampo());
+            }
+            for (; j < largo; j++) {
+                int d = campo[j] - '0';
+                if (d < 0 || d > 9) {
+                    return Double.parseDouble(textoCampo());
+                }
+                exponente = exponente * 10 + d;
+            }
+            exponente = expNegativo ? -exponente : exponente;
+            i = largo;
+        }
+        if (!hayDigitos || i != largo) {
+            return Double.parseDouble(textoCampo()); // NaN, Infinity o formato inválido
+        }
+        int e10 = exponente - decimales;
+        double valor;
+        if (e10 >= 0 && e10 < POTENCIAS_DE_DIEZ.length) {
+            valor = mantisa * POTENCIAS_DE_DIEZ[e10];
+        } else if (e10 < 0 && -e10 < POTENCIAS_DE_DIEZ.length) {
+            valor = mantisa / POTENCIAS_DE_DIEZ[-e10];
+        } else {
+            return Double.parseDouble(textoCampo());
+        }
+        return negativo ? -valor : valor;
+    }
+
+    /**
+     * Compara el campo actual con un texto ASCII.
+     *
+     * @param texto Bytes del texto.
+     * @return true si son iguales.
+     */
+    private boolean campoEs(byte[] texto) {
+        return Arrays.equals(campo, 0, largo, texto, 0, texto.length);
+    }
+
+    /**
+     * Crea el String del campo actual; solo se usa para mensajes de error y casos poco comunes.
+     *
+     * @return Texto del campo.
+     */
+    private String textoCampo() {
+        return new String(campo, 0, largo, StandardCharsets.UTF_8);
+    }
+}
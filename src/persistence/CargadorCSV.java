@@ -0,0 +1,32 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+/**
+ * Utilidades para escribir archivos CSV de productos (id,nombre,precio,tipo).
+ *
+ * La lectura la hace ImportacionCSV, que mapea el archivo en memoria y lo procesa en
+ * paralelo con AnalizadorCSV.
+ *
+ * @author joaxx
+ */
+public class CargadorCSV {
+
+    /**
+     * Prepara un texto para escribirlo como campo CSV.
+     * Si contiene comas, comillas o saltos de línea se encierra entre comillas
+     * y las comillas internas se duplican.
+     *
+     * @param texto Texto del campo, puede ser null.
+     * @return Campo listo para escribir.
+     */
+    public static String campo(String texto) {
+        String valor = String.valueOf(texto);
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
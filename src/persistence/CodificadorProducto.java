@@ -0,0 +1,131 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import exceptions.PrecioInvalidoException;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codificación binaria compacta de un producto, sin serialización de Java.
+ * Escribe una marca de tipo, los campos comunes y los campos específicos
+ * de cada subclase, usando el ordinal de los enums.
+ *
+ * @author joaxx
+ */
+public class CodificadorProducto {
+
+    public static final byte TIPO_ALIMENTO = 0;
+    public static final byte TIPO_ELECTRONICO = 1;
+    public static final byte TIPO_ROPA = 2;
+
+    /**
+     * Escribe un producto.
+     *
+     * @param out Destino de los datos.
+     * @param p Producto a escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     * @throws IllegalArgumentException Si el tipo de producto es desconocido.
+     */
+    public static void escribir(DataOutput out, Producto p) throws IOException {
+        if (p instanceof Alimento) {
+            Alimento a = (Alimento) p;
+            escribirComunes(out, TIPO_ALIMENTO, p);
+            out.writeByte(a.getTipo().ordinal());
+            out.writeInt(a.getCalorias());
+        } else if (p instanceof Electronico) {
+            Electronico e = (Electronico) p;
+            escribirComunes(out, TIPO_ELECTRONICO, p);
+            out.writeByte(e.getMarca().ordinal());
+            out.writeInt(e.getGarantiaMeses());
+        } else if (p instanceof Ropa) {
+            Ropa r = (Ropa) p;
+            escribirComunes(out, TIPO_ROPA, p);
+            out.writeByte(r.getTalla().ordinal());
+            escribirTexto(out, r.getMaterial());
+        } else {
+            throw new IllegalArgumentException("Tipo de producto desconocido: " + p.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Lee un producto escrito con {@link #escribir(DataOutput, Producto)}.
+     *
+     * @param in Origen de los datos.
+     * @return Producto leído.
+     * @throws IOException Si ocurre un error al leer o los datos son inválidos.
+     */
+    public static Producto leer(DataInput in) throws IOException {
+        byte tipo = in.readByte();
+        int id = in.readInt();
+        String nombre = leerTexto(in);
+        double precio = in.readDouble();
+        int ordinal = in.readByte();
+        try {
+            switch (tipo) {
+                case TIPO_ALIMENTO:
+                    return new Alimento(id, nombre, precio, TipoAlimento.values()[ordinal], in.readInt());
+                case TIPO_ELECTRONICO:
+                    return new Electronico(id, nombre, precio, MarcaElectronicos.values()[ordinal], in.readInt());
+                case TIPO_ROPA:
+                    return new Ropa(id, nombre, precio, TallaRopa.values()[ordinal], leerTexto(in));
+                default:
+                    throw new IOException("Tipo de producto desconocido: " + tipo);
+            }
+        } catch (PrecioInvalidoException ex) {
+            throw new IOException("Precio inválido para id " + id + ": " + ex.getMessage(), ex);
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("Ordinal inválido para id " + id + ": " + ordinal, ex);
+        }
+    }
+
+    /**
+     * Escribe la marca de tipo y los campos comunes a todos los productos.
+     *
+     * @param out Destino de los datos.
+     * @param tipo Marca de tipo.
+     * @param p Producto a escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void escribirComunes(DataOutput out, byte tipo, Producto p) throws IOException {
+        out.writeByte(tipo);
+        out.writeInt(p.getId());
+        escribirTexto(out, p.getNombre());
+        out.writeDouble(p.getPrecio());
+    }
+
+    /**
+     * Escribe un texto que puede ser null.
+     *
+     * @param out Destino de los datos.
+     * @param texto Texto a escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void escribirTexto(DataOutput out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    /**
+     * Lee un texto escrito con escribirTexto.
+     *
+     * @param in Origen de los datos.
+     * @return Texto leído, o null.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    private static String leerTexto(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.DoubleConsumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Capa de compresión común a todos los formatos de archivo del catálogo.
+ *
+ * Al escribir, el códec se elige por la extensión del archivo (".gz", ".zz" o ".blq");
+ * al leer, se detecta por los primeros bytes, por lo que un archivo comprimido puede
+ * cargarse sin importar su nombre. Los archivos sin comprimir se leen como antes.
+ *
+ * @author joaxx
+ */
+public class Compresion {
+
+    /**
+     * Códecs disponibles.
+     */
+    public enum Codec {
+        NINGUNO,  // Sin compresión.
+        GZIP,     // Flujo gzip (extensión .gz).
+        DEFLATE,  // Flujo deflate con encabezado zlib (extensión .zz).
+        BLOQUES   // ContenedorBloques, descompresión en paralelo (extensión .blq).
+    }
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    /**
+     * Elige el códec según la extensión del archivo.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Códec correspondiente, NINGUNO si la extensión no indica compresión.
+     */
+    public static Codec porExtension(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase();
+        if (nombre.endsWith(".gz")) {
+            return Codec.GZIP;
+        }
+        if (nombre.endsWith(".zz")) {
+            return Codec.DEFLATE;
+        }
+        if (nombre.endsWith(".blq")) {
+            return Codec.BLOQUES;
+        }
+        return Codec.NINGUNO;
+    }
+
+    /**
+     * Detecta el códec de un archivo por sus primeros bytes.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Códec detectado, NINGUNO si no se reconoce ninguna compresión.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public static Codec detectar(Path archivo) throws IOException {
+        try (InputStream in = Files.newInputStream(archivo)) {
+            byte[] inicio = new byte[4];
+            return detectar(inicio, in.readNBytes(inicio, 0, 4));
+        }
+    }
+
+    /**
+     * Abre un archivo para escribir, comprimiendo según su extensión.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Flujo de salida; al cerrarlo se completa la compresión.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static OutputStream abrirEscritura(Path archivo) throws IOException {
+        return abrirEscritura(archivo, porExtension(archivo));
+    }
+
+    /**
+     * Abre un archivo para escribir con el códec indicado.
+     *
+     * @param archivo Ruta del archivo.
+     * @param codec Códec a usar.
+     * @return Flujo de salida; al cerrarlo se completa la compresión.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static OutputStream abrirEscritura(Path archivo, Codec codec) throws IOException {
+        OutputStream salida = new BufferedOutputStream(Files.newOutputStream(archivo), TAMANIO_BUFFER);
+        try {
+            switch (codec) {
+                case GZIP:
+                    return new GZIPOutputStream(salida, TAMANIO_BUFFER);
+                case DEFLATE:
+                    return new DeflaterOutputStream(salida, new Deflater(), TAMANIO_BUFFER, false) {
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                def.end(); // El Deflater propio no se libera solo
+                            }
+                        }
+                    };
+                case BLOQUES:
+                    return new ContenedorBloques.Salida(salida, ContenedorBloques.TAMANIO_BLOQUE);
+                default:
+                    return salida;
+            }
+        } catch (IOException ex) {
+            salida.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Abre un archivo para leer, descomprimiendo según el códec detectado.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Flujo de entrada con los datos sin comprimir.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static InputStream abrirLectura(Path archivo) throws IOException {
+        return abrirLectura(archivo, null);
+    }
+
+    /**
+     * Abre un archivo para leer, descomprimiendo según el códec detectado, e informa
+     * qué fracción del archivo se leyó. El avance se mide sobre los bytes del archivo,
+     * antes de descomprimir, y se informa cada vez que crece al menos un 1%.
+     *
+     * @param archivo Ruta del archivo.
+     * @param avance Recibe la fracción leída entre 0 y 1, desde el hilo que lee; puede ser null.
+     * @return Flujo de entrada con los datos sin comprimir.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public static InputStream abrirLectura(Path archivo, DoubleConsumer avance) throws IOException {
+        InputStream crudo = Files.newInputStream(archivo);
+        if (avance != null) {
+            crudo = new EntradaConAvance(crudo, Files.size(archivo), avance);
+        }
+        BufferedInputStream entrada = new BufferedInputStream(crudo, TAMANIO_BUFFER);
+        try {
+            entrada.mark(4);
+            byte[] inicio = new byte[4];
+            Codec codec = detectar(inicio, entrada.readNBytes(inicio, 0, 4));
+            entrada.reset();
+            switch (codec) {
+                case GZIP:
+                    return new GZIPInputStream(entrada, TAMANIO_BUFFER);
+                case DEFLATE:
+                    return new InflaterInputStream(entrada, new Inflater(), TAMANIO_BUFFER) {
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                inf.end(); // El Inflater propio no se libera solo
+                            }
+                        }
+                    };
+                case BLOQUES:
+                    return new ContenedorBloques.Entrada(entrada);
+                default:
+                    return entrada;
+            }
+        } catch (IOException ex) {
+            entrada.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Lee el contenido completo de un archivo, sin comprimir.
+     * Los archivos sin comprimir se mapean en memoria; los comprimidos se descomprimen
+     * en memoria (los contenedores por bloques, en paralelo).
+     *
+     * @param archivo Ruta del archivo.
+     * @return Buffer con el contenido, desde la posición 0.
+     * @throws IOException Si ocurre un error al leer o el contenido supera los 2 GB.
+     */
+    public static ByteBuffer leerCompleto(Path archivo) throws IOException {
+        if (detectar(archivo) == Codec.NINGUNO) {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                if (canal.size() > Integer.MAX_VALUE) {
+                    throw new IOException("El archivo supera los 2 GB: " + archivo);
+                }
+                return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            }
+        }
+        try (InputStream in = abrirLectura(archivo)) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Reconoce el códec a partir de los primeros bytes.
+     *
+     * @param inicio Primeros bytes del archivo.
+     * @param leidos Cantidad de bytes válidos.
+     * @return Códec reconocido, o NINGUNO.
+     */
+    private static Codec detectar(byte[] inicio, int leidos) {
+        if (leidos >= 2 && (inicio[0] & 0xFF) == 0x1F && (inicio[1] & 0xFF) == 0x8B) {
+            return Codec.GZIP;
+        }
+        if (leidos >= 4 && ByteBuffer.wrap(inicio).getInt() == ContenedorBloques.MAGIA) {
+            return Codec.BLOQUES;
+        }
+        // Encabezado zlib: método deflate con ventana de 32 KB, sin diccionario y chequeo múltiplo de 31
+        if (leidos >= 2 && (inicio[0] & 0xFF) == 0x78 && (inicio[1] & 0x20) == 0
+                && (((inicio[0] & 0xFF) << 8) | (inicio[1] & 0xFF)) % 31 == 0) {
+            return Codec.DEFLATE;
+        }
+        return Codec.NINGUNO;
+    }
+
+    /**
+     * Flujo que cuenta los bytes leídos de un archivo e informa la fracción leída.
+     */
+    private static class EntradaConAvance extends FilterInputStream {
+        private final long total;
+        private final long paso; // Bytes entre avisos
+        private final DoubleConsumer avance;
+        private long leidos;
+        private long proximoAviso;
+
+        EntradaConAvance(InputStream entrada, long total, DoubleConsumer avance) {
+            super(entrada);
+            this.total = total;
+            this.paso = Math.max(TAMANIO_BUFFER, total / 100);
+            this.avance = avance;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                contar(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                contar(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long saltados = super.skip(n);
+            contar(saltados);
+            return saltados;
+        }
+
+        private void contar(long n) {
+            leidos += n;
+            if (leidos >= proximoAviso) {
+                proximoAviso = leidos + paso;
+                avance.accept(total == 0 ? 1 : Math.min(1, (double) leidos / total));
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Contenedor comprimido por bloques independientes.
+ *
+ * Los datos se dividen en bloques de tamaño fijo y cada bloque se comprime por separado
+ * con deflate, por lo que tanto la compresión como la descompresión de varios bloques
+ * pueden repartirse entre los hilos del pool común. Los bloques se escriben y se entregan
+ * siempre en orden, manteniendo en memoria solo una ventana acotada de bloques.
+ *
+ * Estructura (big-endian): magia "PRDB", versión y tamaño de bloque; luego cada bloque
+ * como [largo original][largo comprimido][CRC32 del original][datos], y al final un
+ * bloque vacío que marca el fin.
+ *
+ * @author joaxx
+ */
+public class ContenedorBloques {
+
+    static final int MAGIA = 0x50524442; // "PRDB"
+    private static final short VERSION_ESQUEMA = 1;
+
+    /** Tamaño de bloque predeterminado, en bytes sin comprimir. */
+    public static final int TAMANIO_BLOQUE = 1 << 20;
+
+    /**
+     * Cantidad de bloques que se comprimen o descomprimen por adelantado.
+     *
+     * @return Tamaño de la ventana.
+     */
+    private static int ventana() {
+        return Math.max(2, ForkJoinPool.commonPool().getParallelism() * 2);
+    }
+
+    /**
+     * Flujo de salida que comprime en paralelo y escribe los bloques en orden.
+     */
+    public static class Salida extends OutputStream {
+        private final DataOutputStream destino;
+        private final Deque<CompletableFuture<byte[]>> pendientes = new ArrayDeque<>();
+        private final int limitePendientes = ventana();
+        private byte[] bloque;
+        private int largo;
+        private boolean cerrado;
+
+        /**
+         * Constructor que escribe el encabezado del contenedor.
+         *
+         * @param destino Flujo donde escribir el contenedor.
+         * @param tamanioBloque Tamaño de cada bloque sin comprimir.
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        public Salida(OutputStream destino, int tamanioBloque) throws IOException {
+            this.destino = new DataOutputStream(destino);
+            this.bloque = new byte[tamanioBloque];
+            this.destino.writeInt(MAGIA);
+            this.destino.writeShort(VERSION_ESQUEMA);
+            this.destino.writeInt(tamanioBloque);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (largo == bloque.length) {
+                enviarBloque();
+            }
+            bloque[largo++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int cantidad) throws IOException {
+            while (cantidad > 0) {
+                if (largo == bloque.length) {
+                    enviarBloque();
+                }
+                int n = Math.min(cantidad, bloque.length - largo);
+                System.arraycopy(b, desde, bloque, largo, n);
+                largo += n;
+                desde += n;
+                cantidad -= n;
+            }
+        }
+
+        /**
+         * Escribe los bloques pendientes, el bloque de fin y cierra el destino.
+         *
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        @Override
+        public void close() throws IOException {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            try {
+                if (largo > 0) {
+                    enviarBloque();
+                }
+                while (!pendientes.isEmpty()) {
+                    escribirSiguiente();
+                }
+                destino.writeInt(0);
+                destino.writeInt(0);
+                destino.writeInt(0);
+            } finally {
+                destino.close();
+            }
+        }
+
+        /**
+         * Manda a comprimir el bloque actual y, si la ventana está llena, escribe el más antiguo.
+         *
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        private void enviarBloque() throws IOException {
+            byte[] datos = bloque;
+            int n = largo;
+            pendientes.addLast(CompletableFuture.supplyAsync(() -> comprimir(datos, n), ForkJoinPool.commonPool()));
+            bloque = new byte[datos.length];
+            largo = 0;
+            if (pendientes.size() >= limitePendientes) {
+                escribirSiguiente();
+            }
+        }
+
+        /**
+         * Espera el bloque comprimido más antiguo y lo escribe.
+         *
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        private void escribirSiguiente() throws IOException {
+            destino.write(esperar(pendientes.removeFirst()));
+        }
+    }
+
+    /**
+     * Flujo de entrada que descomprime por adelantado varios bloques en paralelo
+     * y los entrega en orden.
+     */
+    public static class Entrada extends InputStream {
+        private final DataInputStream origen;
+        private final Deque<CompletableFuture<byte[]>> adelantados = new ArrayDeque<>();
+        private final int limiteAdelantados = ventana();
+        private boolean finOrigen;
+        private byte[] actual = new byte[0];
+        private int posicion;
+
+        /**
+         * Constructor que lee y valida el encabezado del contenedor.
+         *
+         * @param origen Flujo con el contenedor.
+         * @throws IOException Si el flujo no es un contenedor válido.
+         */
+        public Entrada(InputStream origen) throws IOException {
+            this.origen = new DataInputStream(origen);
+            if (this.origen.readInt() != MAGIA) {
+                throw new IOException("El flujo no es un contenedor comprimido por bloques");
+            }
+            short version = this.origen.readShort();
+            if (version > VERSION_ESQUEMA) {
+                throw new IOException("Versión de contenedor no soportada: " + version);
+            }
+            this.origen.readInt(); // Tamaño de bloque, informativo
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!disponible()) {
+                return -1;
+            }
+            return actual[posicion++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int desde, int cantidad) throws IOException {
+            if (cantidad == 0) {
+                return 0;
+            }
+            if (!disponible()) {
+                return -1;
+            }
+            int n = Math.min(cantidad, actual.length - posicion);
+            System.arraycopy(actual, posicion, b, desde, n);
+            posicion += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            origen.close();
+        }
+
+        /**
+         * Se asegura de tener bytes del bloque actual, pasando al siguiente si hace falta.
+         *
+         * @return false si no quedan datos.
+         * @throws IOException Si ocurre un error al leer o un bloque está dañado.
+         */
+        private boolean disponible() throws IOException {
+            while (posicion == actual.length) {
+                completarVentana();
+                if (adelantados.isEmpty()) {
+                    return false;
+                }
+                actual = esperar(adelantados.removeFirst());
+                posicion = 0;
+            }
+            return true;
+        }
+
+        /**
+         * Lee los bloques comprimidos siguientes y los manda a descomprimir hasta llenar la ventana.
+         *
+         * @throws IOException Si ocurre un error al leer.
+         */
+        private void completarVentana() throws IOException {
+            while (!finOrigen && adelantados.size() < limiteAdelantados) {
+                int largoOriginal = origen.readInt();
+                int largoComprimido = origen.readInt();
+                int suma = origen.readInt();
+                if (largoOriginal == 0 && largoComprimido == 0) {
+                    finOrigen = true;
+                    break;
+                }
+                if (largoOriginal < 0 || largoComprimido < 0) {
+                    throw new IOException("Bloque con largo inválido");
+                }
+                byte[] comprimido = new byte[largoComprimido];
+                origen.readFully(comprimido);
+                adelantados.addLast(CompletableFuture.supplyAsync(
+                        () -> descomprimir(comprimido, largoOriginal, suma), ForkJoinPool.commonPool()));
+            }
+        }
+    }
+
+    /**
+     * Comprime un bloque y le antepone su encabezado.
+     *
+     * @param datos Bytes del bloque.
+     * @param largo Cantidad de bytes válidos.
+     * @return Bloque listo para escribir.
+     */
+    private static byte[] comprimir(byte[] datos, int largo) {
+        CRC32 crc = new CRC32();
+        crc.update(datos, 0, largo);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(datos, 0, largo);
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(largo / 2 + 64);
+            DataOutputStream out = new DataOutputStream(salida);
+            out.writeInt(largo);
+            out.writeInt(0); // Se completa al terminar
+            out.writeInt((int) crc.getValue());
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                salida.write(buffer, 0, n);
+            }
+            byte[] bloque = salida.toByteArray();
+            int comprimido = bloque.length - 12;
+            bloque[4] = (byte) (comprimido >>> 24);
+            bloque[5] = (byte) (comprimido >>> 16);
+            bloque[6] = (byte) (comprimido >>> 8);
+            bloque[7] = (byte) comprimido;
+            return bloque;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // No ocurre al escribir en memoria
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Descomprime un bloque y verifica su CRC.
+     *
+     * @param comprimido Bytes comprimidos.
+     * @param largoOriginal Largo esperado sin comprimir.
+     * @param suma CRC32 esperado.
+     * @return Bytes originales.
+     * @throws UncheckedIOException Si el bloque está dañado.
+     */
+    private static byte[] descomprimir(byte[] comprimido, int largoOriginal, int suma) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(comprimido);
+            byte[] datos = new byte[largoOriginal];
+            int n = 0;
+            while (n < largoOriginal && !inflater.finished()) {
+                int leidos = inflater.inflate(datos, n, largoOriginal - n);
+                if (leidos == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += leidos;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(datos, 0, n);
+            if (n != largoOriginal || (int) crc.getValue() != suma) {
+                throw new UncheckedIOException(new IOException("Bloque comprimido dañado"));
+            }
+            return datos;
+        } catch (DataFormatException ex) {
+            throw new UncheckedIOException(new IOException("Bloque comprimido dañado", ex));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Espera el resultado de un bloque, convirtiendo sus errores en IOException.
+     *
+     * @param futuro Bloque en proceso.
+     * @return Bytes del bloque.
+     * @throws IOException Si el bloque no pudo procesarse.
+     */
+    private static byte[] esperar(CompletableFuture<byte[]> futuro) throws IOException {
+        try {
+            return futuro.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            throw ex;
+        }
+    }
+}
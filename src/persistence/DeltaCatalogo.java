@@ -0,0 +1,241 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import model.Producto.Producto;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de parches incrementales sobre una instantánea base (InstantaneaBinaria).
+ *
+ * El archivo de parches se ubica junto a la base, con la extensión ".delta". Empieza con
+ * un encabezado que guarda el CRC de la base a la que corresponde, seguido de un parche
+ * por cada guardado incremental. Cada parche contiene solo los productos agregados o
+ * modificados y los IDs eliminados desde el parche anterior, y se escribe como un único
+ * registro con longitud y CRC32: un parche incompleto (por un corte) se descarta entero.
+ *
+ * Al cargar, un parche dañado al final se descarta del archivo.
+ * Compactar consiste en escribir una base nueva con el catálogo completo y borrar los parches.
+ *
+ * @author joaxx
+ */
+public class DeltaCatalogo {
+
+    private static final int MAGIA = 0x50524444; // "PRDD"
+    private static final short VERSION_ESQUEMA = 1;
+    private static final int TAMANIO_ENCABEZADO = 10;
+
+    /**
+     * Obtiene la ruta del archivo de parches de una base.
+     *
+     * @param base Ruta de la instantánea base.
+     * @return Ruta del archivo de parches.
+     */
+    public static Path archivoDelta(Path base) {
+        return base.resolveSibling(base.getFileName() + ".delta");
+    }
+
+    /**
+     * Escribe una base nueva con el catálogo completo y descarta los parches anteriores.
+     * La base se escribe en un archivo temporal que luego reemplaza a la anterior; si hay
+     * un corte antes de borrar los parches, estos se ignoran al cargar porque su CRC de
+     * base ya no coincide.
+     *
+     * @param base Ruta de la instantánea base.
+     * @param productos Catálogo completo.
+     * @return CRC de la base escrita.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public static int compactar(Path base, Collection<Producto> productos) throws IOException {
+        Path temporal = base.resolveSibling(base.getFileName() + ".tmp");
+        int suma;
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            suma = InstantaneaBinaria.escribir(salida, productos);
+            salida.force(true);
+        }
+        Files.move(temporal, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(archivoDelta(base));
+        return suma;
+    }
+
+    /**
+     * Agrega un parche al final del archivo de parches de una base y lo fuerza a disco.
+     * El tiempo de escritura depende solo de la cantidad de cambios.
+     *
+     * @param base Ruta de la instantánea base.
+     * @param sumaBase CRC de la base sobre la que se aplican los cambios.
+     * @param guardados Productos agregados o modificados.
+     * @param eliminados IDs de los productos eliminados.
+     * @throws IOException Si ocurre un error al escribir o los parches existentes son de otra base.
+     */
+    public static void agregarParche(Path base, int sumaBase, Collection<Producto> guardados,
+                                     int[] eliminados) throws IOException {
+        ByteArrayOutputStream parche = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(parche);
+        out.writeInt(guardados.size());
+        for (Producto p : guardados) {
+            CodificadorProducto.escribir(out, p);
+        }
+        out.writeInt(eliminados.length);
+        for (int id : eliminados) {
+            out.writeInt(id);
+        }
+        byte[] datos = parche.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+
+        Path delta = archivoDelta(base);
+        try (FileChannel canal = FileChannel.open(delta, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fin = canal.size();
+            if (fin == 0) {
+                ByteBuffer encabezado = ByteBuffer.allocate(TAMANIO_ENCABEZADO);
+                encabezado.putInt(MAGIA).putShort(VERSION_ESQUEMA).putInt(sumaBase).flip();
+                fin += escribirCompleto(canal, encabezado, 0);
+            } else if (leerSumaBase(canal) != sumaBase) {
+                throw new IOException("Los parches de " + delta + " corresponden a otra base");
+            }
+            ByteBuffer registro = ByteBuffer.allocate(datos.length + 8);
+            registro.putInt(datos.length).put(datos).putInt((int) crc.getValue()).flip();
+            escribirCompleto(canal, registro, fin);
+            canal.force(false);
+        }
+    }
+
+    /**
+     * Carga la base y aplica en orden los parches que le corresponden.
+     * Las altas y modificaciones se entregan como productos a insertar o reemplazar,
+     * y las bajas como IDs.
+     *
+     * @param base Ruta de la instantánea base.
+     * @param guardar Acción que inserta o reemplaza un producto.
+     * @param eliminar Acción que elimina un producto si existe.
+     * @return CRC de la base cargada.
+     * @throws IOException Si ocurre un error al leer o la base no es válida.
+     */
+    public static int cargar(Path base, Consumer<Producto> guardar, IntConsumer eliminar) throws IOException {
+        int suma;
+        try (InstantaneaBinaria instantanea = InstantaneaBinaria.abrir(base)) {
+            for (Producto p : instantanea) {
+                guardar.accept(p);
+            }
+            suma = instantanea.getSuma();
+        }
+        Path delta = archivoDelta(base);
+        if (!Files.exists(delta)) {
+            return suma;
+        }
+        boolean deOtraBase;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(delta)))) {
+            try {
+                deOtraBase = in.readInt() != MAGIA || in.readShort() > VERSION_ESQUEMA || in.readInt() != suma;
+            } catch (EOFException ex) {
+                deOtraBase = true;
+            }
+            if (!deOtraBase) {
+                aplicarParches(in, delta, guardar, eliminar);
+            }
+        }
+        if (deOtraBase) {
+            // Parches que quedaron de una compactación interrumpida: ya están incluidos en la base
+            Files.delete(delta);
+        }
+        return suma;
+    }
+
+    /**
+     * Aplica en orden los parches válidos de un archivo, a continuación del encabezado.
+     *
+     * @param in Origen de los datos, posicionado después del encabezado.
+     * @param delta Ruta del archivo de parches.
+     * @param guardar Acción que inserta o reemplaza un producto.
+     * @param eliminar Acción que elimina un producto si existe.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    private static void aplicarParches(DataInputStream in, Path delta, Consumer<Producto> guardar,
+                                       IntConsumer eliminar) throws IOException {
+        CRC32 crc = new CRC32();
+        long valido = TAMANIO_ENCABEZADO;
+        while (true) {
+            byte[] datos;
+            int sumaGuardada;
+            try {
+                int longitud = in.readInt();
+                if (longitud <= 0) {
+                    break;
+                }
+                datos = new byte[longitud];
+                in.readFully(datos);
+                sumaGuardada = in.readInt();
+            } catch (EOFException ex) {
+                break; // Parche incompleto al final
+            }
+            crc.reset();
+            crc.update(datos);
+            if ((int) crc.getValue() != sumaGuardada) {
+                break;
+            }
+            DataInputStream parche = new DataInputStream(new ByteArrayInputStream(datos));
+            int cantidad = parche.readInt();
+            for (int i = 0; i < cantidad; i++) {
+                guardar.accept(CodificadorProducto.leer(parche));
+            }
+            cantidad = parche.readInt();
+            for (int i = 0; i < cantidad; i++) {
+                eliminar.accept(parche.readInt());
+            }
+            valido += datos.length + 8;
+        }
+        if (valido < Files.size(delta)) {
+            // Descarta el parche dañado para que los siguientes se agreguen a continuación del último válido
+            try (FileChannel canal = FileChannel.open(delta, StandardOpenOption.WRITE)) {
+                canal.truncate(valido);
+            }
+        }
+    }
+
+    /**
+     * Lee el CRC de base guardado en el encabezado de un archivo de parches.
+     *
+     * @param canal Canal del archivo de parches.
+     * @return CRC de la base.
+     * @throws IOException Si el encabezado es inválido.
+     */
+    private static int leerSumaBase(FileChannel canal) throws IOException {
+        ByteBuffer encabezado = ByteBuffer.allocate(TAMANIO_ENCABEZADO);
+        while (encabezado.hasRemaining() && canal.read(encabezado, encabezado.position()) > 0) {
+            // Lee el encabezado completo
+        }
+        if (encabezado.hasRemaining() || encabezado.getInt(0) != MAGIA) {
+            throw new IOException("Archivo de parches inválido");
+        }
+        return encabezado.getInt(6);
+    }
+
+    /**
+     * Escribe todo el buffer en la posición indicada.
+     *
+     * @param canal Canal de escritura.
+     * @param buffer Buffer con datos, en modo lectura.
+     * @param posicion Posición del archivo donde escribir.
+     * @return Cantidad de bytes escritos.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static int escribirCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        int total = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            posicion += canal.write(buffer, posicion);
+        }
+        return total;
+    }
+}
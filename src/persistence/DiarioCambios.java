@@ -0,0 +1,352 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import model.Producto.Producto;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de cambios (write-ahead log) para las modificaciones del catálogo.
+ *
+ * Cada alta, modificación o baja se escribe al final del archivo del diario, antes de
+ * volver, como un registro con longitud y CRC32; así un cierre inesperado de la aplicación
+ * no pierde cambios ya confirmados. Según la política de sincronización, los registros
+ * se fuerzan a disco uno por uno, en grupo cada cierto intervalo, o se dejan al
+ * sistema operativo, lo que solo importa ante una caída del sistema o un corte de energía. Cada cierta cantidad de registros se toma un punto de control:
+ * se escribe la instantánea completa del catálogo (en el formato de InstantaneaBinaria)
+ * y se vacía el diario.
+ *
+ * Al iniciar, {@link #recuperar(Path, Path, Consumer, IntConsumer)} carga la última
+ * instantánea y reproduce los registros del diario. Un registro incompleto al final
+ * (por ejemplo, por un corte durante la escritura) se descarta.
+ *
+ * @author joaxx
+ */
+public class DiarioCambios implements Closeable {
+
+    /**
+     * Políticas para forzar los registros a disco.
+     */
+    public enum Sincronizacion {
+        CADA_CAMBIO, // Fuerza a disco cada registro antes de volver.
+        PERIODICA,   // Escribe cada registro y los fuerza a disco en grupo cada intervalo (group commit).
+        NINGUNA      // Escribe cada registro, pero deja el volcado a disco al sistema operativo.
+    }
+
+    private static final byte OP_AGREGAR = 1;
+    private static final byte OP_ACTUALIZAR = 2;
+    private static final byte OP_ELIMINAR = 3;
+
+    private final Path archivo;
+    private final Path archivoInstantanea;
+    private final Sincronizacion politica;
+    private final int registrosPorPuntoControl;
+    private final FileChannel canal;
+    private final ScheduledExecutorService volcador;
+
+    private final ByteArrayOutputStream pendiente = new ByteArrayOutputStream(); // Registro con longitud y CRC, por escribir
+    private final ByteArrayOutputStream registro = new ByteArrayOutputStream(); // Registro en armado
+    private final DataOutputStream salidaRegistro = new DataOutputStream(registro);
+    private final CRC32 crc = new CRC32();
+    private int registrosDesdePuntoControl = 0;
+    private boolean sinForzar; // Hay registros escritos que el volcado periódico todavía no forzó a disco
+    private IOException errorVolcado; // Error del volcado periódico, se informa en la siguiente operación
+
+    /**
+     * Constructor que abre (o crea) el archivo del diario para agregar registros.
+     *
+     * @param archivo Ruta del archivo del diario.
+     * @param archivoInstantanea Ruta de la instantánea que se escribe en cada punto de control.
+     * @param politica Política de sincronización a disco.
+     * @param intervaloMs Intervalo entre volcados para la política PERIODICA.
+     * @param registrosPorPuntoControl Cantidad de registros a partir de la cual se pide un punto de control.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public DiarioCambios(Path archivo, Path archivoInstantanea, Sincronizacion politica,
+                         long intervaloMs, int registrosPorPuntoControl) throws IOException {
+        this.archivo = archivo;
+        this.archivoInstantanea = archivoInstantanea;
+        this.politica = politica;
+        this.registrosPorPuntoControl = registrosPorPuntoControl;
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (politica == Sincronizacion.PERIODICA) {
+            volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "diario-cambios");
+                t.setDaemon(true);
+                return t;
+            });
+            volcador.scheduleWithFixedDelay(this::volcadoPeriodico, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        } else {
+            volcador = null;
+        }
+    }
+
+    /**
+     * Registra el alta de un producto.
+     *
+     * @param p Producto agregado.
+     * @throws IOException Si ocurre un error al escribir el diario.
+     */
+    public synchronized void registrarAgregar(Producto p) throws IOException {
+        iniciarRegistro(OP_AGREGAR);
+        CodificadorProducto.escribir(salidaRegistro, p);
+        terminarRegistro();
+    }
+
+    /**
+     * Registra la modificación de un producto.
+     *
+     * @param p Producto con sus datos actuales.
+     * @throws IOException Si ocurre un error al escribir el diario.
+     */
+    public synchronized void registrarActualizar(Producto p) throws IOException {
+        iniciarRegistro(OP_ACTUALIZAR);
+        CodificadorProducto.escribir(salidaRegistro, p);
+        terminarRegistro();
+    }
+
+    /**
+     * Registra la baja de un producto.
+     *
+     * @param id ID del producto eliminado.
+     * @throws IOException Si ocurre un error al escribir el diario.
+     */
+    public synchronized void registrarEliminar(int id) throws IOException {
+        iniciarRegistro(OP_ELIMINAR);
+        salidaRegistro.writeInt(id);
+        terminarRegistro();
+    }
+
+    /**
+     * Indica si ya se acumularon suficientes registros para tomar un punto de control.
+     *
+     * @return true si conviene llamar a {@link #puntoDeControl(List)}.
+     */
+    public synchronized boolean requierePuntoControl() {
+        return registrosDesdePuntoControl >= registrosPorPuntoControl;
+    }
+
+    /**
+     * Toma un punto de control: escribe la instantánea completa y vacía el diario.
+     * La instantánea se escribe en un archivo temporal que luego reemplaza al anterior,
+     * de modo que un corte a mitad de camino deja intacta la instantánea previa.
+     *
+     * @param productos Estado completo del catálogo.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void puntoDeControl(List<Producto> productos) throws IOException {
+        Path temporal = archivoInstantanea.resolveSibling(archivoInstantanea.getFileName() + ".tmp");
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            InstantaneaBinaria.escribir(salida, productos);
+            salida.force(true);
+        }
+        Files.move(temporal, archivoInstantanea, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Los registros pendientes ya están incluidos en la instantánea
+        pendiente.reset();
+        canal.truncate(0);
+        canal.force(true);
+        sinForzar = false;
+        registrosDesdePuntoControl = 0;
+    }
+
+    /**
+     * Escribe los registros pendientes y los fuerza a disco.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void sincronizar() throws IOException {
+        escribirPendientes();
+        canal.force(false);
+        sinForzar = false;
+    }
+
+    /**
+     * Detiene el volcado periódico, fuerza los registros pendientes y cierra el archivo.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Override
+    public void close() throws IOException {
+        if (volcador != null) {
+            volcador.shutdown();
+        }
+        synchronized (this) {
+            try {
+                sincronizar();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Carga la última instantánea y reproduce los registros del diario.
+     * Las altas y modificaciones se entregan como productos a insertar o reemplazar,
+     * y las bajas como IDs; ambas operaciones deben tolerar repetirse.
+     *
+     * @param archivoInstantanea Ruta de la instantánea, puede no existir.
+     * @param archivo Ruta del diario, puede no existir.
+     * @param guardar Acción que inserta o reemplaza un producto.
+     * @param eliminar Acción que elimina un producto si existe.
+     * @return Cantidad de registros del diario reproducidos.
+     * @throws IOException Si ocurre un error al leer la instantánea.
+     * @throws ClassNotFoundException Si la instantánea contiene clases desconocidas.
+     */
+    public static int recuperar(Path archivoInstantanea, Path archivo, Consumer<Producto> guardar,
+                                IntConsumer eliminar) throws IOException, ClassNotFoundException {
+        if (Files.exists(archivoInstantanea)) {
+            List<Producto> productos = InstantaneaBinaria.cargar(archivoInstantanea);
+            for (Producto p : productos) {
+                guardar.accept(p);
+            }
+            if (productos instanceof InstantaneaBinaria) {
+                ((InstantaneaBinaria) productos).close(); // Libera el mapeo sin esperar al recolector
+            }
+        }
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        int reproducidos = 0;
+        CRC32 crc = new CRC32();
+        long tamanio = Files.size(archivo);
+        long posicion = 0; // Inicio del registro siguiente
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            while (true) {
+                byte[] datos;
+                int sumaGuardada;
+                try {
+                    int longitud = in.readInt();
+                    if (longitud <= 0 || longitud > tamanio - posicion - 8) {
+                        break; // Longitud dañada, o registro incompleto al final del diario
+                    }
+                    posicion += longitud + 8;
+                    datos = new byte[longitud];
+                    in.readFully(datos);
+                    sumaGuardada = in.readInt();
+                } catch (EOFException ex) {
+                    break; // Registro incompleto al final del diario
+                }
+                crc.reset();
+                crc.update(datos);
+                if ((int) crc.getValue() != sumaGuardada) {
+                    break; // Registro dañado: lo que sigue no es confiable
+                }
+                DataInputStream registro = new DataInputStream(new ByteArrayInputStream(datos));
+                byte operacion = registro.readByte();
+                if (operacion == OP_ELIMINAR) {
+                    eliminar.accept(registro.readInt());
+                } else {
+                    guardar.accept(CodificadorProducto.leer(registro));
+                }
+                reproducidos++;
+            }
+        }
+        return reproducidos;
+    }
+
+    /**
+     * Comienza a armar un registro con la operación indicada.
+     *
+     * @param operacion Código de la operación.
+     * @throws IOException Si hubo un error en el volcado periódico anterior.
+     */
+    private void iniciarRegistro(byte operacion) throws IOException {
+        if (errorVolcado != null) {
+            IOException ex = errorVolcado;
+            errorVolcado = null;
+            throw ex;
+        }
+        registro.reset();
+        salidaRegistro.writeByte(operacion);
+    }
+
+    /**
+     * Cierra el registro en armado con su longitud y CRC, lo escribe en el archivo y,
+     * según la política, lo fuerza a disco.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private void terminarRegistro() throws IOException {
+        byte[] datos = registro.toByteArray();
+        crc.reset();
+        crc.update(datos);
+        DataOutputStream out = new DataOutputStream(pendiente);
+        out.writeInt(datos.length);
+        out.write(datos);
+        out.writeInt((int) crc.getValue());
+        registrosDesdePuntoControl++;
+
+        escribirPendientes();
+        switch (politica) {
+            case CADA_CAMBIO:
+                sincronizar();
+                break;
+            case PERIODICA:
+                sinForzar = true; // El volcador periódico fuerza a disco todo lo escrito con un solo fsync
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Escribe en el archivo el registro armado, si hay uno.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private void escribirPendientes() throws IOException {
+        if (pendiente.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pendiente.toByteArray());
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        pendiente.reset();
+    }
+
+    /**
+     * Tarea del volcador periódico: fuerza a disco con un solo fsync los registros escritos
+     * desde el volcado anterior. El fsync se hace sin bloquear el diario, así que mientras
+     * dura se pueden seguir escribiendo registros; esos quedan para el volcado siguiente.
+     */
+    private void volcadoPeriodico() {
+        synchronized (this) {
+            if (!sinForzar || !canal.isOpen()) {
+                return;
+            }
+            sinForzar = false;
+        }
+        try {
+            canal.force(false);
+        } catch (IOException ex) {
+            synchronized (this) {
+                if (canal.isOpen()) {
+                    errorVolcado = ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene la ruta del archivo del diario.
+     *
+     * @return Ruta del diario.
+     */
+    public Path getArchivo() {
+        return archivo;
+    }
+}
@@ -0,0 +1,700 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import exceptions.PrecioInvalidoException;
+import indexes.MapaEnteros;
+import model.Producto.Producto;
+import persistence.ResultadoImportacion.Etapa;
+import persistence.ResultadoImportacion.Rechazo;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Importación de archivos CSV de productos (id,nombre,precio,tipo) que no se detiene ante
+ * líneas inválidas, organizada en etapas conectadas por colas acotadas:
+ *
+ * 1. Lectura (un hilo): divide el archivo en lotes de TAMANIO_LOTE bytes que terminan en
+ *    un salto de línea fuera de comillas, es decir, entre registros. Los archivos sin comprimir se mapean en memoria con FileChannel.map
+ *    y cada lote es una porción del mapeo, sin copiar bytes; los comprimidos (ver Compresion)
+ *    se descomprimen en buffers que se reutilizan.
+ * 2. Análisis (varios hilos): interpreta los campos de cada registro con AnalizadorCSV.
+ *    Un nombre entre comillas puede contener saltos de línea, así que un registro puede
+ *    ocupar varias líneas.
+ * 3. Validación (varios hilos): crea los productos, que validan el precio y el tipo.
+ * 4. Inserción (el hilo que llama): vuelve a poner los lotes en el orden del archivo,
+ *    descarta los IDs repetidos y entrega cada producto al destino.
+ *
+ * Las líneas inválidas se informan con su número de línea (la primera del registro) en el resultado y, si se indica,
+ * en un archivo de rechazos. Un semáforo limita los lotes en proceso a LOTES_POR_HILO por
+ * hilo: si una etapa se atrasa, la lectura espera, por lo que la memoria usada no depende
+ * del tamaño del archivo. Las líneas se cortan solo en \n; un archivo con fines de línea \r
+ * se procesa igual, pero en un solo lote.
+ *
+ * @author joaxx
+ */
+public class ImportacionCSV {
+
+    private static final int TAMANIO_LOTE = 1024 * 1024; // Bytes por lote
+    private static final int TAMANIO_REGION = 256 * 1024 * 1024; // Bytes mapeados de una vez
+    private static final int LOTES_POR_HILO = 4;
+    private static final long INTERVALO_REVISION_MS = 100; // Cada cuánto la inserción revisa si otra etapa falló
+
+    private static final Lote FIN = new Lote(-1, null, ByteBuffer.allocate(0)); // Marca de fin en las colas
+
+    private final int hilos;
+    private final int ventana; // Lotes en proceso como máximo
+    private final Semaphore enProceso;
+    private final BlockingQueue<Lote> leidos;
+    private final BlockingQueue<Lote> analizados;
+    private final BlockingQueue<Lote> validados;
+    private final AtomicInteger analizadoresActivos;
+    private final AtomicInteger validadoresActivos;
+    private final ConcurrentLinkedQueue<byte[]> buffersLibres = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> fallo = new AtomicReference<>();
+
+    private final Medicion lectura = new Medicion();
+    private final Medicion analisis = new Medicion();
+    private final Medicion validacion = new Medicion();
+    private final Medicion insercion = new Medicion();
+
+    /**
+     * Constructor de una importación.
+     *
+     * @param hilos Hilos de las etapas de análisis y de validación.
+     */
+    private ImportacionCSV(int hilos) {
+        this.hilos = hilos;
+        this.ventana = hilos * LOTES_POR_HILO;
+        this.enProceso = new Semaphore(ventana);
+        // Caben todos los lotes en proceso más las marcas de fin, por lo que poner nunca bloquea
+        this.leidos = new ArrayBlockingQueue<>(ventana + hilos);
+        this.analizados = new ArrayBlockingQueue<>(ventana + hilos);
+        this.validados = new ArrayBlockingQueue<>(ventana + 1);
+        this.analizadoresActivos = new AtomicInteger(hilos);
+        this.validadoresActivos = new AtomicInteger(hilos);
+    }
+
+    /**
+     * Importa un archivo CSV usando un hilo de análisis y uno de validación por procesador.
+     *
+     * @param archivo Ruta del archivo CSV, comprimido o no.
+     * @param archivoRechazos Archivo donde informar todas las líneas rechazadas, o null.
+     *                        Solo se crea si hay rechazos.
+     * @param destino Recibe los productos aceptados, en el orden del archivo, desde el hilo que llama.
+     * @return Resultado con la cantidad de aceptados, los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     */
+    public static ResultadoImportacion importar(Path archivo, Path archivoRechazos, Consumer<? super Producto> destino) throws IOException {
+        return importar(archivo, archivoRechazos, destino, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Importa un archivo CSV usando un hilo de análisis y uno de validación por procesador,
+     * informando la fracción del archivo leída.
+     *
+     * @param archivo Ruta del archivo CSV, comprimido o no.
+     * @param archivoRechazos Archivo donde informar todas las líneas rechazadas, o null.
+     *                        Solo se crea si hay rechazos.
+     * @param destino Recibe los productos aceptados, en el orden del archivo, desde el hilo que llama.
+     * @param avance Recibe la fracción leída entre 0 y 1 desde el hilo de lectura; puede ser null.
+     * @return Resultado con la cantidad de aceptados, los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     * @throws InterruptedIOException Si el hilo que llama se interrumpe; la importación se cancela.
+     */
+    public static ResultadoImportacion importar(Path archivo, Path archivoRechazos, Consumer<? super Producto> destino,
+            DoubleConsumer avance) throws IOException {
+        return importar(archivo, archivoRechazos, destino, Runtime.getRuntime().availableProcessors(), avance);
+    }
+
+    /**
+     * Importa un archivo CSV.
+     *
+     * @param archivo Ruta del archivo CSV, comprimido o no.
+     * @param archivoRechazos Archivo donde informar todas las líneas rechazadas, o null.
+     *                        Solo se crea si hay rechazos.
+     * @param destino Recibe los productos aceptados, en el orden del archivo, desde el hilo que llama.
+     * @param hilos Hilos de la etapa de análisis y de la de validación.
+     * @return Resultado con la cantidad de aceptados, los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     * @throws InterruptedIOException Si el hilo que llama se interrumpe; la importación se cancela.
+     */
+    public static ResultadoImportacion importar(Path archivo, Path archivoRechazos, Consumer<? super Producto> destino, int hilos) throws IOException {
+        return importar(archivo, archivoRechazos, destino, hilos, null);
+    }
+
+    /**
+     * Importa un archivo CSV, informando la fracción del archivo leída. Como la lectura
+     * se adelanta a la inserción a lo sumo la ventana de lotes en proceso, el avance
+     * sigue de cerca a los productos entregados.
+     *
+     * @param archivo Ruta del archivo CSV, comprimido o no.
+     * @param archivoRechazos Archivo donde informar todas las líneas rechazadas, o null.
+     *                        Solo se crea si hay rechazos.
+     * @param destino Recibe los productos aceptados, en el orden del archivo, desde el hilo que llama.
+     * @param hilos Hilos de la etapa de análisis y de la de validación.
+     * @param avance Recibe la fracción leída entre 0 y 1 desde el hilo de lectura; puede ser null.
+     * @return Resultado con la cantidad de aceptados, los rechazos y las métricas por etapa.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir los rechazos.
+     * @throws InterruptedIOException Si el hilo que llama se interrumpe; la importación se cancela.
+     */
+    public static ResultadoImportacion importar(Path archivo, Path archivoRechazos, Consumer<? super Producto> destino,
+            int hilos, DoubleConsumer avance) throws IOException {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo");
+        }
+        return new ImportacionCSV(hilos).ejecutar(archivo, archivoRechazos, destino, avance);
+    }
+
+    /**
+     * Arranca las etapas en hilos propios, ejecuta la inserción en este hilo y
+     * detiene el resto al terminar o ante el primer error.
+     *
+     * @param archivo Ruta del archivo CSV.
+     * @param archivoRechazos Archivo de rechazos, o null.
+     * @param destino Receptor de los productos aceptados.
+     * @param avance Receptor de la fracción leída, o null.
+     * @return Resultado de la importación.
+     * @throws IOException Si ocurre un error de lectura o escritura, o se interrumpe el hilo.
+     */
+    private ResultadoImportacion ejecutar(Path archivo, Path archivoRechazos, Consumer<? super Producto> destino,
+            DoubleConsumer avance) throws IOException {
+        long inicio = System.nanoTime();
+        boolean mapear = Compresion.detectar(archivo) == Compresion.Codec.NINGUNO;
+        try (Closeable entrada = mapear ? FileChannel.open(archivo, StandardOpenOption.READ) : Compresion.abrirLectura(archivo, avance);
+                RegistroRechazos rechazos = new RegistroRechazos(archivoRechazos)) {
+            ExecutorService ejecutor = Executors.newFixedThreadPool(1 + 2 * hilos,
+                    Thread.ofPlatform().name("importacion-csv-", 0).daemon().factory());
+            int aceptados;
+            try {
+                if (mapear) {
+                    ejecutor.execute(() -> etapa(() -> leerMapeado((FileChannel) entrada, avance)));
+                } else {
+                    ejecutor.execute(() -> etapa(() -> leer((InputStream) entrada)));
+                }
+                for (int i = 0; i < hilos; i++) {
+                    ejecutor.execute(() -> etapa(() -> trabajar(leidos, analizados, analisis, analizadoresActivos, hilos, Lote::analizar)));
+                    ejecutor.execute(() -> etapa(() -> trabajar(analizados, validados, validacion, validadoresActivos, 1, Lote::validar)));
+                }
+                aceptados = insertar(destino, rechazos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Importación cancelada");
+            } finally {
+                ejecutor.shutdownNow();
+                esperarFin(ejecutor);
+            }
+            List<Etapa> etapas = List.of(
+                    lectura.resultado("Lectura (bytes)", 1),
+                    analisis.resultado("Análisis (líneas)", hilos),
+                    validacion.resultado("Validación (filas)", hilos),
+                    insercion.resultado("Inserción (productos)", 1));
+            return new ResultadoImportacion(aceptados, rechazos.cantidad, rechazos.primeros, etapas, System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Etapa de lectura de un archivo sin comprimir: lo mapea en memoria por regiones de
+     * TAMANIO_REGION bytes y entrega como lotes porciones de esas regiones que terminan
+     * entre registros. Antes de cada lote espera a que haya lugar en la ventana de
+     * lotes en proceso, igual que la lectura de un flujo.
+     *
+     * @param canal Canal del archivo.
+     * @param avance Receptor de la fracción leída, o null.
+     * @throws IOException Si ocurre un error al mapear el archivo.
+     * @throws InterruptedException Si se cancela la importación.
+     */
+    private void leerMapeado(FileChannel canal, DoubleConsumer avance) throws IOException, InterruptedException {
+        long tamanio = canal.size();
+        long paso = Math.max(TAMANIO_LOTE, tamanio / 100); // Bytes entre avisos de avance
+        long proximoAviso = paso;
+        MappedByteBuffer region = null;
+        long inicioRegion = 0;
+        long inicio = 0;
+        int numero = 0;
+        while (inicio < tamanio) {
+            long t0 = System.nanoTime();
+            enProceso.acquire();
+            long t1 = System.nanoTime();
+            long fin = Math.min(tamanio, inicio + TAMANIO_LOTE);
+            int corte;
+            while (true) {
+                if (region == null || fin > inicioRegion + region.capacity()) {
+                    inicioRegion = inicio;
+                    region = canal.map(FileChannel.MapMode.READ_ONLY, inicio,
+                            Math.min(tamanio - inicio, Math.max(TAMANIO_REGION, fin - inicio)));
+                }
+                int largo = (int) (fin - inicio);
+                corte = fin == tamanio ? largo
+                        : AnalizadorCSV.finDeRegistros(region.slice((int) (inicio - inicioRegion), largo), largo);
+                if (corte > 0) {
+                    break;
+                }
+                fin = Math.min(tamanio, inicio + 2L * largo); // Registro más largo que el lote
+            }
+            leidos.put(new Lote(numero++, null, region.slice((int) (inicio - inicioRegion), corte)));
+            inicio += corte;
+            lectura.espera(t1 - t0);
+            lectura.trabajo(System.nanoTime() - t1, corte);
+            if (avance != null && (inicio >= proximoAviso || inicio == tamanio)) {
+                proximoAviso = inicio + paso;
+                avance.accept((double) inicio / tamanio);
+            }
+        }
+        for (int i = 0; i < hilos; i++) {
+            leidos.put(FIN);
+        }
+    }
+
+    /**
+     * Etapa de lectura de un archivo comprimido: divide el contenido descomprimido en
+     * lotes que terminan entre registros.
+     * Antes de cada lote espera a que haya lugar en la ventana de lotes en proceso.
+     *
+     * @param entrada Contenido del archivo, ya descomprimido.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws InterruptedException Si se cancela la importación.
+     */
+    private void leer(InputStream entrada) throws IOException, InterruptedException {
+        byte[] resto = new byte[0]; // Registro incompleto al final del lote anterior
+        int largoResto = 0;
+        int numero = 0;
+        boolean finArchivo = false;
+        while (!finArchivo) {
+            long t0 = System.nanoTime();
+            enProceso.acquire();
+            long t1 = System.nanoTime();
+            byte[] buffer = tomarBuffer(largoResto);
+            System.arraycopy(resto, 0, buffer, 0, largoResto);
+            int largo = largoResto;
+            int corte;
+            while (true) {
+                largo += entrada.readNBytes(buffer, largo, buffer.length - largo);
+                if (largo < buffer.length) {
+                    finArchivo = true;
+                    corte = largo;
+                    break;
+                }
+                corte = AnalizadorCSV.finDeRegistros(ByteBuffer.wrap(buffer), largo);
+                if (corte > 0) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2); // Registro más largo que el lote
+            }
+            largoResto = largo - corte;
+            if (resto.length < largoResto) {
+                resto = new byte[Math.max(largoResto, resto.length * 2)];
+            }
+            System.arraycopy(buffer, corte, resto, 0, largoResto);
+            long t2 = System.nanoTime();
+            lectura.espera(t1 - t0);
+            lectura.trabajo(t2 - t1, corte);
+            if (corte == 0) {
+                enProceso.release(); // Archivo vacío o terminado justo en el lote anterior
+                buffersLibres.add(buffer);
+            } else {
+                leidos.put(new Lote(numero++, buffer, ByteBuffer.wrap(buffer, 0, corte)));
+            }
+        }
+        for (int i = 0; i < hilos; i++) {
+            leidos.put(FIN);
+        }
+    }
+
+    /**
+     * Bucle de un hilo de las etapas de análisis o validación: toma lotes de una cola,
+     * los procesa y los pasa a la siguiente. El último hilo en terminar avisa a la
+     * etapa siguiente con marcas de fin.
+     *
+     * @param entrada Cola de la etapa anterior.
+     * @param salida Cola de la etapa siguiente.
+     * @param medicion Métricas de la etapa.
+     * @param activos Hilos de la etapa que siguen trabajando.
+     * @param finesSalida Marcas de fin que espera la etapa siguiente.
+     * @param proceso Procesa un lote y devuelve la cantidad de elementos procesados.
+     * @throws InterruptedException Si se cancela la importación.
+     */
+    private void trabajar(BlockingQueue<Lote> entrada, BlockingQueue<Lote> salida, Medicion medicion,
+            AtomicInteger activos, int finesSalida, ToIntFunction<Lote> proceso) throws InterruptedException {
+        while (true) {
+            long t0 = System.nanoTime();
+            Lote lote = entrada.take();
+            long t1 = System.nanoTime();
+            medicion.espera(t1 - t0);
+            if (lote == FIN) {
+                break;
+            }
+            int elementos = proceso.applyAsInt(lote);
+            medicion.trabajo(System.nanoTime() - t1, elementos);
+            salida.put(lote);
+        }
+        if (activos.decrementAndGet() == 0) {
+            for (int i = 0; i < finesSalida; i++) {
+                salida.put(FIN);
+            }
+        }
+    }
+
+    /**
+     * Etapa de inserción: recibe los lotes validados en cualquier orden y los procesa
+     * en el orden del archivo, liberando su lugar en la ventana.
+     *
+     * @param destino Receptor de los productos aceptados.
+     * @param rechazos Registro de rechazos.
+     * @return Cantidad de productos aceptados.
+     * @throws IOException Si falló otra etapa o la escritura de rechazos.
+     * @throws InterruptedException Si se interrumpe el hilo.
+     */
+    private int insertar(Consumer<? super Producto> destino, RegistroRechazos rechazos) throws IOException, InterruptedException {
+        Lote[] pendientes = new Lote[ventana]; // Lote n en la posición n % ventana
+        MapaEnteros lineaDeId = new MapaEnteros(); // ID -> línea donde apareció
+        List<Rechazo> rechazosLote = new ArrayList<>();
+        int siguiente = 0;
+        long lineaBase = 0; // Líneas de los lotes ya insertados
+        int aceptados = 0;
+        while (true) {
+            long t0 = System.nanoTime();
+            Lote lote = validados.poll(INTERVALO_REVISION_MS, TimeUnit.MILLISECONDS);
+            insercion.espera(System.nanoTime() - t0);
+            verificarFallo();
+            if (lote == null) {
+                continue;
+            }
+            if (lote == FIN) {
+                return aceptados;
+            }
+            pendientes[lote.numero % ventana] = lote;
+            while ((lote = pendientes[siguiente % ventana]) != null && lote.numero == siguiente) {
+                long t1 = System.nanoTime();
+                pendientes[siguiente % ventana] = null;
+                rechazosLote.clear();
+                for (Rechazo r : lote.rechazos) {
+                    rechazosLote.add(new Rechazo(lineaBase + r.getLinea(), r.getMotivo(), r.getContenido()));
+                }
+                int insertados = 0;
+                for (int i = 0; i < lote.filas; i++) {
+                    Producto p = lote.productos[i];
+                    if (p == null) {
+                        continue;
+                    }
+                    long linea = lineaBase + lote.lineaDeFila[i];
+                    int anterior = lineaDeId.get(p.getId());
+                    if (anterior != MapaEnteros.AUSENTE) {
+                        rechazosLote.add(new Rechazo(linea, "ID repetido, ya usado en la línea " + anterior,
+                                AnalizadorCSV.textoLinea(lote.datos, lote.inicioDeFila[i])));
+                        continue;
+                    }
+                    lineaDeId.put(p.getId(), (int) Math.min(linea, Integer.MAX_VALUE));
+                    destino.accept(p);
+                    insertados++;
+                }
+                rechazosLote.sort(Comparator.comparingLong(Rechazo::getLinea));
+                for (Rechazo r : rechazosLote) {
+                    rechazos.agregar(r);
+                }
+                byte[] libre = lote.liberarBuffer();
+                if (libre != null) {
+                    buffersLibres.add(libre);
+                }
+                aceptados += insertados;
+                lineaBase += lote.lineas;
+                siguiente++;
+                enProceso.release();
+                insercion.trabajo(System.nanoTime() - t1, insertados);
+            }
+        }
+    }
+
+    /**
+     * Lanza el error de otra etapa, si alguna falló.
+     *
+     * @throws IOException Si la etapa falló por un error de lectura.
+     */
+    private void verificarFallo() throws IOException {
+        Throwable causa = fallo.get();
+        if (causa instanceof IOException) {
+            throw new IOException(causa.getMessage(), causa);
+        }
+        if (causa instanceof RuntimeException) {
+            throw (RuntimeException) causa;
+        }
+        if (causa instanceof Error) {
+            throw (Error) causa;
+        }
+    }
+
+    /**
+     * Ejecuta una etapa, guardando su error para que la inserción lo informe.
+     *
+     * @param tarea Etapa a ejecutar.
+     */
+    private void etapa(Tarea tarea) {
+        try {
+            tarea.ejecutar();
+        } catch (InterruptedException ex) {
+            // Cancelada al terminar la importación o por un error en otra etapa
+        } catch (Throwable ex) {
+            fallo.compareAndSet(null, ex);
+        }
+    }
+
+    /**
+     * Cuerpo de una etapa.
+     */
+    @FunctionalInterface
+    private interface Tarea {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Obtiene un buffer libre para un lote, o crea uno si no hay.
+     *
+     * @param minimo Bytes que deben quedar libres después de la línea incompleta anterior.
+     * @return Buffer de al menos TAMANIO_LOTE bytes.
+     */
+    private byte[] tomarBuffer(int minimo) {
+        byte[] buffer = buffersLibres.poll();
+        int tamanio = Math.max(TAMANIO_LOTE, 2 * minimo);
+        return buffer != null && buffer.length >= tamanio ? buffer : new byte[tamanio];
+    }
+
+    /**
+     * Espera a que terminen los hilos de las etapas después de cancelarlos.
+     *
+     * @param ejecutor Ejecutor de las etapas.
+     */
+    private static void esperarFin(ExecutorService ejecutor) {
+        try {
+            ejecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Porción del archivo que recorre las etapas. Cada etapa la procesa en un solo hilo
+     * y las colas publican sus cambios a la etapa siguiente.
+     */
+    private static class Lote {
+        private final int numero;
+        private byte[] buffer; // null si los datos son una porción del archivo mapeado
+        private ByteBuffer datos;
+        private int lineas; // Líneas del lote, incluidas las vacías y las rechazadas
+
+        // Filas analizadas correctamente
+        private int filas;
+        private int[] lineaDeFila = new int[0]; // Primera línea del registro dentro del lote, empezando en 1
+        private int[] inicioDeFila = new int[0]; // Posición de la línea en los datos
+        private int[] ids = new int[0];
+        private String[] nombres = new String[0];
+        private double[] precios = new double[0];
+        private byte[] tipos = new byte[0];
+        private String[] tiposLeidos = new String[0];
+
+        private Producto[] productos; // null en las filas rechazadas por la validación
+        private final List<Rechazo> rechazos = new ArrayList<>(0); // Con la línea dentro del lote
+
+        /**
+         * Constructor del lote.
+         *
+         * @param numero Posición del lote en el archivo.
+         * @param buffer Arreglo de los datos, para reutilizarlo después; null si están mapeados.
+         * @param datos Bytes del lote, terminados entre registros o en el fin del archivo.
+         */
+        Lote(int numero, byte[] buffer, ByteBuffer datos) {
+            this.numero = numero;
+            this.buffer = buffer;
+            this.datos = datos;
+        }
+
+        /**
+         * Etapa de análisis: interpreta todas las líneas, anotando las inválidas como rechazos.
+         *
+         * @return Cantidad de líneas del lote.
+         */
+        int analizar() {
+            AnalizadorCSV analizador = new AnalizadorCSV(datos);
+            int capacidad = datos.limit() / 24 + 16; // Estimación de líneas por tamaño
+            reservar(capacidad);
+            while (analizador.hayLineas()) {
+                lineas++;
+                if (analizador.saltarVacia()) {
+                    continue;
+                }
+                try {
+                    analizador.leerLinea();
+                } catch (NumberFormatException ex) {
+                    rechazar(analizador, "Número inválido: " + ex.getMessage());
+                    continue;
+                } catch (IllegalArgumentException ex) {
+                    rechazar(analizador, ex.getMessage());
+                    continue;
+                }
+                if (filas == ids.length) {
+                    reservar(filas * 2);
+                }
+                lineaDeFila[filas] = lineas;
+                lineas += analizador.getSaltosEntreComillas();
+                inicioDeFila[filas] = analizador.getInicioLinea();
+                ids[filas] = analizador.getId();
+                nombres[filas] = analizador.getNombre();
+                precios[filas] = analizador.getPrecio();
+                tipos[filas] = analizador.getTipo();
+                tiposLeidos[filas] = analizador.getTipoLeido();
+                filas++;
+            }
+            return lineas;
+        }
+
+        /**
+         * Etapa de validación: crea los productos de las filas analizadas.
+         *
+         * @return Cantidad de filas validadas.
+         */
+        int validar() {
+            productos = new Producto[filas];
+            for (int i = 0; i < filas; i++) {
+                try {
+                    productos[i] = AnalizadorCSV.crear(tipos[i], ids[i], nombres[i], precios[i], tiposLeidos[i]);
+                } catch (PrecioInvalidoException | IllegalArgumentException ex) {
+                    rechazos.add(new Rechazo(lineaDeFila[i], ex.getMessage(), AnalizadorCSV.textoLinea(datos, inicioDeFila[i])));
+                }
+            }
+            nombres = null; // Ya están en los productos
+            tiposLeidos = null;
+            return filas;
+        }
+
+        /**
+         * Libera los bytes del lote después de insertarlo.
+         *
+         * @return Buffer para reutilizar en otro lote, o null si los datos estaban mapeados.
+         */
+        byte[] liberarBuffer() {
+            byte[] b = buffer;
+            buffer = null;
+            datos = null;
+            return b;
+        }
+
+        /**
+         * Anota como rechazada la línea actual y avanza a la siguiente.
+         *
+         * @param analizador Intérprete posicionado dentro de la línea.
+         * @param motivo Motivo del rechazo.
+         */
+        private void rechazar(AnalizadorCSV analizador, String motivo) {
+            rechazos.add(new Rechazo(lineas, motivo, AnalizadorCSV.textoLinea(datos, analizador.getInicioLinea())));
+            lineas += analizador.getSaltosEntreComillas();
+            analizador.saltarLinea();
+        }
+
+        /**
+         * Agranda los arreglos de filas.
+         *
+         * @param capacidad Cantidad de filas que deben caber.
+         */
+        private void reservar(int capacidad) {
+            lineaDeFila = Arrays.copyOf(lineaDeFila, capacidad);
+            inicioDeFila = Arrays.copyOf(inicioDeFila, capacidad);
+            ids = Arrays.copyOf(ids, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+            precios = Arrays.copyOf(precios, capacidad);
+            tipos = Arrays.copyOf(tipos, capacidad);
+            tiposLeidos = Arrays.copyOf(tiposLeidos, capacidad);
+        }
+    }
+
+    /**
+     * Acumula las métricas de una etapa desde todos sus hilos.
+     */
+    private static class Medicion {
+        private final LongAdder elementos = new LongAdder();
+        private final LongAdder nanosOcupado = new LongAdder();
+        private final LongAdder nanosEspera = new LongAdder();
+
+        void trabajo(long nanos, long cantidad) {
+            nanosOcupado.add(nanos);
+            elementos.add(cantidad);
+        }
+
+        void espera(long nanos) {
+            nanosEspera.add(nanos);
+        }
+
+        Etapa resultado(String nombre, int hilos) {
+            return new Etapa(nombre, hilos, elementos.sum(), nanosOcupado.sum(), nanosEspera.sum());
+        }
+    }
+
+    /**
+     * Rechazos de la importación: cuenta todos, conserva los primeros en memoria y,
+     * si hay archivo, los escribe todos. El archivo se crea con el primer rechazo.
+     */
+    private static class RegistroRechazos implements Closeable {
+        private final Path archivo;
+        private final List<Rechazo> primeros = new ArrayList<>();
+        private BufferedWriter escritor;
+        private long cantidad;
+
+        RegistroRechazos(Path archivo) {
+            this.archivo = archivo;
+        }
+
+        /**
+         * Registra un rechazo.
+         *
+         * @param r Rechazo, con su número de línea en el archivo.
+         * @throws IOException Si ocurre un error al escribir el archivo de rechazos.
+         */
+        void agregar(Rechazo r) throws IOException {
+            cantidad++;
+            if (primeros.size() < ResultadoImportacion.MAXIMO_RECHAZOS) {
+                primeros.add(r);
+            }
+            if (archivo != null) {
+                if (escritor == null) {
+                    escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8);
+                }
+                escritor.write(r.toString());
+                escritor.newLine();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (escritor != null) {
+                escritor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,847 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import exceptions.PrecioInvalidoException;
+import model.Producto.Alimento;
+import model.Producto.CargaDetalles;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de instantánea del catálogo, pensado para reemplazar la serialización de Java.
+ *
+ * Estructura del archivo (big-endian):
+ * <pre>
+ * Encabezado (32 bytes): magia "PROD", versión de esquema, cantidad de registros,
+ *                        cantidad de textos, posición de la tabla de textos y CRC32 del cuerpo.
+ * Registros (24 bytes c/u): tipo, ordinal del enum, id, precio, índice del nombre
+ *                           y un campo propio (calorías, garantía o índice del material).
+ * Tabla de textos: posiciones de cada texto y sus bytes UTF-8; los textos repetidos se guardan una vez.
+ * </pre>
+ *
+ * Al abrirse, el archivo se mapea en memoria y se verifica el CRC; cada producto se
+ * decodifica recién cuando se pide y luego se conserva. Una instancia no debe usarse
+ * desde varios hilos a la vez; los productos obtenidos con getEsqueleto sí pueden completarse
+ * desde cualquier hilo. El archivo no puede superar los 2 GB. Si la extensión
+ * indica compresión (ver Compresion), se escribe comprimido y al cargarse se descomprime en memoria.
+ *
+ * Antes de reemplazar un archivo, escribir copia al heap el contenido de las instantáneas que
+ * lo tienen mapeado y libera el mapeo, ya que en Windows no se puede reemplazar un archivo
+ * mapeado. Así los productos con detalles diferidos siguen completándose después de guardar.
+ *
+ * @author joaxx
+ */
+public class InstantaneaBinaria extends AbstractList<Producto> implements RandomAccess, Closeable {
+
+    /** Versión del esquema que escribe esta clase. */
+    public static final short VERSION_ESQUEMA = 1;
+
+    private static final int MAGIA = 0x50524F44; // "PROD"
+    private static final short MAGIA_SERIALIZACION = (short) 0xACED; // Archivos del formato anterior
+    private static final int TAMANIO_ENCABEZADO = 32;
+    private static final int TAMANIO_REGISTRO = 24;
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+    private static final int SIN_TEXTO = -1;
+    private static final Map<Path, Set<Mapeo>> MAPEOS = new HashMap<>(); // Mapeos vivos por ruta absoluta
+    private static final Cleaner LIMPIEZA = Cleaner.create();
+
+    private final Mapeo mapeo;
+    private final int cantidad;
+    private final int cantidadTextos;
+    private final int inicioTextos;
+    private final Producto[] decodificados;
+    private final String[] textos;
+    private OrigenDetalles detalles; // Se crea al pedir el primer esqueleto
+
+    /**
+     * Constructor que valida el encabezado y el CRC de un archivo mapeado.
+     *
+     * @param mapeo Contenido completo del archivo.
+     * @throws IOException Si el archivo no tiene el formato esperado o está dañado.
+     */
+    private InstantaneaBinaria(Mapeo mapeo) throws IOException {
+        ByteBuffer datos = mapeo.leer();
+        try {
+            if (datos.limit() < TAMANIO_ENCABEZADO || datos.getInt(0) != MAGIA) {
+                throw new IOException("El archivo no es una instantánea binaria de productos");
+            }
+            short version = datos.getShort(4);
+            if (version > VERSION_ESQUEMA) {
+                throw new IOException("Versión de esquema no soportada: " + version);
+            }
+            this.cantidad = datos.getInt(8);
+            this.cantidadTextos = datos.getInt(12);
+            long posicionTextos = datos.getLong(16);
+            if (cantidad < 0 || cantidadTextos < 0
+                    || posicionTextos != TAMANIO_ENCABEZADO + (long) cantidad * TAMANIO_REGISTRO
+                    || posicionTextos + 4L * (cantidadTextos + 1) > datos.limit()) {
+                throw new IOException("Encabezado de instantánea inválido");
+            }
+            this.inicioTextos = (int) posicionTextos;
+
+            // CRC32 no acepta buffers de un arena compartido, así que el cuerpo se copia por bloques
+            CRC32 crc = new CRC32();
+            byte[] bloque = new byte[TAMANIO_BUFFER];
+            for (int posicion = TAMANIO_ENCABEZADO; posicion < datos.limit(); posicion += bloque.length) {
+                int largo = Math.min(bloque.length, datos.limit() - posicion);
+                datos.get(posicion, bloque, 0, largo);
+                crc.update(bloque, 0, largo);
+            }
+            if ((int) crc.getValue() != datos.getInt(24)) {
+                throw new IOException("La instantánea está dañada (CRC inválido)");
+            }
+        } finally {
+            mapeo.soltar();
+        }
+        this.mapeo = mapeo;
+        this.decodificados = new Producto[cantidad];
+        this.textos = new String[cantidadTextos];
+    }
+
+    /**
+     * Abre una instantánea binaria mapeándola en memoria, sin decodificar los productos.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Lista de solo lectura que decodifica cada producto al pedirlo.
+     * @throws IOException Si ocurre un error al leer o el archivo no es válido.
+     */
+    public static InstantaneaBinaria abrir(Path archivo) throws IOException {
+        return abrir(Mapeo.mapear(archivo));
+    }
+
+    /**
+     * Crea la instantánea de un contenido ya leído o mapeado, liberándolo si no es válido.
+     *
+     * @param mapeo Contenido completo del archivo.
+     * @return Instantánea que usa ese contenido.
+     * @throws IOException Si el contenido no tiene el formato esperado o está dañado.
+     */
+    private static InstantaneaBinaria abrir(Mapeo mapeo) throws IOException {
+        try {
+            return new InstantaneaBinaria(mapeo);
+        } catch (IOException | RuntimeException ex) {
+            mapeo.cerrar();
+            throw ex;
+        }
+    }
+
+    /**
+     * Carga los productos de un archivo binario.
+     * Acepta el formato de esta clase y, por compatibilidad, listas escritas con
+     * serialización de Java; en ese caso solo se admiten las clases del modelo.
+     *
+     * @param archivo Ruta del archivo.
+     * @return Lista de productos.
+     * @throws IOException Si ocurre un error al leer o el formato es desconocido.
+     * @throws ClassNotFoundException Si un archivo del formato anterior contiene clases desconocidas.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Producto> cargar(Path archivo) throws IOException, ClassNotFoundException {
+        Mapeo mapeo = Compresion.detectar(archivo) == Compresion.Codec.NINGUNO
+                ? Mapeo.mapear(archivo)
+                : new Mapeo(Compresion.leerCompleto(archivo), null, null); // Descomprimido en memoria
+        boolean instantanea;
+        boolean serializada;
+        ByteBuffer datos = mapeo.leer();
+        try {
+            instantanea = datos.limit() >= 4 && datos.getInt(0) == MAGIA;
+            serializada = datos.limit() >= 2 && datos.getShort(0) == MAGIA_SERIALIZACION;
+        } finally {
+            mapeo.soltar();
+        }
+        if (instantanea) {
+            return abrir(mapeo);
+        }
+        mapeo.cerrar();
+        if (serializada) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Compresion.abrirLectura(archivo)))) {
+                ois.setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+                        "java.util.ArrayList;java.lang.Object;java.lang.Enum;model.**;!*"));
+                return (List<Producto>) ois.readObject();
+            }
+        }
+        throw new IOException("Formato de archivo desconocido: " + archivo);
+    }
+
+    /**
+     * Escribe una instantánea en un archivo, reemplazándolo si existe.
+     *
+     * @param archivo Ruta del archivo.
+     * @param productos Productos a escribir.
+     * @return CRC32 del cuerpo, que identifica a la instantánea escrita.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public static int escribir(Path archivo, Collection<? extends Producto> productos) throws IOException {
+        // Se escribe en un archivo temporal que luego reemplaza al destino. Las instantáneas que
+        // mapean el destino (por ejemplo, con detalles diferidos) pasan antes a una copia en el heap
+        Path carpeta = archivo.toAbsolutePath().getParent();
+        Path temporal = Files.createTempFile(carpeta, "inst", ".tmp");
+        Path crudo = null;
+        try {
+            int suma;
+            if (Compresion.porExtension(archivo) == Compresion.Codec.NINGUNO) {
+                try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                    suma = escribir(canal, productos);
+                }
+            } else {
+                // El encabezado se completa al final, así que se arma sin comprimir y luego se comprime
+                crudo = Files.createTempFile(carpeta, "inst", ".tmp");
+                try (FileChannel canal = FileChannel.open(crudo, StandardOpenOption.WRITE)) {
+                    suma = escribir(canal, productos);
+                }
+                try (OutputStream out = Compresion.abrirEscritura(temporal, Compresion.porExtension(archivo))) {
+                    Files.copy(crudo, out);
+                }
+            }
+            liberar(archivo);
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return suma;
+        } finally {
+            Files.deleteIfExists(temporal);
+            if (crudo != null) {
+                Files.deleteIfExists(crudo);
+            }
+        }
+    }
+
+    /**
+     * Escribe una instantánea en un canal vacío, desde la posición 0.
+     * No fuerza los datos a disco; eso queda a cargo de quien llama.
+     *
+     * @param canal Canal de escritura.
+     * @param productos Productos a escribir.
+     * @return CRC32 del cuerpo, que identifica a la instantánea escrita.
+     * @throws IOException Si ocurre un error al escribir.
+     * @throws IllegalArgumentException Si algún producto es de un tipo desconocido.
+     */
+    public static int escribir(FileChannel canal, Collection<? extends Producto> productos) throws IOException {
+        Map<String, Integer> indiceTextos = new HashMap<>();
+        List<byte[]> tablaTextos = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANIO_BUFFER);
+        long posicion = TAMANIO_ENCABEZADO;
+
+        int cantidad = 0;
+        for (Producto p : productos) {
+            if (buffer.remaining() < TAMANIO_REGISTRO) {
+                posicion += volcar(canal, buffer, posicion, crc);
+            }
+            byte tipo;
+            Enum<?> constante;
+            int propio;
+            if (p instanceof Alimento) {
+                Alimento a = (Alimento) p;
+                tipo = CodificadorProducto.TIPO_ALIMENTO;
+                constante = a.getTipo();
+                propio = a.getCalorias();
+            } else if (p instanceof Electronico) {
+                Electronico e = (Electronico) p;
+                tipo = CodificadorProducto.TIPO_ELECTRONICO;
+                constante = e.getMarca();
+                propio = e.getGarantiaMeses();
+            } else if (p instanceof Ropa) {
+                Ropa r = (Ropa) p;
+                tipo = CodificadorProducto.TIPO_ROPA;
+                constante = r.getTalla();
+                propio = indiceTexto(r.getMaterial(), indiceTextos, tablaTextos);
+            } else {
+                throw new IllegalArgumentException("Tipo de producto desconocido: " + p.getClass().getSimpleName());
+            }
+            buffer.put(tipo);
+            buffer.put((byte) (constante != null ? constante.ordinal() : -1));
+            buffer.putShort((short) 0);
+            buffer.putInt(p.getId());
+            buffer.putDouble(p.getPrecio());
+            buffer.putInt(indiceTexto(p.getNombre(), indiceTextos, tablaTextos));
+            buffer.putInt(propio);
+            cantidad++;
+        }
+        long inicioTextos = posicion + buffer.position();
+
+        // Posiciones de cada texto dentro de la zona de bytes, más la posición final
+        int desplazamiento = 0;
+        for (int i = 0; i <= tablaTextos.size(); i++) {
+            if (buffer.remaining() < 4) {
+                posicion += volcar(canal, buffer, posicion, crc);
+            }
+            buffer.putInt(desplazamiento);
+            if (i < tablaTextos.size()) {
+                desplazamiento += tablaTextos.get(i).length;
+            }
+        }
+        for (byte[] texto : tablaTextos) {
+            int escritos = 0;
+            while (escritos < texto.length) {
+                if (!buffer.hasRemaining()) {
+                    posicion += volcar(canal, buffer, posicion, crc);
+                }
+                int n = Math.min(buffer.remaining(), texto.length - escritos);
+                buffer.put(texto, escritos, n);
+                escritos += n;
+            }
+        }
+        volcar(canal, buffer, posicion, crc);
+
+        ByteBuffer encabezado = ByteBuffer.allocate(TAMANIO_ENCABEZADO);
+        encabezado.putInt(MAGIA);
+        encabezado.putShort(VERSION_ESQUEMA);
+        encabezado.putShort((short) 0);
+        encabezado.putInt(cantidad);
+        encabezado.putInt(tablaTextos.size());
+        encabezado.putLong(inicioTextos);
+        encabezado.putInt((int) crc.getValue());
+        encabezado.putInt(0);
+        encabezado.flip();
+        escribirCompleto(canal, encabezado, 0);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Obtiene un producto, decodificándolo la primera vez que se pide.
+     *
+     * @param i Posición del producto.
+     * @return Producto en la posición indicada.
+     */
+    @Override
+    public Producto get(int i) {
+        Producto p = decodificados[Objects.checkIndex(i, cantidad)];
+        if (p == null) {
+            p = decodificar(i);
+            decodificados[i] = p;
+        }
+        return p;
+    }
+
+    @Override
+    public int size() {
+        return cantidad;
+    }
+
+    /**
+     * Obtiene un producto con solo su ID, nombre y precio leídos. Los campos propios de su
+     * tipo se leen del archivo la primera vez que se accede a ellos (ver Producto.diferirDetalles).
+     * El esqueleto no se guarda en la instantánea: solo retiene el archivo mapeado, por lo
+     * que la instantánea puede liberarse después de la carga. Cada llamada crea un producto nuevo.
+     *
+     * @param i Posición del producto.
+     * @return Producto en la posición indicada.
+     */
+    public Producto getEsqueleto(int i) {
+        if (detalles == null) {
+            detalles = new OrigenDetalles(mapeo, inicioTextos, cantidadTextos);
+        }
+        return esqueleto(i);
+    }
+
+    /**
+     * Obtiene el CRC32 del cuerpo guardado en el encabezado.
+     * Identifica a la instantánea: los parches incrementales lo usan para verificar su base.
+     *
+     * @return CRC32 del cuerpo.
+     */
+    public int getSuma() {
+        ByteBuffer datos = mapeo.leer();
+        try {
+            return datos.getInt(24);
+        } finally {
+            mapeo.soltar();
+        }
+    }
+
+    /**
+     * Obtiene el ID de un producto sin decodificarlo.
+     *
+     * @param i Posición del producto.
+     * @return ID del producto.
+     */
+    public int getId(int i) {
+        ByteBuffer datos = mapeo.leer();
+        try {
+            return datos.getInt(registro(i) + 4);
+        } finally {
+            mapeo.soltar();
+        }
+    }
+
+    /**
+     * Obtiene el precio de un producto sin decodificarlo.
+     *
+     * @param i Posición del producto.
+     * @return Precio del producto.
+     */
+    public double getPrecio(int i) {
+        ByteBuffer datos = mapeo.leer();
+        try {
+            return datos.getDouble(registro(i) + 8);
+        } finally {
+            mapeo.soltar();
+        }
+    }
+
+    /**
+     * Decodifica el registro en la posición indicada.
+     *
+     * @param i Posición del registro.
+     * @return Producto decodificado.
+     * @throws IllegalStateException Si el registro contiene datos inválidos.
+     */
+    private Producto decodificar(int i) {
+        int base = registro(i);
+        ByteBuffer datos = mapeo.leer();
+        byte tipo;
+        int ordinal;
+        int id;
+        double precio;
+        String nombre;
+        int propio;
+        String material;
+        try {
+            tipo = datos.get(base);
+            ordinal = datos.get(base + 1);
+            id = datos.getInt(base + 4);
+            precio = datos.getDouble(base + 8);
+            nombre = texto(datos, datos.getInt(base + 16));
+            propio = datos.getInt(base + 20);
+            material = tipo == CodificadorProducto.TIPO_ROPA ? texto(datos, propio) : null;
+        } finally {
+            mapeo.soltar();
+        }
+        try {
+            switch (tipo) {
+                case CodificadorProducto.TIPO_ALIMENTO:
+                    return new Alimento(id, nombre, precio, constante(TipoAlimento.values(), ordinal), propio);
+                case CodificadorProducto.TIPO_ELECTRONICO:
+                    return new Electronico(id, nombre, precio, constante(MarcaElectronicos.values(), ordinal), propio);
+                case CodificadorProducto.TIPO_ROPA:
+                    return new Ropa(id, nombre, precio, constante(TallaRopa.values(), ordinal), material);
+                default:
+                    throw new IllegalStateException("Tipo de producto desconocido en el registro " + i + ": " + tipo);
+            }
+        } catch (PrecioInvalidoException ex) {
+            throw new IllegalStateException("Precio inválido en el registro " + i + ": " + precio, ex);
+        }
+    }
+
+    /**
+     * Crea el producto de un registro con los campos propios pendientes de lectura.
+     *
+     * @param i Posición del registro.
+     * @return Producto con la carga de detalles diferida.
+     * @throws IllegalStateException Si el registro contiene datos inválidos.
+     */
+    private Producto esqueleto(int i) {
+        int base = registro(i);
+        ByteBuffer datos = mapeo.leer();
+        byte tipo;
+        int id;
+        double precio;
+        String nombre;
+        try {
+            tipo = datos.get(base);
+            id = datos.getInt(base + 4);
+            precio = datos.getDouble(base + 8);
+            nombre = texto(datos, datos.getInt(base + 16));
+        } finally {
+            mapeo.soltar();
+        }
+        Producto p;
+        try {
+            switch (tipo) {
+                case CodificadorProducto.TIPO_ALIMENTO:
+                    p = new Alimento(id, nombre, precio, null, 0);
+                    break;
+                case CodificadorProducto.TIPO_ELECTRONICO:
+                    p = new Electronico(id, nombre, precio, null, 0);
+                    break;
+                case CodificadorProducto.TIPO_ROPA:
+                    p = new Ropa(id, nombre, precio, null, null);
+                    break;
+                default:
+                    throw new IllegalStateException("Tipo de producto desconocido en el registro " + i + ": " + tipo);
+            }
+        } catch (PrecioInvalidoException ex) {
+            throw new IllegalStateException("Precio inválido en el registro " + i + ": " + precio, ex);
+        }
+        p.diferirDetalles(detalles, base);
+        return p;
+    }
+
+    /**
+     * Calcula la posición en el archivo de un registro.
+     *
+     * @param i Posición del registro.
+     * @return Posición del primer byte del registro.
+     */
+    private int registro(int i) {
+        return TAMANIO_ENCABEZADO + Objects.checkIndex(i, cantidad) * TAMANIO_REGISTRO;
+    }
+
+    /**
+     * Obtiene un texto de la tabla, decodificándolo la primera vez.
+     *
+     * @param datos Contenido del archivo, leído con el cerrojo tomado.
+     * @param indice Índice del texto, o SIN_TEXTO.
+     * @return Texto, o null.
+     * @throws IllegalStateException Si el índice está fuera de la tabla.
+     */
+    private String texto(ByteBuffer datos, int indice) {
+        if (indice == SIN_TEXTO) {
+            return null;
+        }
+        String t = textos[indice];
+        if (t == null) {
+            t = leerTexto(datos, inicioTextos, cantidadTextos, indice);
+            textos[indice] = t;
+        }
+        return t;
+    }
+
+    /**
+     * Decodifica un texto de la tabla.
+     *
+     * @param datos Contenido del archivo.
+     * @param inicioTextos Posición de la tabla de textos.
+     * @param cantidadTextos Cantidad de textos de la tabla.
+     * @param indice Índice del texto.
+     * @return Texto decodificado.
+     * @throws IllegalStateException Si el índice está fuera de la tabla.
+     */
+    private static String leerTexto(ByteBuffer datos, int inicioTextos, int cantidadTextos, int indice) {
+        if (indice < 0 || indice >= cantidadTextos) {
+            throw new IllegalStateException("Índice de texto inválido: " + indice);
+        }
+        int inicioBytes = inicioTextos + 4 * (cantidadTextos + 1);
+        int desde = datos.getInt(inicioTextos + 4 * indice);
+        int hasta = datos.getInt(inicioTextos + 4 * (indice + 1));
+        byte[] bytes = new byte[hasta - desde];
+        datos.get(inicioBytes + desde, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Libera el archivo mapeado. Si ya se pidieron esqueletos, el mapeo queda a cargo de ellos
+     * hasta que dejen de usarse o se reescriba el archivo. Después de cerrarla, la instantánea
+     * no debe usarse.
+     */
+    @Override
+    public void close() {
+        if (detalles == null) {
+            mapeo.cerrar();
+        }
+    }
+
+    /**
+     * Pasa al heap el contenido de las instantáneas que mapean un archivo y libera los mapeos,
+     * para poder reemplazarlo. Las instantáneas y los esqueletos siguen funcionando con la copia.
+     *
+     * @param archivo Ruta del archivo a reemplazar.
+     */
+    private static void liberar(Path archivo) {
+        Set<Mapeo> mapeos;
+        synchronized (MAPEOS) {
+            mapeos = MAPEOS.remove(archivo.toAbsolutePath().normalize());
+            if (mapeos == null) {
+                return;
+            }
+            mapeos = new HashSet<>(mapeos);
+        }
+        for (Mapeo m : mapeos) {
+            m.liberar();
+        }
+    }
+
+    /**
+     * Indica si alguna instantánea tiene mapeado un archivo. Se usa en las pruebas.
+     *
+     * @param archivo Ruta del archivo.
+     * @return true si el archivo sigue mapeado.
+     */
+    static boolean mapeado(Path archivo) {
+        synchronized (MAPEOS) {
+            Set<Mapeo> mapeos = MAPEOS.get(archivo.toAbsolutePath().normalize());
+            return mapeos != null && !mapeos.isEmpty();
+        }
+    }
+
+    /**
+     * Obtiene una constante de enum por su ordinal.
+     *
+     * @param valores Constantes del enum.
+     * @param ordinal Ordinal guardado, -1 para null.
+     * @param <E> Tipo del enum.
+     * @return Constante, o null.
+     * @throws IllegalStateException Si el ordinal no existe.
+     */
+    private static <E extends Enum<E>> E constante(E[] valores, int ordinal) {
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= valores.length) {
+            throw new IllegalStateException("Ordinal inválido: " + ordinal);
+        }
+        return valores[ordinal];
+    }
+
+    /**
+     * Obtiene el índice de un texto en la tabla, agregándolo si es nuevo.
+     *
+     * @param texto Texto, puede ser null.
+     * @param indice Índices de los textos ya agregados.
+     * @param tabla Bytes UTF-8 de los textos, en orden de índice.
+     * @return Índice del texto, o SIN_TEXTO si es null.
+     */
+    private static int indiceTexto(String texto, Map<String, Integer> indice, List<byte[]> tabla) {
+        if (texto == null) {
+            return SIN_TEXTO;
+        }
+        Integer i = indice.get(texto);
+        if (i == null) {
+            i = tabla.size();
+            indice.put(texto, i);
+            tabla.add(texto.getBytes(StandardCharsets.UTF_8));
+        }
+        return i;
+    }
+
+    /**
+     * Escribe el contenido del buffer en la posición indicada y lo agrega al CRC.
+     *
+     * @param canal Canal de escritura.
+     * @param buffer Buffer con datos, en modo escritura.
+     * @param posicion Posición del archivo donde escribir.
+     * @param crc CRC del cuerpo.
+     * @return Cantidad de bytes escritos.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static int volcar(FileChannel canal, ByteBuffer buffer, long posicion, CRC32 crc) throws IOException {
+        buffer.flip();
+        int n = buffer.remaining();
+        crc.update(buffer.duplicate());
+        escribirCompleto(canal, buffer, posicion);
+        buffer.clear();
+        return n;
+    }
+
+    /**
+     * Escribe todo el buffer en la posición indicada.
+     *
+     * @param canal Canal de escritura.
+     * @param buffer Buffer con datos, en modo lectura.
+     * @param posicion Posición del archivo donde escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void escribirCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicion += canal.write(buffer, posicion);
+        }
+    }
+
+    /**
+     * Contenido de un archivo de instantánea, mapeado en memoria o ya leído al heap, que
+     * comparten la instantánea y los productos con detalles diferidos. Los mapeos se registran
+     * por ruta; liberar copia el contenido al heap y cierra el mapeo, y si nadie lo libera se
+     * cierra cuando el contenido deja de usarse. Las lecturas toman el cerrojo compartido.
+     */
+    private static final class Mapeo {
+        private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+        private final Path ruta; // null si el contenido no está mapeado
+        private ByteBuffer datos; // null después de cerrar
+        private Cleaner.Cleanable desmapeo; // null si no está mapeado o ya se liberó
+
+        Mapeo(ByteBuffer datos, Path ruta, Arena arena) {
+            this.datos = datos;
+            this.ruta = ruta;
+            this.desmapeo = arena == null ? null : LIMPIEZA.register(this, arena::close);
+        }
+
+        /**
+         * Mapea un archivo completo en memoria y registra el mapeo.
+         *
+         * @param archivo Ruta del archivo.
+         * @return Mapeo del archivo.
+         * @throws IOException Si ocurre un error al leer o el archivo supera los 2 GB.
+         */
+        static Mapeo mapear(Path archivo) throws IOException {
+            Path ruta = archivo.toAbsolutePath().normalize();
+            Arena arena = Arena.ofShared(); // Compartido: los esqueletos se completan desde cualquier hilo
+            Mapeo mapeo;
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                long tamanio = canal.size();
+                if (tamanio > Integer.MAX_VALUE) {
+                    throw new IOException("La instantánea supera los 2 GB: " + tamanio);
+                }
+                mapeo = new Mapeo(canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanio, arena).asByteBuffer(), ruta, arena);
+            } catch (IOException | RuntimeException ex) {
+                arena.close();
+                throw ex;
+            }
+            synchronized (MAPEOS) {
+                MAPEOS.computeIfAbsent(ruta, r -> Collections.newSetFromMap(new WeakHashMap<>())).add(mapeo);
+            }
+            return mapeo;
+        }
+
+        /**
+         * Toma el cerrojo compartido y devuelve el contenido; debe seguirse de soltar.
+         *
+         * @return Contenido del archivo.
+         * @throws IllegalStateException Si la instantánea ya se cerró.
+         */
+        ByteBuffer leer() {
+            cerrojo.readLock().lock();
+            if (datos == null) {
+                cerrojo.readLock().unlock();
+                throw new IllegalStateException("La instantánea ya se cerró");
+            }
+            return datos;
+        }
+
+        /**
+         * Suelta el cerrojo tomado con leer.
+         */
+        void soltar() {
+            cerrojo.readLock().unlock();
+        }
+
+        /**
+         * Copia el contenido al heap y cierra el mapeo, esperando a las lecturas en curso.
+         */
+        void liberar() {
+            cerrojo.writeLock().lock();
+            try {
+                if (desmapeo != null) {
+                    ByteBuffer copia = ByteBuffer.allocate(datos.limit());
+                    copia.put(0, datos, 0, datos.limit());
+                    datos = copia;
+                    desmapeo.clean();
+                    desmapeo = null;
+                }
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Cierra el mapeo y descarta el contenido.
+         */
+        void cerrar() {
+            cerrojo.writeLock().lock();
+            try {
+                datos = null;
+                if (desmapeo != null) {
+                    desmapeo.clean();
+                    desmapeo = null;
+                }
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            if (ruta != null) {
+                synchronized (MAPEOS) {
+                    Set<Mapeo> mapeos = MAPEOS.get(ruta);
+                    if (mapeos != null) {
+                        mapeos.remove(this);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Origen de los campos propios de los productos creados con getEsqueleto.
+     * Guarda solo el contenido del archivo y los materiales ya leídos, que se comparten entre productos.
+     */
+    private static class OrigenDetalles implements CargaDetalles {
+        private final Mapeo mapeo;
+        private final int inicioTextos;
+        private final int cantidadTextos;
+        private final Map<Integer, String> materiales = new ConcurrentHashMap<>();
+
+        OrigenDetalles(Mapeo mapeo, int inicioTextos, int cantidadTextos) {
+            this.mapeo = mapeo;
+            this.inicioTextos = inicioTextos;
+            this.cantidadTextos = cantidadTextos;
+        }
+
+        /**
+         * Asigna a un producto los campos propios de su registro.
+         *
+         * @param p Producto a completar.
+         * @param base Posición del registro en el archivo.
+         * @throws IllegalStateException Si el registro contiene datos inválidos.
+         */
+        @Override
+        public void completar(Producto p, int base) {
+            ByteBuffer datos = mapeo.leer();
+            try {
+                completar(p, datos, base);
+            } finally {
+                mapeo.soltar();
+            }
+        }
+
+        /**
+         * Asigna a un producto los campos propios de su registro, con el cerrojo tomado.
+         *
+         * @param p Producto a completar.
+         * @param datos Contenido del archivo.
+         * @param base Posición del registro en el archivo.
+         */
+        private void completar(Producto p, ByteBuffer datos, int base) {
+            int ordinal = datos.get(base + 1);
+            int propio = datos.getInt(base + 20);
+            if (p instanceof Alimento) {
+                ((Alimento) p).setTipo(constante(TipoAlimento.values(), ordinal));
+                ((Alimento) p).setCalorias(propio);
+            } else if (p instanceof Electronico) {
+                ((Electronico) p).setMarca(constante(MarcaElectronicos.values(), ordinal));
+                ((Electronico) p).setGarantiaMeses(propio);
+            } else if (p instanceof Ropa) {
+                ((Ropa) p).setTalla(constante(TallaRopa.values(), ordinal));
+                ((Ropa) p).setMaterial(propio == SIN_TEXTO ? null
+                        : materiales.computeIfAbsent(propio, i -> leerTexto(datos, inicioTextos, cantidadTextos, i)));
+            }
+        }
+    }
+}
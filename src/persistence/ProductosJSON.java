@@ -0,0 +1,411 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import exceptions.PrecioInvalidoException;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Lectura y escritura de productos en JSON por streaming, sin armar el documento en memoria.
+ *
+ * El formato es el mismo que generaba Gson por reflexión: un arreglo de objetos
+ * {"tipo": "...", "datos": {...}}, con los enums por nombre y sin los campos nulos.
+ * Cada subclase tiene su propio adaptador escrito a mano, por lo que no se usa reflexión;
+ * los campos ausentes toman los valores del constructor sin parámetros, como con Gson.
+ * Los archivos pasan por Compresion, por lo que pueden estar comprimidos.
+ *
+ * @author joaxx
+ */
+public class ProductosJSON {
+
+    public static final TypeAdapter<Alimento> ADAPTADOR_ALIMENTO = new AdaptadorAlimento();
+    public static final TypeAdapter<Electronico> ADAPTADOR_ELECTRONICO = new AdaptadorElectronico();
+    public static final TypeAdapter<Ropa> ADAPTADOR_ROPA = new AdaptadorRopa();
+
+    /**
+     * Escribe los productos en un archivo JSON, uno por vez.
+     *
+     * @param archivo Ruta del archivo JSON.
+     * @param productos Productos a escribir.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static void guardar(Path archivo, Iterable<? extends Producto> productos) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(Compresion.abrirEscritura(archivo), StandardCharsets.UTF_8));
+             JsonWriter out = new JsonWriter(bw)) {
+            out.setIndent("  ");
+            out.beginArray();
+            for (Producto p : productos) {
+                out.beginObject();
+                out.name("tipo").value(p.getClass().getSimpleName());
+                out.name("datos");
+                escribir(out, p);
+                out.endObject();
+            }
+            out.endArray();
+        }
+    }
+
+    /**
+     * Lee los productos de un archivo JSON y los entrega uno por vez, en el orden del archivo.
+     *
+     * @param archivo Ruta del archivo JSON.
+     * @param destino Acción que recibe cada producto leído.
+     * @throws IOException Si ocurre un error al leer o el contenido es inválido.
+     * @throws IllegalArgumentException Si algún producto tiene un tipo desconocido.
+     */
+    public static void cargar(Path archivo, Consumer<Producto> destino) throws IOException {
+        cargar(archivo, destino, null);
+    }
+
+    /**
+     * Lee los productos de un archivo JSON, informando la fracción del archivo leída.
+     *
+     * @param archivo Ruta del archivo JSON.
+     * @param destino Acción que recibe cada producto leído.
+     * @param avance Recibe la fracción leída entre 0 y 1 (ver Compresion); puede ser null.
+     * @throws IOException Si ocurre un error al leer o el contenido es inválido.
+     * @throws IllegalArgumentException Si algún producto tiene un tipo desconocido.
+     */
+    public static void cargar(Path archivo, Consumer<Producto> destino, DoubleConsumer avance) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(Compresion.abrirLectura(archivo, avance), StandardCharsets.UTF_8));
+             JsonReader in = new JsonReader(br)) {
+            in.beginArray();
+            while (in.hasNext()) {
+                destino.accept(leerElemento(in));
+            }
+            in.endArray();
+        }
+    }
+
+    /**
+     * Escribe los datos de un producto con el adaptador de su tipo.
+     *
+     * @param out Destino JSON.
+     * @param p Producto a escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     * @throws IllegalArgumentException Si el tipo de producto es desconocido.
+     */
+    public static void escribir(JsonWriter out, Producto p) throws IOException {
+        if (p instanceof Alimento) {
+            ADAPTADOR_ALIMENTO.write(out, (Alimento) p);
+        } else if (p instanceof Electronico) {
+            ADAPTADOR_ELECTRONICO.write(out, (Electronico) p);
+        } else if (p instanceof Ropa) {
+            ADAPTADOR_ROPA.write(out, (Ropa) p);
+        } else {
+            throw new IllegalArgumentException("Tipo de producto desconocido: " + p.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Lee un elemento {"tipo": ..., "datos": ...} del arreglo.
+     * Si "datos" aparece antes que "tipo", solo ese elemento se arma en memoria.
+     *
+     * @param in Origen JSON.
+     * @return Producto leído.
+     * @throws IOException Si ocurre un error al leer o el contenido es inválido.
+     */
+    private static Producto leerElemento(JsonReader in) throws IOException {
+        String tipo = null;
+        JsonElement datosPrevios = null;
+        Producto p = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "tipo":
+                    tipo = in.nextString();
+                    if (datosPrevios != null) {
+                        p = adaptador(tipo).fromJsonTree(datosPrevios);
+                    }
+                    break;
+                case "datos":
+                    if (tipo != null) {
+                        p = adaptador(tipo).read(in);
+                    } else {
+                        datosPrevios = JsonParser.parseReader(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (tipo == null || p == null) {
+            throw new IOException("Elemento sin tipo o sin datos en " + in.getPath());
+        }
+        return p;
+    }
+
+    /**
+     * Obtiene el adaptador correspondiente al nombre de un tipo.
+     *
+     * @param tipo Nombre simple de la clase.
+     * @return Adaptador del tipo.
+     * @throws IllegalArgumentException Si el tipo es desconocido.
+     */
+    private static TypeAdapter<? extends Producto> adaptador(String tipo) {
+        switch (tipo) {
+            case "Alimento":
+                return ADAPTADOR_ALIMENTO;
+            case "Electronico":
+                return ADAPTADOR_ELECTRONICO;
+            case "Ropa":
+                return ADAPTADOR_ROPA;
+            default:
+                throw new IllegalArgumentException("Tipo de producto desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Base de los adaptadores: escribe y lee los campos comunes (id, nombre y precio)
+     * y delega en cada subclase los campos propios.
+     *
+     * @param <T> Tipo de producto.
+     */
+    private abstract static class AdaptadorProducto<T extends Producto> extends TypeAdapter<T> {
+
+        @Override
+        public void write(JsonWriter out, T p) throws IOException {
+            if (p == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            escribirPropios(out, p);
+            out.name("id").value(p.getId());
+            if (p.getNombre() != null) {
+                out.name("nombre").value(p.getNombre());
+            }
+            out.name("precio").value(p.getPrecio());
+            out.endObject();
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T p;
+            try {
+                p = crear();
+            } catch (PrecioInvalidoException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                String campo = in.nextName();
+                switch (campo) {
+                    case "id":
+                        p.setId(in.nextInt());
+                        break;
+                    case "nombre":
+                        p.setNombre(texto(in));
+                        break;
+                    case "precio":
+                        double precio = in.nextDouble();
+                        try {
+                            p.setPrecio(precio);
+                        } catch (PrecioInvalidoException ex) {
+                            throw new IOException("Precio inválido en " + in.getPath() + ": " + precio, ex);
+                        }
+                        break;
+                    default:
+                        if (!leerPropio(campo, in, p)) {
+                            in.skipValue();
+                        }
+                }
+            }
+            in.endObject();
+            return p;
+        }
+
+        /**
+         * Crea el producto con los valores predeterminados de su tipo.
+         *
+         * @return Producto nuevo.
+         * @throws PrecioInvalidoException Si el precio predeterminado es inválido.
+         */
+        protected abstract T crear() throws PrecioInvalidoException;
+
+        /**
+         * Escribe los campos propios de la subclase.
+         *
+         * @param out Destino JSON.
+         * @param p Producto a escribir.
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        protected abstract void escribirPropios(JsonWriter out, T p) throws IOException;
+
+        /**
+         * Lee un campo propio de la subclase.
+         *
+         * @param campo Nombre del campo.
+         * @param in Origen JSON, posicionado en el valor del campo.
+         * @param p Producto en armado.
+         * @return true si el campo fue reconocido y leído.
+         * @throws IOException Si ocurre un error al leer.
+         */
+        protected abstract boolean leerPropio(String campo, JsonReader in, T p) throws IOException;
+    }
+
+    /**
+     * Adaptador de Alimento: campos tipo y calorias.
+     */
+    private static class AdaptadorAlimento extends AdaptadorProducto<Alimento> {
+
+        @Override
+        protected Alimento crear() throws PrecioInvalidoException {
+            return new Alimento();
+        }
+
+        @Override
+        protected void escribirPropios(JsonWriter out, Alimento a) throws IOException {
+            if (a.getTipo() != null) {
+                out.name("tipo").value(a.getTipo().name());
+            }
+            out.name("calorias").value(a.getCalorias());
+        }
+
+        @Override
+        protected boolean leerPropio(String campo, JsonReader in, Alimento a) throws IOException {
+            switch (campo) {
+                case "tipo":
+                    a.setTipo(constante(in, TipoAlimento.class));
+                    return true;
+                case "calorias":
+                    a.setCalorias(in.nextInt());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Adaptador de Electronico: campos marca y garantiaMeses.
+     */
+    private static class AdaptadorElectronico extends AdaptadorProducto<Electronico> {
+
+        @Override
+        protected Electronico crear() throws PrecioInvalidoException {
+            return new Electronico();
+        }
+
+        @Override
+        protected void escribirPropios(JsonWriter out, Electronico e) throws IOException {
+            if (e.getMarca() != null) {
+                out.name("marca").value(e.getMarca().name());
+            }
+            out.name("garantiaMeses").value(e.getGarantiaMeses());
+        }
+
+        @Override
+        protected boolean leerPropio(String campo, JsonReader in, Electronico e) throws IOException {
+            switch (campo) {
+                case "marca":
+                    e.setMarca(constante(in, MarcaElectronicos.class));
+                    return true;
+                case "garantiaMeses":
+                    e.setGarantiaMeses(in.nextInt());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Adaptador de Ropa: campos talla y material.
+     */
+    private static class AdaptadorRopa extends AdaptadorProducto<Ropa> {
+
+        @Override
+        protected Ropa crear() throws PrecioInvalidoException {
+            return new Ropa();
+        }
+
+        @Override
+        protected void escribirPropios(JsonWriter out, Ropa r) throws IOException {
+            if (r.getTalla() != null) {
+                out.name("talla").value(r.getTalla().name());
+            }
+            if (r.getMaterial() != null) {
+                out.name("material").value(r.getMaterial());
+            }
+        }
+
+        @Override
+        protected boolean leerPropio(String campo, JsonReader in, Ropa r) throws IOException {
+            switch (campo) {
+                case "talla":
+                    r.setTalla(constante(in, TallaRopa.class));
+                    return true;
+                case "material":
+                    r.setMaterial(texto(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Lee un texto que puede ser null.
+     *
+     * @param in Origen JSON.
+     * @return Texto leído, o null.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    private static String texto(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Lee una constante de enum por nombre.
+     *
+     * @param in Origen JSON.
+     * @param tipo Clase del enum.
+     * @param <E> Tipo del enum.
+     * @return Constante leída, o null si el valor es null.
+     * @throws IOException Si el nombre no corresponde a ninguna constante.
+     */
+    private static <E extends Enum<E>> E constante(JsonReader in, Class<E> tipo) throws IOException {
+        String nombre = texto(in);
+        if (nombre == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(tipo, nombre);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Valor inválido para " + tipo.getSimpleName() + " en " + in.getPath() + ": " + nombre, ex);
+        }
+    }
+}
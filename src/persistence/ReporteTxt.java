@@ -0,0 +1,194 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import model.Producto.Producto;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Exportación del reporte de texto de productos filtrados, sin armar la lista filtrada.
+ *
+ * Los productos se recorren por trozos directamente desde la lista de origen (por ejemplo,
+ * una instantánea del catálogo). Cada trozo se filtra, se formatea y se codifica en UTF-8
+ * en el pool común, y los trozos se escriben en el canal en el orden de la lista. Solo hay
+ * una ventana acotada de trozos en proceso y sus buffers se reutilizan, por lo que la
+ * memoria usada no depende de la cantidad de productos exportados.
+ *
+ * El archivo se comprime según su extensión (ver Compresion).
+ *
+ * @author joaxx
+ */
+public class ReporteTxt {
+
+    private static final String ENCABEZADO = "Reporte de Productos Filtrados\n-----------------------------\n";
+    private static final int PRODUCTOS_POR_TROZO = 4096;
+
+    /**
+     * Exporta los productos de la lista que cumplen el filtro, en el orden de la lista.
+     *
+     * @param destino Ruta del archivo de texto.
+     * @param origen Productos a recorrer; no debe modificarse durante la exportación.
+     * @param filtro Condición que deben cumplir los productos exportados.
+     * @return Cantidad de productos exportados.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static int exportar(Path destino, List<? extends Producto> origen, Predicate<? super Producto> filtro) throws IOException {
+        try (WritableByteChannel canal = abrirCanal(destino)) {
+            Trozo encabezado = new Trozo();
+            encabezado.texto.append(ENCABEZADO);
+            encabezado.codificar();
+            encabezado.escribir(canal);
+
+            int total = origen.size();
+            if (total <= PRODUCTOS_POR_TROZO) {
+                // Un solo trozo: se formatea en este hilo
+                encabezado.formatear(origen, 0, total, filtro);
+                encabezado.escribir(canal);
+                return encabezado.cantidad;
+            }
+
+            int ventana = Math.max(2, ForkJoinPool.commonPool().getParallelism() * 2);
+            Deque<CompletableFuture<Trozo>> pendientes = new ArrayDeque<>();
+            Deque<Trozo> libres = new ArrayDeque<>();
+            libres.add(encabezado);
+            int exportados = 0;
+            for (int desde = 0; desde < total; desde += PRODUCTOS_POR_TROZO) {
+                if (pendientes.size() >= ventana) {
+                    exportados += escribirSiguiente(pendientes, libres, canal);
+                }
+                Trozo trozo = libres.isEmpty() ? new Trozo() : libres.poll();
+                int inicio = desde;
+                int fin = Math.min(total, desde + PRODUCTOS_POR_TROZO);
+                pendientes.addLast(CompletableFuture.supplyAsync(
+                        () -> trozo.formatear(origen, inicio, fin, filtro), ForkJoinPool.commonPool()));
+            }
+            while (!pendientes.isEmpty()) {
+                exportados += escribirSiguiente(pendientes, libres, canal);
+            }
+            return exportados;
+        }
+    }
+
+    /**
+     * Abre el canal de escritura del archivo: directo si no se comprime,
+     * o sobre el flujo del códec correspondiente a la extensión.
+     *
+     * @param destino Ruta del archivo.
+     * @return Canal de escritura.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    private static WritableByteChannel abrirCanal(Path destino) throws IOException {
+        if (Compresion.porExtension(destino) == Compresion.Codec.NINGUNO) {
+            return FileChannel.open(destino, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return Channels.newChannel(Compresion.abrirEscritura(destino));
+    }
+
+    /**
+     * Espera el trozo más antiguo, lo escribe y devuelve sus buffers a los libres.
+     *
+     * @param pendientes Trozos en proceso, en orden.
+     * @param libres Trozos disponibles para reutilizar.
+     * @param canal Canal de escritura.
+     * @return Cantidad de productos escritos.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static int escribirSiguiente(Deque<CompletableFuture<Trozo>> pendientes, Deque<Trozo> libres,
+            WritableByteChannel canal) throws IOException {
+        Trozo trozo;
+        try {
+            trozo = pendientes.removeFirst().join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+        trozo.escribir(canal);
+        libres.add(trozo);
+        return trozo.cantidad;
+    }
+
+    /**
+     * Texto de un trozo del reporte y sus bytes UTF-8. Los buffers se conservan entre usos.
+     */
+    private static class Trozo {
+        private final StringBuilder texto = new StringBuilder();
+        private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer bytes = ByteBuffer.allocate(0);
+        private int cantidad; // Productos incluidos en el trozo
+
+        /**
+         * Filtra y formatea los productos de un rango de la lista.
+         *
+         * @param origen Lista de productos.
+         * @param desde Posición inicial, incluida.
+         * @param hasta Posición final, excluida.
+         * @param filtro Condición de los productos exportados.
+         * @return Este mismo trozo, listo para escribir.
+         */
+        Trozo formatear(List<? extends Producto> origen, int desde, int hasta, Predicate<? super Producto> filtro) {
+            texto.setLength(0);
+            cantidad = 0;
+            for (int i = desde; i < hasta; i++) {
+                Producto p = origen.get(i);
+                if (filtro.test(p)) {
+                    texto.append(p.getClass().getSimpleName()).append(": ").append(p.getDescripcion())
+                            .append(" - Precio: ").append(p.getPrecio()).append('\n');
+                    cantidad++;
+                }
+            }
+            codificar();
+            return this;
+        }
+
+        /**
+         * Codifica el texto en UTF-8, agrandando el buffer solo si no alcanza.
+         */
+        void codificar() {
+            int maximo = (int) Math.ceil(texto.length() * (double) codificador.maxBytesPerChar());
+            if (bytes.capacity() < maximo) {
+                bytes = ByteBuffer.allocate(maximo);
+            }
+            bytes.clear();
+            codificador.reset();
+            codificador.encode(CharBuffer.wrap(texto), bytes, true);
+            codificador.flush(bytes);
+            bytes.flip();
+        }
+
+        /**
+         * Escribe los bytes del trozo en el canal.
+         *
+         * @param canal Canal de escritura.
+         * @throws IOException Si ocurre un error al escribir.
+         */
+        void escribir(WritableByteChannel canal) throws IOException {
+            while (bytes.hasRemaining()) {
+                canal.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importación con ImportacionCSV: productos aceptados, líneas rechazadas
+ * y métricas de cada etapa.
+ *
+ * Solo se conservan en memoria los primeros MAXIMO_RECHAZOS rechazos; el reporte completo
+ * se escribe en el archivo de rechazos, si se indicó uno.
+ *
+ * @author joaxx
+ */
+public class ResultadoImportacion {
+
+    /** Cantidad máxima de rechazos que se conservan en memoria. */
+    public static final int MAXIMO_RECHAZOS = 1000;
+
+    private final int aceptados;
+    private final long cantidadRechazos;
+    private final List<Rechazo> rechazos;
+    private final List<Etapa> etapas;
+    private final long nanosTotales;
+
+    /**
+     * Línea del archivo que no se importó.
+     */
+    public static class Rechazo {
+        private final long linea;
+        private final String motivo;
+        private final String contenido;
+
+        /**
+         * Constructor del rechazo.
+         *
+         * @param linea Número de línea, empezando en 1.
+         * @param motivo Motivo del rechazo.
+         * @param contenido Texto de la línea, posiblemente recortado.
+         */
+        public Rechazo(long linea, String motivo, String contenido) {
+            this.linea = linea;
+            this.motivo = motivo;
+            this.contenido = contenido;
+        }
+
+        /**
+         * Obtiene el número de línea rechazada, empezando en 1.
+         *
+         * @return Número de línea.
+         */
+        public long getLinea() {
+            return linea;
+        }
+
+        /**
+         * Obtiene el motivo del rechazo.
+         *
+         * @return Motivo del rechazo.
+         */
+        public String getMotivo() {
+            return motivo;
+        }
+
+        /**
+         * Obtiene el texto de la línea rechazada, recortado si es muy largo.
+         *
+         * @return Texto de la línea.
+         */
+        public String getContenido() {
+            return contenido;
+        }
+
+        @Override
+        public String toString() {
+            return "Línea " + linea + ": " + motivo + " -> " + contenido;
+        }
+    }
+
+    /**
+     * Métricas de una etapa de la importación.
+     */
+    public static class Etapa {
+        private final String nombre;
+        private final int hilos;
+        private final long elementos;
+        private final long nanosOcupado;
+        private final long nanosEspera;
+
+        /**
+         * Constructor de las métricas.
+         *
+         * @param nombre Nombre de la etapa.
+         * @param hilos Hilos que ejecutaron la etapa.
+         * @param elementos Elementos procesados (bytes o líneas, según la etapa).
+         * @param nanosOcupado Tiempo de trabajo, sumado entre todos los hilos.
+         * @param nanosEspera Tiempo bloqueado esperando entrada o lugar en la cola siguiente.
+         */
+        public Etapa(String nombre, int hilos, long elementos, long nanosOcupado, long nanosEspera) {
+            this.nombre = nombre;
+            this.hilos = hilos;
+            this.elementos = elementos;
+            this.nanosOcupado = nanosOcupado;
+            this.nanosEspera = nanosEspera;
+        }
+
+        /**
+         * Obtiene el nombre de la etapa.
+         *
+         * @return Nombre de la etapa.
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * Obtiene la cantidad de hilos que ejecutaron la etapa.
+         *
+         * @return Cantidad de hilos.
+         */
+        public int getHilos() {
+            return hilos;
+        }
+
+        /**
+         * Obtiene la cantidad de elementos procesados por la etapa.
+         *
+         * @return Elementos procesados.
+         */
+        public long getElementos() {
+            return elementos;
+        }
+
+        /**
+         * Obtiene el tiempo de trabajo de la etapa, sumado entre sus hilos.
+         *
+         * @return Tiempo ocupado en nanosegundos.
+         */
+        public long getNanosOcupado() {
+            return nanosOcupado;
+        }
+
+        /**
+         * Obtiene el tiempo que la etapa pasó bloqueada, sumado entre sus hilos.
+         *
+         * @return Tiempo de espera en nanosegundos.
+         */
+        public long getNanosEspera() {
+            return nanosEspera;
+        }
+
+        /**
+         * Calcula los elementos por segundo que procesaría la etapa si nunca esperara.
+         * La etapa con menor capacidad es la que limita la importación.
+         *
+         * @return Elementos por segundo de trabajo, por hilo multiplicado por la cantidad de hilos.
+         */
+        public double getCapacidadPorSegundo() {
+            return nanosOcupado == 0 ? 0 : elementos * 1e9 * hilos / nanosOcupado;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d hilos): %d elementos, ocupado %d ms, espera %d ms, capacidad %.0f/s",
+                    nombre, hilos, elementos, nanosOcupado / 1_000_000, nanosEspera / 1_000_000, getCapacidadPorSegundo());
+        }
+    }
+
+    /**
+     * Constructor del resultado.
+     *
+     * @param aceptados Cantidad de productos importados.
+     * @param cantidadRechazos Cantidad total de líneas rechazadas.
+     * @param rechazos Primeros rechazos, en orden de línea.
+     * @param etapas Métricas de cada etapa, en orden.
+     * @param nanosTotales Duración total de la importación.
+     */
+    public ResultadoImportacion(int aceptados, long cantidadRechazos, List<Rechazo> rechazos, List<Etapa> etapas, long nanosTotales) {
+        this.aceptados = aceptados;
+        this.cantidadRechazos = cantidadRechazos;
+        this.rechazos = Collections.unmodifiableList(rechazos);
+        this.etapas = Collections.unmodifiableList(etapas);
+        this.nanosTotales = nanosTotales;
+    }
+
+    /**
+     * Obtiene la cantidad de productos importados.
+     *
+     * @return Productos aceptados.
+     */
+    public int getAceptados() {
+        return aceptados;
+    }
+
+    /**
+     * Obtiene la cantidad total de líneas rechazadas.
+     *
+     * @return Líneas rechazadas.
+     */
+    public long getCantidadRechazos() {
+        return cantidadRechazos;
+    }
+
+    /**
+     * Obtiene los primeros rechazos, a lo sumo MAXIMO_RECHAZOS, en orden de línea.
+     *
+     * @return Lista inmodificable de rechazos.
+     */
+    public List<Rechazo> getRechazos() {
+        return rechazos;
+    }
+
+    /**
+     * Obtiene las métricas de cada etapa, en el orden del recorrido.
+     *
+     * @return Lista inmodificable de etapas.
+     */
+    public List<Etapa> getEtapas() {
+        return etapas;
+    }
+
+    /**
+     * Obtiene la duración total de la importación.
+     *
+     * @return Duración en nanosegundos.
+     */
+    public long getNanosTotales() {
+        return nanosTotales;
+    }
+
+    /**
+     * Calcula las líneas importadas por segundo, sobre la duración total.
+     *
+     * @return Productos aceptados por segundo.
+     */
+    public double getAceptadosPorSegundo() {
+        return nanosTotales == 0 ? 0 : aceptados * 1e9 / nanosTotales;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d aceptados, %d rechazados en %d ms (%.0f/s)",
+                aceptados, cantidadRechazos, nanosTotales / 1_000_000, getAceptadosPorSegundo()));
+        for (Etapa e : etapas) {
+            sb.append('\n').append("  ").append(e);
+        }
+        return sb.toString();
+    }
+}
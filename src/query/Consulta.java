@@ -0,0 +1,324 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import comparators.ComparadorPorNombre;
+import comparators.ComparadorPorPrecio;
+import indexes.IndicesSecundarios;
+import model.Producto.Producto;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Consulta sobre el catálogo de productos que combina tipo, rango de precios,
+ * prefijo de nombre, orden y límite en una sola operación.
+ *
+ * Antes de ejecutarse elige el camino de acceso más barato entre los índices
+ * disponibles (tipo, precio, nombre o recorrido completo). Si el índice elegido ya
+ * entrega el orden pedido, el límite corta el recorrido; si no, el límite se resuelve
+ * con un top-N acotado en lugar de ordenar todo. La lista maestra nunca se reordena.
+ *
+ * Se obtiene desde ProductoManager.consulta() y el plan elegido puede verse con {@link #explicar()}.
+ * La consulta solo guarda los criterios: el plan y el resultado los calcula ProductoManager
+ * con el catálogo bloqueado, sobre los índices vigentes en ese momento, así que una consulta
+ * creada antes de recargar el catálogo se ejecuta sobre el catálogo nuevo.
+ *
+ * @author joaxx
+ */
+public class Consulta {
+
+    private final Function<Consulta, PlanConsulta> planificador;
+    private final Function<Consulta, List<Producto>> ejecutor;
+
+    private Class<? extends Producto> tipo;
+    private boolean conPrecio = false;
+    private double desde = Double.NEGATIVE_INFINITY;
+    private double hasta = Double.POSITIVE_INFINITY;
+    private String prefijo;
+    private Comparator<Producto> orden;
+    private int limite = -1; // -1 indica sin límite
+
+    /**
+     * Constructor de la consulta.
+     *
+     * @param planificador Calcula el plan de la consulta con el catálogo bloqueado.
+     * @param ejecutor Ejecuta la consulta con el catálogo bloqueado.
+     */
+    public Consulta(Function<Consulta, PlanConsulta> planificador, Function<Consulta, List<Producto>> ejecutor) {
+        this.planificador = planificador;
+        this.ejecutor = ejecutor;
+    }
+
+    /**
+     * Restringe el resultado a productos de un tipo.
+     *
+     * @param tipo Clase del tipo de producto deseado.
+     * @return Esta consulta.
+     */
+    public Consulta tipo(Class<? extends Producto> tipo) {
+        this.tipo = tipo;
+        return this;
+    }
+
+    /**
+     * Restringe el resultado a productos con precio en [desde, hasta).
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Esta consulta.
+     */
+    public Consulta precioEntre(double desde, double hasta) {
+        this.conPrecio = true;
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    /**
+     * Restringe el resultado a productos cuyo nombre comienza con un prefijo.
+     *
+     * @param prefijo Prefijo del nombre, distinguiendo mayúsculas y minúsculas.
+     * @return Esta consulta.
+     */
+    public Consulta nombreComienzaCon(String prefijo) {
+        this.prefijo = prefijo;
+        return this;
+    }
+
+    /**
+     * Define el orden del resultado.
+     * ComparadorPorPrecio y ComparadorPorNombre pueden resolverse con los índices.
+     *
+     * @param orden Comparador para ordenar el resultado.
+     * @return Esta consulta.
+     */
+    public Consulta ordenarPor(Comparator<Producto> orden) {
+        this.orden = orden;
+        return this;
+    }
+
+    /**
+     * Limita la cantidad de resultados.
+     *
+     * @param limite Cantidad máxima de resultados.
+     * @return Esta consulta.
+     * @throws IllegalArgumentException Si el límite es negativo.
+     */
+    public Consulta limite(int limite) {
+        if (limite < 0) {
+            throw new IllegalArgumentException("El límite no puede ser negativo: " + limite);
+        }
+        this.limite = limite;
+        return this;
+    }
+
+    /**
+     * Calcula el plan que se usaría para ejecutar la consulta, sin ejecutarla.
+     *
+     * @return Plan elegido.
+     */
+    public PlanConsulta explicar() {
+        return planificador.apply(this);
+    }
+
+    /**
+     * Ejecuta la consulta según el plan elegido.
+     *
+     * @return Lista de productos que cumplen la consulta, en el orden pedido.
+     */
+    public List<Producto> ejecutar() {
+        return ejecutor.apply(this);
+    }
+
+    /**
+     * Calcula el plan sobre unos índices. Quien llama debe impedir que el catálogo
+     * cambie mientras tanto; ProductoManager lo llama con el catálogo bloqueado.
+     *
+     * @param indices Índices secundarios vigentes del catálogo.
+     * @param total Cantidad de productos del catálogo.
+     * @return Plan elegido.
+     */
+    public PlanConsulta planear(IndicesSecundarios indices, int total) {
+        PlanConsulta.Acceso acceso = PlanConsulta.Acceso.RECORRIDO_COMPLETO;
+        int estimado = total;
+        int enRangoPrecio = total;
+        int conPrefijo = total;
+
+        if (tipo != null) {
+            int c = indices.cantidadPorTipo(tipo);
+            if (c < estimado) {
+                acceso = PlanConsulta.Acceso.INDICE_TIPO;
+                estimado = c;
+            }
+        }
+        if (conPrecio) {
+            enRangoPrecio = indices.contarRangoPrecio(desde, hasta, estimado);
+            if (enRangoPrecio < estimado) {
+                acceso = PlanConsulta.Acceso.INDICE_PRECIO;
+                estimado = enRangoPrecio;
+            }
+        }
+        if (prefijo != null) {
+            conPrefijo = indices.contarPrefijo(prefijo, estimado);
+            if (conPrefijo < estimado) {
+                acceso = PlanConsulta.Acceso.INDICE_NOMBRE;
+                estimado = conPrefijo;
+            }
+        }
+
+        // Con límite, recorrer el índice que ya entrega el orden pedido puede cortar antes
+        PlanConsulta.Acceso ordenado = accesoOrdenado();
+        if (ordenado != null && limite >= 0 && ordenado != acceso) {
+            int rango = ordenado == PlanConsulta.Acceso.INDICE_PRECIO ? enRangoPrecio : conPrefijo;
+            long costo = Math.min(rango, (long) limite * rango / Math.max(estimado, 1));
+            if (costo < estimado) {
+                acceso = ordenado;
+                estimado = (int) costo;
+            }
+        }
+
+        List<String> filtros = new ArrayList<>();
+        if (tipo != null && acceso != PlanConsulta.Acceso.INDICE_TIPO) {
+            filtros.add("tipo " + tipo.getSimpleName());
+        }
+        if (conPrecio && acceso != PlanConsulta.Acceso.INDICE_PRECIO) {
+            filtros.add("precio en [" + desde + ", " + hasta + ")");
+        }
+        if (prefijo != null && acceso != PlanConsulta.Acceso.INDICE_NOMBRE) {
+            filtros.add("nombre comienza con \"" + prefijo + "\"");
+        }
+
+        PlanConsulta.Orden modo;
+        if (orden == null) {
+            modo = PlanConsulta.Orden.SIN_ORDEN;
+        } else if (acceso == ordenado) {
+            modo = PlanConsulta.Orden.ORDEN_DEL_INDICE;
+        } else if (limite >= 0 && limite < estimado) {
+            modo = PlanConsulta.Orden.TOP_N_ACOTADO; // Con un límite mayor que lo estimado, el montículo no ahorra nada
+        } else {
+            modo = PlanConsulta.Orden.ORDENAMIENTO_TOTAL;
+        }
+        return new PlanConsulta(acceso, estimado, filtros, modo, limite);
+    }
+
+    /**
+     * Ejecuta la consulta sobre unos índices. Quien llama debe impedir que el catálogo
+     * cambie mientras tanto; ProductoManager lo llama con el catálogo bloqueado.
+     *
+     * @param indices Índices secundarios vigentes del catálogo.
+     * @param total Cantidad de productos del catálogo.
+     * @param todos Proveedor de la lista completa, para el recorrido completo.
+     * @return Lista de productos que cumplen la consulta, en el orden pedido.
+     */
+    public List<Producto> resolver(IndicesSecundarios indices, int total, Supplier<List<Producto>> todos) {
+        PlanConsulta plan = planear(indices, total);
+        List<Producto> resultado = new ArrayList<>();
+        if (limite == 0) {
+            return resultado;
+        }
+        Predicate<Producto> filtro = filtroResidual(plan.getAcceso());
+        Iterable<Producto> candidatos = candidatos(plan.getAcceso(), indices, todos);
+
+        switch (plan.getOrden()) {
+            case TOP_N_ACOTADO: {
+                // Montículo con el peor de los N primeros en la cima
+                PriorityQueue<Producto> mejores = new PriorityQueue<>(Math.min(limite, 1024) + 1, orden.reversed());
+                for (Producto p : candidatos) {
+                    if (filtro.test(p)) {
+                        mejores.offer(p);
+                        if (mejores.size() > limite) {
+                            mejores.poll();
+                        }
+                    }
+                }
+                resultado.addAll(mejores);
+                resultado.sort(orden);
+                return resultado;
+            }
+            case ORDENAMIENTO_TOTAL:
+                for (Producto p : candidatos) {
+                    if (filtro.test(p)) {
+                        resultado.add(p);
+                    }
+                }
+                resultado.sort(orden);
+                return limite >= 0 && resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+            default:
+                for (Producto p : candidatos) {
+                    if (filtro.test(p)) {
+                        resultado.add(p);
+                        if (resultado.size() == limite) {
+                            break;
+                        }
+                    }
+                }
+                return resultado;
+        }
+    }
+
+    /**
+     * Indica qué índice entrega los productos en el orden pedido.
+     *
+     * @return Índice que resuelve el orden, o null si ninguno lo hace.
+     */
+    private PlanConsulta.Acceso accesoOrdenado() {
+        if (orden instanceof ComparadorPorPrecio) {
+            return PlanConsulta.Acceso.INDICE_PRECIO;
+        }
+        if (orden instanceof ComparadorPorNombre) {
+            return PlanConsulta.Acceso.INDICE_NOMBRE;
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene los candidatos según el camino de acceso.
+     * Los índices de precio y nombre se recorren completos si la consulta no restringe ese campo.
+     *
+     * @param acceso Camino de acceso.
+     * @param indices Índices secundarios del catálogo.
+     * @param todos Proveedor de la lista completa.
+     * @return Candidatos a revisar.
+     */
+    private Iterable<Producto> candidatos(PlanConsulta.Acceso acceso, IndicesSecundarios indices,
+            Supplier<List<Producto>> todos) {
+        switch (acceso) {
+            case INDICE_TIPO:
+                return indices.iterarPorTipo(tipo);
+            case INDICE_PRECIO:
+                return indices.iterarRangoPrecio(desde, hasta);
+            case INDICE_NOMBRE:
+                return indices.iterarPrefijo(prefijo != null ? prefijo : "");
+            default:
+                return todos.get();
+        }
+    }
+
+    /**
+     * Construye el filtro con las restricciones que el camino de acceso no garantiza.
+     *
+     * @param acceso Camino de acceso.
+     * @return Predicado a evaluar sobre cada candidato.
+     */
+    private Predicate<Producto> filtroResidual(PlanConsulta.Acceso acceso) {
+        Predicate<Producto> filtro = p -> true;
+        if (tipo != null && acceso != PlanConsulta.Acceso.INDICE_TIPO) {
+            Class<? extends Producto> t = tipo;
+            filtro = filtro.and(t::isInstance);
+        }
+        if (conPrecio && acceso != PlanConsulta.Acceso.INDICE_PRECIO) {
+            double d = desde;
+            double h = hasta;
+            filtro = filtro.and(p -> p.getPrecio() >= d && p.getPrecio() < h);
+        }
+        if (prefijo != null && acceso != PlanConsulta.Acceso.INDICE_NOMBRE) {
+            String pre = prefijo;
+            filtro = filtro.and(p -> p.getNombre() != null && p.getNombre().startsWith(pre));
+        }
+        return filtro;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import java.util.List;
+
+/**
+ * Plan elegido para ejecutar una Consulta.
+ * Indica el camino de acceso, la cantidad estimada de candidatos a revisar,
+ * los filtros que se evalúan sobre cada candidato y cómo se resuelve el orden.
+ *
+ * @author joaxx
+ */
+public class PlanConsulta {
+
+    /**
+     * Caminos de acceso disponibles para obtener los candidatos.
+     */
+    public enum Acceso {
+        RECORRIDO_COMPLETO, // Recorre todo el catálogo.
+        INDICE_TIPO,        // Recorre el grupo de productos del tipo pedido.
+        INDICE_PRECIO,      // Recorre el rango del índice por precio.
+        INDICE_NOMBRE       // Recorre el rango del índice por nombre.
+    }
+
+    /**
+     * Formas de resolver el orden del resultado.
+     */
+    public enum Orden {
+        SIN_ORDEN,          // Se respeta el orden del camino de acceso.
+        ORDEN_DEL_INDICE,   // El índice ya entrega el orden pedido; el límite corta el recorrido.
+        TOP_N_ACOTADO,      // Se conservan solo los primeros N en un montículo.
+        ORDENAMIENTO_TOTAL  // Se ordena una copia de todos los resultados y se corta en el límite, si lo hay.
+    }
+
+    private final Acceso acceso;
+    private final int estimado;
+    private final List<String> filtros;
+    private final Orden orden;
+    private final int limite;
+
+    /**
+     * Constructor del plan.
+     *
+     * @param acceso Camino de acceso elegido.
+     * @param estimado Cantidad estimada de candidatos a revisar.
+     * @param filtros Descripción de los filtros evaluados sobre cada candidato.
+     * @param orden Forma de resolver el orden.
+     * @param limite Cantidad máxima de resultados, o -1 si no hay límite.
+     */
+    public PlanConsulta(Acceso acceso, int estimado, List<String> filtros, Orden orden, int limite) {
+        this.acceso = acceso;
+        this.estimado = estimado;
+        this.filtros = List.copyOf(filtros);
+        this.orden = orden;
+        this.limite = limite;
+    }
+
+    /**
+     * Obtiene el camino de acceso elegido.
+     *
+     * @return Camino de acceso.
+     */
+    public Acceso getAcceso() {
+        return acceso;
+    }
+
+    /**
+     * Obtiene la cantidad estimada de candidatos a revisar.
+     *
+     * @return Cantidad estimada.
+     */
+    public int getEstimado() {
+        return estimado;
+    }
+
+    /**
+     * Obtiene los filtros evaluados sobre cada candidato.
+     *
+     * @return Lista inmodificable con la descripción de cada filtro.
+     */
+    public List<String> getFiltros() {
+        return filtros;
+    }
+
+    /**
+     * Obtiene la forma de resolver el orden.
+     *
+     * @return Forma de ordenamiento.
+     */
+    public Orden getOrden() {
+        return orden;
+    }
+
+    /**
+     * Obtiene el límite de resultados.
+     *
+     * @return Límite, o -1 si no hay límite.
+     */
+    public int getLimite() {
+        return limite;
+    }
+
+    /**
+     * Devuelve una descripción legible del plan.
+     *
+     * @return Descripción del plan.
+     */
+    @Override
+    public String toString() {
+        return "Acceso: " + acceso + " (~" + estimado + " candidatos)"
+                + ", filtros: " + (filtros.isEmpty() ? "ninguno" : String.join(" y ", filtros))
+                + ", orden: " + orden
+                + ", límite: " + (limite < 0 ? "sin límite" : limite);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Operaciones de filtrado y aplicación de acciones ejecutadas en paralelo con fork-join.
+ *
+ * La lista se divide en bloques de tamaño umbral; cada bloque se procesa en forma
+ * secuencial y los bloques se reparten entre los hilos del pool común. Con listas
+ * más chicas que el umbral todo se ejecuta en el hilo que llama.
+ * Los resultados del filtrado conservan el orden de la lista original.
+ *
+ * @author joaxx
+ */
+public class ProcesamientoParalelo {
+
+    /**
+     * Filtra una lista en paralelo, conservando el orden original.
+     *
+     * @param lista Lista de acceso aleatorio a filtrar.
+     * @param filtro Predicado sin efectos secundarios.
+     * @param umbral Tamaño de bloque por debajo del cual no se divide el trabajo.
+     * @param <T> Tipo de los elementos.
+     * @return Lista con los elementos que cumplen el filtro.
+     */
+    public static <T> List<T> filtrar(List<? extends T> lista, Predicate<? super T> filtro, int umbral) {
+        int bloque = Math.max(1, umbral);
+        int bloques = Math.ceilDiv(lista.size(), bloque);
+        List<List<T>> parciales = new ArrayList<>(bloques);
+        for (int i = 0; i < bloques; i++) {
+            parciales.add(null);
+        }
+        ejecutar(b -> {
+            int fin = finDeBloque(lista, b, bloque);
+            List<T> parcial = new ArrayList<>();
+            for (int i = b * bloque; i < fin; i++) {
+                T elemento = lista.get(i);
+                if (filtro.test(elemento)) {
+                    parcial.add(elemento);
+                }
+            }
+            parciales.set(b, parcial);
+        }, bloques);
+
+        int total = 0;
+        for (List<T> parcial : parciales) {
+            total += parcial.size();
+        }
+        List<T> resultado = new ArrayList<>(total);
+        for (List<T> parcial : parciales) {
+            resultado.addAll(parcial);
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica una acción a cada elemento de una lista en paralelo.
+     * Cada elemento es procesado por un único hilo, por lo que la acción puede
+     * modificarlo sin sincronización mientras no acceda a otros elementos.
+     *
+     * @param lista Lista de acceso aleatorio.
+     * @param accion Acción a aplicar a cada elemento.
+     * @param umbral Tamaño de bloque por debajo del cual no se divide el trabajo.
+     * @param <T> Tipo de los elementos.
+     */
+    public static <T> void aplicar(List<? extends T> lista, Consumer<? super T> accion, int umbral) {
+        aplicar(lista, accion, umbral, null);
+    }
+
+    /**
+     * Aplica una acción a cada elemento de una lista en paralelo, informando al terminar
+     * cada bloque la fracción de elementos procesados.
+     *
+     * @param lista Lista de acceso aleatorio.
+     * @param accion Acción a aplicar a cada elemento.
+     * @param umbral Tamaño de bloque por debajo del cual no se divide el trabajo.
+     * @param avance Recibe la fracción procesada entre 0 y 1, desde el hilo que terminó
+     *               el bloque; puede ser null.
+     * @param <T> Tipo de los elementos.
+     * @see #aplicar(List, Consumer, int)
+     */
+    public static <T> void aplicar(List<? extends T> lista, Consumer<? super T> accion, int umbral, DoubleConsumer avance) {
+        int bloque = Math.max(1, umbral);
+        int bloques = Math.ceilDiv(lista.size(), bloque);
+        AtomicLong procesados = new AtomicLong();
+        ejecutar(b -> {
+            int inicio = b * bloque;
+            int fin = finDeBloque(lista, b, bloque);
+            for (int i = inicio; i < fin; i++) {
+                accion.accept(lista.get(i));
+            }
+            if (avance != null) {
+                avance.accept((double) procesados.addAndGet(fin - inicio) / lista.size());
+            }
+        }, bloques);
+    }
+
+    /**
+     * Calcula el fin de un bloque sin desbordar con umbrales cercanos a Integer.MAX_VALUE.
+     * El inicio del bloque, b * bloque, es menor que el tamaño de la lista y no desborda.
+     *
+     * @param lista Lista dividida en bloques.
+     * @param b Índice del bloque.
+     * @param bloque Tamaño de bloque.
+     * @return Posición siguiente al último elemento del bloque.
+     */
+    private static int finDeBloque(List<?> lista, int b, int bloque) {
+        return (int) Math.min(lista.size(), (long) (b + 1) * bloque);
+    }
+
+    /**
+     * Procesa todos los bloques, en el hilo actual si hay uno solo o en el pool común si hay varios.
+     *
+     * @param procesarBloque Acción que procesa un bloque a partir de su índice.
+     * @param bloques Cantidad de bloques.
+     */
+    private static void ejecutar(IntConsumer procesarBloque, int bloques) {
+        if (bloques == 1) {
+            procesarBloque.accept(0);
+        } else if (bloques > 1) {
+            ForkJoinPool.commonPool().invoke(new TareaBloques(procesarBloque, 0, bloques));
+        }
+    }
+
+    /**
+     * Tarea fork-join que divide un rango de bloques a la mitad hasta llegar a un solo bloque.
+     */
+    private static class TareaBloques extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient IntConsumer procesarBloque; // Las tareas no se serializan
+        private final int desde;
+        private final int hasta;
+
+        /**
+         * Constructor de la tarea.
+         *
+         * @param procesarBloque Acción que procesa un bloque a partir de su índice.
+         * @param desde Primer bloque, incluido.
+         * @param hasta Último bloque, excluido.
+         */
+        TareaBloques(IntConsumer procesarBloque, int desde, int hasta) {
+            this.procesarBloque = procesarBloque;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde == 1) {
+                procesarBloque.accept(desde);
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new TareaBloques(procesarBloque, desde, medio),
+                      new TareaBloques(procesarBloque, medio, hasta));
+        }
+    }
+}
@@ -0,0 +1,587 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Árbol B+ de claves enteras y valores de largo variable, guardado en páginas de un BufferPaginas.
+ *
+ * Las hojas guardan los valores junto a sus claves y están encadenadas en orden, por lo que
+ * buscar, insertar y eliminar leen una página por nivel y recorrer todo lee cada hoja una vez.
+ *
+ * Hoja: tipo, cantidad, hoja siguiente, inicio de las celdas y un arreglo de ranuras
+ * ordenado por clave [clave][posición][largo]; los valores se guardan desde el final de la
+ * página hacia adelante y se mantienen contiguos. Nodo interno: tipo, cantidad, primer hijo
+ * y un arreglo ordenado [clave][hijo], donde el hijo contiene las claves mayores o iguales.
+ *
+ * Cuando una hoja se llena se divide por la mitad de sus bytes; si se agrega la mayor clave
+ * en la última hoja (el caso de los IDs autoincrementales), la hoja queda llena y la clave
+ * nueva empieza otra. Las páginas que quedan vacías al eliminar no se fusionan.
+ *
+ * No es seguro usarlo desde varios hilos a la vez.
+ *
+ * @author joaxx
+ */
+class ArbolBMas {
+
+    private static final byte HOJA = 1;
+    private static final byte INTERNO = 2;
+    private static final int SIN_PAGINA = -1;
+
+    private static final int POS_TIPO = 0;
+    private static final int POS_CANTIDAD = 2;
+    // Hoja
+    private static final int POS_SIGUIENTE = 4;
+    private static final int POS_INICIO_CELDAS = 8;
+    private static final int INICIO_RANURAS_HOJA = 12;
+    private static final int TAMANIO_RANURA_HOJA = 8;
+    // Nodo interno
+    private static final int POS_PRIMER_HIJO = 4;
+    private static final int INICIO_RANURAS_INTERNO = 8;
+    private static final int TAMANIO_RANURA_INTERNO = 8;
+
+    private static final int PROFUNDIDAD_MAXIMA = 32;
+
+    private final BufferPaginas buffer;
+    private final int tamanioPagina;
+    private final int maximoClavesInterno;
+    private int raiz;
+
+    // Nodos internos recorridos en el último descenso, desde la raíz
+    private final int[] camino = new int[PROFUNDIDAD_MAXIMA];
+    private int profundidad;
+
+    /**
+     * Constructor sobre un árbol existente.
+     *
+     * @param buffer Buffer de páginas del archivo.
+     * @param tamanioPagina Tamaño de cada página en bytes, como máximo 65535.
+     * @param raiz Página raíz del árbol.
+     */
+    ArbolBMas(BufferPaginas buffer, int tamanioPagina, int raiz) {
+        this.buffer = buffer;
+        this.tamanioPagina = tamanioPagina;
+        this.maximoClavesInterno = (tamanioPagina - INICIO_RANURAS_INTERNO) / TAMANIO_RANURA_INTERNO;
+        this.raiz = raiz;
+    }
+
+    /**
+     * Crea un árbol vacío: una hoja raíz sin claves.
+     *
+     * @param buffer Buffer de páginas del archivo.
+     * @param tamanioPagina Tamaño de cada página en bytes.
+     * @return Página raíz del árbol nuevo.
+     * @throws IOException Si ocurre un error al reservar la página.
+     */
+    static int crear(BufferPaginas buffer, int tamanioPagina) throws IOException {
+        int pagina = buffer.nuevaPagina();
+        iniciarHoja(buffer.fijar(pagina), tamanioPagina, SIN_PAGINA);
+        buffer.soltar(pagina, true);
+        return pagina;
+    }
+
+    /**
+     * Obtiene la página raíz, que cambia cuando la raíz se divide.
+     *
+     * @return Página raíz.
+     */
+    int getRaiz() {
+        return raiz;
+    }
+
+    /**
+     * Obtiene el mayor largo de valor admitido, un cuarto de la página,
+     * lo que asegura que cada mitad de una hoja dividida tenga lugar.
+     *
+     * @return Largo máximo en bytes.
+     */
+    int largoMaximo() {
+        return (tamanioPagina - INICIO_RANURAS_HOJA) / 4 - TAMANIO_RANURA_HOJA;
+    }
+
+    /**
+     * Busca el valor de una clave.
+     *
+     * @param clave Clave a buscar.
+     * @return Copia del valor, o null si la clave no existe.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    byte[] buscar(int clave) throws IOException {
+        int hoja = descender(clave);
+        ByteBuffer p = buffer.fijar(hoja);
+        try {
+            int i = buscarEnHoja(p, clave);
+            return i < 0 ? null : valor(p, i);
+        } finally {
+            buffer.soltar(hoja, false);
+        }
+    }
+
+    /**
+     * Inserta una clave nueva.
+     *
+     * @param clave Clave a insertar.
+     * @param valor Valor de la clave.
+     * @return false si la clave ya existía; en ese caso no se modifica.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     * @throws IllegalArgumentException Si el valor supera el largo máximo.
+     */
+    boolean insertar(int clave, byte[] valor) throws IOException {
+        return poner(clave, valor, false);
+    }
+
+    /**
+     * Reemplaza el valor de una clave existente.
+     *
+     * @param clave Clave a reemplazar.
+     * @param valor Valor nuevo.
+     * @return false si la clave no existía; en ese caso no se inserta.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     * @throws IllegalArgumentException Si el valor supera el largo máximo.
+     */
+    boolean reemplazar(int clave, byte[] valor) throws IOException {
+        return poner(clave, valor, true);
+    }
+
+    /**
+     * Elimina una clave.
+     *
+     * @param clave Clave a eliminar.
+     * @return false si la clave no existía.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    boolean eliminar(int clave) throws IOException {
+        int hoja = descender(clave);
+        ByteBuffer p = buffer.fijar(hoja);
+        boolean encontrada = false;
+        try {
+            int i = buscarEnHoja(p, clave);
+            if (i >= 0) {
+                quitarCelda(p, i);
+                encontrada = true;
+            }
+            return encontrada;
+        } finally {
+            buffer.soltar(hoja, encontrada);
+        }
+    }
+
+    /**
+     * Recorre todos los valores en orden de clave, leyendo cada hoja una vez.
+     *
+     * @param accion Acción que recibe cada valor.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    void recorrer(Consumer<byte[]> accion) throws IOException {
+        int pagina = raiz;
+        while (true) {
+            ByteBuffer p = buffer.fijar(pagina);
+            int siguiente;
+            try {
+                siguiente = p.get(POS_TIPO) == HOJA ? SIN_PAGINA : p.getInt(POS_PRIMER_HIJO);
+            } finally {
+                buffer.soltar(pagina, false);
+            }
+            if (siguiente == SIN_PAGINA) {
+                break;
+            }
+            pagina = siguiente;
+        }
+        List<byte[]> valores = new ArrayList<>();
+        while (pagina != SIN_PAGINA) {
+            ByteBuffer p = buffer.fijar(pagina);
+            int actual = pagina;
+            try {
+                for (int i = 0, n = cantidad(p); i < n; i++) {
+                    valores.add(valor(p, i));
+                }
+                pagina = p.getInt(POS_SIGUIENTE);
+            } finally {
+                buffer.soltar(actual, false);
+            }
+            valores.forEach(accion); // Sin páginas fijadas mientras corre la acción
+            valores.clear();
+        }
+    }
+
+    /**
+     * Inserta o reemplaza una clave según el modo indicado.
+     *
+     * @param clave Clave a poner.
+     * @param valor Valor de la clave.
+     * @param reemplazo true para reemplazar una clave existente, false para insertar una nueva.
+     * @return true si la operación se realizó.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    private boolean poner(int clave, byte[] valor, boolean reemplazo) throws IOException {
+        if (valor.length > largoMaximo()) {
+            throw new IllegalArgumentException("El valor ocupa " + valor.length
+                    + " bytes y el máximo por página es " + largoMaximo());
+        }
+        int hoja = descender(clave);
+        ByteBuffer p = buffer.fijar(hoja);
+        boolean modificada = false;
+        try {
+            int i = buscarEnHoja(p, clave);
+            if ((i >= 0) != reemplazo) {
+                return false;
+            }
+            modificada = true;
+            if (i >= 0) {
+                quitarCelda(p, i);
+            } else {
+                i = -i - 1;
+            }
+            if (libre(p) >= valor.length + TAMANIO_RANURA_HOJA) {
+                insertarCelda(p, i, clave, valor);
+            } else {
+                dividirHoja(p, i, clave, valor);
+            }
+            return true;
+        } finally {
+            buffer.soltar(hoja, modificada);
+        }
+    }
+
+    /**
+     * Baja desde la raíz hasta la hoja que corresponde a una clave,
+     * guardando los nodos internos recorridos en el camino.
+     *
+     * @param clave Clave buscada.
+     * @return Página de la hoja.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    private int descender(int clave) throws IOException {
+        profundidad = 0;
+        int pagina = raiz;
+        while (true) {
+            ByteBuffer p = buffer.fijar(pagina);
+            int hijo;
+            try {
+                if (p.get(POS_TIPO) == HOJA) {
+                    return pagina;
+                }
+                if (profundidad == PROFUNDIDAD_MAXIMA) {
+                    throw new IOException("El árbol supera la profundidad máxima; el archivo está dañado");
+                }
+                camino[profundidad++] = pagina;
+                hijo = hijoPara(p, clave);
+            } finally {
+                buffer.soltar(pagina, false);
+            }
+            pagina = hijo;
+        }
+    }
+
+    /**
+     * Divide una hoja llena e inserta la clave nueva en la mitad que corresponde.
+     * La clave separadora se agrega al nodo padre.
+     *
+     * @param p Hoja llena, fijada.
+     * @param posicion Posición de la clave nueva en la hoja.
+     * @param clave Clave nueva.
+     * @param valor Valor de la clave nueva.
+     * @throws IOException Si ocurre un error al reservar o escribir páginas.
+     */
+    private void dividirHoja(ByteBuffer p, int posicion, int clave, byte[] valor) throws IOException {
+        int n = cantidad(p);
+        int[] claves = new int[n + 1];
+        byte[][] valores = new byte[n + 1][];
+        int total = 0;
+        for (int i = 0, j = 0; j <= n; j++) {
+            if (j == posicion) {
+                claves[j] = clave;
+                valores[j] = valor;
+            } else {
+                claves[j] = claveHoja(p, i);
+                valores[j] = valor(p, i++);
+            }
+            total += valores[j].length + TAMANIO_RANURA_HOJA;
+        }
+
+        int corte;
+        int siguiente = p.getInt(POS_SIGUIENTE);
+        if (posicion == n && siguiente == SIN_PAGINA) {
+            corte = n; // Inserción al final: la hoja actual queda llena
+        } else {
+            int acumulado = 0;
+            corte = 0;
+            while (corte < n && acumulado + valores[corte].length + TAMANIO_RANURA_HOJA <= total / 2) {
+                acumulado += valores[corte++].length + TAMANIO_RANURA_HOJA;
+            }
+            corte = Math.max(1, corte);
+        }
+
+        int nueva = buffer.nuevaPagina();
+        ByteBuffer q = buffer.fijar(nueva);
+        try {
+            iniciarHoja(q, tamanioPagina, siguiente);
+            for (int j = corte; j <= n; j++) {
+                insertarCelda(q, j - corte, claves[j], valores[j]);
+            }
+        } finally {
+            buffer.soltar(nueva, true);
+        }
+        iniciarHoja(p, tamanioPagina, nueva);
+        for (int j = 0; j < corte; j++) {
+            insertarCelda(p, j, claves[j], valores[j]);
+        }
+        insertarEnPadre(claves[corte], nueva);
+    }
+
+    /**
+     * Agrega una clave separadora y su hijo derecho al padre del último descenso,
+     * dividiendo los nodos internos llenos hacia arriba y creando una raíz nueva si hace falta.
+     *
+     * @param clave Clave separadora.
+     * @param hijo Página con las claves mayores o iguales a la separadora.
+     * @throws IOException Si ocurre un error al leer o escribir páginas.
+     */
+    private void insertarEnPadre(int clave, int hijo) throws IOException {
+        for (int nivel = profundidad - 1; nivel >= 0; nivel--) {
+            int pagina = camino[nivel];
+            ByteBuffer p = buffer.fijar(pagina);
+            try {
+                int n = cantidad(p);
+                int posicion = posicionInterna(p, clave);
+                if (n < maximoClavesInterno) {
+                    insertarRanuraInterna(p, posicion, clave, hijo);
+                    return;
+                }
+                int[] claves = new int[n + 1];
+                int[] hijos = new int[n + 2];
+                hijos[0] = p.getInt(POS_PRIMER_HIJO);
+                for (int i = 0, j = 0; j <= n; j++) {
+                    if (j == posicion) {
+                        claves[j] = clave;
+                        hijos[j + 1] = hijo;
+                    } else {
+                        claves[j] = claveInterna(p, i);
+                        hijos[j + 1] = hijoInterno(p, i++);
+                    }
+                }
+                int medio = (n + 1) / 2;
+                int nueva = buffer.nuevaPagina();
+                ByteBuffer q = buffer.fijar(nueva);
+                try {
+                    iniciarInterno(q, hijos[medio + 1]);
+                    for (int j = medio + 1; j <= n; j++) {
+                        insertarRanuraInterna(q, j - medio - 1, claves[j], hijos[j + 1]);
+                    }
+                } finally {
+                    buffer.soltar(nueva, true);
+                }
+                iniciarInterno(p, hijos[0]);
+                for (int j = 0; j < medio; j++) {
+                    insertarRanuraInterna(p, j, claves[j], hijos[j + 1]);
+                }
+                clave = claves[medio]; // Sube al nivel siguiente sin quedar en ninguna mitad
+                hijo = nueva;
+            } finally {
+                buffer.soltar(pagina, true);
+            }
+        }
+        int nuevaRaiz = buffer.nuevaPagina();
+        ByteBuffer r = buffer.fijar(nuevaRaiz);
+        try {
+            iniciarInterno(r, raiz);
+            insertarRanuraInterna(r, 0, clave, hijo);
+        } finally {
+            buffer.soltar(nuevaRaiz, true);
+        }
+        raiz = nuevaRaiz;
+    }
+
+    /**
+     * Prepara una página como hoja vacía.
+     *
+     * @param p Página.
+     * @param tamanioPagina Tamaño de la página.
+     * @param siguiente Hoja siguiente, o SIN_PAGINA.
+     */
+    private static void iniciarHoja(ByteBuffer p, int tamanioPagina, int siguiente) {
+        p.put(POS_TIPO, HOJA);
+        p.putShort(POS_CANTIDAD, (short) 0);
+        p.putInt(POS_SIGUIENTE, siguiente);
+        p.putInt(POS_INICIO_CELDAS, tamanioPagina);
+    }
+
+    /**
+     * Prepara una página como nodo interno sin claves.
+     *
+     * @param p Página.
+     * @param primerHijo Hijo con las claves menores a todas las del nodo.
+     */
+    private static void iniciarInterno(ByteBuffer p, int primerHijo) {
+        p.put(POS_TIPO, INTERNO);
+        p.putShort(POS_CANTIDAD, (short) 0);
+        p.putInt(POS_PRIMER_HIJO, primerHijo);
+    }
+
+    private static int cantidad(ByteBuffer p) {
+        return p.getShort(POS_CANTIDAD) & 0xFFFF;
+    }
+
+    private static int claveHoja(ByteBuffer p, int i) {
+        return p.getInt(INICIO_RANURAS_HOJA + i * TAMANIO_RANURA_HOJA);
+    }
+
+    private static int claveInterna(ByteBuffer p, int i) {
+        return p.getInt(INICIO_RANURAS_INTERNO + i * TAMANIO_RANURA_INTERNO);
+    }
+
+    private static int hijoInterno(ByteBuffer p, int i) {
+        return p.getInt(INICIO_RANURAS_INTERNO + i * TAMANIO_RANURA_INTERNO + 4);
+    }
+
+    /**
+     * Copia el valor de una ranura de la hoja.
+     *
+     * @param p Hoja.
+     * @param i Ranura.
+     * @return Copia del valor.
+     */
+    private static byte[] valor(ByteBuffer p, int i) {
+        int ranura = INICIO_RANURAS_HOJA + i * TAMANIO_RANURA_HOJA;
+        byte[] valor = new byte[p.getShort(ranura + 6) & 0xFFFF];
+        p.get(p.getShort(ranura + 4) & 0xFFFF, valor);
+        return valor;
+    }
+
+    /**
+     * Bytes libres entre las ranuras y las celdas de una hoja.
+     *
+     * @param p Hoja.
+     * @return Bytes libres.
+     */
+    private static int libre(ByteBuffer p) {
+        return p.getInt(POS_INICIO_CELDAS) - (INICIO_RANURAS_HOJA + cantidad(p) * TAMANIO_RANURA_HOJA);
+    }
+
+    /**
+     * Busca una clave en una hoja por búsqueda binaria.
+     *
+     * @param p Hoja.
+     * @param clave Clave buscada.
+     * @return Ranura de la clave, o -(posición de inserción) - 1 si no está.
+     */
+    private static int buscarEnHoja(ByteBuffer p, int clave) {
+        int desde = 0;
+        int hasta = cantidad(p) - 1;
+        while (desde <= hasta) {
+            int medio = (desde + hasta) >>> 1;
+            int actual = claveHoja(p, medio);
+            if (actual < clave) {
+                desde = medio + 1;
+            } else if (actual > clave) {
+                hasta = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -desde - 1;
+    }
+
+    /**
+     * Cantidad de claves del nodo interno menores o iguales a la indicada.
+     *
+     * @param p Nodo interno.
+     * @param clave Clave buscada.
+     * @return Posición donde insertar la clave.
+     */
+    private static int posicionInterna(ByteBuffer p, int clave) {
+        int desde = 0;
+        int hasta = cantidad(p);
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (claveInterna(p, medio) <= clave) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    /**
+     * Elige el hijo de un nodo interno que puede contener una clave.
+     *
+     * @param p Nodo interno.
+     * @param clave Clave buscada.
+     * @return Página del hijo.
+     */
+    private static int hijoPara(ByteBuffer p, int clave) {
+        int posicion = posicionInterna(p, clave);
+        return posicion == 0 ? p.getInt(POS_PRIMER_HIJO) : hijoInterno(p, posicion - 1);
+    }
+
+    /**
+     * Inserta una celda en una hoja con lugar suficiente.
+     *
+     * @param p Hoja.
+     * @param i Ranura donde insertar.
+     * @param clave Clave.
+     * @param valor Valor.
+     */
+    private static void insertarCelda(ByteBuffer p, int i, int clave, byte[] valor) {
+        int n = cantidad(p);
+        int inicio = p.getInt(POS_INICIO_CELDAS) - valor.length;
+        p.put(inicio, valor);
+        p.putInt(POS_INICIO_CELDAS, inicio);
+        int ranura = INICIO_RANURAS_HOJA + i * TAMANIO_RANURA_HOJA;
+        p.put(ranura + TAMANIO_RANURA_HOJA, p, ranura, (n - i) * TAMANIO_RANURA_HOJA);
+        p.putInt(ranura, clave);
+        p.putShort(ranura + 4, (short) inicio);
+        p.putShort(ranura + 6, (short) valor.length);
+        p.putShort(POS_CANTIDAD, (short) (n + 1));
+    }
+
+    /**
+     * Quita una celda de una hoja, moviendo las celdas anteriores para que no queden huecos.
+     *
+     * @param p Hoja.
+     * @param i Ranura a quitar.
+     */
+    private static void quitarCelda(ByteBuffer p, int i) {
+        int n = cantidad(p);
+        int ranura = INICIO_RANURAS_HOJA + i * TAMANIO_RANURA_HOJA;
+        int posicion = p.getShort(ranura + 4) & 0xFFFF;
+        int largo = p.getShort(ranura + 6) & 0xFFFF;
+        int inicio = p.getInt(POS_INICIO_CELDAS);
+        p.put(inicio + largo, p, inicio, posicion - inicio);
+        p.putInt(POS_INICIO_CELDAS, inicio + largo);
+        for (int j = 0; j < n; j++) {
+            int r = INICIO_RANURAS_HOJA + j * TAMANIO_RANURA_HOJA + 4;
+            int otra = p.getShort(r) & 0xFFFF;
+            if (otra < posicion) {
+                p.putShort(r, (short) (otra + largo));
+            }
+        }
+        p.put(ranura, p, ranura + TAMANIO_RANURA_HOJA, (n - i - 1) * TAMANIO_RANURA_HOJA);
+        p.putShort(POS_CANTIDAD, (short) (n - 1));
+    }
+
+    /**
+     * Inserta una clave y su hijo derecho en un nodo interno con lugar suficiente.
+     *
+     * @param p Nodo interno.
+     * @param i Posición donde insertar.
+     * @param clave Clave separadora.
+     * @param hijo Hijo con las claves mayores o iguales.
+     */
+    private static void insertarRanuraInterna(ByteBuffer p, int i, int clave, int hijo) {
+        int n = cantidad(p);
+        int ranura = INICIO_RANURAS_INTERNO + i * TAMANIO_RANURA_INTERNO;
+        p.put(ranura + TAMANIO_RANURA_INTERNO, p, ranura, (n - i) * TAMANIO_RANURA_INTERNO);
+        p.putInt(ranura, clave);
+        p.putInt(ranura + 4, hijo);
+        p.putShort(POS_CANTIDAD, (short) (n + 1));
+    }
+}
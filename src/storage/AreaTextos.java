@@ -0,0 +1,334 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Diccionario de textos guardado fuera del heap, utilizado por ProductoManagerColumnar.
+ *
+ * Los textos se guardan en UTF-8 en un área de bytes contigua. Cada código tiene una
+ * entrada con el inicio y el largo de su texto, su hash y un contador de referencias.
+ * La búsqueda de texto a código usa una tabla de direccionamiento abierto con sondeo
+ * lineal, también fuera del heap, que solo guarda códigos.
+ *
+ * Cuando las referencias de un código llegan a cero, el código se quita de la tabla
+ * y queda libre para reutilizarse. Los bytes del texto quedan como basura hasta que
+ * superan a los bytes en uso; entonces el área se compacta copiando solo los textos vivos.
+ * Así la memoria ocupada queda acotada por los textos referenciados, aunque los productos
+ * se renombren o eliminen muchas veces.
+ *
+ * @author joaxx
+ */
+final class AreaTextos {
+
+    private static final int LIBRE = -1;
+    private static final long ANCHO_ENTRADA = 24; // inicio (long), largo, hash, referencias (int)
+    private static final long INICIO = 0;
+    private static final long LARGO = 8;
+    private static final long HASH = 12;
+    private static final long REFERENCIAS = 16;
+    private static final int ENTRADAS_INICIALES = 64;
+    private static final long BYTES_INICIALES = 4096;
+    private static final long BASURA_MINIMA = 1 << 16;
+
+    // Área de bytes con los textos en UTF-8
+    private MemorySegment bytes;
+    private long usados = 0;
+    private long basura = 0;
+
+    // Entradas por código y lista de códigos libres, enlazados por el campo inicio
+    private MemorySegment entradas;
+    private int codigos = 0;
+    private int libre = LIBRE;
+    private int vivos = 0;
+
+    // Tabla de búsqueda: código por ranura, LIBRE marca una ranura vacía
+    private MemorySegment tabla;
+
+    /**
+     * Constructor que inicializa el diccionario vacío.
+     */
+    AreaTextos() {
+        bytes = Arena.ofAuto().allocate(BYTES_INICIALES);
+        entradas = Arena.ofAuto().allocate(ENTRADAS_INICIALES * ANCHO_ENTRADA, Long.BYTES);
+        tabla = nuevaTabla(ENTRADAS_INICIALES * 2);
+    }
+
+    /**
+     * Obtiene el código de un texto y suma una referencia,
+     * agregando el texto al área si no estaba.
+     *
+     * @param texto Texto a codificar, no null.
+     * @return Código del texto.
+     */
+    int codificar(String texto) {
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        int hash = mezclar(texto.hashCode());
+        if ((vivos + 1) * 2L > ranuras()) {
+            redimensionarTabla(ranuras() * 2);
+        }
+        int mascara = ranuras() - 1;
+        int i = hash & mascara;
+        int codigo;
+        while ((codigo = tabla.getAtIndex(ValueLayout.JAVA_INT, i)) != LIBRE) {
+            if (entero(codigo, HASH) == hash && iguales(codigo, utf8)) {
+                fijarEntero(codigo, REFERENCIAS, entero(codigo, REFERENCIAS) + 1);
+                return codigo;
+            }
+            i = (i + 1) & mascara;
+        }
+        codigo = nuevoCodigo();
+        entradas.set(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO, escribirBytes(utf8));
+        fijarEntero(codigo, LARGO, utf8.length);
+        fijarEntero(codigo, HASH, hash);
+        fijarEntero(codigo, REFERENCIAS, 1);
+        tabla.setAtIndex(ValueLayout.JAVA_INT, i, codigo);
+        vivos++;
+        return codigo;
+    }
+
+    /**
+     * Quita una referencia a un código. Si era la última, el texto se descarta
+     * y el código queda libre para reutilizarse.
+     *
+     * @param codigo Código a soltar.
+     */
+    void soltar(int codigo) {
+        int referencias = entero(codigo, REFERENCIAS) - 1;
+        fijarEntero(codigo, REFERENCIAS, referencias);
+        if (referencias > 0) {
+            return;
+        }
+        quitarDeTabla(codigo);
+        basura += entero(codigo, LARGO);
+        entradas.set(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO, libre);
+        libre = codigo;
+        vivos--;
+        if (basura > BASURA_MINIMA && basura > usados - basura) {
+            compactar();
+        }
+    }
+
+    /**
+     * Obtiene el texto de un código.
+     *
+     * @param codigo Código del texto.
+     * @return Texto decodificado.
+     */
+    String decodificar(int codigo) {
+        long inicio = entradas.get(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO);
+        byte[] utf8 = bytes.asSlice(inicio, entero(codigo, LARGO)).toArray(ValueLayout.JAVA_BYTE);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Obtiene la cantidad de textos distintos referenciados.
+     *
+     * @return Cantidad de textos.
+     */
+    int cantidad() {
+        return vivos;
+    }
+
+    /**
+     * Obtiene los bytes reservados fuera del heap por el área, las entradas y la tabla.
+     *
+     * @return Bytes reservados.
+     */
+    long bytesReservados() {
+        return bytes.byteSize() + entradas.byteSize() + tabla.byteSize();
+    }
+
+    /**
+     * Obtiene un código libre, reutilizando uno soltado si lo hay.
+     *
+     * @return Código disponible.
+     */
+    private int nuevoCodigo() {
+        if (libre != LIBRE) {
+            int codigo = libre;
+            libre = (int) entradas.get(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO);
+            return codigo;
+        }
+        if ((codigos + 1) * ANCHO_ENTRADA > entradas.byteSize()) {
+            MemorySegment nuevas = Arena.ofAuto().allocate(entradas.byteSize() * 2, Long.BYTES);
+            MemorySegment.copy(entradas, 0, nuevas, 0, codigos * ANCHO_ENTRADA);
+            entradas = nuevas;
+        }
+        return codigos++;
+    }
+
+    /**
+     * Copia los bytes de un texto al final del área, agrandándola si hace falta.
+     *
+     * @param utf8 Bytes del texto.
+     * @return Posición donde quedó el texto.
+     */
+    private long escribirBytes(byte[] utf8) {
+        if (usados + utf8.length > bytes.byteSize()) {
+            long tamanio = bytes.byteSize();
+            while (usados + utf8.length > tamanio) {
+                tamanio *= 2;
+            }
+            MemorySegment nuevos = Arena.ofAuto().allocate(tamanio);
+            MemorySegment.copy(bytes, 0, nuevos, 0, usados);
+            bytes = nuevos;
+        }
+        long inicio = usados;
+        MemorySegment.copy(utf8, 0, bytes, ValueLayout.JAVA_BYTE, inicio, utf8.length);
+        usados += utf8.length;
+        return inicio;
+    }
+
+    /**
+     * Copia los textos vivos a un área nueva, descartando la basura.
+     * Los códigos no cambian, solo la posición de sus textos.
+     */
+    private void compactar() {
+        long tamanio = BYTES_INICIALES;
+        while (tamanio < (usados - basura) * 2) {
+            tamanio *= 2;
+        }
+        MemorySegment nuevos = Arena.ofAuto().allocate(tamanio);
+        long destino = 0;
+        for (int codigo = 0; codigo < codigos; codigo++) {
+            if (entero(codigo, REFERENCIAS) > 0) {
+                long inicio = entradas.get(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO);
+                int largo = entero(codigo, LARGO);
+                MemorySegment.copy(bytes, inicio, nuevos, destino, largo);
+                entradas.set(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO, destino);
+                destino += largo;
+            }
+        }
+        bytes = nuevos;
+        usados = destino;
+        basura = 0;
+    }
+
+    /**
+     * Compara el texto de un código con los bytes indicados.
+     *
+     * @param codigo Código del texto almacenado.
+     * @param utf8 Bytes a comparar.
+     * @return true si son iguales, false en caso contrario.
+     */
+    private boolean iguales(int codigo, byte[] utf8) {
+        if (entero(codigo, LARGO) != utf8.length) {
+            return false;
+        }
+        long inicio = entradas.get(ValueLayout.JAVA_LONG, codigo * ANCHO_ENTRADA + INICIO);
+        return MemorySegment.mismatch(bytes, inicio, inicio + utf8.length,
+                MemorySegment.ofArray(utf8), 0, utf8.length) == -1;
+    }
+
+    /**
+     * Quita un código de la tabla de búsqueda, reubicando los siguientes
+     * del mismo grupo para no dejar marcas de borrado.
+     *
+     * @param codigo Código a quitar.
+     */
+    private void quitarDeTabla(int codigo) {
+        int mascara = ranuras() - 1;
+        int hueco = entero(codigo, HASH) & mascara;
+        while (tabla.getAtIndex(ValueLayout.JAVA_INT, hueco) != codigo) {
+            hueco = (hueco + 1) & mascara;
+        }
+        int i = hueco;
+        while (true) {
+            i = (i + 1) & mascara;
+            int otro = tabla.getAtIndex(ValueLayout.JAVA_INT, i);
+            if (otro == LIBRE) {
+                break;
+            }
+            int ideal = entero(otro, HASH) & mascara;
+            // El código en i puede ocupar el hueco si su posición ideal no está entre el hueco y i
+            boolean mover = hueco <= i ? (ideal <= hueco || ideal > i) : (ideal <= hueco && ideal > i);
+            if (mover) {
+                tabla.setAtIndex(ValueLayout.JAVA_INT, hueco, otro);
+                hueco = i;
+            }
+        }
+        tabla.setAtIndex(ValueLayout.JAVA_INT, hueco, LIBRE);
+    }
+
+    /**
+     * Reconstruye la tabla de búsqueda con la cantidad de ranuras indicada.
+     *
+     * @param cantidad Cantidad de ranuras, potencia de dos.
+     */
+    private void redimensionarTabla(int cantidad) {
+        MemorySegment anterior = tabla;
+        tabla = nuevaTabla(cantidad);
+        int mascara = cantidad - 1;
+        for (long j = 0; j < anterior.byteSize() / Integer.BYTES; j++) {
+            int codigo = anterior.getAtIndex(ValueLayout.JAVA_INT, j);
+            if (codigo != LIBRE) {
+                int i = entero(codigo, HASH) & mascara;
+                while (tabla.getAtIndex(ValueLayout.JAVA_INT, i) != LIBRE) {
+                    i = (i + 1) & mascara;
+                }
+                tabla.setAtIndex(ValueLayout.JAVA_INT, i, codigo);
+            }
+        }
+    }
+
+    /**
+     * Reserva una tabla de búsqueda vacía.
+     *
+     * @param cantidad Cantidad de ranuras.
+     * @return Tabla con todas las ranuras libres.
+     */
+    private static MemorySegment nuevaTabla(int cantidad) {
+        MemorySegment nueva = Arena.ofAuto().allocate((long) cantidad * Integer.BYTES, Integer.BYTES);
+        nueva.fill((byte) 0xFF); // LIBRE en todas las ranuras
+        return nueva;
+    }
+
+    /**
+     * Obtiene la cantidad de ranuras de la tabla de búsqueda.
+     *
+     * @return Cantidad de ranuras.
+     */
+    private int ranuras() {
+        return (int) (tabla.byteSize() / Integer.BYTES);
+    }
+
+    /**
+     * Lee un campo entero de la entrada de un código.
+     *
+     * @param codigo Código de la entrada.
+     * @param campo Desplazamiento del campo dentro de la entrada.
+     * @return Valor del campo.
+     */
+    private int entero(int codigo, long campo) {
+        return entradas.get(ValueLayout.JAVA_INT, codigo * ANCHO_ENTRADA + campo);
+    }
+
+    /**
+     * Escribe un campo entero en la entrada de un código.
+     *
+     * @param codigo Código de la entrada.
+     * @param campo Desplazamiento del campo dentro de la entrada.
+     * @param valor Valor a escribir.
+     */
+    private void fijarEntero(int codigo, long campo, int valor) {
+        entradas.set(ValueLayout.JAVA_INT, codigo * ANCHO_ENTRADA + campo, valor);
+    }
+
+    /**
+     * Mezcla los bits del hash para repartir mejor los textos en la tabla.
+     *
+     * @param h Hash del texto.
+     * @return Hash mezclado.
+     */
+    private static int mezclar(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import indexes.MapaEnteros;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Buffer de páginas de tamaño fijo de un archivo, con reemplazo por el algoritmo del reloj.
+ *
+ * Mantiene en memoria fuera del heap una cantidad fija de marcos. Cada página se fija
+ * mientras se usa y se suelta al terminar, indicando si fue modificada; las páginas
+ * modificadas se escriben en el archivo al ser desalojadas o al vaciar el buffer.
+ * Para desalojar, la manecilla recorre los marcos y elige el primero sin fijar que no
+ * fue usado desde la vuelta anterior, lo que aproxima LRU sin mantener una lista.
+ *
+ * No es seguro usarlo desde varios hilos a la vez.
+ *
+ * @author joaxx
+ */
+class BufferPaginas {
+
+    private static final int LIBRE = -1;
+
+    private final FileChannel canal;
+    private final int tamanioPagina;
+    private final ByteBuffer[] marcos;
+    private final int[] paginaDeMarco;
+    private final int[] fijaciones;
+    private final boolean[] modificados;
+    private final boolean[] referenciados;
+    private final MapaEnteros marcoDePagina = new MapaEnteros(); // Página -> marco
+    private final byte[] ceros;
+    private int manecilla;
+    private int cantidadPaginas; // Páginas del archivo, incluidas las aún no escritas
+
+    private long lecturas;
+    private long escrituras;
+
+    /**
+     * Constructor del buffer.
+     *
+     * @param canal Canal del archivo, abierto para lectura y escritura.
+     * @param tamanioPagina Tamaño de cada página en bytes.
+     * @param cantidadMarcos Cantidad de páginas que se mantienen en memoria.
+     * @throws IOException Si no se puede obtener el tamaño del archivo.
+     */
+    BufferPaginas(FileChannel canal, int tamanioPagina, int cantidadMarcos) throws IOException {
+        this.canal = canal;
+        this.tamanioPagina = tamanioPagina;
+        this.cantidadPaginas = (int) (canal.size() / tamanioPagina);
+        this.ceros = new byte[tamanioPagina];
+        ByteBuffer memoria = ByteBuffer.allocateDirect(tamanioPagina * cantidadMarcos);
+        this.marcos = new ByteBuffer[cantidadMarcos];
+        for (int i = 0; i < cantidadMarcos; i++) {
+            marcos[i] = memoria.slice(i * tamanioPagina, tamanioPagina);
+        }
+        this.paginaDeMarco = new int[cantidadMarcos];
+        Arrays.fill(paginaDeMarco, LIBRE);
+        this.fijaciones = new int[cantidadMarcos];
+        this.modificados = new boolean[cantidadMarcos];
+        this.referenciados = new boolean[cantidadMarcos];
+    }
+
+    /**
+     * Fija una página en memoria, leyéndola del archivo si no estaba cargada.
+     * Cada llamada debe corresponderse con una llamada a {@link #soltar(int, boolean)}.
+     *
+     * @param pagina Número de página.
+     * @return Contenido de la página; es válido hasta soltarla.
+     * @throws IOException Si ocurre un error al leer o al desalojar otra página.
+     */
+    ByteBuffer fijar(int pagina) throws IOException {
+        int marco = marcoDePagina.get(pagina);
+        if (marco == MapaEnteros.AUSENTE) {
+            if (pagina < 0 || pagina >= cantidadPaginas) {
+                throw new IOException("Página fuera del archivo: " + pagina);
+            }
+            marco = desalojar();
+            ByteBuffer destino = marcos[marco].clear();
+            long posicion = (long) pagina * tamanioPagina;
+            while (destino.hasRemaining()) {
+                if (canal.read(destino, posicion + destino.position()) < 0) {
+                    throw new IOException("Página incompleta en el archivo: " + pagina);
+                }
+            }
+            lecturas++;
+            ocupar(marco, pagina);
+        }
+        fijaciones[marco]++;
+        referenciados[marco] = true;
+        return marcos[marco];
+    }
+
+    /**
+     * Suelta una página fijada.
+     *
+     * @param pagina Número de página.
+     * @param modificada true si el contenido de la página cambió.
+     */
+    void soltar(int pagina, boolean modificada) {
+        int marco = marcoDePagina.get(pagina);
+        if (marco == MapaEnteros.AUSENTE || fijaciones[marco] == 0) {
+            throw new IllegalStateException("La página no está fijada: " + pagina);
+        }
+        fijaciones[marco]--;
+        modificados[marco] |= modificada;
+    }
+
+    /**
+     * Agrega una página al final del archivo, con su contenido en cero, y la deja en memoria
+     * sin fijar; quien la pide debe fijarla antes de pedir otra página.
+     *
+     * @return Número de la página nueva.
+     * @throws IOException Si ocurre un error al desalojar otra página.
+     */
+    int nuevaPagina() throws IOException {
+        int marco = desalojar();
+        int pagina = cantidadPaginas++;
+        marcos[marco].put(0, ceros);
+        ocupar(marco, pagina);
+        modificados[marco] = true;
+        referenciados[marco] = true;
+        return pagina;
+    }
+
+    /**
+     * Escribe en el archivo todas las páginas modificadas, sin desalojarlas.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    void vaciar() throws IOException {
+        for (int marco = 0; marco < marcos.length; marco++) {
+            if (paginaDeMarco[marco] != LIBRE && modificados[marco]) {
+                escribir(marco);
+            }
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de páginas del archivo.
+     *
+     * @return Cantidad de páginas.
+     */
+    int getCantidadPaginas() {
+        return cantidadPaginas;
+    }
+
+    /**
+     * Obtiene la cantidad de páginas leídas del archivo.
+     *
+     * @return Lecturas de páginas.
+     */
+    long getLecturas() {
+        return lecturas;
+    }
+
+    /**
+     * Obtiene la cantidad de páginas escritas en el archivo.
+     *
+     * @return Escrituras de páginas.
+     */
+    long getEscrituras() {
+        return escrituras;
+    }
+
+    /**
+     * Elige un marco para una página nueva: uno libre o, si no hay, el que indique
+     * el reloj. Si el marco elegido tenía una página modificada, la escribe.
+     *
+     * @return Marco disponible.
+     * @throws IOException Si ocurre un error al escribir la página desalojada.
+     * @throws IllegalStateException Si todas las páginas en memoria están fijadas.
+     */
+    private int desalojar() throws IOException {
+        for (int vuelta = 0; vuelta < 2 * marcos.length; vuelta++) {
+            int marco = manecilla;
+            manecilla = (manecilla + 1) % marcos.length;
+            if (paginaDeMarco[marco] == LIBRE) {
+                return marco;
+            }
+            if (fijaciones[marco] > 0) {
+                continue;
+            }
+            if (referenciados[marco]) {
+                referenciados[marco] = false; // Segunda oportunidad
+                continue;
+            }
+            if (modificados[marco]) {
+                escribir(marco);
+            }
+            marcoDePagina.remove(paginaDeMarco[marco]);
+            paginaDeMarco[marco] = LIBRE;
+            return marco;
+        }
+        throw new IllegalStateException("Todas las páginas en memoria están fijadas");
+    }
+
+    /**
+     * Asocia un marco a una página.
+     *
+     * @param marco Marco a ocupar.
+     * @param pagina Número de página.
+     */
+    private void ocupar(int marco, int pagina) {
+        paginaDeMarco[marco] = pagina;
+        marcoDePagina.put(pagina, marco);
+        modificados[marco] = false;
+        fijaciones[marco] = 0;
+    }
+
+    /**
+     * Escribe la página de un marco en su posición del archivo.
+     *
+     * @param marco Marco a escribir.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private void escribir(int marco) throws IOException {
+        ByteBuffer origen = marcos[marco].duplicate().clear();
+        long posicion = (long) paginaDeMarco[marco] * tamanioPagina;
+        while (origen.hasRemaining()) {
+            canal.write(origen, posicion + origen.position());
+        }
+        modificados[marco] = false;
+        escrituras++;
+    }
+}
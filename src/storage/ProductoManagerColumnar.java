@@ -0,0 +1,430 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import Interfaces.CrudRepository;
+import exceptions.PrecioInvalidoException;
+import exceptions.ProductoNoEncontradoException;
+import indexes.MapaEnteros;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.*;
+
+/**
+ * Repositorio de productos que guarda los datos por columnas fuera del heap,
+ * utilizando la API de memoria externa (java.lang.foreign).
+ *
+ * Cada atributo se almacena en un MemorySegment de valores primitivos: ID, precio,
+ * tipo de producto, ordinal del enum (TipoAlimento, MarcaElectronicos o TallaRopa),
+ * el entero específico (calorías o garantía en meses) y los códigos de nombre y material.
+ * Un enum null se guarda como SIN_VALOR. Los textos se guardan una sola vez en un
+ * diccionario fuera del heap (AreaTextos) y las filas referencian su código; los códigos
+ * que ninguna fila usa se liberan al actualizar o eliminar.
+ *
+ * Los objetos Producto solo se crean cuando se piden (obtenerPorId, obtenerTodos).
+ * Las consultas por precio y los cambios masivos de precio recorren las columnas
+ * sin crear objetos. Al eliminar, la última fila ocupa el lugar de la eliminada,
+ * por lo que el orden de obtenerTodos no es el de inserción.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerColumnar implements CrudRepository<Producto> {
+
+    private static final byte TIPO_ALIMENTO = 0;
+    private static final byte TIPO_ELECTRONICO = 1;
+    private static final byte TIPO_ROPA = 2;
+    private static final int SIN_TEXTO = -1;
+    private static final byte SIN_VALOR = -1;
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    // Columnas fuera del heap, una fila por producto
+    private MemorySegment ids;
+    private MemorySegment precios;
+    private MemorySegment tipos;
+    private MemorySegment ordinales;
+    private MemorySegment enteros;
+    private MemorySegment nombres;
+    private MemorySegment materiales;
+
+    private int capacidad;
+    private int filas = 0;
+    private int nextId = 1; // Id autoincremental
+    private final MapaEnteros filaPorId = new MapaEnteros(); // Id -> fila
+
+    // Diccionario de textos: cada texto distinto se guarda una sola vez
+    private final AreaTextos textos = new AreaTextos();
+
+    /**
+     * Constructor que inicializa el repositorio vacío.
+     */
+    public ProductoManagerColumnar() {
+        reservar(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Agrega un producto, asignándole un ID único y copiando sus datos a las columnas.
+     *
+     * @param p Producto a agregar.
+     */
+    @Override
+    public void agregar(Producto p) {
+        p.setId(nextId++);
+        if (filas == capacidad) {
+            reservar(capacidad * 2);
+        }
+        int fila = filas++;
+        escribirFila(fila, p);
+        filaPorId.put(p.getId(), fila);
+    }
+
+    /**
+     * Obtiene un producto por su ID, creando el objeto a partir de las columnas.
+     * Las modificaciones sobre el objeto devuelto no se reflejan hasta llamar a actualizar.
+     *
+     * @param id ID del producto a buscar.
+     * @return Producto encontrado.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto.
+     */
+    @Override
+    public Producto obtenerPorId(int id) {
+        return materializar(buscarFila(id, "No se encontró producto con id " + id));
+    }
+
+    /**
+     * Devuelve una lista inmodificable con todos los productos, creados a partir de las columnas.
+     *
+     * @return Lista de productos.
+     */
+    @Override
+    public List<Producto> obtenerTodos() {
+        List<Producto> lista = new ArrayList<>(filas);
+        for (int fila = 0; fila < filas; fila++) {
+            lista.add(materializar(fila));
+        }
+        return Collections.unmodifiableList(lista);
+    }
+
+    /**
+     * Actualiza un producto existente sobrescribiendo su fila.
+     *
+     * @param elemento Producto con los datos actualizados.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a actualizar.
+     */
+    @Override
+    public void actualizar(Producto elemento) {
+        int fila = buscarFila(elemento.getId(), "No se encontró producto para actualizar con id " + elemento.getId());
+        int nombre = nombres.getAtIndex(ValueLayout.JAVA_INT, fila);
+        int material = materiales.getAtIndex(ValueLayout.JAVA_INT, fila);
+        // Se codifican los textos nuevos antes de soltar los anteriores para no descartar los que se repiten
+        escribirFila(fila, elemento);
+        soltar(nombre);
+        soltar(material);
+    }
+
+    /**
+     * Elimina un producto por su ID, moviendo la última fila a su lugar.
+     *
+     * @param id ID del producto a eliminar.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a eliminar.
+     */
+    @Override
+    public void eliminar(int id) {
+        int fila = buscarFila(id, "No se encontró producto con id " + id);
+        filaPorId.remove(id);
+        soltar(nombres.getAtIndex(ValueLayout.JAVA_INT, fila));
+        soltar(materiales.getAtIndex(ValueLayout.JAVA_INT, fila));
+        int ultima = --filas;
+        if (fila != ultima) {
+            copiarFila(ultima, fila);
+            filaPorId.put(ids.getAtIndex(ValueLayout.JAVA_INT, fila), fila);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de productos almacenados.
+     *
+     * @return Cantidad de productos.
+     */
+    public int cantidad() {
+        return filas;
+    }
+
+    /**
+     * Obtiene la cantidad de textos distintos guardados en el diccionario.
+     *
+     * @return Cantidad de textos.
+     */
+    public int cantidadTextos() {
+        return textos.cantidad();
+    }
+
+    /**
+     * Obtiene los bytes reservados fuera del heap por el diccionario de textos.
+     *
+     * @return Bytes reservados.
+     */
+    public long bytesTextos() {
+        return textos.bytesReservados();
+    }
+
+    /**
+     * Obtiene el precio de un producto sin crear el objeto.
+     *
+     * @param id ID del producto.
+     * @return Precio del producto.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto.
+     */
+    public double obtenerPrecio(int id) {
+        return precios.getAtIndex(ValueLayout.JAVA_DOUBLE, buscarFila(id, "No se encontró producto con id " + id));
+    }
+
+    /**
+     * Obtiene los IDs de los productos cuyo precio está en el rango [desde, hasta).
+     * Recorre solo la columna de precios, sin crear objetos Producto.
+     *
+     * @param desde Precio mínimo, incluido.
+     * @param hasta Precio máximo, excluido.
+     * @return Arreglo con los IDs encontrados.
+     */
+    public int[] idsPorRangoPrecio(double desde, double hasta) {
+        int[] resultado = new int[16];
+        int n = 0;
+        for (int fila = 0; fila < filas; fila++) {
+            double precio = precios.getAtIndex(ValueLayout.JAVA_DOUBLE, fila);
+            if (precio >= desde && precio < hasta) {
+                if (n == resultado.length) {
+                    resultado = Arrays.copyOf(resultado, n * 2);
+                }
+                resultado[n++] = ids.getAtIndex(ValueLayout.JAVA_INT, fila);
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Multiplica el precio de todos los productos por un factor, directamente sobre la columna.
+     *
+     * @param factor Factor a aplicar, por ejemplo 1.10 para un incremento del 10%.
+     * @throws PrecioInvalidoException Si el factor es negativo.
+     */
+    public void multiplicarPrecios(double factor) throws PrecioInvalidoException {
+        if (factor < 0) {
+            throw new PrecioInvalidoException("El precio no puede ser negativo");
+        }
+        for (int fila = 0; fila < filas; fila++) {
+            precios.setAtIndex(ValueLayout.JAVA_DOUBLE, fila, precios.getAtIndex(ValueLayout.JAVA_DOUBLE, fila) * factor);
+        }
+    }
+
+    /**
+     * Aplica un descuento a todos los alimentos, directamente sobre la columna de precios.
+     * Si el descuento hace que el precio sea negativo, el precio se establece en 0,
+     * igual que Producto.aplicarDescuento.
+     *
+     * @param porcentaje Porcentaje de descuento a aplicar.
+     */
+    public void aplicarDescuentoAlimentos(double porcentaje) {
+        for (int fila = 0; fila < filas; fila++) {
+            if (tipos.get(ValueLayout.JAVA_BYTE, fila) == TIPO_ALIMENTO) {
+                double precio = precios.getAtIndex(ValueLayout.JAVA_DOUBLE, fila);
+                double nuevo = precio - (precio * porcentaje / 100.0);
+                precios.setAtIndex(ValueLayout.JAVA_DOUBLE, fila, nuevo < 0 ? 0 : nuevo);
+            }
+        }
+    }
+
+    /**
+     * Busca la fila de un ID o lanza la excepción con el mensaje indicado.
+     *
+     * @param id ID del producto.
+     * @param mensaje Mensaje de la excepción si no existe.
+     * @return Fila del producto.
+     */
+    private int buscarFila(int id, String mensaje) {
+        int fila = filaPorId.get(id);
+        if (fila == MapaEnteros.AUSENTE) {
+            throw new ProductoNoEncontradoException(mensaje);
+        }
+        return fila;
+    }
+
+    /**
+     * Copia los datos de un producto a las columnas de una fila.
+     *
+     * @param fila Fila destino.
+     * @param p Producto a copiar.
+     */
+    private void escribirFila(int fila, Producto p) {
+        byte tipo;
+        int ordinal;
+        int entero = 0;
+        int material = SIN_TEXTO;
+        if (p instanceof Alimento) {
+            Alimento a = (Alimento) p;
+            tipo = TIPO_ALIMENTO;
+            ordinal = ordinal(a.getTipo());
+            entero = a.getCalorias();
+        } else if (p instanceof Electronico) {
+            Electronico e = (Electronico) p;
+            tipo = TIPO_ELECTRONICO;
+            ordinal = ordinal(e.getMarca());
+            entero = e.getGarantiaMeses();
+        } else if (p instanceof Ropa) {
+            Ropa r = (Ropa) p;
+            tipo = TIPO_ROPA;
+            ordinal = ordinal(r.getTalla());
+            material = codificar(r.getMaterial());
+        } else {
+            throw new IllegalArgumentException("Tipo de producto desconocido: " + p.getClass().getSimpleName());
+        }
+        ids.setAtIndex(ValueLayout.JAVA_INT, fila, p.getId());
+        precios.setAtIndex(ValueLayout.JAVA_DOUBLE, fila, p.getPrecio());
+        tipos.set(ValueLayout.JAVA_BYTE, fila, tipo);
+        ordinales.set(ValueLayout.JAVA_BYTE, fila, (byte) ordinal);
+        enteros.setAtIndex(ValueLayout.JAVA_INT, fila, entero);
+        nombres.setAtIndex(ValueLayout.JAVA_INT, fila, codificar(p.getNombre()));
+        materiales.setAtIndex(ValueLayout.JAVA_INT, fila, material);
+    }
+
+    /**
+     * Copia todas las columnas de una fila a otra.
+     *
+     * @param origen Fila origen.
+     * @param destino Fila destino.
+     */
+    private void copiarFila(int origen, int destino) {
+        ids.setAtIndex(ValueLayout.JAVA_INT, destino, ids.getAtIndex(ValueLayout.JAVA_INT, origen));
+        precios.setAtIndex(ValueLayout.JAVA_DOUBLE, destino, precios.getAtIndex(ValueLayout.JAVA_DOUBLE, origen));
+        tipos.set(ValueLayout.JAVA_BYTE, destino, tipos.get(ValueLayout.JAVA_BYTE, origen));
+        ordinales.set(ValueLayout.JAVA_BYTE, destino, ordinales.get(ValueLayout.JAVA_BYTE, origen));
+        enteros.setAtIndex(ValueLayout.JAVA_INT, destino, enteros.getAtIndex(ValueLayout.JAVA_INT, origen));
+        nombres.setAtIndex(ValueLayout.JAVA_INT, destino, nombres.getAtIndex(ValueLayout.JAVA_INT, origen));
+        materiales.setAtIndex(ValueLayout.JAVA_INT, destino, materiales.getAtIndex(ValueLayout.JAVA_INT, origen));
+    }
+
+    /**
+     * Crea un objeto Producto a partir de una fila.
+     *
+     * @param fila Fila a leer.
+     * @return Producto con los datos de la fila.
+     */
+    private Producto materializar(int fila) {
+        int id = ids.getAtIndex(ValueLayout.JAVA_INT, fila);
+        double precio = precios.getAtIndex(ValueLayout.JAVA_DOUBLE, fila);
+        int ordinal = ordinales.get(ValueLayout.JAVA_BYTE, fila);
+        int entero = enteros.getAtIndex(ValueLayout.JAVA_INT, fila);
+        String nombre = decodificar(nombres.getAtIndex(ValueLayout.JAVA_INT, fila));
+        try {
+            switch (tipos.get(ValueLayout.JAVA_BYTE, fila)) {
+                case TIPO_ALIMENTO:
+                    return new Alimento(id, nombre, precio, constante(TipoAlimento.values(), ordinal), entero);
+                case TIPO_ELECTRONICO:
+                    return new Electronico(id, nombre, precio, constante(MarcaElectronicos.values(), ordinal), entero);
+                default:
+                    String material = decodificar(materiales.getAtIndex(ValueLayout.JAVA_INT, fila));
+                    return new Ropa(id, nombre, precio, constante(TallaRopa.values(), ordinal), material);
+            }
+        } catch (PrecioInvalidoException ex) {
+            // Los precios se validaron al escribir la fila
+            throw new IllegalStateException("Precio inválido almacenado para id " + id, ex);
+        }
+    }
+
+    /**
+     * Obtiene el ordinal de un enum para guardarlo en la columna.
+     *
+     * @param valor Constante del enum, puede ser null.
+     * @return Ordinal, o SIN_VALOR si es null.
+     */
+    private static byte ordinal(Enum<?> valor) {
+        return valor == null ? SIN_VALOR : (byte) valor.ordinal();
+    }
+
+    /**
+     * Obtiene la constante de un enum a partir del ordinal guardado.
+     *
+     * @param valores Constantes del enum.
+     * @param ordinal Ordinal guardado.
+     * @return Constante, o null si el ordinal es SIN_VALOR.
+     */
+    private static <E extends Enum<E>> E constante(E[] valores, int ordinal) {
+        return ordinal == SIN_VALOR ? null : valores[ordinal];
+    }
+
+    /**
+     * Obtiene el código de un texto, agregándolo al diccionario si no existía.
+     * Cada llamada suma una referencia que debe liberarse con soltar.
+     *
+     * @param texto Texto a codificar, puede ser null.
+     * @return Código del texto.
+     */
+    private int codificar(String texto) {
+        return texto == null ? SIN_TEXTO : textos.codificar(texto);
+    }
+
+    /**
+     * Libera una referencia a un código del diccionario.
+     *
+     * @param codigo Código a liberar, puede ser SIN_TEXTO.
+     */
+    private void soltar(int codigo) {
+        if (codigo != SIN_TEXTO) {
+            textos.soltar(codigo);
+        }
+    }
+
+    /**
+     * Obtiene el texto correspondiente a un código del diccionario.
+     *
+     * @param codigo Código del texto.
+     * @return Texto, o null si el código es SIN_TEXTO.
+     */
+    private String decodificar(int codigo) {
+        return codigo == SIN_TEXTO ? null : textos.decodificar(codigo);
+    }
+
+    /**
+     * Reserva columnas con la capacidad indicada, copiando las filas existentes.
+     * Las columnas anteriores se liberan cuando dejan de ser alcanzables.
+     *
+     * @param nuevaCapacidad Cantidad de filas a reservar.
+     */
+    private void reservar(int nuevaCapacidad) {
+        Arena arena = Arena.ofAuto();
+        ids = agrandar(arena, ids, nuevaCapacidad, Integer.BYTES);
+        precios = agrandar(arena, precios, nuevaCapacidad, Double.BYTES);
+        tipos = agrandar(arena, tipos, nuevaCapacidad, Byte.BYTES);
+        ordinales = agrandar(arena, ordinales, nuevaCapacidad, Byte.BYTES);
+        enteros = agrandar(arena, enteros, nuevaCapacidad, Integer.BYTES);
+        nombres = agrandar(arena, nombres, nuevaCapacidad, Integer.BYTES);
+        materiales = agrandar(arena, materiales, nuevaCapacidad, Integer.BYTES);
+        capacidad = nuevaCapacidad;
+    }
+
+    /**
+     * Reserva una columna nueva y copia el contenido de la anterior.
+     *
+     * @param arena Arena donde reservar la memoria.
+     * @param anterior Columna anterior, o null si es la primera reserva.
+     * @param filas Capacidad en filas.
+     * @param ancho Tamaño en bytes de cada valor.
+     * @return Columna nueva.
+     */
+    private MemorySegment agrandar(Arena arena, MemorySegment anterior, int filas, int ancho) {
+        MemorySegment nueva = arena.allocate((long) filas * ancho, ancho);
+        if (anterior != null) {
+            MemorySegment.copy(anterior, 0, nueva, 0, (long) this.filas * ancho);
+        }
+        return nueva;
+    }
+}
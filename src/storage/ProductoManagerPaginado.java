@@ -0,0 +1,324 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import Interfaces.CrudRepository;
+import exceptions.ProductoNoEncontradoException;
+import model.Producto.Producto;
+import persistence.CodificadorProducto;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repositorio de productos guardado en un archivo paginado, para catálogos que no entran en el heap.
+ *
+ * Los productos se guardan en las hojas de un árbol B+ ordenado por ID (ver ArbolBMas),
+ * en páginas de TAMANIO_PAGINA bytes. Solo una cantidad fija de páginas se mantiene en
+ * memoria, fuera del heap (ver BufferPaginas), por lo que obtenerPorId, actualizar y
+ * eliminar leen a lo sumo una página por nivel del árbol, y agregar escribe siempre en
+ * la última hoja. Cada producto se codifica con CodificadorProducto.
+ *
+ * La página 0 guarda el encabezado: magia "PRDP", versión, tamaño de página, raíz del árbol,
+ * próximo ID y cantidad de productos. Los cambios llegan al archivo cuando sus páginas se
+ * desalojan y, completos, al llamar a vaciar o close; no hay diario, por lo que un corte
+ * sin vaciar puede dejar el archivo inconsistente.
+ *
+ * No es seguro usarlo desde varios hilos a la vez.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerPaginado implements CrudRepository<Producto>, AutoCloseable {
+
+    /** Tamaño de cada página del archivo, en bytes. */
+    public static final int TAMANIO_PAGINA = 8192;
+
+    private static final int MAGIA = 0x50524450; // "PRDP"
+    private static final short VERSION_ESQUEMA = 1;
+    private static final int PAGINA_ENCABEZADO = 0;
+    private static final int MARCOS_MINIMOS = 8;
+
+    private final FileChannel canal;
+    private final BufferPaginas buffer;
+    private final ArbolBMas arbol;
+    private int nextId = 1; // Id autoincremental
+    private int cantidad;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64); // Reutilizado al codificar
+    private final DataOutputStream salida = new DataOutputStream(bytes);
+
+    /**
+     * Abre el repositorio de un archivo, creándolo vacío si no existe.
+     *
+     * @param archivo Ruta del archivo.
+     * @param paginasEnMemoria Cantidad de páginas que se mantienen en memoria (al menos 8).
+     * @throws IOException Si ocurre un error al abrir o el archivo no es un repositorio válido.
+     */
+    public ProductoManagerPaginado(Path archivo, int paginasEnMemoria) throws IOException {
+        if (paginasEnMemoria < MARCOS_MINIMOS) {
+            throw new IllegalArgumentException("Se necesitan al menos " + MARCOS_MINIMOS + " páginas en memoria");
+        }
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            buffer = new BufferPaginas(canal, TAMANIO_PAGINA, paginasEnMemoria);
+            if (buffer.getCantidadPaginas() == 0) {
+                buffer.nuevaPagina(); // Encabezado
+                arbol = new ArbolBMas(buffer, TAMANIO_PAGINA, ArbolBMas.crear(buffer, TAMANIO_PAGINA));
+                escribirEncabezado();
+            } else {
+                arbol = new ArbolBMas(buffer, TAMANIO_PAGINA, leerEncabezado());
+            }
+        } catch (IOException | RuntimeException ex) {
+            canal.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Agrega un producto, asignándole un ID único.
+     *
+     * @param p Producto a agregar.
+     * @throws IllegalArgumentException Si el producto codificado no entra en un cuarto de página.
+     */
+    @Override
+    public void agregar(Producto p) {
+        int id = nextId;
+        p.setId(id);
+        try {
+            arbol.insertar(id, codificar(p));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        nextId++;
+        cantidad++;
+    }
+
+    /**
+     * Obtiene un producto por su ID, leyéndolo de su hoja.
+     * Las modificaciones sobre el objeto devuelto no se reflejan hasta llamar a actualizar.
+     *
+     * @param id ID del producto a buscar.
+     * @return Producto encontrado.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto.
+     */
+    @Override
+    public Producto obtenerPorId(int id) {
+        byte[] valor;
+        try {
+            valor = arbol.buscar(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (valor == null) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+        return decodificar(valor);
+    }
+
+    /**
+     * Devuelve una lista inmodificable con todos los productos, ordenados por ID.
+     * Crea todos los objetos en el heap; para catálogos grandes conviene {@link #recorrer(Consumer)}.
+     *
+     * @return Lista de productos.
+     */
+    @Override
+    public List<Producto> obtenerTodos() {
+        List<Producto> lista = new ArrayList<>(cantidad);
+        recorrer(lista::add);
+        return Collections.unmodifiableList(lista);
+    }
+
+    /**
+     * Actualiza un producto existente reemplazando su registro.
+     *
+     * @param elemento Producto con los datos actualizados.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a actualizar.
+     */
+    @Override
+    public void actualizar(Producto elemento) {
+        boolean encontrado;
+        try {
+            encontrado = arbol.reemplazar(elemento.getId(), codificar(elemento));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!encontrado) {
+            throw new ProductoNoEncontradoException("No se encontró producto para actualizar con id " + elemento.getId());
+        }
+    }
+
+    /**
+     * Elimina un producto por su ID.
+     *
+     * @param id ID del producto a eliminar.
+     * @throws ProductoNoEncontradoException Si no se encuentra el producto a eliminar.
+     */
+    @Override
+    public void eliminar(int id) {
+        boolean encontrado;
+        try {
+            encontrado = arbol.eliminar(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!encontrado) {
+            throw new ProductoNoEncontradoException("No se encontró producto con id " + id);
+        }
+        cantidad--;
+    }
+
+    /**
+     * Recorre todos los productos en orden de ID, creando un objeto por vez.
+     *
+     * @param accion Acción que recibe cada producto.
+     */
+    public void recorrer(Consumer<Producto> accion) {
+        try {
+            arbol.recorrer(valor -> accion.accept(decodificar(valor)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de productos almacenados.
+     *
+     * @return Cantidad de productos.
+     */
+    public int cantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Obtiene la cantidad de páginas leídas del archivo desde que se abrió.
+     *
+     * @return Lecturas de páginas.
+     */
+    public long getLecturasDePaginas() {
+        return buffer.getLecturas();
+    }
+
+    /**
+     * Obtiene la cantidad de páginas escritas en el archivo desde que se abrió.
+     *
+     * @return Escrituras de páginas.
+     */
+    public long getEscriturasDePaginas() {
+        return buffer.getEscrituras();
+    }
+
+    /**
+     * Escribe en el archivo el encabezado y todas las páginas modificadas, y los fuerza a disco.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void vaciar() throws IOException {
+        escribirEncabezado();
+        buffer.vaciar();
+        canal.force(false);
+    }
+
+    /**
+     * Vacía los cambios y cierra el archivo.
+     *
+     * @throws IOException Si ocurre un error al escribir o cerrar.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            vaciar();
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Escribe el encabezado en la página 0.
+     *
+     * @throws IOException Si ocurre un error al leer la página.
+     */
+    private void escribirEncabezado() throws IOException {
+        ByteBuffer e = buffer.fijar(PAGINA_ENCABEZADO);
+        try {
+            e.putInt(0, MAGIA);
+            e.putShort(4, VERSION_ESQUEMA);
+            e.putInt(8, TAMANIO_PAGINA);
+            e.putInt(12, arbol.getRaiz());
+            e.putInt(16, nextId);
+            e.putInt(20, cantidad);
+        } finally {
+            buffer.soltar(PAGINA_ENCABEZADO, true);
+        }
+    }
+
+    /**
+     * Lee y valida el encabezado de la página 0.
+     *
+     * @return Página raíz del árbol.
+     * @throws IOException Si el archivo no es un repositorio válido.
+     */
+    private int leerEncabezado() throws IOException {
+        ByteBuffer e = buffer.fijar(PAGINA_ENCABEZADO);
+        try {
+            if (e.getInt(0) != MAGIA) {
+                throw new IOException("El archivo no es un repositorio paginado de productos");
+            }
+            short version = e.getShort(4);
+            if (version > VERSION_ESQUEMA) {
+                throw new IOException("Versión de esquema no soportada: " + version);
+            }
+            if (e.getInt(8) != TAMANIO_PAGINA) {
+                throw new IOException("Tamaño de página no soportado: " + e.getInt(8));
+            }
+            nextId = e.getInt(16);
+            cantidad = e.getInt(20);
+            return e.getInt(12);
+        } finally {
+            buffer.soltar(PAGINA_ENCABEZADO, false);
+        }
+    }
+
+    /**
+     * Codifica un producto con CodificadorProducto.
+     *
+     * @param p Producto a codificar.
+     * @return Bytes del producto.
+     */
+    private byte[] codificar(Producto p) {
+        bytes.reset();
+        try {
+            CodificadorProducto.escribir(salida, p);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // No ocurre al escribir en memoria
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodifica un producto guardado con codificar.
+     *
+     * @param valor Bytes del producto.
+     * @return Producto decodificado.
+     * @throws UncheckedIOException Si el registro está dañado.
+     */
+    private Producto decodificar(byte[] valor) {
+        try {
+            return CodificadorProducto.leer(new DataInputStream(new ByteArrayInputStream(valor)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
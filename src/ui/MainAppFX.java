@@ -10,6 +10,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import views.MainViewController;
 
 /**
  * Clase principal para la aplicación JavaFX.
@@ -19,6 +20,8 @@ import javafx.stage.Stage;
  */
 public class MainAppFX extends Application {
 
+    private MainViewController controlador; // Controlador de la vista principal
+
     /**
      * Método de inicio de la aplicación.
      * Carga la vista principal desde el archivo FXML y la muestra en un escenario (stage).
@@ -31,6 +34,7 @@ public class MainAppFX extends Application {
         // Carga el archivo FXML para la vista principal
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/MainView.fxml"));
         Parent root = loader.load();
+        controlador = loader.getController();
 
         // Configura la escena principal
         Scene scene = new Scene(root, 800, 600);
@@ -39,6 +43,17 @@ public class MainAppFX extends Application {
         primaryStage.show(); // Muestra la ventana principal
     }
 
+    /**
+     * Método de cierre de la aplicación.
+     * Espera a que terminen los guardados en segundo plano antes de salir.
+     */
+    @Override
+    public void stop() {
+        if (controlador != null) {
+            controlador.cerrar();
+        }
+    }
+
     /**
      * Método principal de la aplicación.
      * Inicia la aplicación JavaFX.
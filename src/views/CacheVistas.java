@@ -0,0 +1,248 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package views;
+
+import model.Producto.Producto;
+import javafx.scene.Scene;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Vistas de los productos que muestran las filas visibles de una tabla.
+ *
+ * Cada fila retiene la vista de su producto mientras lo muestra y la suelta cuando pasa a
+ * mostrar otro, así que solo hay vistas para las filas visibles y desplazar la tabla no
+ * crea propiedades para los productos que ya estaban a la vista. Las vistas se buscan por
+ * instancia: si un producto se reemplaza por otro objeto con el mismo ID, tiene vista nueva.
+ *
+ * Las celdas pueden pedir la vista de un producto antes que su fila, o sin fila (por ejemplo
+ * al ajustar el ancho de una columna); esas vistas se liberan al terminar el layout del pulso
+ * si ninguna fila las retuvo.
+ *
+ * También mide, por cada pulso en que alguna fila pasó a mostrar otro producto (al desplazar
+ * o al cambiar la lista), el tiempo de CSS y layout de la escena y las vistas y propiedades
+ * creadas y liberadas desde el pulso anterior. El tiempo no incluye el dibujo, que se hace
+ * en el hilo de render.
+ *
+ * @author joaxx
+ */
+public class CacheVistas {
+
+    private final Map<Producto, ProductoVista> vistas = new IdentityHashMap<>();
+    private int sinFila; // Vistas pedidas por celdas que ninguna fila retuvo todavía
+
+    private long vistasCreadas;
+    private long propiedadesCreadas;
+    private long vistasLiberadas;
+    private long cambiosDeFila; // Veces que una fila pasó a mostrar otro producto
+
+    private Scene escena;
+    private final Runnable alEmpezarLayout = () -> inicioLayout = System.nanoTime();
+    private final Runnable alTerminarLayout = this::terminarLayout;
+    private long inicioLayout;
+    private long vistasAntes, propiedadesAntes, liberadasAntes, cambiosAntes; // Contadores al final del pulso anterior
+
+    private long desplazamientos;
+    private long nanosTotal;
+    private long nanosMaximo;
+    private long vistasEnDesplazamientos;
+    private long propiedadesEnDesplazamientos;
+    private long liberadasEnDesplazamientos;
+
+    /**
+     * Obtiene la vista de un producto para una celda, creándola si ninguna fila la tiene.
+     *
+     * @param producto Producto de la celda.
+     * @return Vista del producto.
+     */
+    public ProductoVista obtener(Producto producto) {
+        ProductoVista vista = vistas.get(producto);
+        if (vista == null) {
+            vista = crear(producto);
+            sinFila++;
+        }
+        return vista;
+    }
+
+    /**
+     * Indica que una fila empezó a mostrar un producto.
+     *
+     * @param producto Producto de la fila.
+     */
+    public void retener(Producto producto) {
+        cambiosDeFila++;
+        ProductoVista vista = vistas.get(producto);
+        if (vista == null) {
+            vista = crear(producto);
+        } else if (vista.getFilas() == 0) {
+            sinFila--;
+        }
+        vista.setFilas(vista.getFilas() + 1);
+    }
+
+    /**
+     * Indica que una fila dejó de mostrar un producto. Si ninguna otra lo muestra,
+     * su vista se libera.
+     *
+     * @param producto Producto que mostraba la fila.
+     */
+    public void soltar(Producto producto) {
+        ProductoVista vista = vistas.get(producto);
+        if (vista == null || vista.getFilas() == 0) {
+            return;
+        }
+        vista.setFilas(vista.getFilas() - 1);
+        if (vista.getFilas() == 0) {
+            vistas.remove(producto);
+            vistasLiberadas++;
+        }
+    }
+
+    /**
+     * Vuelve a leer los valores de todas las vistas, por ejemplo después de un cambio del
+     * catálogo. Solo se redibujan las celdas cuyos valores cambiaron.
+     */
+    public void actualizar() {
+        for (ProductoVista vista : vistas.values()) {
+            vista.actualizar();
+        }
+    }
+
+    /**
+     * Engancha la liberación de vistas sin fila y la medición a los pulsos de una escena,
+     * soltando la escena anterior si la había.
+     *
+     * @param nueva Escena de la tabla, o null si la tabla se quitó de la escena.
+     */
+    public void instalar(Scene nueva) {
+        if (escena != null) {
+            escena.removePreLayoutPulseListener(alEmpezarLayout);
+            escena.removePostLayoutPulseListener(alTerminarLayout);
+        }
+        escena = nueva;
+        if (escena != null) {
+            inicioLayout = System.nanoTime();
+            escena.addPreLayoutPulseListener(alEmpezarLayout);
+            escena.addPostLayoutPulseListener(alTerminarLayout);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de vistas en memoria.
+     *
+     * @return Vistas vivas, aproximadamente una por fila visible.
+     */
+    public int getVivas() {
+        return vistas.size();
+    }
+
+    /**
+     * Obtiene la cantidad de vistas creadas desde que se creó la cache.
+     *
+     * @return Vistas creadas.
+     */
+    public long getVistasCreadas() {
+        return vistasCreadas;
+    }
+
+    /**
+     * Obtiene la cantidad de propiedades creadas desde que se creó la cache.
+     *
+     * @return Propiedades creadas.
+     */
+    public long getPropiedadesCreadas() {
+        return propiedadesCreadas;
+    }
+
+    /**
+     * Obtiene la cantidad de vistas liberadas desde que se creó la cache.
+     *
+     * @return Vistas liberadas.
+     */
+    public long getVistasLiberadas() {
+        return vistasLiberadas;
+    }
+
+    /**
+     * Obtiene la cantidad de pulsos medidos, en los que alguna fila pasó a mostrar otro producto.
+     *
+     * @return Desplazamientos medidos.
+     */
+    public long getDesplazamientos() {
+        return desplazamientos;
+    }
+
+    /**
+     * Resume las mediciones por desplazamiento.
+     *
+     * @return Texto con el promedio de vistas y propiedades creadas y el tiempo de layout.
+     */
+    public String resumen() {
+        if (desplazamientos == 0) {
+            return "Sin desplazamientos medidos. Vistas vivas: " + vistas.size();
+        }
+        return String.format("Desplazamientos: %d%n"
+                + "Por desplazamiento: %.1f vistas creadas, %.1f propiedades creadas, %.1f vistas liberadas%n"
+                + "CSS y layout: %.2f ms promedio, %.2f ms máximo%n"
+                + "Vistas vivas: %d (creadas en total: %d, propiedades: %d)",
+                desplazamientos,
+                (double) vistasEnDesplazamientos / desplazamientos,
+                (double) propiedadesEnDesplazamientos / desplazamientos,
+                (double) liberadasEnDesplazamientos / desplazamientos,
+                nanosTotal / 1e6 / desplazamientos, nanosMaximo / 1e6,
+                vistas.size(), vistasCreadas, propiedadesCreadas);
+    }
+
+    /**
+     * Cuenta una propiedad creada por una vista.
+     */
+    void propiedadCreada() {
+        propiedadesCreadas++;
+    }
+
+    /**
+     * Crea y registra la vista de un producto, sin filas.
+     *
+     * @param producto Producto de la vista.
+     * @return Vista nueva.
+     */
+    private ProductoVista crear(Producto producto) {
+        ProductoVista vista = new ProductoVista(producto, this);
+        vistas.put(producto, vista);
+        vistasCreadas++;
+        return vista;
+    }
+
+    /**
+     * Al terminar el layout del pulso, con todas las filas ya actualizadas, libera las vistas
+     * que ninguna fila retuvo y, si alguna fila cambió de producto, registra la medición.
+     */
+    private void terminarLayout() {
+        long nanos = System.nanoTime() - inicioLayout;
+        if (sinFila > 0) {
+            for (Iterator<ProductoVista> it = vistas.values().iterator(); it.hasNext();) {
+                if (it.next().getFilas() == 0) {
+                    it.remove();
+                    vistasLiberadas++;
+                }
+            }
+            sinFila = 0;
+        }
+        if (cambiosDeFila != cambiosAntes) {
+            desplazamientos++;
+            nanosTotal += nanos;
+            nanosMaximo = Math.max(nanosMaximo, nanos);
+            vistasEnDesplazamientos += vistasCreadas - vistasAntes;
+            propiedadesEnDesplazamientos += propiedadesCreadas - propiedadesAntes;
+            liberadasEnDesplazamientos += vistasLiberadas - liberadasAntes;
+        }
+        vistasAntes = vistasCreadas;
+        propiedadesAntes = propiedadesCreadas;
+        liberadasAntes = vistasLiberadas;
+        cambiosAntes = cambiosDeFila;
+    }
+}
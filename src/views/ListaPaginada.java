@@ -0,0 +1,189 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package views;
+
+import Interfaces.CambiosCatalogo;
+import model.Producto.Producto;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Lista observable de solo lectura para la tabla, que lee los productos por páginas
+ * a medida que la tabla los pide.
+ *
+ * La tabla solo pide las filas visibles, así que solo se leen las páginas de la ventana
+ * visible y, al acercarse a un borde de página, la página vecina. Se guardan las últimas
+ * PAGINAS_EN_MEMORIA páginas leídas. Crear la lista no lee ningún producto, por lo que
+ * reemplazar la lista de la tabla cuesta lo mismo sin importar el tamaño del catálogo.
+ *
+ * La cantidad de filas solo cambia al aplicar los cambios de una operación con aplicar,
+ * que los informa a la tabla fila por fila. Si al leer una página la fuente devuelve menos
+ * productos (porque el catálogo cambió desde otro hilo), las filas que faltan se muestran
+ * vacías y se avisa una sola vez para que se cree una lista nueva.
+ *
+ * @author joaxx
+ */
+public class ListaPaginada extends ObservableListBase<Producto> {
+
+    /** Filas por página. */
+    public static final int TAMANIO_PAGINA = 128;
+
+    private static final int MARGEN = 32; // Filas antes del borde de una página en que se lee la vecina
+    private static final int PAGINAS_EN_MEMORIA = 16;
+
+    /**
+     * Origen de los productos por posición.
+     */
+    @FunctionalInterface
+    public interface Fuente {
+        /**
+         * Lee los productos de un rango de posiciones.
+         *
+         * @param desde Posición inicial, incluida.
+         * @param hasta Posición final, excluida.
+         * @return Productos del rango, o menos si la fuente tiene menos productos.
+         */
+        List<Producto> leer(int desde, int hasta);
+    }
+
+    private final Fuente fuente;
+    private int cantidad;
+    private final Runnable alDesactualizarse;
+    private final Map<Integer, List<Producto>> paginas = new LinkedHashMap<>(PAGINAS_EN_MEMORIA * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Producto>> masAntigua) {
+            return size() > PAGINAS_EN_MEMORIA;
+        }
+    };
+    private boolean desactualizada;
+    private long paginasLeidas;
+
+    /**
+     * Constructor de la lista.
+     *
+     * @param fuente Origen de los productos.
+     * @param cantidad Cantidad de filas.
+     * @param alDesactualizarse Se ejecuta la primera vez que la fuente devuelve menos productos
+     *                          de los esperados; puede ser null.
+     */
+    public ListaPaginada(Fuente fuente, int cantidad, Runnable alDesactualizarse) {
+        this.fuente = fuente;
+        this.cantidad = cantidad;
+        this.alDesactualizarse = alDesactualizarse;
+    }
+
+    /**
+     * Crea una lista paginada sobre una lista ya armada, por ejemplo el resultado de un filtro.
+     *
+     * @param lista Productos a mostrar; no debe modificarse mientras se muestra.
+     * @return Lista paginada sobre la lista.
+     */
+    public static ListaPaginada de(List<? extends Producto> lista) {
+        return new ListaPaginada((desde, hasta) -> Collections.unmodifiableList(
+                lista.subList(desde, Math.min(hasta, lista.size()))), lista.size(), null);
+    }
+
+    /**
+     * Obtiene el producto de una fila, leyendo su página si no está en memoria.
+     *
+     * @param fila Posición de la fila.
+     * @return Producto de la fila, o null si la fuente ya no lo tiene.
+     */
+    @Override
+    public Producto get(int fila) {
+        Objects.checkIndex(fila, cantidad);
+        int numero = fila / TAMANIO_PAGINA;
+        int posicion = fila % TAMANIO_PAGINA;
+        List<Producto> pagina = pagina(numero);
+        if (posicion >= TAMANIO_PAGINA - MARGEN && (numero + 1) * TAMANIO_PAGINA < cantidad) {
+            pagina(numero + 1);
+        } else if (posicion < MARGEN && numero > 0) {
+            pagina(numero - 1);
+        }
+        return posicion < pagina.size() ? pagina.get(posicion) : null;
+    }
+
+    @Override
+    public int size() {
+        return cantidad;
+    }
+
+    /**
+     * Aplica los cambios de una operación sobre el catálogo como un solo cambio de la lista,
+     * de modo que la tabla vuelve a mostrar solo las filas afectadas. Las posiciones de los
+     * cambios deben ser las de la fuente. Se descarta la página de cada fila modificada y,
+     * si se agregan o eliminan filas, las páginas desde esa fila en adelante.
+     *
+     * @param cambios Cambios detallados, en las posiciones de la fuente.
+     * @throws IllegalArgumentException Si el cambio es completo y no trae detalle.
+     */
+    public void aplicar(CambiosCatalogo cambios) {
+        if (cambios.isCompleto()) {
+            throw new IllegalArgumentException("Un cambio completo requiere una lista nueva");
+        }
+        beginChange();
+        try {
+            for (CambiosCatalogo.Cambio c : cambios.getCambios()) {
+                int fila = c.getPosicion();
+                int numero = fila / TAMANIO_PAGINA;
+                switch (c.getTipo()) {
+                    case AGREGADO:
+                        cantidad++;
+                        paginas.keySet().removeIf(n -> n >= numero);
+                        nextAdd(fila, fila + 1);
+                        break;
+                    case ELIMINADO:
+                        cantidad--;
+                        paginas.keySet().removeIf(n -> n >= numero);
+                        nextRemove(fila, c.getAnterior());
+                        break;
+                    default:
+                        paginas.remove(numero);
+                        nextSet(fila, c.getAnterior());
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de páginas leídas de la fuente desde que se creó la lista.
+     *
+     * @return Páginas leídas.
+     */
+    public long getPaginasLeidas() {
+        return paginasLeidas;
+    }
+
+    /**
+     * Obtiene una página, leyéndola de la fuente si no está en memoria.
+     *
+     * @param numero Número de página.
+     * @return Productos de la página.
+     */
+    private List<Producto> pagina(int numero) {
+        List<Producto> pagina = paginas.get(numero);
+        if (pagina == null) {
+            int desde = numero * TAMANIO_PAGINA;
+            int hasta = Math.min(cantidad, desde + TAMANIO_PAGINA);
+            pagina = fuente.leer(desde, hasta);
+            paginasLeidas++;
+            if (pagina.size() < hasta - desde && !desactualizada) {
+                desactualizada = true;
+                if (alDesactualizarse != null) {
+                    alDesactualizarse.run();
+                }
+            }
+            paginas.put(numero, pagina);
+        }
+        return pagina;
+    }
+}
@@ -3,6 +3,9 @@
  * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
  */
 package views;
+import Interfaces.CambiosCatalogo;
+import Interfaces.InstantaneaProductos;
+import Interfaces.PersistenciaAsincrona;
 import Interfaces.ProductoManager;
 import comparators.ComparadorPorNombre;
 import comparators.ComparadorPorPrecio;
@@ -10,18 +13,29 @@ import exceptions.ProductoNoEncontradoException;
 import exceptions.PrecioInvalidoException;
 import model.Producto.Producto;
 import model.Producto.Alimento;
+import persistence.ResultadoImportacion;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.Region;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.scene.control.Alert.AlertType;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import model.Producto.Electronico;
 import model.Producto.Ropa;
 
@@ -34,30 +48,326 @@ import model.Producto.Ropa;
  */
 public class MainViewController {
 
+    private static final int LIMITE_BUSQUEDA = 1000; // Productos que muestra una búsqueda
+    private static final double DEMORA_BUSQUEDA_MS = 150; // Pausa de escritura antes de buscar
+
+    @FXML private TextField txtBuscar;
     @FXML private TableView<Producto> tableView;
     @FXML private TableColumn<Producto, Number> colId;
     @FXML private TableColumn<Producto, String> colNombre;
     @FXML private TableColumn<Producto, Number> colPrecio;
+    @FXML private ProgressBar progreso;
+    @FXML private Label lblEstado;
+    @FXML private Button btnCancelar;
 
     private ProductoManager manager = new ProductoManager();
+    private PersistenciaAsincrona persistencia; // Guardados y cargas en segundo plano
+    private Comparator<Producto> ordenActual; // Orden elegido por el usuario, null para el orden de carga
+    private ListaPaginada listaCatalogo; // Lista de la tabla si muestra el catálogo en el orden de carga, si no null
+    private long versionTabla = -1; // Versión del catálogo que muestra la tabla
+    private CompletableFuture<?> enCurso; // Última operación en segundo plano, la que cancela btnCancelar
+    private final PauseTransition demoraBusqueda = new PauseTransition(Duration.millis(DEMORA_BUSQUEDA_MS));
+    private CompletableFuture<List<Producto>> busqueda; // Búsqueda en curso, null si no hay
+    private String busquedaActual; // Texto cuyo resultado muestra la tabla, null si no muestra una búsqueda
+    private final CacheVistas vistas = new CacheVistas(); // Vistas de los productos de las filas visibles
 
     /**
      * Inicializa la vista, configurando las columnas de la tabla y cargando los datos.
      */
     @FXML
     public void initialize() {
-        colId.setCellValueFactory(cellData -> new javafx.beans.property.SimpleIntegerProperty(cellData.getValue().getId()));
-        colNombre.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(cellData.getValue().getNombre()));
-        colPrecio.setCellValueFactory(cellData -> new javafx.beans.property.SimpleDoubleProperty(cellData.getValue().getPrecio()));
+        // Las filas de un catálogo que cambió desde otro hilo pueden quedar vacías (ver ListaPaginada)
+        colId.setCellValueFactory(cellData -> cellData.getValue() == null ? null : vistas.obtener(cellData.getValue()).idProperty());
+        colNombre.setCellValueFactory(cellData -> cellData.getValue() == null ? null : vistas.obtener(cellData.getValue()).nombreProperty());
+        colPrecio.setCellValueFactory(cellData -> cellData.getValue() == null ? null : vistas.obtener(cellData.getValue()).precioProperty());
+        // Cada fila retiene la vista de su producto mientras lo muestra (ver CacheVistas)
+        tableView.setRowFactory(tabla -> new TableRow<Producto>() {
+            private Producto retenido; // Producto cuya vista retiene la fila
+
+            @Override
+            protected void updateItem(Producto producto, boolean vacia) {
+                super.updateItem(producto, vacia);
+                Producto mostrado = vacia ? null : producto;
+                if (mostrado != retenido) {
+                    if (retenido != null) {
+                        vistas.soltar(retenido);
+                    }
+                    if (mostrado != null) {
+                        vistas.retener(mostrado);
+                    }
+                    retenido = mostrado;
+                }
+            }
+        });
+        tableView.sceneProperty().addListener((obs, anterior, escena) -> vistas.instalar(escena));
+        // La lista de la tabla es de solo lectura: el orden se elige desde el menú Operaciones
+        colId.setSortable(false);
+        colNombre.setSortable(false);
+        colPrecio.setSortable(false);
+        persistencia = new PersistenciaAsincrona(manager, Platform::runLater, this::mostrarProgreso);
+        // Los cambios llegan desde el hilo que modificó el catálogo, también en las cargas
+        manager.agregarOyente(cambios -> Platform.runLater(() -> aplicarCambios(cambios)));
+        // Cada tecla cancela la búsqueda anterior y se busca recién cuando se deja de escribir
+        demoraBusqueda.setOnFinished(e -> buscar(txtBuscar.getText()));
+        txtBuscar.textProperty().addListener((obs, anterior, texto) -> {
+            if (busqueda != null) {
+                busqueda.cancel(true);
+                busqueda = null;
+            }
+            demoraBusqueda.playFromStart();
+        });
 
         actualizarTabla();
     }
 
     /**
-     * Actualiza los datos mostrados en la tabla con los productos actuales.
+     * Espera a que terminen los guardados en curso. Se llama al cerrar la aplicación.
+     */
+    public void cerrar() {
+        persistencia.close();
+    }
+
+    /**
+     * Muestra el avance de una operación de persistencia en la barra de estado.
+     * 
+     * @param operacion Descripción de la operación.
+     * @param avance Fracción completada, PersistenciaAsincrona.INDETERMINADO, PersistenciaAsincrona.CANCELADO
+     *               o PersistenciaAsincrona.FALLIDO.
+     */
+    private void mostrarProgreso(String operacion, double avance) {
+        if (avance == PersistenciaAsincrona.CANCELADO) {
+            progreso.setProgress(0);
+            lblEstado.setText(operacion + ": cancelado");
+            return;
+        }
+        if (avance == PersistenciaAsincrona.FALLIDO) {
+            progreso.setProgress(0);
+            lblEstado.setText(operacion + ": error"); // El detalle se muestra en una alerta (ver alTerminar)
+            return;
+        }
+        progreso.setProgress(avance);
+        lblEstado.setText(avance >= 1 ? operacion + ": terminado" : operacion + "...");
+    }
+
+    /**
+     * Registra una operación en segundo plano como la que cancela el botón Cancelar y,
+     * al terminar, muestra el error si lo hubo. Si la operación cambió el catálogo,
+     * la tabla se actualiza con sus cambios (ver aplicarCambios).
+     * 
+     * @param operacion Futuro de la operación.
+     */
+    private void alTerminar(CompletableFuture<?> operacion) {
+        enCurso = operacion;
+        btnCancelar.setDisable(false);
+        operacion.whenComplete((r, ex) -> Platform.runLater(() -> {
+            if (enCurso == operacion) {
+                enCurso = null;
+                btnCancelar.setDisable(true);
+            }
+            Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (causa instanceof CancellationException) {
+                return; // La barra de estado ya lo indica
+            }
+            if (causa instanceof IOException) {
+                mostrarAlerta("Error IO", causa.getMessage());
+            } else if (causa instanceof PrecioInvalidoException) {
+                mostrarAlerta("Precio Invalido", causa.getMessage());
+            } else if (causa != null) {
+                mostrarAlerta("Error", causa.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Aplica en la tabla los cambios de una operación sobre el catálogo.
+     * Si la tabla muestra el catálogo en el orden de carga y en la versión anterior a los
+     * cambios, solo se actualizan las filas afectadas, por lo que editar un producto vuelve
+     * a dibujar una sola fila, y las filas visibles cuyos valores cambiaron se redibujan
+     * por sus propiedades (ver CacheVistas). Si muestra una búsqueda, se repite con el catálogo nuevo.
+     * Si muestra otro orden o un filtro, o si cambió todo el catálogo, se arma una lista nueva.
+     * 
+     * @param cambios Cambios de la operación.
+     */
+    private void aplicarCambios(CambiosCatalogo cambios) {
+        vistas.actualizar(); // Los productos modificados en el lugar conservan su vista
+        if (cambios.getVersion() <= versionTabla) {
+            return; // La tabla se armó después de estos cambios
+        }
+        if (listaCatalogo != null && !cambios.isCompleto() && cambios.getVersionAnterior() == versionTabla) {
+            listaCatalogo.aplicar(cambios);
+            versionTabla = cambios.getVersion();
+        } else if (busquedaActual != null) {
+            buscar(busquedaActual);
+        } else {
+            actualizarTabla();
+        }
+    }
+
+    /**
+     * Actualiza los datos mostrados en la tabla con los productos actuales,
+     * respetando el último orden elegido.
+     * En el orden de carga, la tabla recibe una lista paginada que lee de la instantánea del
+     * catálogo solo las filas visibles, por lo que actualizarla no depende de la cantidad de
+     * productos ni espera a las operaciones que tienen el catálogo bloqueado (ver
+     * ProductoManager.obtenerPagina). Con otro orden, se vuelve a ordenar en segundo plano
+     * y mientras tanto la tabla sigue mostrando el orden anterior.
      */
     private void actualizarTabla() {
-        tableView.getItems().setAll(manager.obtenerTodos());
+        if (ordenActual != null) {
+            reordenar();
+            return;
+        }
+        // Cantidad y versión de un mismo estado, para aplicar luego solo los cambios posteriores
+        InstantaneaProductos actual = manager.obtenerInstantanea();
+        ListaPaginada lista = new ListaPaginada((desde, hasta) -> manager.obtenerPagina(null, desde, hasta),
+                actual.size(), () -> Platform.runLater(this::actualizarTabla));
+        listaCatalogo = lista;
+        versionTabla = actual.getVersion();
+        tableView.setItems(lista);
+    }
+
+    /**
+     * Cancela la última operación en segundo plano. Las cargas canceladas dejan el
+     * catálogo como estaba y los guardados cancelados no reemplazan el archivo.
+     */
+    @FXML
+    private void onCancelar() {
+        if (enCurso != null) {
+            enCurso.cancel(true);
+        }
+    }
+
+    /**
+     * Prepara un orden en segundo plano, informando el avance, y al terminar lo muestra
+     * en la tabla. Mientras tanto la tabla sigue mostrando el orden anterior.
+     * 
+     * @param operacion Descripción de la operación.
+     * @param orden Comparador que define el orden.
+     */
+    private void ordenar(String operacion, Comparator<Producto> orden) {
+        CompletableFuture<InstantaneaProductos> preparado = persistencia.ejecutar(operacion,
+                avance -> manager.prepararOrden(orden, avance));
+        alTerminar(preparado);
+        preparado.thenAccept(ordenada -> Platform.runLater(() -> {
+            ordenActual = orden;
+            limpiarBusqueda();
+            mostrarOrden(ordenada);
+        }));
+    }
+
+    /**
+     * Vuelve a ordenar el catálogo en segundo plano con el orden actual, después de un
+     * cambio. El resultado se descarta si mientras tanto la tabla pasó a mostrar otra cosa.
+     */
+    private void reordenar() {
+        Comparator<Producto> orden = ordenActual;
+        List<Producto> mostrada = tableView.getItems();
+        persistencia.ejecutar("Ordenar", avance -> manager.prepararOrden(orden, avance))
+                .thenAccept(ordenada -> Platform.runLater(() -> {
+                    if (ordenActual == orden && tableView.getItems() == mostrada && ordenada.getVersion() > versionTabla) {
+                        mostrarOrden(ordenada);
+                    }
+                }));
+    }
+
+    /**
+     * Muestra en la tabla una instantánea en el orden actual, ya ordenada por prepararOrden.
+     * 
+     * @param ordenada Instantánea ordenada.
+     */
+    private void mostrarOrden(InstantaneaProductos ordenada) {
+        listaCatalogo = null;
+        versionTabla = ordenada.getVersion();
+        tableView.setItems(ListaPaginada.de(ordenada.ordenados(ordenActual)));
+    }
+
+    /**
+     * Ejecuta un filtro en segundo plano y, al terminar, muestra el resultado en la tabla.
+     * 
+     * @param operacion Descripción de la operación.
+     * @param filtro Filtro a ejecutar sobre el catálogo.
+     */
+    private void filtrar(String operacion, Callable<? extends List<? extends Producto>> filtro) {
+        CompletableFuture<? extends List<? extends Producto>> filtrados = persistencia.ejecutar(operacion, filtro);
+        alTerminar(filtrados);
+        filtrados.thenAccept(lista -> Platform.runLater(() -> {
+            limpiarBusqueda();
+            mostrarFiltrados(lista);
+        }));
+    }
+
+    /**
+     * Busca en segundo plano los productos cuyo nombre contiene el texto, con el índice de
+     * trigramas del catálogo, y muestra hasta LIMITE_BUSQUEDA en la tabla. La búsqueda no
+     * informa avance ni se cancela con btnCancelar: la cancela la siguiente tecla, y su
+     * resultado se descarta si mientras tanto empezó otra. Con el texto vacío vuelve a
+     * mostrar el catálogo.
+     * 
+     * @param texto Texto a buscar.
+     */
+    private void buscar(String texto) {
+        String consulta = texto.strip();
+        if (consulta.isEmpty()) {
+            if (busquedaActual != null) {
+                busquedaActual = null;
+                lblEstado.setText("");
+                actualizarTabla();
+            }
+            return;
+        }
+        CompletableFuture<List<Producto>> tarea = persistencia.ejecutar(null,
+                () -> manager.buscarPorNombre(consulta, LIMITE_BUSQUEDA + 1));
+        busqueda = tarea;
+        tarea.thenAccept(encontrados -> Platform.runLater(() -> {
+            if (busqueda != tarea) {
+                return; // Empezó otra búsqueda o se eligió otra vista
+            }
+            busqueda = null;
+            busquedaActual = consulta;
+            boolean hayMas = encontrados.size() > LIMITE_BUSQUEDA;
+            mostrarFiltrados(hayMas ? encontrados.subList(0, LIMITE_BUSQUEDA) : encontrados);
+            lblEstado.setText(hayMas
+                    ? "Buscar: más de " + LIMITE_BUSQUEDA + " productos, se muestran los primeros"
+                    : "Buscar: " + encontrados.size() + " productos");
+        }));
+    }
+
+    /**
+     * Descarta la búsqueda en curso o mostrada y vacía el cuadro de búsqueda,
+     * antes de mostrar un orden o un filtro.
+     */
+    private void limpiarBusqueda() {
+        if (busqueda != null) {
+            busqueda.cancel(true);
+            busqueda = null;
+        }
+        busquedaActual = null;
+        txtBuscar.clear();
+        demoraBusqueda.stop();
+    }
+
+    /**
+     * Muestra en la tabla el resultado de un filtro. Cualquier cambio posterior
+     * del catálogo vuelve a mostrar el catálogo completo.
+     * 
+     * @param filtrados Productos filtrados.
+     */
+    private void mostrarFiltrados(List<? extends Producto> filtrados) {
+        listaCatalogo = null;
+        tableView.setItems(ListaPaginada.de(filtrados));
+    }
+
+    /**
+     * Muestra las mediciones de la tabla al desplazarse: vistas y propiedades creadas
+     * y tiempo de CSS y layout por desplazamiento.
+     */
+    @FXML
+    private void onMedicionDesplazamiento() {
+        Alert alert = new Alert(AlertType.INFORMATION, vistas.resumen(), ButtonType.OK);
+        alert.setTitle("Medición de desplazamiento");
+        alert.setHeaderText(null);
+        alert.getDialogPane().setMinHeight(Region.USE_PREF_SIZE);
+        alert.showAndWait();
     }
 
     /**
@@ -74,14 +384,12 @@ public class MainViewController {
     }
 
     /**
-     * Abre la ventana para agregar un nuevo producto y actualiza la tabla si se agregó correctamente.
+     * Abre la ventana para agregar un nuevo producto.
+     * Si se agrega, la tabla recibe la fila nueva por aplicarCambios.
      */
     @FXML
     private void onAgregarProducto() {
-        AgregarProductoController ctrl = AbrirVentanaHelper.abrirAgregarProductoView(manager);
-        if (ctrl != null && ctrl.isProductoAgregado()) {
-            actualizarTabla();
-        }
+        AbrirVentanaHelper.abrirAgregarProductoView(manager);
     }
 
     /**
@@ -99,10 +407,7 @@ public class MainViewController {
                 int id = Integer.parseInt(idStr);
                 Producto p = manager.obtenerPorId(id);
 
-                EditarProductoController ctrl = AbrirVentanaHelper.abrirEditarProductoView(manager, p);
-                if (ctrl != null && ctrl.isProductoEditado()) {
-                    actualizarTabla();
-                }
+                AbrirVentanaHelper.abrirEditarProductoView(manager, p); // La fila se actualiza por aplicarCambios
 
             } catch (ProductoNoEncontradoException ex) {
                 mostrarAlerta("No encontrado", ex.getMessage());
@@ -126,7 +431,6 @@ public class MainViewController {
             try {
                 int id = Integer.parseInt(idStr);
                 manager.eliminar(id);
-                actualizarTabla();
             } catch (ProductoNoEncontradoException ex) {
                 mostrarAlerta("No encontrado", ex.getMessage());
             } catch (NumberFormatException ex) {
@@ -140,8 +444,7 @@ public class MainViewController {
      */
     @FXML
     private void onOrdenarPorNombre() {
-        manager.ordenarPor(new ComparadorPorNombre());
-        actualizarTabla();
+        ordenar("Ordenar por nombre", new ComparadorPorNombre());
     }
 
     /**
@@ -149,8 +452,7 @@ public class MainViewController {
      */
     @FXML
     private void onOrdenarPorPrecio() {
-        manager.ordenarPor(new ComparadorPorPrecio());
-        actualizarTabla();
+        ordenar("Ordenar por precio", new ComparadorPorPrecio());
     }
 
     /**
@@ -158,8 +460,7 @@ public class MainViewController {
      */
     @FXML
     private void onFiltrarPrecio() {
-        var filtrados = manager.filtrar(p -> p.getPrecio() < 50);
-        tableView.getItems().setAll(filtrados);
+        filtrar("Filtrar precio", () -> manager.filtrarPorPrecio(0, 50));
     }
 
     /**
@@ -167,25 +468,36 @@ public class MainViewController {
      */
     @FXML
     private void onFiltrarAlimentos() {
-        var filtrados = manager.filtrarPorTipo(manager.obtenerTodos(), Alimento.class);
-        tableView.getItems().setAll(filtrados);
+        filtrar("Filtrar alimentos", () -> manager.filtrarPorTipo(Alimento.class));
     }
 
     /**
      * Incrementa el precio de todos los productos en un 10% y actualiza la tabla.
+     * El incremento se aplica en paralelo y en segundo plano, informando el avance; el primer error se muestra
+     * al terminar, ya que las alertas solo pueden abrirse desde el hilo de JavaFX.
+     * Una vez empezado, el incremento se aplica a todos los productos aunque se cancele.
      */
     @FXML
     private void onIncrementarPrecios() {
+        AtomicReference<PrecioInvalidoException> error = new AtomicReference<>();
         Consumer<Producto> incrementa = p -> {
             double nuevoPrecio = p.getPrecio() * 1.10;
             try {
                 p.setPrecio(nuevoPrecio);
             } catch (PrecioInvalidoException ex) {
-                mostrarAlerta("Error de Precio", ex.getMessage());
+                error.compareAndSet(null, ex);
             }
         };
-        manager.aplicar(incrementa);
-        actualizarTabla();
+        CompletableFuture<Void> incremento = persistencia.ejecutar("Incrementar precios", avance -> {
+            manager.aplicarParalelo(incrementa, avance);
+            return null;
+        });
+        alTerminar(incremento);
+        incremento.thenRun(() -> Platform.runLater(() -> {
+            if (error.get() != null) {
+                mostrarAlerta("Error de Precio", error.get().getMessage());
+            }
+        }));
     }
 
     /**
@@ -193,13 +505,16 @@ public class MainViewController {
      */
     @FXML
     private void onDescuentoAlimentos() {
-        manager.aplicarDescuentoAlimentos(manager.obtenerTodos(), 5);
-        actualizarTabla();
+        alTerminar(persistencia.ejecutar("Descuento alimentos", () -> {
+            manager.aplicarDescuentoAlimentos(manager.filtrarPorTipo(Alimento.class), 5);
+            return null;
+        }));
     }
 
     /**
      * Carga productos desde un archivo CSV y actualiza la tabla.
-     * Muestra errores en caso de fallas de lectura o precios inválidos.
+     * Las líneas inválidas no detienen la carga: se informan en un archivo
+     * junto al CSV y se muestra un resumen al terminar.
      */
     @FXML
     private void onCargarCSV() {
@@ -207,15 +522,30 @@ public class MainViewController {
         fc.setTitle("Cargar CSV");
         File f = fc.showOpenDialog(tableView.getScene().getWindow());
         if (f != null) {
-            try {
-                manager.cargarCSV(f.getAbsolutePath());
-                actualizarTabla();
-            } catch (IOException ex) {
-                mostrarAlerta("Error IO", ex.getMessage());
-            } catch (PrecioInvalidoException ex) {
-                mostrarAlerta("Precio Invalido", ex.getMessage());
-            }
+            Path rechazos = f.toPath().resolveSibling(f.getName() + ".rechazos.txt");
+            CompletableFuture<ResultadoImportacion> carga = persistencia.cargarCSV(f.toPath(), rechazos);
+            alTerminar(carga);
+            carga.thenAccept(r -> Platform.runLater(() -> mostrarRechazos(r, rechazos)));
+        }
+    }
+
+    /**
+     * Muestra un resumen de las líneas rechazadas en una carga, si las hubo.
+     * 
+     * @param resultado Resultado de la importación.
+     * @param archivo Archivo con el detalle de los rechazos.
+     */
+    private void mostrarRechazos(ResultadoImportacion resultado, Path archivo) {
+        if (resultado.getCantidadRechazos() == 0) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Se importaron ").append(resultado.getAceptados()).append(" productos y se rechazaron ")
+                .append(resultado.getCantidadRechazos()).append(" líneas. Detalle en ").append(archivo).append('\n');
+        for (ResultadoImportacion.Rechazo r : resultado.getRechazos().subList(0, Math.min(5, resultado.getRechazos().size()))) {
+            sb.append('\n').append(r);
         }
+        mostrarAlerta("Líneas rechazadas", sb.toString());
     }
 
     /**
@@ -231,14 +561,10 @@ public class MainViewController {
 
         File f = fc.showSaveDialog(tableView.getScene().getWindow());
         if (f != null) {
-            try {
-                if (!f.getName().endsWith(".csv")) {
-                    f = new File(f.getAbsolutePath() + ".csv");
-                }
-                manager.guardarCSV(f.getAbsolutePath());
-            } catch (IOException ex) {
-                mostrarAlerta("Error IO", ex.getMessage());
+            if (!f.getName().endsWith(".csv")) {
+                f = new File(f.getAbsolutePath() + ".csv");
             }
+            alTerminar(persistencia.guardarCSV(f.toPath()));
         }
     }
 
@@ -251,12 +577,7 @@ public class MainViewController {
         fc.setTitle("Cargar JSON");
         File f = fc.showOpenDialog(tableView.getScene().getWindow());
         if (f != null) {
-            try {
-                manager.cargarJSON(f.getAbsolutePath());
-                actualizarTabla();
-            } catch (IOException ex) {
-                mostrarAlerta("Error IO", ex.getMessage());
-            }
+            alTerminar(persistencia.cargarJSON(f.toPath()));
         }
     }
 
@@ -273,14 +594,10 @@ public class MainViewController {
 
         File f = fc.showSaveDialog(tableView.getScene().getWindow());
         if (f != null) {
-            try {
-                if (!f.getName().endsWith(".json")) {
-                    f = new File(f.getAbsolutePath() + ".json");
-                }
-                manager.guardarJSON(f.getAbsolutePath());
-            } catch (IOException ex) {
-                mostrarAlerta("Error IO", ex.getMessage());
+            if (!f.getName().endsWith(".json")) {
+                f = new File(f.getAbsolutePath() + ".json");
             }
+            alTerminar(persistencia.guardarJSON(f.toPath()));
         }
     }
 
@@ -299,11 +616,7 @@ public class MainViewController {
             if (!f.getName().endsWith(".bin") && !f.getName().endsWith(".dat")) {
                 f = new File(f.getAbsolutePath() + ".bin");
             }
-            try {
-                manager.serializar(f.getAbsolutePath());
-            } catch (IOException ex) {
-                mostrarAlerta("Error IO", ex.getMessage());
-            }
+            alTerminar(persistencia.serializar(f.toPath()));
         }
     }
 
@@ -319,12 +632,8 @@ public class MainViewController {
 
         File f = fc.showOpenDialog(tableView.getScene().getWindow());
         if (f != null) {
-            try {
-                manager.deserializar(f.getAbsolutePath());
-                actualizarTabla();
-            } catch (IOException | ClassNotFoundException ex) {
-                mostrarAlerta("Error", ex.getMessage());
-            }
+            // La tabla solo muestra ID, nombre y precio: el resto se lee al usarse
+            alTerminar(persistencia.deserializar(f.toPath(), true));
         }
     }
 
@@ -340,23 +649,23 @@ public class MainViewController {
 
         Optional<String> result = dialog.showAndWait();
         if (result.isPresent()) {
-            List<Producto> filtrados = new ArrayList<>();
+            Predicate<Producto> filtro;
 
             switch (result.get()) {
                 case "Precio < 100":
-                    filtrados.addAll(manager.filtrar(p -> p.getPrecio() < 100));
+                    filtro = p -> p.getPrecio() >= 0 && p.getPrecio() < 100;
                     break;
                 case "Solo Alimentos":
-                    filtrados.addAll(manager.filtrarPorTipo(manager.obtenerTodos(), Alimento.class));
+                    filtro = p -> p instanceof Alimento;
                     break;
                 case "Solo Electrónicos":
-                    filtrados.addAll(manager.filtrarPorTipo(manager.obtenerTodos(), Electronico.class));
+                    filtro = p -> p instanceof Electronico;
                     break;
                 case "Solo Ropa":
-                    filtrados.addAll(manager.filtrarPorTipo(manager.obtenerTodos(), Ropa.class));
+                    filtro = p -> p instanceof Ropa;
                     break;
                 default:
-                    filtrados.addAll(manager.obtenerTodos());
+                    filtro = p -> true;
             }
 
             FileChooser fc = new FileChooser();
@@ -367,14 +676,10 @@ public class MainViewController {
 
             File f = fc.showSaveDialog(tableView.getScene().getWindow());
             if (f != null) {
-                try {
-                    if (!f.getName().endsWith(".txt")) {
-                        f = new File(f.getAbsolutePath() + ".txt");
-                    }
-                    manager.exportarTxt(f.getAbsolutePath(), filtrados);
-                } catch (IOException ex) {
-                    mostrarAlerta("Error IO", ex.getMessage());
+                if (!f.getName().endsWith(".txt")) {
+                    f = new File(f.getAbsolutePath() + ".txt");
                 }
+                alTerminar(persistencia.exportarTxt(f.toPath(), filtro));
             }
         }
     }
@@ -0,0 +1,128 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package views;
+
+import model.Producto.Producto;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+
+/**
+ * Modelo de vista de un producto para las celdas de la tabla.
+ *
+ * Cada propiedad se crea la primera vez que una columna la pide y se reutiliza en los
+ * dibujos siguientes de la fila. Producto no es observable, así que las propiedades se
+ * vuelven a leer del producto con {@link #actualizar()}; las celdas que las muestran se
+ * redibujan solas si el valor cambió.
+ *
+ * Las vistas las crea y libera CacheVistas según las filas visibles.
+ *
+ * @author joaxx
+ */
+public class ProductoVista {
+
+    private final Producto producto;
+    private final CacheVistas cache;
+    private int filas; // Filas de la tabla que muestran el producto
+    private SimpleIntegerProperty id;
+    private SimpleStringProperty nombre;
+    private SimpleDoubleProperty precio;
+
+    /**
+     * Constructor de la vista, sin propiedades creadas.
+     *
+     * @param producto Producto que muestra.
+     * @param cache Cache que cuenta las propiedades creadas.
+     */
+    ProductoVista(Producto producto, CacheVistas cache) {
+        this.producto = producto;
+        this.cache = cache;
+    }
+
+    /**
+     * Obtiene el producto que muestra la vista.
+     *
+     * @return Producto de la vista.
+     */
+    public Producto getProducto() {
+        return producto;
+    }
+
+    /**
+     * Obtiene la propiedad con el ID del producto, creándola si es la primera vez.
+     *
+     * @return Propiedad de solo lectura con el ID.
+     */
+    public ReadOnlyIntegerProperty idProperty() {
+        if (id == null) {
+            id = new SimpleIntegerProperty(this, "id", producto.getId());
+            cache.propiedadCreada();
+        }
+        return id;
+    }
+
+    /**
+     * Obtiene la propiedad con el nombre del producto, creándola si es la primera vez.
+     *
+     * @return Propiedad de solo lectura con el nombre.
+     */
+    public ReadOnlyStringProperty nombreProperty() {
+        if (nombre == null) {
+            nombre = new SimpleStringProperty(this, "nombre", producto.getNombre());
+            cache.propiedadCreada();
+        }
+        return nombre;
+    }
+
+    /**
+     * Obtiene la propiedad con el precio del producto, creándola si es la primera vez.
+     *
+     * @return Propiedad de solo lectura con el precio.
+     */
+    public ReadOnlyDoubleProperty precioProperty() {
+        if (precio == null) {
+            precio = new SimpleDoubleProperty(this, "precio", producto.getPrecio());
+            cache.propiedadCreada();
+        }
+        return precio;
+    }
+
+    /**
+     * Vuelve a leer del producto los valores de las propiedades ya creadas, por ejemplo
+     * después de un setPrecio. Las propiedades solo avisan si el valor cambió.
+     */
+    void actualizar() {
+        if (id != null) {
+            id.set(producto.getId());
+        }
+        if (nombre != null) {
+            nombre.set(producto.getNombre());
+        }
+        if (precio != null) {
+            precio.set(producto.getPrecio());
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de filas que muestran el producto.
+     *
+     * @return Filas que retienen la vista.
+     */
+    int getFilas() {
+        return filas;
+    }
+
+    /**
+     * Cambia la cantidad de filas que muestran el producto.
+     *
+     * @param filas Filas que retienen la vista.
+     */
+    void setFilas(int filas) {
+        this.filas = filas;
+    }
+}
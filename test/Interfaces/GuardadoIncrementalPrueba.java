@@ -0,0 +1,103 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.enums.MarcaElectronicos;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Verifica que guardarIncremental y cargarIncremental reconstruyen el catálogo con los
+ * mismos productos y en el mismo orden, después de varios parches con altas, modificaciones
+ * y bajas.
+ *
+ * @author joaxx
+ */
+public class GuardadoIncrementalPrueba {
+
+    private static final int BASE = 5000;
+    private static final int ALTAS_POR_PARCHE = 3000;
+    private static final int PARCHES = 3;
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("guardado-incremental");
+        try {
+            String base = directorio.resolve("catalogo.bin").toString();
+            ProductoManager manager = new ProductoManager();
+            agregar(manager, BASE, "Base");
+            manager.compactar(base);
+            for (int parche = 1; parche <= PARCHES; parche++) {
+                agregar(manager, ALTAS_POR_PARCHE, "Parche " + parche);
+                List<Producto> actuales = manager.obtenerTodos();
+                for (int i = parche; i < actuales.size(); i += 97) {
+                    Producto p = actuales.get(i);
+                    p.setNombre(p.getNombre() + " modificado");
+                    manager.actualizar(p);
+                }
+                for (int i = parche * 7; i < actuales.size(); i += 131) {
+                    manager.eliminar(actuales.get(i).getId());
+                }
+                manager.guardarIncremental(base);
+                Verificar.iguales(0, manager.cantidadCambiosPendientes(), "Cambios pendientes después de guardar");
+
+                ProductoManager cargado = new ProductoManager();
+                cargado.cargarIncremental(base);
+                verificarIguales(manager.obtenerTodos(), cargado.obtenerTodos(), "Parche " + parche);
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Agrega productos de dos tipos alternados.
+     *
+     * @param manager Gestor de productos.
+     * @param cantidad Cantidad de productos.
+     * @param prefijo Prefijo de los nombres.
+     * @throws Exception Si un precio es inválido.
+     */
+    private static void agregar(ProductoManager manager, int cantidad, String prefijo) throws Exception {
+        for (int i = 0; i < cantidad; i++) {
+            double precio = 10 + (i * 37) % 1000;
+            if (i % 2 == 0) {
+                manager.agregar(new Alimento(0, prefijo + " alimento " + i, precio, TipoAlimento.PERECEDERO, 200));
+            } else {
+                manager.agregar(new Electronico(0, prefijo + " electrónico " + i, precio, MarcaElectronicos.SONY, 24));
+            }
+        }
+    }
+
+    /**
+     * Verifica que dos listas tienen los mismos productos, en el mismo orden.
+     *
+     * @param esperados Productos del catálogo guardado.
+     * @param obtenidos Productos cargados.
+     * @param etapa Etapa de la prueba, para los mensajes.
+     */
+    private static void verificarIguales(List<Producto> esperados, List<Producto> obtenidos, String etapa) {
+        Verificar.iguales(esperados.size(), obtenidos.size(), etapa + ": cantidad de productos");
+        for (int i = 0; i < esperados.size(); i++) {
+            Producto e = esperados.get(i);
+            Producto o = obtenidos.get(i);
+            Verificar.iguales(e.getId(), o.getId(), etapa + ": ID en la posición " + i);
+            Verificar.iguales(e.getNombre(), o.getNombre(), etapa + ": nombre del producto " + e.getId());
+            Verificar.iguales(e.getPrecio(), o.getPrecio(), etapa + ": precio del producto " + e.getId());
+            Verificar.iguales(e.getClass(), o.getClass(), etapa + ": tipo del producto " + e.getId());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import comparators.ComparadorPorNombre;
+import model.Producto.Alimento;
+import model.Producto.Producto;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de las páginas de ProductoManager mientras otra operación tiene el catálogo
+ * bloqueado: obtenerPagina lee de la instantánea, con y sin comparador, y devuelve lo
+ * mismo que obtenerTodos y obtenerOrdenados. También verifica el ordenamiento con avance
+ * de InstantaneaProductos (estable, con avance creciente hasta 1 e interrumpible) y el
+ * avance de aplicarParalelo.
+ *
+ * @author joaxx
+ */
+public class PaginasSinBloqueoPrueba {
+
+    private static final int CANTIDAD = 100_000;
+    private static final int PAGINA = 128;
+    private static final long ESPERA_MAXIMA_MS = 10_000;
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args Semilla opcional.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        long semilla = args.length > 0 ? Long.parseLong(args[0]) : 3;
+        Random azar = new Random(semilla);
+        ProductoManager manager = new ProductoManager();
+        List<Producto> nuevos = new ArrayList<>();
+        for (int i = 0; i < CANTIDAD; i++) {
+            nuevos.add(new Alimento(0, "Alimento " + azar.nextInt(CANTIDAD / 4), azar.nextInt(10000) / 100.0, TipoAlimento.PERECEDERO, i));
+        }
+        manager.agregarTodos(nuevos);
+        for (int i = 0; i < 100; i++) {
+            manager.eliminar(3 + i * 997); // Deja posiciones libres en toda la lista
+        }
+
+        // Las páginas coinciden con el recorrido completo y con el orden de los índices
+        ComparadorPorNombre porNombre = new ComparadorPorNombre();
+        List<Producto> todos = manager.obtenerTodos();
+        List<Producto> ordenados = manager.obtenerOrdenados(porNombre);
+        for (int desde = 0; desde < todos.size(); desde += PAGINA * 37) {
+            int hasta = Math.min(todos.size(), desde + PAGINA);
+            Verificar.iguales(todos.subList(desde, hasta), manager.obtenerPagina(null, desde, hasta), "Página en orden de carga desde " + desde);
+            Verificar.iguales(ordenados.subList(desde, hasta), manager.obtenerPagina(porNombre, desde, hasta), "Página por nombre desde " + desde);
+        }
+        Verificar.iguales(0, manager.obtenerPagina(null, todos.size() + 10, todos.size() + 20).size(), "Página fuera del catálogo");
+
+        // Con el catálogo bloqueado por aplicarParalelo, las páginas se siguen leyendo
+        manager.eliminar(todos.get(0).getId()); // Descarta la instantánea: aplicarParalelo publica una antes de bloquear
+        List<Producto> antes = todos.subList(1, todos.size());
+        CountDownLatch empezado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<Double> avances = new ArrayList<>();
+        CompletableFuture<Void> bloqueo = CompletableFuture.runAsync(() -> manager.aplicarParalelo(p -> {
+            empezado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, f -> {
+            synchronized (avances) {
+                avances.add(f);
+            }
+        }));
+        Verificar.verdadero(empezado.await(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS), "aplicarParalelo no empezó");
+        Comparator<Producto> porId = Comparator.comparingInt(Producto::getId).reversed();
+        CompletableFuture<List<Producto>> pagina = CompletableFuture.supplyAsync(() -> manager.obtenerPagina(null, 10, 10 + PAGINA));
+        CompletableFuture<List<Producto>> paginaOrdenada = CompletableFuture.supplyAsync(() -> manager.obtenerPagina(porId, 0, PAGINA));
+        Verificar.iguales(antes.subList(10, 10 + PAGINA), pagina.get(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS),
+                "Página leída con el catálogo bloqueado");
+        Verificar.iguales(antes.get(antes.size() - 1), paginaOrdenada.get(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS).get(0),
+                "Página ordenada leída con el catálogo bloqueado");
+        liberar.countDown();
+        bloqueo.get(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS);
+        Verificar.verdadero(!avances.isEmpty(), "aplicarParalelo debe informar el avance");
+        for (double f : avances) {
+            Verificar.verdadero(f > 0 && f <= 1, "Avance de aplicarParalelo fuera de rango: " + f);
+        }
+        Verificar.verdadero(avances.stream().anyMatch(f -> f > 0.5), "El avance debe incluir la actualización de los índices");
+
+        // Ordenamiento estable con avance creciente hasta 1, igual a List.sort
+        Comparator<Producto> porDecena = Comparator.comparingInt(p -> (int) (p.getPrecio() / 10));
+        InstantaneaProductos instantanea = manager.obtenerInstantanea();
+        List<Double> fracciones = new ArrayList<>();
+        InstantaneaProductos preparada = manager.prepararOrden(porDecena, fracciones::add);
+        List<Producto> esperado = new ArrayList<>(instantanea.getProductos());
+        esperado.sort(porDecena);
+        Verificar.iguales(esperado, preparada.ordenados(porDecena), "Orden estable por decena de precio");
+        Verificar.verdadero(preparada.ordenados(porDecena) == preparada.ordenados(porDecena, null), "La copia ordenada se reutiliza");
+        for (int i = 1; i < fracciones.size(); i++) {
+            Verificar.verdadero(fracciones.get(i) >= fracciones.get(i - 1), "Avance decreciente en la posición " + i);
+        }
+        Verificar.iguales(1.0, fracciones.get(fracciones.size() - 1), "Avance final del ordenamiento");
+        Verificar.verdadero(fracciones.size() > 10, "El ordenamiento debe informar avances intermedios");
+
+        // Un ordenamiento interrumpido no guarda nada
+        Comparator<Producto> porNombreInverso = porNombre.reversed();
+        Thread.currentThread().interrupt();
+        Verificar.lanza(InterruptedException.class, () -> instantanea.ordenados(porNombreInverso, null), "Ordenamiento interrumpido");
+        Verificar.verdadero(Thread.interrupted(), "La interrupción debe seguir marcada");
+        Verificar.iguales(manager.obtenerOrdenados(porNombreInverso), instantanea.ordenados(porNombreInverso), "Orden después de la interrupción");
+    }
+}
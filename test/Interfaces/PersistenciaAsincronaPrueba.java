@@ -0,0 +1,155 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Alimento;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Verifica el último avance que informa PersistenciaAsincrona: 1 si la operación terminó
+ * bien, FALLIDO si terminó con error (al guardar o en otra operación) y nunca 1 en ese caso.
+ *
+ * También verifica que un guardado cancelado mientras escribe no se superponga con el
+ * siguiente guardado del mismo archivo ni borre su archivo temporal.
+ *
+ * @author joaxx
+ */
+public class PersistenciaAsincronaPrueba {
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        ProductoManager manager = new ProductoManager();
+        manager.agregar(new Alimento(0, "Leche", 10, TipoAlimento.PERECEDERO, 5));
+        List<Double> avances = new CopyOnWriteArrayList<>();
+        Path directorio = Verificar.directorioTemporal("persistencia-asincrona");
+        try (PersistenciaAsincrona persistencia = new PersistenciaAsincrona(manager, Runnable::run,
+                (operacion, avance) -> avances.add(avance), 0)) {
+            esperar(persistencia.guardarCSV(directorio.resolve("catalogo.csv")), false);
+            Verificar.iguales(1.0, avances.get(avances.size() - 1), "Avance final de un guardado correcto");
+
+            avances.clear();
+            esperar(persistencia.guardarCSV(directorio.resolve("no-existe").resolve("catalogo.csv")), true);
+            Verificar.iguales(PersistenciaAsincrona.FALLIDO, avances.get(avances.size() - 1), "Avance final de un guardado fallido");
+            Verificar.verdadero(!avances.contains(1.0), "Un guardado fallido informó que terminó");
+
+            avances.clear();
+            esperar(persistencia.ejecutar("Falla", () -> {
+                throw new IllegalStateException("falla");
+            }), true);
+            Verificar.iguales(PersistenciaAsincrona.FALLIDO, avances.get(avances.size() - 1), "Avance final de una operación fallida");
+            Verificar.verdadero(!avances.contains(1.0), "Una operación fallida informó que terminó");
+
+            avances.clear();
+            esperar(persistencia.cargarCSV(directorio.resolve("catalogo.csv")), false);
+            Verificar.iguales(1.0, avances.get(avances.size() - 1), "Avance final de una carga correcta");
+        } finally {
+            Verificar.borrar(directorio);
+        }
+        verificarGuardadoCancelado();
+    }
+
+    /**
+     * Cancela un guardado mientras escribe y pide otro sobre el mismo archivo. El segundo
+     * debe empezar recién cuando el primero deja de escribir y su archivo debe quedar
+     * completo, sin temporales sobrantes.
+     *
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarGuardadoCancelado() throws Exception {
+        ProductoManager manager = new ProductoManager();
+        for (int i = 0; i < 1000; i++) {
+            manager.agregar(new Alimento(0, "Alimento " + i, i, TipoAlimento.PERECEDERO, i));
+        }
+        CountDownLatch escribiendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger activos = new AtomicInteger();
+        AtomicInteger superpuestos = new AtomicInteger();
+        PersistenciaAsincrona.Progreso progreso = (operacion, avance) -> {
+            if (avance == PersistenciaAsincrona.INDETERMINADO) {
+                if (activos.getAndIncrement() > 0) {
+                    superpuestos.incrementAndGet();
+                }
+                if (escribiendo.getCount() > 0) {
+                    escribiendo.countDown();
+                    esperarSinInterrupcion(liberar); // El primer guardado queda escribiendo hasta que se libere
+                }
+            } else if (avance == 1 || avance == PersistenciaAsincrona.CANCELADO || avance == PersistenciaAsincrona.FALLIDO) {
+                activos.decrementAndGet();
+            }
+        };
+        Path directorio = Verificar.directorioTemporal("persistencia-cancelada");
+        try (PersistenciaAsincrona persistencia = new PersistenciaAsincrona(manager, Runnable::run, progreso, 0)) {
+            Path destino = directorio.resolve("catalogo.csv");
+            CompletableFuture<Void> primero = persistencia.guardarCSV(destino);
+            escribiendo.await();
+            primero.cancel(true);
+            CompletableFuture<Void> segundo = persistencia.guardarCSV(destino);
+            Thread.sleep(300); // Tiempo para que el segundo empiece si no esperara al primero
+            liberar.countDown();
+            esperar(segundo, false);
+            Verificar.iguales(0, superpuestos.get(), "Guardados superpuestos sobre el mismo archivo");
+            ProductoManager cargado = new ProductoManager();
+            cargado.cargarCSV(destino.toString());
+            Verificar.iguales(manager.cantidad(), cargado.cantidad(), "Productos del guardado posterior al cancelado");
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                Verificar.iguales(List.of(destino), archivos.toList(), "Archivos después de los guardados");
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Espera a que se libere un cerrojo aunque el hilo se interrumpa, y conserva la interrupción.
+     *
+     * @param cerrojo Cerrojo a esperar.
+     */
+    private static void esperarSinInterrupcion(CountDownLatch cerrojo) {
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                cerrojo.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Espera una operación y verifica si terminó con error.
+     *
+     * @param futuro Futuro de la operación.
+     * @param conError true si se espera que falle.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    private static void esperar(CompletableFuture<?> futuro, boolean conError) throws InterruptedException {
+        try {
+            futuro.get();
+            Verificar.verdadero(!conError, "La operación debía fallar");
+        } catch (ExecutionException ex) {
+            Verificar.verdadero(conError, "La operación falló: " + ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import model.Producto.Alimento;
+import model.Producto.Producto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Mide el rendimiento de ProductoManagerConcurrente y de ProductoManager (con métodos
+ * synchronized) con una mezcla de 70% lecturas por ID, 20% actualizaciones y 10% altas,
+ * de 1 hilo hasta el doble de los núcleos disponibles.
+ *
+ * Uso: ant medir -Dmedicion=Interfaces.ProductoManagerConcurrenteMedicion [-Dmedir.args="segundos"]
+ *
+ * @author joaxx
+ */
+public class ProductoManagerConcurrenteMedicion {
+
+    private static final int PRODUCTOS = 100_000;
+
+    /**
+     * Ejecuta la medición e imprime operaciones por segundo para cada cantidad de hilos.
+     *
+     * @param args Segundos por medición (por defecto 2).
+     * @throws Exception Si falla algún hilo.
+     */
+    public static void main(String[] args) throws Exception {
+        double segundos = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Núcleos: %d, %d productos, %.1f s por medición%n", nucleos, PRODUCTOS, segundos);
+        System.out.printf("%6s %18s %18s%n", "hilos", "Concurrente op/s", "synchronized op/s");
+        for (int hilos = 1; hilos <= Math.max(2, nucleos * 2); hilos *= 2) {
+            double concurrente = medir(ProductoManagerConcurrente::new, hilos, segundos);
+            double sincronizado = medir(ProductoManager::new, hilos, segundos);
+            System.out.printf("%6d %18.0f %18.0f%n", hilos, concurrente, sincronizado);
+        }
+    }
+
+    /**
+     * Mide las operaciones por segundo de un catálogo con varios hilos.
+     *
+     * @param crear Crea el catálogo a medir.
+     * @param hilos Cantidad de hilos.
+     * @param segundos Duración de la medición.
+     * @return Operaciones por segundo sumando todos los hilos.
+     * @throws Exception Si falla algún hilo.
+     */
+    private static double medir(Supplier<CrudRepository<Producto>> crear, int hilos, double segundos) throws Exception {
+        CrudRepository<Producto> catalogo = crear.get();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            catalogo.agregar(new Alimento(0, "p" + i, 1 + i % 1000, null, i));
+        }
+        LongAdder operaciones = new LongAdder();
+        CyclicBarrier largada = new CyclicBarrier(hilos + 1);
+        long duracion = (long) (segundos * 1e9);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                long hechas = 0;
+                try {
+                    largada.await();
+                    long fin = System.nanoTime() + duracion;
+                    while ((hechas & 255) != 0 || System.nanoTime() < fin) {
+                        int operacion = azar.nextInt(10);
+                        int id = 1 + azar.nextInt(PRODUCTOS);
+                        if (operacion < 7) {
+                            catalogo.obtenerPorId(id);
+                        } else if (operacion < 9) {
+                            catalogo.actualizar(new Alimento(id, "v", 1 + azar.nextInt(1000), null, 0));
+                        } else {
+                            catalogo.agregar(new Alimento(0, "n", 10, null, 0));
+                        }
+                        hechas++;
+                    }
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+                operaciones.add(hechas);
+            });
+            t.start();
+            trabajadores.add(t);
+        }
+        largada.await();
+        long inicio = System.nanoTime();
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        return operaciones.sum() / ((System.nanoTime() - inicio) / 1e9);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package Interfaces;
+
+import exceptions.ProductoNoEncontradoException;
+import model.Producto.Alimento;
+import model.Producto.Producto;
+import pruebas.Verificar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prueba de estrés de ProductoManagerConcurrente: varios hilos agregan, actualizan y
+ * eliminan productos a la vez mientras otros leen. Al terminar, los IDs deben ser únicos
+ * y consecutivos, y el catálogo debe tener exactamente los productos que cada escritor
+ * dejó, con su última versión.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerConcurrentePrueba {
+
+    private static final int ESCRITORES = 4;
+    private static final int LECTORES = 2;
+    private static final int OPERACIONES = 20_000; // Por escritor
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        ProductoManagerConcurrente manager = new ProductoManagerConcurrente();
+        ExecutorService hilos = Executors.newFixedThreadPool(ESCRITORES + LECTORES);
+        CyclicBarrier largada = new CyclicBarrier(ESCRITORES + LECTORES);
+        AtomicBoolean escribiendo = new AtomicBoolean(true);
+        List<Future<Map<Integer, Producto>>> escritores = new ArrayList<>();
+        for (int e = 0; e < ESCRITORES; e++) {
+            escritores.add(hilos.submit(() -> escribir(manager, largada)));
+        }
+        List<Future<Integer>> lectores = new ArrayList<>();
+        for (int l = 0; l < LECTORES; l++) {
+            lectores.add(hilos.submit(() -> leer(manager, largada, escribiendo)));
+        }
+
+        Map<Integer, Producto> esperados = new HashMap<>();
+        int agregados = 0;
+        for (Future<Map<Integer, Producto>> f : escritores) {
+            Map<Integer, Producto> propios = f.get();
+            agregados += propios.size();
+            for (Map.Entry<Integer, Producto> e : propios.entrySet()) {
+                Verificar.verdadero(esperados.put(e.getKey(), e.getValue()) == null, "ID repetido entre escritores: " + e.getKey());
+            }
+        }
+        escribiendo.set(false);
+        for (Future<Integer> f : lectores) {
+            Verificar.verdadero(f.get() > 0, "Cada lector debe completar al menos una lectura");
+        }
+        hilos.shutdown();
+
+        for (int id = 1; id <= agregados; id++) {
+            Verificar.verdadero(esperados.containsKey(id), "Los IDs deben ser consecutivos; falta " + id);
+        }
+        esperados.values().removeIf(p -> p == null); // Eliminados
+        Verificar.iguales(esperados.size(), manager.cantidad(), "Cantidad final");
+        for (Producto p : manager.obtenerTodos()) {
+            Verificar.verdadero(esperados.get(p.getId()) == p, "Producto " + p.getId() + " debe ser la última versión de su escritor");
+        }
+    }
+
+    /**
+     * Agrega productos y, al azar, reemplaza o elimina alguno de los propios.
+     *
+     * @param manager Catálogo compartido.
+     * @param largada Barrera para empezar todos a la vez.
+     * @return Última versión de cada producto agregado por el hilo, o null si lo eliminó.
+     * @throws Exception Si la barrera falla.
+     */
+    private static Map<Integer, Producto> escribir(ProductoManagerConcurrente manager, CyclicBarrier largada) throws Exception {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        Map<Integer, Producto> propios = new HashMap<>();
+        List<Integer> vivos = new ArrayList<>();
+        largada.await();
+        for (int i = 0; i < OPERACIONES; i++) {
+            int operacion = azar.nextInt(10);
+            if (operacion < 6 || vivos.isEmpty()) {
+                Producto p = new Alimento(0, "p" + i, 1 + azar.nextInt(1000), null, i);
+                manager.agregar(p);
+                propios.put(p.getId(), p);
+                vivos.add(p.getId());
+            } else if (operacion < 9) {
+                int id = vivos.get(azar.nextInt(vivos.size()));
+                Producto nuevo = new Alimento(id, "v" + i, 1 + azar.nextInt(1000), null, i);
+                manager.actualizar(nuevo);
+                propios.put(id, nuevo);
+            } else {
+                int id = vivos.remove(azar.nextInt(vivos.size()));
+                manager.eliminar(id);
+                propios.put(id, null);
+                int eliminado = id;
+                Verificar.lanza(ProductoNoEncontradoException.class, () -> manager.obtenerPorId(eliminado), "Obtener un eliminado");
+            }
+        }
+        return propios;
+    }
+
+    /**
+     * Lee el catálogo completo hasta que terminan los escritores, verificando que
+     * cada lectura está ordenada por ID y sin repetidos.
+     *
+     * @param manager Catálogo compartido.
+     * @param largada Barrera para empezar todos a la vez.
+     * @param escribiendo Indica si los escritores siguen trabajando.
+     * @return Cantidad de lecturas completas.
+     * @throws Exception Si la barrera falla.
+     */
+    private static int leer(ProductoManagerConcurrente manager, CyclicBarrier largada, AtomicBoolean escribiendo) throws Exception {
+        largada.await();
+        int lecturas = 0;
+        do {
+            int anterior = 0;
+            for (Producto p : manager.obtenerTodos()) {
+                Verificar.verdadero(p.getId() > anterior, "obtenerTodos debe estar ordenado por ID sin repetidos");
+                anterior = p.getId();
+            }
+            manager.filtrar(p -> p.getPrecio() < 100);
+            lecturas++;
+        } while (escribiendo.get());
+        return lecturas;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package indexes;
+
+import Interfaces.ProductoManager;
+import comparators.ComparadorPorNombre;
+import model.Producto.Alimento;
+import model.Producto.Producto;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica ProductoManager.buscarPorNombre contra un recorrido completo en orden de nombre:
+ * con y sin trigramas, con límites menores que la cantidad de coincidencias y después de
+ * renombrar y eliminar productos, también en forma masiva. Los nombres se generan de modo
+ * que el orden por ID no coincida con el orden por nombre. También verifica que una búsqueda
+ * corta se detenga si se interrumpe el hilo.
+ *
+ * @author joaxx
+ */
+public class BusquedaPorNombrePrueba {
+
+    private static final int CANTIDAD = 20000;
+    private static final String[] PALABRAS = {
+        "Café", "cafetera", "Leche", "té verde", "Azúcar", "arroz", "Mate", "galletas", "CAFÉ"
+    };
+    private static final String[] BUSQUEDAS = {"cafe", "CAF", "te", "a", "leche", "ZUC", "eta", "xyz", "é v"};
+    private static final int[] LIMITES = {1, 10, 100, 100000};
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Random azar = new Random(7);
+        ProductoManager manager = new ProductoManager();
+        for (int i = 0; i < CANTIDAD; i++) {
+            manager.agregar(new Alimento(0, nombre(azar), 1 + i % 100, TipoAlimento.PERECEDERO, i));
+        }
+        verificarBusquedas(manager, "Carga inicial");
+
+        for (int i = 0; i < 2000; i++) {
+            List<Producto> todos = manager.obtenerTodos();
+            Producto p = todos.get(azar.nextInt(todos.size()));
+            if (i % 2 == 0) {
+                manager.actualizar(new Alimento(p.getId(), nombre(azar), p.getPrecio(), TipoAlimento.PERECEDERO, 0));
+            } else {
+                manager.eliminar(p.getId());
+            }
+        }
+        verificarBusquedas(manager, "Después de cambios");
+
+        // Una búsqueda corta interrumpida no recorre todo el índice por nombre
+        int todas = manager.buscarPorNombre("a", Integer.MAX_VALUE).size();
+        Thread.currentThread().interrupt();
+        int interrumpida = manager.buscarPorNombre("a", Integer.MAX_VALUE).size();
+        Verificar.verdadero(Thread.interrupted(), "La interrupción debe seguir marcada");
+        Verificar.verdadero(interrumpida < todas, "Búsqueda corta interrumpida: " + interrumpida + " de " + todas);
+
+        // Casi el mismo nombre: el ID se quita y se vuelve a agregar en las mismas listas de trigramas
+        List<Producto> todos = manager.obtenerTodos();
+        for (int i = 0; i < todos.size(); i += 3) {
+            Producto p = todos.get(i);
+            manager.actualizar(new Alimento(p.getId(), p.getNombre() + "!", p.getPrecio(), TipoAlimento.PERECEDERO, 0));
+        }
+        verificarBusquedas(manager, "Después de renombrar con casi el mismo nombre");
+
+        // Bajas masivas, que marcan los IDs quitados y compactan las listas de a tramos
+        for (int i = 0; i < todos.size(); i++) {
+            if (i % 4 != 0) {
+                manager.eliminar(todos.get(i).getId());
+            }
+        }
+        verificarBusquedas(manager, "Después de bajas masivas");
+    }
+
+    /**
+     * Compara cada búsqueda y límite con el recorrido completo.
+     *
+     * @param manager Catálogo a consultar.
+     * @param etapa Etapa de la prueba, para los mensajes.
+     */
+    private static void verificarBusquedas(ProductoManager manager, String etapa) {
+        List<Producto> porNombre = manager.obtenerOrdenados(new ComparadorPorNombre());
+        for (String texto : BUSQUEDAS) {
+            String buscado = IndiceTrigramas.normalizar(texto);
+            List<Producto> coincidencias = new ArrayList<>();
+            for (Producto p : porNombre) {
+                if (IndiceTrigramas.normalizar(p.getNombre()).contains(buscado)) {
+                    coincidencias.add(p);
+                }
+            }
+            for (int limite : LIMITES) {
+                List<Producto> esperado = coincidencias.subList(0, Math.min(limite, coincidencias.size()));
+                List<Producto> obtenido = manager.buscarPorNombre(texto, limite);
+                String caso = etapa + ", \"" + texto + "\" con límite " + limite;
+                Verificar.iguales(esperado.size(), obtenido.size(), caso + ": cantidad");
+                for (int i = 0; i < esperado.size(); i++) {
+                    Verificar.iguales(esperado.get(i).getId(), obtenido.get(i).getId(), caso + ": resultado " + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Genera un nombre de dos palabras con un número.
+     *
+     * @param azar Generador de números al azar.
+     * @return Nombre nuevo.
+     */
+    private static String nombre(Random azar) {
+        return PALABRAS[azar.nextInt(PALABRAS.length)] + " " + PALABRAS[azar.nextInt(PALABRAS.length)] + " " + azar.nextInt(1000);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model.Producto;
+
+import Interfaces.ProductoManager;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Verifica que los productos se siguen leyendo de archivos guardados con la versión
+ * original de la aplicación (Java serialization de la lista de productos), y que el
+ * formato actual vuelve a cargar los mismos valores, también con detalles diferidos.
+ *
+ * catalogo-original.bin se escribió con ProductoManager.serializar de la versión original
+ * y contiene un producto de cada tipo; si cambia el serialVersionUID de alguna clase
+ * de producto, deja de poder leerse.
+ *
+ * @author joaxx
+ */
+public class SerializacionProductoPrueba {
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("serializacion");
+        try {
+            Path original = directorio.resolve("catalogo-original.bin");
+            try (InputStream in = SerializacionProductoPrueba.class.getResourceAsStream("catalogo-original.bin")) {
+                Files.copy(in, original);
+            }
+            ProductoManager manager = new ProductoManager();
+            manager.deserializar(original.toString());
+            verificarOriginal(manager.obtenerTodos());
+
+            Path actual = directorio.resolve("catalogo.bin");
+            manager.serializar(actual.toString());
+            for (boolean diferidos : new boolean[]{false, true}) {
+                ProductoManager recargado = new ProductoManager();
+                recargado.deserializar(actual.toString(), diferidos);
+                verificarOriginal(recargado.obtenerTodos());
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Verifica los productos de catalogo-original.bin.
+     *
+     * @param productos Productos cargados.
+     */
+    private static void verificarOriginal(List<Producto> productos) {
+        Verificar.iguales(4, productos.size(), "Cantidad de productos");
+        Alimento cafe = (Alimento) productos.get(0);
+        Verificar.iguales(1, cafe.getId(), "ID del alimento");
+        Verificar.iguales("Café molido", cafe.getNombre(), "Nombre del alimento");
+        Verificar.iguales(1250.5, cafe.getPrecio(), "Precio del alimento");
+        Verificar.iguales(TipoAlimento.NO_PERECEDERO, cafe.getTipo(), "Tipo del alimento");
+        Verificar.iguales(2, cafe.getCalorias(), "Calorías del alimento");
+        Electronico auriculares = (Electronico) productos.get(1);
+        Verificar.iguales("Auriculares, inalámbricos", auriculares.getNombre(), "Nombre del electrónico");
+        Verificar.iguales(MarcaElectronicos.SONY, auriculares.getMarca(), "Marca del electrónico");
+        Verificar.iguales(12, auriculares.getGarantiaMeses(), "Garantía del electrónico");
+        Ropa campera = (Ropa) productos.get(2);
+        Verificar.iguales(TallaRopa.M, campera.getTalla(), "Talla de la ropa");
+        Verificar.iguales("Algodón", campera.getMaterial(), "Material de la ropa");
+        Verificar.iguales(4, productos.get(3).getId(), "ID del último producto");
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara ProductoManager.cargarCSV con la carga anterior, que leía el archivo con
+ * BufferedReader.readLine y partía cada línea con split(","), sobre el mismo archivo de
+ * productos con nombres sin comas ni comillas (los únicos que la carga anterior aceptaba).
+ * La carga anterior solo llenaba una lista; cargarCSV además valida, rechaza IDs repetidos
+ * y arma los índices, así que también se mide la carga anterior seguida de agregarTodos,
+ * que arma los mismos índices. Se informa el mejor tiempo de varias repeticiones y las
+ * etapas de la última importación.
+ *
+ * Uso: ant medir -Dmedicion=persistence.CargaCSVMedicion [-Dmedir.args="productos repeticiones"]
+ *
+ * @author joaxx
+ */
+public class CargaCSVMedicion {
+
+    /**
+     * Ejecuta la medición.
+     *
+     * @param args Cantidad de productos (por defecto 1000000) y repeticiones (por defecto 3).
+     * @throws Exception Si falla la lectura o la escritura.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path directorio = Verificar.directorioTemporal("carga-csv");
+        try {
+            Path archivo = directorio.resolve("catalogo.csv");
+            ProductoManager original = new ProductoManager();
+            for (int i = 1; i <= cantidad; i++) {
+                double precio = 1 + i % 997;
+                switch (i % 3) {
+                    case 0 -> original.agregar(new Alimento(i, "Alimento " + i, precio, TipoAlimento.NO_PERECEDERO, 100));
+                    case 1 -> original.agregar(new Electronico(i, "Electronico " + i, precio, MarcaElectronicos.SAMSUNG, 12));
+                    default -> original.agregar(new Ropa(i, "Ropa " + i, precio, TallaRopa.M, "Algodón"));
+                }
+            }
+            original.guardarCSV(archivo.toString());
+            original = null;
+            double megas = Files.size(archivo) / 1e6;
+            System.out.printf("Núcleos: %d, %d productos, %.1f MB%n", Runtime.getRuntime().availableProcessors(), cantidad, megas);
+
+            long mejorAnterior = Long.MAX_VALUE;
+            long mejorConIndices = Long.MAX_VALUE;
+            long mejorActual = Long.MAX_VALUE;
+            ResultadoImportacion ultimo = null;
+            for (int r = 0; r < repeticiones; r++) {
+                System.gc();
+                long inicio = System.nanoTime();
+                List<Producto> lista = cargarComoAntes(archivo);
+                mejorAnterior = Math.min(mejorAnterior, System.nanoTime() - inicio);
+                Verificar.iguales(cantidad, lista.size(), "Productos de la carga anterior");
+                lista = null;
+
+                System.gc();
+                ProductoManager conIndices = new ProductoManager();
+                inicio = System.nanoTime();
+                conIndices.agregarTodos(cargarComoAntes(archivo));
+                mejorConIndices = Math.min(mejorConIndices, System.nanoTime() - inicio);
+                conIndices = null;
+
+                System.gc();
+                ProductoManager cargado = new ProductoManager();
+                inicio = System.nanoTime();
+                ultimo = cargado.cargarCSV(archivo.toString());
+                mejorActual = Math.min(mejorActual, System.nanoTime() - inicio);
+                Verificar.iguales(cantidad, cargado.cantidad(), "Productos de cargarCSV");
+            }
+            System.out.printf("%-30s %10s %10s %12s%n", "carga", "ms", "MB/s", "productos/s");
+            imprimir("readLine + split (anterior)", mejorAnterior, megas, cantidad);
+            imprimir("anterior + agregarTodos", mejorConIndices, megas, cantidad);
+            imprimir("cargarCSV", mejorActual, megas, cantidad);
+            System.out.printf("Mejora sobre la anterior: %.2fx, sobre la anterior con índices: %.2fx%n",
+                    (double) mejorAnterior / mejorActual, (double) mejorConIndices / mejorActual);
+            System.out.println("Etapas de la última importación:");
+            for (ResultadoImportacion.Etapa etapa : ultimo.getEtapas()) {
+                System.out.println("  " + etapa);
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Carga el archivo como lo hacía ProductoManager.cargarCSV antes de ImportacionCSV.
+     *
+     * @param archivo Archivo CSV.
+     * @return Productos leídos, en el orden del archivo.
+     * @throws Exception Si falla la lectura o una línea es inválida.
+     */
+    private static List<Producto> cargarComoAntes(Path archivo) throws Exception {
+        List<Producto> productos = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo.toFile()))) {
+            String linea;
+            while ((linea = br.readLine()) != null) {
+                String[] parts = linea.split(",");
+                int id = Integer.parseInt(parts[0]);
+                String nombre = parts[1];
+                double precio = Double.parseDouble(parts[2]);
+                switch (parts[3]) {
+                    case "Alimento" -> productos.add(new Alimento(id, nombre, precio, TipoAlimento.NO_PERECEDERO, 100));
+                    case "Electronico" -> productos.add(new Electronico(id, nombre, precio, MarcaElectronicos.SAMSUNG, 12));
+                    case "Ropa" -> productos.add(new Ropa(id, nombre, precio, TallaRopa.M, "Algodón"));
+                    default -> throw new IllegalArgumentException("Tipo desconocido: " + parts[3]);
+                }
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Imprime una fila de resultados.
+     *
+     * @param carga Nombre de la carga.
+     * @param nanos Mejor duración.
+     * @param megas Tamaño del archivo en MB.
+     * @param cantidad Cantidad de productos.
+     */
+    private static void imprimir(String carga, long nanos, double megas, int cantidad) {
+        double segundos = nanos / 1e9;
+        System.out.printf("%-30s %10.0f %10.1f %12.0f%n", carga, nanos / 1e6, megas / segundos, cantidad / segundos);
+    }
+}
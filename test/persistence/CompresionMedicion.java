@@ -0,0 +1,119 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import com.sun.management.OperatingSystemMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Mide cada códec de Compresion con los tres formatos del catálogo (CSV, JSON y binario):
+ * tamaño del archivo, y tiempo real y de CPU del proceso al guardar y al cargar. El tiempo
+ * de CPU suma todos los hilos, así que en ContenedorBloques, que comprime en paralelo,
+ * puede superar al tiempo real. Se informa la repetición más rápida de cada operación.
+ *
+ * Uso: ant medir -Dmedicion=persistence.CompresionMedicion [-Dmedir.args="productos repeticiones"]
+ *
+ * @author joaxx
+ */
+public class CompresionMedicion {
+
+    private static final String[] EXTENSIONES = {"", ".gz", ".zz", ".blq"};
+    private static final String[] FORMATOS = {"csv", "json", "bin"};
+
+    /**
+     * Operación de guardado o carga sobre un archivo.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar(String archivo) throws Exception;
+    }
+
+    /**
+     * Ejecuta la medición.
+     *
+     * @param args Cantidad de productos (por defecto 300000) y repeticiones (por defecto 3).
+     * @throws Exception Si falla la lectura o la escritura.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path directorio = Verificar.directorioTemporal("compresion-medicion");
+        try {
+            ProductoManager manager = new ProductoManager();
+            for (int i = 1; i <= cantidad; i++) {
+                double precio = 0.5 + i % 997;
+                switch (i % 3) {
+                    case 0 -> manager.agregar(new Alimento(i, "Alimento " + i, precio, TipoAlimento.PERECEDERO, i % 900));
+                    case 1 -> manager.agregar(new Electronico(i, "Electrónico " + i, precio, MarcaElectronicos.SONY, i % 36));
+                    default -> manager.agregar(new Ropa(i, "Ropa " + i, precio, TallaRopa.M, "Algodón"));
+                }
+            }
+            System.out.printf("Núcleos: %d, %d productos, mejor de %d repeticiones%n",
+                    Runtime.getRuntime().availableProcessors(), cantidad, repeticiones);
+            System.out.printf("%-20s %10s %12s %12s %12s %12s%n",
+                    "archivo", "MB", "guardar ms", "(CPU ms)", "cargar ms", "(CPU ms)");
+            for (String formato : FORMATOS) {
+                for (String extension : EXTENSIONES) {
+                    String archivo = directorio.resolve("catalogo." + formato + extension).toString();
+                    long[] guardar = medir(repeticiones, archivo, switch (formato) {
+                        case "csv" -> manager::guardarCSV;
+                        case "json" -> manager::guardarJSON;
+                        default -> manager::serializar;
+                    });
+                    ProductoManager cargado = new ProductoManager();
+                    long[] cargar = medir(repeticiones, archivo, switch (formato) {
+                        case "csv" -> cargado::cargarCSV;
+                        case "json" -> cargado::cargarJSON;
+                        default -> ruta -> cargado.deserializar(ruta);
+                    });
+                    Verificar.iguales(cantidad, cargado.cantidad(), archivo + ": productos cargados");
+                    System.out.printf("%-20s %10.1f %12.0f %12.0f %12.0f %12.0f%n",
+                            "catalogo." + formato + extension, Files.size(Path.of(archivo)) / 1e6,
+                            guardar[0] / 1e6, guardar[1] / 1e6, cargar[0] / 1e6, cargar[1] / 1e6);
+                    Files.delete(Path.of(archivo));
+                }
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Repite una operación y devuelve los tiempos de la repetición más rápida.
+     *
+     * @param repeticiones Cantidad de repeticiones.
+     * @param archivo Archivo sobre el que opera.
+     * @param operacion Operación a medir.
+     * @return Tiempo real y tiempo de CPU del proceso, en nanosegundos.
+     * @throws Exception Si falla la operación.
+     */
+    private static long[] medir(int repeticiones, String archivo, Operacion operacion) throws Exception {
+        OperatingSystemMXBean sistema = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long[] mejor = {Long.MAX_VALUE, 0};
+        for (int r = 0; r < repeticiones; r++) {
+            System.gc();
+            long cpu = sistema.getProcessCpuTime();
+            long inicio = System.nanoTime();
+            operacion.ejecutar(archivo);
+            long real = System.nanoTime() - inicio;
+            if (real < mejor[0]) {
+                mejor[0] = real;
+                mejor[1] = sistema.getProcessCpuTime() - cpu;
+            }
+        }
+        return mejor;
+    }
+}
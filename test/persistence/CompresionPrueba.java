@@ -0,0 +1,212 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica cada códec de Compresion: los bytes escritos se leen iguales, con abrirLectura
+ * y con leerCompleto, para tamaños alrededor del bloque de ContenedorBloques y con datos
+ * comprimibles y al azar; el códec se detecta por el contenido sin importar la extensión;
+ * los tres formatos del catálogo se guardan y cargan con cada extensión; y un contenedor
+ * por bloques dañado o truncado se rechaza.
+ *
+ * @author joaxx
+ */
+public class CompresionPrueba {
+
+    private static final int BLOQUE = ContenedorBloques.TAMANIO_BLOQUE;
+    private static final int[] TAMANIOS = {0, 1, 1000, BLOQUE - 1, BLOQUE, BLOQUE + 1, 3 * BLOQUE + BLOQUE / 2};
+    private static final String[] EXTENSIONES = {"", ".gz", ".zz", ".blq"};
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("compresion");
+        try {
+            Random azar = new Random(11);
+            for (Compresion.Codec codec : Compresion.Codec.values()) {
+                for (int tamanio : TAMANIOS) {
+                    for (boolean alAzar : new boolean[]{false, true}) {
+                        byte[] datos = datos(azar, tamanio, alAzar);
+                        verificarBytes(directorio.resolve("datos.dat"), codec, datos, codec + ", " + tamanio + (alAzar ? " bytes al azar" : " bytes"));
+                    }
+                }
+            }
+            verificarCatalogo(directorio);
+            verificarBloquesDaniados(directorio.resolve("daniado.blq"), datos(azar, 2 * BLOQUE, false));
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Escribe y vuelve a leer datos con un códec.
+     *
+     * @param archivo Archivo a escribir; su extensión no indica el códec.
+     * @param codec Códec a usar.
+     * @param datos Datos a escribir.
+     * @param caso Caso, para los mensajes.
+     * @throws IOException Si falla la escritura o la lectura.
+     */
+    private static void verificarBytes(Path archivo, Compresion.Codec codec, byte[] datos, String caso) throws IOException {
+        try (OutputStream out = Compresion.abrirEscritura(archivo, codec)) {
+            if (datos.length > 0) {
+                out.write(datos[0]); // También por byte suelto
+                out.write(datos, 1, datos.length - 1);
+            }
+        }
+        if (datos.length >= 4 || codec != Compresion.Codec.NINGUNO) {
+            Verificar.iguales(codec, Compresion.detectar(archivo), caso + ": códec detectado");
+        }
+        try (InputStream in = Compresion.abrirLectura(archivo)) {
+            Verificar.verdadero(Arrays.equals(datos, in.readAllBytes()), caso + ": abrirLectura");
+        }
+        ByteBuffer completo = Compresion.leerCompleto(archivo);
+        byte[] leidos = new byte[completo.remaining()];
+        completo.get(leidos);
+        Verificar.verdadero(Arrays.equals(datos, leidos), caso + ": leerCompleto");
+    }
+
+    /**
+     * Guarda y carga el catálogo en CSV, JSON y binario con cada extensión, y carga cada
+     * archivo comprimido también con otro nombre.
+     *
+     * @param directorio Directorio temporal.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarCatalogo(Path directorio) throws Exception {
+        ProductoManager original = new ProductoManager();
+        for (int i = 1; i <= 30000; i++) {
+            original.agregar(producto(i));
+        }
+        for (String extension : EXTENSIONES) {
+            for (String formato : new String[]{"csv", "json", "bin"}) {
+                Path archivo = directorio.resolve("catalogo." + formato + extension);
+                Path renombrado = directorio.resolve("sin-extension-" + formato);
+                String caso = archivo.getFileName().toString();
+                switch (formato) {
+                    case "csv" -> original.guardarCSV(archivo.toString());
+                    case "json" -> original.guardarJSON(archivo.toString());
+                    default -> original.serializar(archivo.toString());
+                }
+                Verificar.iguales(Compresion.porExtension(archivo), Compresion.detectar(archivo), caso + ": códec detectado");
+                Files.copy(archivo, renombrado, StandardCopyOption.REPLACE_EXISTING);
+                for (Path ruta : List.of(archivo, renombrado)) {
+                    ProductoManager cargado = new ProductoManager();
+                    switch (formato) {
+                        case "csv" -> cargado.cargarCSV(ruta.toString());
+                        case "json" -> cargado.cargarJSON(ruta.toString());
+                        default -> cargado.deserializar(ruta.toString());
+                    }
+                    verificarIguales(original.obtenerTodos(), cargado.obtenerTodos(), !formato.equals("csv"), caso + " leído como " + ruta.getFileName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifica que un contenedor por bloques con un byte cambiado o truncado no se lee.
+     *
+     * @param archivo Archivo a escribir.
+     * @param datos Datos del contenedor.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarBloquesDaniados(Path archivo, byte[] datos) throws Exception {
+        try (OutputStream out = Compresion.abrirEscritura(archivo)) {
+            out.write(datos);
+        }
+        byte[] bytes = Files.readAllBytes(archivo);
+        byte[] daniado = bytes.clone();
+        daniado[daniado.length / 2] ^= 0x10;
+        Files.write(archivo, daniado);
+        Verificar.lanza(IOException.class, () -> Compresion.leerCompleto(archivo), "Byte cambiado en un bloque");
+        Files.write(archivo, Arrays.copyOf(bytes, bytes.length - 8));
+        Verificar.lanza(IOException.class, () -> Compresion.leerCompleto(archivo), "Contenedor truncado");
+    }
+
+    /**
+     * Verifica que dos listas tienen los mismos productos, en el mismo orden.
+     *
+     * @param esperados Productos guardados.
+     * @param obtenidos Productos cargados.
+     * @param detalles true si el formato conserva los campos propios de cada tipo.
+     * @param caso Caso, para los mensajes.
+     */
+    private static void verificarIguales(List<Producto> esperados, List<Producto> obtenidos, boolean detalles, String caso) {
+        Verificar.iguales(esperados.size(), obtenidos.size(), caso + ": cantidad");
+        for (int i = 0; i < esperados.size(); i++) {
+            Producto e = esperados.get(i);
+            Producto o = obtenidos.get(i);
+            if (detalles) {
+                InstantaneaBinariaPrueba.verificarIguales(e, o, caso + ": producto " + i);
+            } else {
+                Verificar.iguales(e.getId(), o.getId(), caso + ": ID " + i);
+                Verificar.iguales(e.getNombre(), o.getNombre(), caso + ": nombre " + i);
+                Verificar.iguales(e.getPrecio(), o.getPrecio(), caso + ": precio " + i);
+                Verificar.iguales(e.getClass(), o.getClass(), caso + ": tipo " + i);
+            }
+        }
+    }
+
+    /**
+     * Genera datos de prueba que no empiezan como un archivo comprimido.
+     *
+     * @param azar Generador de números al azar.
+     * @param tamanio Cantidad de bytes.
+     * @param alAzar true para bytes al azar (incomprimibles), false para texto repetitivo.
+     * @return Datos generados.
+     */
+    private static byte[] datos(Random azar, int tamanio, boolean alAzar) {
+        byte[] datos = new byte[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            datos[i] = alAzar ? (byte) azar.nextInt(256) : (byte) ('a' + (i / 3 + i % 7) % 26);
+        }
+        if (tamanio > 0) {
+            datos[0] = 'P';
+        }
+        return datos;
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y campos según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(int i) throws Exception {
+        String nombre = "Producto " + i + (i % 10 == 0 ? ", con \"comillas\"" : "");
+        double precio = 0.5 + i % 997;
+        return switch (i % 3) {
+            case 0 -> new Alimento(i, nombre, precio, TipoAlimento.values()[i % TipoAlimento.values().length], i % 900);
+            case 1 -> new Electronico(i, nombre, precio, MarcaElectronicos.values()[i % MarcaElectronicos.values().length], i % 36);
+            default -> new Ropa(i, nombre, precio, TallaRopa.values()[i % TallaRopa.values().length], "Material " + i % 5);
+        };
+    }
+}
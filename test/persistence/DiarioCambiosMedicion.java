@@ -0,0 +1,130 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mide las modificaciones por segundo sostenidas de ProductoManager con un diario de
+ * cambios para cada política de sincronización, y sin diario como referencia, con uno
+ * y con varios hilos. La mezcla es 80% actualizaciones y 20% altas. Los puntos de
+ * control se toman cada REGISTROS_POR_PUNTO_CONTROL registros, como en uso normal.
+ *
+ * Uso: ant medir -Dmedicion=persistence.DiarioCambiosMedicion [-Dmedir.args="segundos intervaloMs"]
+ *
+ * @author joaxx
+ */
+public class DiarioCambiosMedicion {
+
+    private static final int PRODUCTOS = 50_000;
+    private static final int REGISTROS_POR_PUNTO_CONTROL = 200_000;
+
+    /**
+     * Ejecuta la medición e imprime modificaciones por segundo para cada política.
+     *
+     * @param args Segundos por medición (por defecto 3) e intervalo de la política PERIODICA en ms (por defecto 10).
+     * @throws Exception Si falla algún hilo.
+     */
+    public static void main(String[] args) throws Exception {
+        double segundos = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        long intervaloMs = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int hilosMaximos = Math.max(4, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d productos, %.1f s por medición, intervalo PERIODICA %d ms%n", PRODUCTOS, segundos, intervaloMs);
+        System.out.printf("%-12s %6s %14s%n", "política", "hilos", "cambios/s");
+        Path directorio = Verificar.directorioTemporal("diario-medicion");
+        try {
+            medir(DiarioCambios.Sincronizacion.NINGUNA, directorio, intervaloMs, 1, segundos); // Calentamiento
+            for (int hilos : new int[]{1, hilosMaximos}) {
+                System.out.printf("%-12s %6d %14.0f%n", "sin diario", hilos, medir(null, directorio, intervaloMs, hilos, segundos));
+                for (DiarioCambios.Sincronizacion politica : DiarioCambios.Sincronizacion.values()) {
+                    double cambios = medir(politica, directorio, intervaloMs, hilos, segundos);
+                    System.out.printf("%-12s %6d %14.0f%n", politica, hilos, cambios);
+                }
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Mide las modificaciones por segundo con una política.
+     *
+     * @param politica Política de sincronización, o null para medir sin diario.
+     * @param directorio Directorio de los archivos del diario.
+     * @param intervaloMs Intervalo de la política PERIODICA.
+     * @param hilos Cantidad de hilos que modifican.
+     * @param segundos Duración de la medición.
+     * @return Modificaciones por segundo sumando todos los hilos.
+     * @throws Exception Si falla algún hilo.
+     */
+    private static double medir(DiarioCambios.Sincronizacion politica, Path directorio, long intervaloMs,
+                                int hilos, double segundos) throws Exception {
+        ProductoManager manager = new ProductoManager();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            manager.agregar(new Alimento(0, "p" + i, 1 + i % 1000, TipoAlimento.PERECEDERO, i));
+        }
+        Path archivoDiario = directorio.resolve("catalogo.wal");
+        Path archivoInstantanea = directorio.resolve("catalogo.snap");
+        Files.deleteIfExists(archivoDiario);
+        DiarioCambios diario = politica == null ? null
+                : new DiarioCambios(archivoDiario, archivoInstantanea, politica, intervaloMs, REGISTROS_POR_PUNTO_CONTROL);
+        manager.usarDiario(diario);
+
+        LongAdder cambios = new LongAdder();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CyclicBarrier largada = new CyclicBarrier(hilos + 1);
+        long duracion = (long) (segundos * 1e9);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                long hechos = 0;
+                try {
+                    largada.await();
+                    long fin = System.nanoTime() + duracion;
+                    while ((hechos & 15) != 0 || System.nanoTime() < fin) {
+                        if (azar.nextInt(5) == 0) {
+                            manager.agregar(new Alimento(0, "n", 10, TipoAlimento.PERECEDERO, 0));
+                        } else {
+                            manager.actualizar(new Alimento(1 + azar.nextInt(PRODUCTOS), "v", 1 + azar.nextInt(1000), TipoAlimento.PERECEDERO, 0));
+                        }
+                        hechos++;
+                    }
+                } catch (Exception ex) {
+                    error.compareAndSet(null, ex);
+                }
+                cambios.add(hechos);
+            });
+            t.start();
+            trabajadores.add(t);
+        }
+        largada.await();
+        long inicio = System.nanoTime();
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        double porSegundo = cambios.sum() / ((System.nanoTime() - inicio) / 1e9);
+        if (diario != null) {
+            manager.usarDiario(null);
+            diario.close();
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return porSegundo;
+    }
+}
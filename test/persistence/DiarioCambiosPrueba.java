@@ -0,0 +1,207 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica la recuperación con DiarioCambios: con cada política de sincronización, un
+ * catálogo cuyo diario no se cerró (como si la aplicación se hubiera cerrado de golpe)
+ * se reconstruye con todos los cambios confirmados, incluidos varios puntos de control.
+ * También verifica que un final dañado del diario se descarta sin reservar memoria por
+ * una longitud inválida, y que si el diario falla las altas, modificaciones y bajas dejan
+ * el catálogo sin cambios.
+ *
+ * @author joaxx
+ */
+public class DiarioCambiosPrueba {
+
+    private static final int OPERACIONES = 2500;
+    private static final int REGISTROS_POR_PUNTO_CONTROL = 1000;
+    private static final long UNA_HORA_MS = 3_600_000; // El volcado periódico no llega a ejecutarse
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("diario-cambios");
+        try {
+            for (DiarioCambios.Sincronizacion politica : DiarioCambios.Sincronizacion.values()) {
+                verificarRecuperacion(directorio.resolve(politica.name()), politica);
+            }
+            verificarFinalDaniado(directorio.resolve("daniado"));
+            verificarDiarioFallido(directorio.resolve("fallido"));
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Hace altas, modificaciones y bajas con un diario y recupera el catálogo sin cerrarlo.
+     *
+     * @param directorio Directorio de los archivos de la prueba.
+     * @param politica Política de sincronización.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarRecuperacion(Path directorio, DiarioCambios.Sincronizacion politica) throws Exception {
+        Files.createDirectories(directorio);
+        Path archivoDiario = directorio.resolve("catalogo.wal");
+        Path archivoInstantanea = directorio.resolve("catalogo.snap");
+        ProductoManager manager = new ProductoManager();
+        DiarioCambios diario = new DiarioCambios(archivoDiario, archivoInstantanea, politica,
+                UNA_HORA_MS, REGISTROS_POR_PUNTO_CONTROL);
+        try {
+            manager.usarDiario(diario);
+            Random azar = new Random(42);
+            for (int i = 0; i < OPERACIONES; i++) {
+                List<Producto> todos = manager.obtenerTodos();
+                int operacion = todos.size() < 10 ? 0 : azar.nextInt(4);
+                if (operacion <= 1) {
+                    manager.agregar(new Alimento(0, "Alimento " + i, 1 + azar.nextInt(1000), TipoAlimento.PERECEDERO, i));
+                } else if (operacion == 2) {
+                    Ropa nueva = new Ropa(0, "Ropa " + i, 1 + azar.nextInt(1000), TallaRopa.XL, "Seda");
+                    nueva.setId(todos.get(azar.nextInt(todos.size())).getId());
+                    manager.actualizar(nueva);
+                } else {
+                    manager.eliminar(todos.get(azar.nextInt(todos.size())).getId());
+                }
+            }
+
+            // Sin cerrar el diario: los cambios confirmados ya tienen que estar en el archivo
+            ProductoManager recuperado = new ProductoManager();
+            recuperado.recuperar(archivoInstantanea, archivoDiario);
+            verificarIguales(manager.obtenerTodos(), recuperado.obtenerTodos(), politica.name());
+        } finally {
+            diario.close();
+        }
+    }
+
+    /**
+     * Daña el final de un diario con una longitud enorme y luego con un registro cortado.
+     *
+     * @param directorio Directorio de los archivos de la prueba.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarFinalDaniado(Path directorio) throws Exception {
+        Files.createDirectories(directorio);
+        Path archivoDiario = directorio.resolve("catalogo.wal");
+        Path archivoInstantanea = directorio.resolve("catalogo.snap");
+        try (DiarioCambios diario = new DiarioCambios(archivoDiario, archivoInstantanea,
+                DiarioCambios.Sincronizacion.NINGUNA, 0, Integer.MAX_VALUE)) {
+            for (int i = 1; i <= 10; i++) {
+                diario.registrarAgregar(new Alimento(i, "Alimento " + i, i, TipoAlimento.NO_PERECEDERO, i));
+            }
+        }
+        long tamanioValido = Files.size(archivoDiario);
+        try (FileChannel canal = FileChannel.open(archivoDiario, StandardOpenOption.APPEND)) {
+            canal.write(ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE - 16).putLong(0x0123456789ABCDEFL).flip());
+        }
+        Verificar.iguales(10, contarRecuperados(archivoInstantanea, archivoDiario), "Registros con una longitud enorme al final");
+
+        try (FileChannel canal = FileChannel.open(archivoDiario, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanioValido - 3);
+        }
+        Verificar.iguales(9, contarRecuperados(archivoInstantanea, archivoDiario), "Registros con el último cortado");
+    }
+
+    /**
+     * Cierra el diario por debajo del catálogo para que cada escritura falle, y verifica
+     * que las operaciones que registran antes de modificar dejan el catálogo sin cambios.
+     *
+     * @param directorio Directorio de los archivos de la prueba.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarDiarioFallido(Path directorio) throws Exception {
+        Files.createDirectories(directorio);
+        ProductoManager manager = new ProductoManager();
+        DiarioCambios diario = new DiarioCambios(directorio.resolve("catalogo.wal"), directorio.resolve("catalogo.snap"),
+                DiarioCambios.Sincronizacion.NINGUNA, 0, REGISTROS_POR_PUNTO_CONTROL);
+        manager.usarDiario(diario);
+        for (int i = 0; i < 5; i++) {
+            manager.agregar(new Alimento(0, "Alimento " + i, 10 + i, TipoAlimento.PERECEDERO, i));
+        }
+        diario.close(); // Las escrituras siguientes fallan
+
+        List<Producto> antes = manager.obtenerTodos();
+        long version = manager.getVersion();
+        Alimento nuevo = new Alimento(0, "Nuevo", 1, TipoAlimento.PERECEDERO, 1);
+        Verificar.lanza(UncheckedIOException.class, () -> manager.agregar(nuevo), "Alta con el diario cerrado");
+        Verificar.iguales(0, nuevo.getId(), "ID del alta fallida");
+        Ropa cambio = new Ropa(antes.get(0).getId(), "Cambio", 2, TallaRopa.S, "Lana");
+        Verificar.lanza(UncheckedIOException.class, () -> manager.actualizar(cambio), "Modificación con el diario cerrado");
+        int baja = antes.get(1).getId();
+        Verificar.lanza(UncheckedIOException.class, () -> manager.eliminar(baja), "Baja con el diario cerrado");
+        Verificar.iguales(version, manager.getVersion(), "Versión después de los fallos del diario");
+        Verificar.lanza(UncheckedIOException.class, () -> manager.agregarTodos(List.of(nuevo)), "Altas con el diario cerrado");
+        Verificar.lanza(UncheckedIOException.class, () -> manager.actualizarTodos(List.of(cambio)), "Modificaciones con el diario cerrado");
+        Verificar.lanza(UncheckedIOException.class, () -> manager.eliminarTodos(new int[] {baja}), "Bajas con el diario cerrado");
+        verificarIguales(antes, manager.obtenerTodos(), "Después de los fallos del diario");
+        Verificar.iguales(antes.get(0), manager.obtenerPorId(antes.get(0).getId()), "Producto sin modificar");
+
+        // Las acciones en el lugar ya modificaron los productos: quedan aplicadas aunque el diario falle
+        Verificar.lanza(UncheckedIOException.class, () -> manager.aplicar(p -> p.setNombre("Aplicado")), "Acción con el diario cerrado");
+        Verificar.verdadero(manager.getVersion() > version, "La acción en el lugar cambia la versión");
+        Verificar.iguales(5, manager.buscarPorNombre("Aplicado", 10).size(), "Acción en el lugar indexada");
+        manager.usarDiario(null);
+    }
+
+    /**
+     * Recupera un diario y cuenta los productos reproducidos.
+     *
+     * @param archivoInstantanea Ruta de la instantánea, puede no existir.
+     * @param archivoDiario Ruta del diario.
+     * @return Registros reproducidos.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws ClassNotFoundException Si la instantánea contiene clases desconocidas.
+     */
+    private static int contarRecuperados(Path archivoInstantanea, Path archivoDiario) throws IOException, ClassNotFoundException {
+        List<Producto> guardados = new ArrayList<>();
+        int reproducidos = DiarioCambios.recuperar(archivoInstantanea, archivoDiario, guardados::add, id -> { });
+        Verificar.iguales(reproducidos, guardados.size(), "Productos entregados");
+        return reproducidos;
+    }
+
+    /**
+     * Verifica que dos catálogos tienen los mismos productos.
+     *
+     * @param esperados Productos del catálogo original.
+     * @param obtenidos Productos recuperados.
+     * @param etapa Etapa de la prueba, para los mensajes.
+     */
+    private static void verificarIguales(List<Producto> esperados, List<Producto> obtenidos, String etapa) {
+        Verificar.iguales(esperados.size(), obtenidos.size(), etapa + ": cantidad de productos");
+        List<Producto> a = new ArrayList<>(esperados);
+        List<Producto> b = new ArrayList<>(obtenidos);
+        a.sort(Comparator.comparingInt(Producto::getId));
+        b.sort(Comparator.comparingInt(Producto::getId));
+        for (int i = 0; i < a.size(); i++) {
+            Verificar.iguales(a.get(i).getId(), b.get(i).getId(), etapa + ": ID en la posición " + i);
+            Verificar.iguales(a.get(i).getNombre(), b.get(i).getNombre(), etapa + ": nombre del producto " + a.get(i).getId());
+            Verificar.iguales(a.get(i).getPrecio(), b.get(i).getPrecio(), etapa + ": precio del producto " + a.get(i).getId());
+            Verificar.iguales(a.get(i).getClass(), b.get(i).getClass(), etapa + ": tipo del producto " + a.get(i).getId());
+        }
+    }
+}
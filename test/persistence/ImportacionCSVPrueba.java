@@ -0,0 +1,160 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Verifica que guardarCSV y cargarCSV conservan los productos cuyos nombres tienen comas,
+ * comillas o saltos de línea (\n, \r\n y \r), tanto en archivos sin comprimir (mapeados)
+ * como comprimidos, con suficientes productos para que el archivo se divida en varios lotes.
+ * También verifica que los rechazos informan la primera línea del registro, que una
+ * comilla sin cerrar hasta el final del archivo descarta solo su línea y que se aceptan
+ * comillas en cualquier campo, campos vacíos entre comillas y comillas sueltas dentro de
+ * un campo sin comillas.
+ *
+ * @author joaxx
+ */
+public class ImportacionCSVPrueba {
+
+    private static final int CANTIDAD = 60000; // Unos 3 MB: varios lotes de lectura
+
+    private static final String[] NOMBRES = {
+        "Yerba mate",
+        "Fideos\nlargos",
+        "Aceite\r\nde oliva",
+        "Azúcar\rrubia",
+        "Mesa, \"roble\"",
+        "\"Entre comillas\"",
+        "Varias\n\n\nlíneas, con \"todo\"\r\n",
+        ""
+    };
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("importacion-csv");
+        try {
+            ProductoManager original = new ProductoManager();
+            for (int i = 1; i <= CANTIDAD; i++) {
+                String nombre = NOMBRES[i % NOMBRES.length] + " " + i;
+                double precio = 100 + i % 997;
+                switch (i % 3) {
+                    case 0 -> original.agregar(new Alimento(i, nombre, precio, TipoAlimento.NO_PERECEDERO, 100));
+                    case 1 -> original.agregar(new Electronico(i, nombre, precio, MarcaElectronicos.SAMSUNG, 12));
+                    default -> original.agregar(new Ropa(i, nombre, precio, TallaRopa.M, "Algodón"));
+                }
+            }
+            for (String archivo : new String[]{"catalogo.csv", "catalogo.csv.gz"}) {
+                Path ruta = directorio.resolve(archivo);
+                original.guardarCSV(ruta.toString());
+                ProductoManager cargado = new ProductoManager();
+                ResultadoImportacion resultado = cargado.cargarCSV(ruta.toString());
+                Verificar.iguales(0L, resultado.getCantidadRechazos(), archivo + ": rechazos, el primero " + resultado.getRechazos().stream().findFirst().orElse(null));
+                verificarIguales(original.obtenerTodos(), cargado.obtenerTodos(), archivo);
+            }
+            verificarRechazos(directorio.resolve("rechazos.csv"));
+            verificarComillas(directorio.resolve("comillas.csv"));
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Verifica que dos listas tienen los mismos productos, en el mismo orden.
+     *
+     * @param esperados Productos guardados.
+     * @param obtenidos Productos cargados.
+     * @param archivo Archivo, para los mensajes.
+     */
+    private static void verificarIguales(List<Producto> esperados, List<Producto> obtenidos, String archivo) {
+        Verificar.iguales(esperados.size(), obtenidos.size(), archivo + ": cantidad de productos");
+        for (int i = 0; i < esperados.size(); i++) {
+            Producto e = esperados.get(i);
+            Producto o = obtenidos.get(i);
+            Verificar.iguales(e.getId(), o.getId(), archivo + ": ID en la posición " + i);
+            Verificar.iguales(e.getNombre(), o.getNombre(), archivo + ": nombre del producto " + e.getId());
+            Verificar.iguales(e.getPrecio(), o.getPrecio(), archivo + ": precio del producto " + e.getId());
+            Verificar.iguales(e.getClass(), o.getClass(), archivo + ": tipo del producto " + e.getId());
+        }
+    }
+
+    /**
+     * Verifica los números de línea de los rechazos en un archivo con registros de varias líneas.
+     *
+     * @param archivo Archivo a escribir y cargar.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarRechazos(Path archivo) throws Exception {
+        Files.writeString(archivo, """
+                1,"Dos
+                líneas",10,Ropa
+                2,Precio malo,abc,Ropa
+                3,"Tres\r\nlíneas ""y"" comillas
+                ",5,Alimento
+                6,"Mal tipo
+                ",8,Mueble
+                4,"Sin cerrar,5,Ropa
+                5,Después del error,7,Electronico
+                7,Último,9,Ropa
+                """, StandardCharsets.UTF_8);
+        ProductoManager manager = new ProductoManager();
+        ResultadoImportacion resultado = manager.cargarCSV(archivo.toString());
+        Verificar.iguales(4, resultado.getAceptados(), "Aceptados");
+        Verificar.iguales("Dos\nlíneas", manager.obtenerPorId(1).getNombre(), "Nombre de dos líneas");
+        Verificar.iguales("Tres\r\nlíneas \"y\" comillas\n", manager.obtenerPorId(3).getNombre(), "Nombre con comillas");
+        Verificar.iguales("Después del error", manager.obtenerPorId(5).getNombre(), "Línea siguiente a la comilla sin cerrar");
+        Verificar.iguales("Último", manager.obtenerPorId(7).getNombre(), "Última línea");
+        List<ResultadoImportacion.Rechazo> rechazos = resultado.getRechazos();
+        Verificar.iguales(3, rechazos.size(), "Rechazos " + rechazos);
+        Verificar.iguales(3L, rechazos.get(0).getLinea(), "Línea del precio inválido");
+        Verificar.iguales(7L, rechazos.get(1).getLinea(), "Línea del tipo desconocido");
+        Verificar.iguales(9L, rechazos.get(2).getLinea(), "Línea de la comilla sin cerrar");
+        Verificar.verdadero(rechazos.get(2).getMotivo().contains("Comillas sin cerrar"), "Motivo: " + rechazos.get(2).getMotivo());
+    }
+
+    /**
+     * Verifica campos entre comillas escritos a mano, que guardarCSV no genera.
+     *
+     * @param archivo Archivo a escribir y cargar.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarComillas(Path archivo) throws Exception {
+        Files.writeString(archivo, """
+                "1","Coma, adentro","1.5","Ropa"
+                2,"",2,Alimento
+                3,Pantalla 15" ancha,3,Electronico
+                4,\"\"\"\",4,Ropa
+                5,"a""b""c",5,Ropa
+                """, StandardCharsets.UTF_8);
+        ProductoManager manager = new ProductoManager();
+        ResultadoImportacion resultado = manager.cargarCSV(archivo.toString());
+        Verificar.iguales(0L, resultado.getCantidadRechazos(), "Rechazos " + resultado.getRechazos());
+        Verificar.iguales("Coma, adentro", manager.obtenerPorId(1).getNombre(), "Todos los campos entre comillas");
+        Verificar.iguales(1.5, manager.obtenerPorId(1).getPrecio(), "Precio entre comillas");
+        Verificar.iguales(Ropa.class, manager.obtenerPorId(1).getClass(), "Tipo entre comillas");
+        Verificar.iguales("", manager.obtenerPorId(2).getNombre(), "Nombre vacío entre comillas");
+        Verificar.iguales("Pantalla 15\" ancha", manager.obtenerPorId(3).getNombre(), "Comilla dentro de un campo sin comillas");
+        Verificar.iguales("\"", manager.obtenerPorId(4).getNombre(), "Solo una comilla escapada");
+        Verificar.iguales("a\"b\"c", manager.obtenerPorId(5).getNombre(), "Comillas escapadas");
+    }
+}
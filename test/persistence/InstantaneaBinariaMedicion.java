@@ -0,0 +1,113 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import model.Producto.Producto;
+import pruebas.Verificar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara InstantaneaBinaria con la serialización de Java de la lista de productos, que
+ * era el formato de ProductoManager.serializar: tamaño del archivo, tiempo de escritura y
+ * tiempo de carga. La instantánea se mide al abrirla (sin decodificar), al decodificar
+ * todos los productos y al crear todos los esqueletos, que es lo que hace la carga con
+ * detalles diferidos. Se informa el mejor tiempo de varias repeticiones.
+ *
+ * Uso: ant medir -Dmedicion=persistence.InstantaneaBinariaMedicion [-Dmedir.args="productos repeticiones"]
+ *
+ * @author joaxx
+ */
+public class InstantaneaBinariaMedicion {
+
+    private static volatile Object sumidero; // Evita que se descarten los resultados
+
+    /**
+     * Una operación medida.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Ejecuta la medición.
+     *
+     * @param args Cantidad de productos (por defecto 1000000) y repeticiones (por defecto 3).
+     * @throws Exception Si falla la lectura o la escritura.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path directorio = Verificar.directorioTemporal("instantanea-medicion");
+        try {
+            List<Producto> productos = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                productos.add(InstantaneaBinariaPrueba.producto(i));
+            }
+            Path serializado = directorio.resolve("catalogo.ser");
+            Path instantanea = directorio.resolve("catalogo.bin");
+            System.out.printf("%d productos, mejor de %d repeticiones%n", cantidad, repeticiones);
+            System.out.printf("%-36s %10s%n", "operación", "ms");
+            imprimir("Escribir con ObjectOutputStream", repeticiones, () -> {
+                try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serializado)))) {
+                    oos.writeObject(productos);
+                }
+            });
+            imprimir("Escribir InstantaneaBinaria", repeticiones, () -> InstantaneaBinaria.escribir(instantanea, productos));
+            imprimir("Cargar con ObjectInputStream", repeticiones, () -> {
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serializado)))) {
+                    sumidero = ois.readObject();
+                }
+            });
+            imprimir("Abrir InstantaneaBinaria", repeticiones, () -> sumidero = InstantaneaBinaria.abrir(instantanea));
+            imprimir("Abrir y decodificar todos", repeticiones, () -> {
+                InstantaneaBinaria abierta = InstantaneaBinaria.abrir(instantanea);
+                for (int i = 0; i < abierta.size(); i++) {
+                    sumidero = abierta.get(i);
+                }
+            });
+            imprimir("Abrir y crear todos los esqueletos", repeticiones, () -> {
+                InstantaneaBinaria abierta = InstantaneaBinaria.abrir(instantanea);
+                for (int i = 0; i < abierta.size(); i++) {
+                    sumidero = abierta.getEsqueleto(i);
+                }
+            });
+            long tamanioSerializado = Files.size(serializado);
+            long tamanioInstantanea = Files.size(instantanea);
+            System.out.printf("Tamaño: ObjectOutputStream %.1f MB, InstantaneaBinaria %.1f MB (%.0f%%)%n",
+                    tamanioSerializado / 1e6, tamanioInstantanea / 1e6, 100.0 * tamanioInstantanea / tamanioSerializado);
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Repite una operación e imprime su mejor tiempo.
+     *
+     * @param nombre Nombre de la operación.
+     * @param repeticiones Cantidad de repeticiones.
+     * @param operacion Operación a medir.
+     * @throws Exception Si falla la operación.
+     */
+    private static void imprimir(String nombre, int repeticiones, Operacion operacion) throws Exception {
+        long mejor = Long.MAX_VALUE;
+        for (int r = 0; r < repeticiones; r++) {
+            sumidero = null;
+            System.gc();
+            long inicio = System.nanoTime();
+            operacion.ejecutar();
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        System.out.printf("%-36s %10.0f%n", nombre, mejor / 1e6);
+    }
+}
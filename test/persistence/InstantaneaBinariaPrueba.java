@@ -0,0 +1,192 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package persistence;
+
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verifica que InstantaneaBinaria conserva todos los campos de cada tipo de producto,
+ * incluidos enums y materiales nulos, textos vacíos o con caracteres fuera de ASCII, IDs
+ * y precios extremos, con más registros de los que entran en el buffer de escritura; al
+ * decodificar, con esqueletos y sin decodificar. También verifica que rechaza archivos
+ * dañados, truncados o de una versión de esquema posterior, y que una instantánea abierta
+ * sigue siendo válida después de reescribir su archivo.
+ *
+ * @author joaxx
+ */
+public class InstantaneaBinariaPrueba {
+
+    private static final int CANTIDAD = 20000; // Unas 7 veces el buffer de escritura
+    private static final String[] NOMBRES = {"Yerba", "", "Ñandú con tilde é", "Manzana 🍎", "coma, \"comillas\"\n"};
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        Path directorio = Verificar.directorioTemporal("instantanea");
+        try {
+            List<Producto> productos = new ArrayList<>();
+            for (int i = 0; i < CANTIDAD; i++) {
+                productos.add(producto(i));
+            }
+            Path archivo = directorio.resolve("catalogo.bin");
+            int suma = InstantaneaBinaria.escribir(archivo, productos);
+
+            InstantaneaBinaria abierta = InstantaneaBinaria.abrir(archivo);
+            Verificar.iguales(suma, abierta.getSuma(), "CRC del encabezado");
+            Verificar.iguales(CANTIDAD, abierta.size(), "Cantidad de registros");
+            for (int i = 0; i < CANTIDAD; i++) {
+                Verificar.iguales(productos.get(i).getId(), abierta.getId(i), "ID sin decodificar " + i);
+                Verificar.iguales(productos.get(i).getPrecio(), abierta.getPrecio(i), "Precio sin decodificar " + i);
+                verificarIguales(productos.get(i), abierta.getEsqueleto(i), "Esqueleto " + i);
+                verificarIguales(productos.get(i), abierta.get(i), "Registro " + i);
+            }
+            verificarTodos(productos, InstantaneaBinaria.cargar(archivo), "cargar");
+            verificarTodos(List.of(), InstantaneaBinaria.cargar(escribir(directorio, "vacio.bin", List.of())), "Vacía");
+
+            // Reescribir el archivo libera el mapeo (en Windows no se puede reemplazar un archivo mapeado)
+            // sin invalidar la instantánea ya abierta ni los esqueletos pendientes
+            Producto pendiente = abierta.getEsqueleto(CANTIDAD - 2);
+            Verificar.verdadero(InstantaneaBinaria.mapeado(archivo), "Archivo mapeado antes de reescribir");
+            InstantaneaBinaria.escribir(archivo, productos.subList(0, 10));
+            Verificar.verdadero(!InstantaneaBinaria.mapeado(archivo), "Mapeo liberado al reescribir");
+            verificarIguales(productos.get(CANTIDAD - 1), abierta.get(CANTIDAD - 1), "Instantánea abierta antes de reescribir");
+            verificarIguales(productos.get(CANTIDAD - 2), pendiente, "Esqueleto pendiente antes de reescribir");
+            Verificar.iguales(suma, abierta.getSuma(), "CRC de la instantánea abierta antes de reescribir");
+
+            // Cerrar una instantánea sin esqueletos libera el mapeo en el momento
+            InstantaneaBinaria cerrada = (InstantaneaBinaria) InstantaneaBinaria.cargar(archivo);
+            Verificar.iguales(10, cerrada.size(), "Instantánea reescrita");
+            cerrada.close();
+            Verificar.verdadero(!InstantaneaBinaria.mapeado(archivo), "Mapeo liberado al cerrar");
+            Verificar.lanza(IllegalStateException.class, () -> cerrada.getId(0), "Instantánea cerrada");
+
+            verificarDaniados(directorio, productos);
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Verifica que se rechazan archivos dañados, truncados o de una versión posterior.
+     *
+     * @param directorio Directorio temporal.
+     * @param productos Productos a escribir.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarDaniados(Path directorio, List<Producto> productos) throws Exception {
+        byte[] bytes = Files.readAllBytes(escribir(directorio, "original.bin", productos));
+
+        byte[] daniado = bytes.clone();
+        daniado[daniado.length / 2] ^= 1;
+        Path archivo = directorio.resolve("daniado.bin");
+        Files.write(archivo, daniado);
+        Verificar.lanza(IOException.class, () -> InstantaneaBinaria.abrir(archivo), "Byte cambiado en el cuerpo");
+
+        Files.write(archivo, Arrays.copyOf(bytes, bytes.length - 1));
+        Verificar.lanza(IOException.class, () -> InstantaneaBinaria.abrir(archivo), "Último byte faltante");
+        Files.write(archivo, Arrays.copyOf(bytes, 20));
+        Verificar.lanza(IOException.class, () -> InstantaneaBinaria.cargar(archivo), "Encabezado truncado");
+
+        byte[] posterior = bytes.clone();
+        posterior[5] = (byte) (InstantaneaBinaria.VERSION_ESQUEMA + 1);
+        Files.write(archivo, posterior);
+        Verificar.lanza(IOException.class, () -> InstantaneaBinaria.abrir(archivo), "Versión de esquema posterior");
+
+        Files.writeString(archivo, "1,Yerba,10,Alimento\n");
+        Verificar.lanza(IOException.class, () -> InstantaneaBinaria.cargar(archivo), "Formato desconocido");
+    }
+
+    /**
+     * Escribe una instantánea en el directorio temporal.
+     *
+     * @param directorio Directorio temporal.
+     * @param nombre Nombre del archivo.
+     * @param productos Productos a escribir.
+     * @return Ruta del archivo escrito.
+     * @throws IOException Si falla la escritura.
+     */
+    private static Path escribir(Path directorio, String nombre, List<Producto> productos) throws IOException {
+        Path archivo = directorio.resolve(nombre);
+        InstantaneaBinaria.escribir(archivo, productos);
+        return archivo;
+    }
+
+    /**
+     * Verifica que dos listas tienen los mismos productos, en el mismo orden.
+     *
+     * @param esperados Productos escritos.
+     * @param obtenidos Productos leídos.
+     * @param caso Caso, para los mensajes.
+     */
+    static void verificarTodos(List<Producto> esperados, List<Producto> obtenidos, String caso) {
+        Verificar.iguales(esperados.size(), obtenidos.size(), caso + ": cantidad");
+        for (int i = 0; i < esperados.size(); i++) {
+            verificarIguales(esperados.get(i), obtenidos.get(i), caso + ": producto " + i);
+        }
+    }
+
+    /**
+     * Verifica que dos productos tienen el mismo tipo y los mismos valores en todos sus campos.
+     *
+     * @param e Producto escrito.
+     * @param o Producto leído.
+     * @param caso Caso, para los mensajes.
+     */
+    static void verificarIguales(Producto e, Producto o, String caso) {
+        Verificar.iguales(e.getClass(), o.getClass(), caso + ": tipo");
+        Verificar.iguales(e.getId(), o.getId(), caso + ": ID");
+        Verificar.iguales(e.getNombre(), o.getNombre(), caso + ": nombre");
+        Verificar.iguales(e.getPrecio(), o.getPrecio(), caso + ": precio");
+        if (e instanceof Alimento a) {
+            Verificar.iguales(a.getTipo(), ((Alimento) o).getTipo(), caso + ": tipo de alimento");
+            Verificar.iguales(a.getCalorias(), ((Alimento) o).getCalorias(), caso + ": calorías");
+        } else if (e instanceof Electronico el) {
+            Verificar.iguales(el.getMarca(), ((Electronico) o).getMarca(), caso + ": marca");
+            Verificar.iguales(el.getGarantiaMeses(), ((Electronico) o).getGarantiaMeses(), caso + ": garantía");
+        } else if (e instanceof Ropa r) {
+            Verificar.iguales(r.getTalla(), ((Ropa) o).getTalla(), caso + ": talla");
+            Verificar.iguales(r.getMaterial(), ((Ropa) o).getMaterial(), caso + ": material");
+        }
+    }
+
+    /**
+     * Crea un producto de prueba. Cada pocos productos usa valores extremos o nulos.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y campos según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    static Producto producto(int i) throws Exception {
+        int id = i == 0 ? Integer.MAX_VALUE : i == 1 ? 0 : i;
+        String nombre = NOMBRES[i % NOMBRES.length] + (i % 7 == 0 ? "" : " " + i);
+        double precio = i % 11 == 0 ? 0 : i % 13 == 0 ? Double.MAX_VALUE : 0.01 * (i % 100000);
+        return switch (i % 3) {
+            case 0 -> new Alimento(id, nombre, precio,
+                    i % 5 == 0 ? null : TipoAlimento.values()[i % TipoAlimento.values().length], i % 17 == 0 ? Integer.MIN_VALUE : i);
+            case 1 -> new Electronico(id, nombre, precio,
+                    i % 5 == 1 ? null : MarcaElectronicos.values()[i % MarcaElectronicos.values().length], i % 48);
+            default -> new Ropa(id, nombre, precio,
+                    i % 5 == 2 ? null : TallaRopa.values()[i % TallaRopa.values().length], i % 4 == 0 ? null : "Material " + i % 9);
+        };
+    }
+}
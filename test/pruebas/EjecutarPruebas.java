@@ -0,0 +1,44 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package pruebas;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Ejecuta las pruebas indicadas por nombre de clase, llamando al main de cada una,
+ * y termina con código 1 si alguna falló. Lo usa el target "verificar" de build.xml.
+ *
+ * @author joaxx
+ */
+public final class EjecutarPruebas {
+
+    private EjecutarPruebas() {
+    }
+
+    /**
+     * Ejecuta las pruebas.
+     *
+     * @param args Nombres completos de las clases de prueba.
+     * @throws Exception Si una clase no existe o no tiene main.
+     */
+    public static void main(String[] args) throws Exception {
+        int fallidas = 0;
+        for (String nombre : args) {
+            long inicio = System.nanoTime();
+            try {
+                Class.forName(nombre).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+                System.out.printf("OK     %s (%d ms)%n", nombre, (System.nanoTime() - inicio) / 1_000_000);
+            } catch (InvocationTargetException ex) {
+                fallidas++;
+                System.out.printf("FALLA  %s: %s%n", nombre, ex.getCause());
+                ex.getCause().printStackTrace(System.out);
+            }
+        }
+        System.out.printf("%d pruebas, %d fallidas%n", args.length, fallidas);
+        if (fallidas > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package pruebas;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Comprobaciones para las pruebas de test.src.dir, que son programas sin JUnit:
+ * cada comprobación que no se cumple lanza AssertionError con un mensaje.
+ *
+ * @author joaxx
+ */
+public final class Verificar {
+
+    /**
+     * Acción de una prueba que puede lanzar excepciones.
+     */
+    @FunctionalInterface
+    public interface Accion {
+        /**
+         * Ejecuta la acción.
+         *
+         * @throws Exception Si la acción falla.
+         */
+        void ejecutar() throws Exception;
+    }
+
+    private Verificar() {
+    }
+
+    /**
+     * Verifica que una condición se cumple.
+     *
+     * @param condicion Condición a verificar.
+     * @param mensaje Descripción de lo que se esperaba.
+     */
+    public static void verdadero(boolean condicion, String mensaje) {
+        if (!condicion) {
+            throw new AssertionError(mensaje);
+        }
+    }
+
+    /**
+     * Verifica que dos valores son iguales según equals.
+     *
+     * @param esperado Valor esperado.
+     * @param obtenido Valor obtenido.
+     * @param mensaje Descripción del valor comparado.
+     */
+    public static void iguales(Object esperado, Object obtenido, String mensaje) {
+        if (!Objects.equals(esperado, obtenido)) {
+            throw new AssertionError(mensaje + ": se esperaba <" + esperado + "> pero se obtuvo <" + obtenido + ">");
+        }
+    }
+
+    /**
+     * Verifica que una acción lanza una excepción del tipo indicado.
+     *
+     * @param <T> Tipo de la excepción.
+     * @param tipo Clase de la excepción esperada.
+     * @param accion Acción a ejecutar.
+     * @param mensaje Descripción de la acción.
+     * @return Excepción lanzada.
+     */
+    public static <T extends Throwable> T lanza(Class<T> tipo, Accion accion, String mensaje) {
+        try {
+            accion.ejecutar();
+        } catch (Throwable ex) {
+            if (tipo.isInstance(ex)) {
+                return tipo.cast(ex);
+            }
+            throw new AssertionError(mensaje + ": se esperaba " + tipo.getSimpleName() + " pero se lanzó " + ex, ex);
+        }
+        throw new AssertionError(mensaje + ": se esperaba " + tipo.getSimpleName() + " y no se lanzó nada");
+    }
+
+    /**
+     * Crea un directorio temporal para los archivos de una prueba.
+     *
+     * @param prefijo Prefijo del nombre del directorio.
+     * @return Directorio creado.
+     * @throws IOException Si no se puede crear.
+     */
+    public static Path directorioTemporal(String prefijo) throws IOException {
+        return Files.createTempDirectory(prefijo);
+    }
+
+    /**
+     * Borra un directorio temporal y su contenido.
+     *
+     * @param directorio Directorio a borrar.
+     * @throws IOException Si no se puede borrar.
+     */
+    public static void borrar(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path p : (Iterable<Path>) archivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import Interfaces.ProductoManager;
+import comparators.ComparadorPorNombre;
+import comparators.ComparadorPorPrecio;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Verifica las consultas de ProductoManager: el resultado coincide con un filtrado y
+ * ordenamiento completos, las consultas se pueden ejecutar mientras otro hilo modifica
+ * y recarga el catálogo, una consulta creada antes de recargar usa el catálogo nuevo, y
+ * los límites enormes no reservan memoria de más.
+ *
+ * @author joaxx
+ */
+public class ConsultaPrueba {
+
+    private static final int CANTIDAD = 20000;
+    private static final int CONSULTAS_CONCURRENTES = 2000;
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        ProductoManager manager = new ProductoManager();
+        for (int i = 0; i < CANTIDAD; i++) {
+            manager.agregar(producto(i));
+        }
+        for (int i = 0; i < 50; i++) {
+            verificarContraRecorrido(manager, Criterios.alAzar());
+        }
+        verificarLimitesGrandes(manager);
+        verificarConcurrente(manager);
+        verificarRecarga(manager);
+    }
+
+    /**
+     * Verifica consultas ordenadas con límites mucho mayores que el catálogo, que el
+     * índice no puede ordenar: no deben reservar un montículo del tamaño del límite.
+     *
+     * @param manager Catálogo a consultar.
+     */
+    private static void verificarLimitesGrandes(ProductoManager manager) {
+        for (int limite : new int[]{CANTIDAD, 1_000_000_000, Integer.MAX_VALUE}) {
+            Criterios criterios = new Criterios();
+            criterios.tipo = Ropa.class;
+            criterios.orden = new ComparadorPorPrecio();
+            criterios.limite = limite;
+            verificarContraRecorrido(manager, criterios);
+            Verificar.iguales(PlanConsulta.Orden.ORDENAMIENTO_TOTAL, criterios.crear(manager).explicar().getOrden(),
+                    "Orden del plan con límite " + limite);
+        }
+    }
+
+    /**
+     * Ejecuta consultas mientras otro hilo agrega, modifica, elimina y recarga productos.
+     *
+     * @param manager Catálogo a consultar.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarConcurrente(ProductoManager manager) throws Exception {
+        Path directorio = Verificar.directorioTemporal("consulta");
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        AtomicBoolean consultando = new AtomicBoolean(true);
+        try {
+            String archivo = directorio.resolve("catalogo.csv").toString();
+            manager.guardarCSV(archivo);
+            Future<Integer> escritor = hilos.submit(() -> {
+                int operaciones = 0;
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                while (consultando.get()) {
+                    List<Producto> todos = manager.obtenerTodos();
+                    Producto p = todos.get(azar.nextInt(todos.size()));
+                    switch (operaciones % 4) {
+                        case 0 -> manager.agregar(producto(azar.nextInt(CANTIDAD)));
+                        case 1 -> {
+                            // Reemplazo con otra instancia: los resultados ya entregados no cambian
+                            Producto nuevo = producto(azar.nextInt(CANTIDAD));
+                            nuevo.setId(p.getId());
+                            manager.actualizar(nuevo);
+                        }
+                        case 2 -> manager.eliminar(p.getId());
+                        default -> {
+                            if (operaciones % 200 == 3) {
+                                manager.cargarCSV(archivo);
+                            }
+                        }
+                    }
+                    operaciones++;
+                }
+                return operaciones;
+            });
+            Future<Integer> lector = hilos.submit(() -> {
+                try {
+                    for (int i = 0; i < CONSULTAS_CONCURRENTES; i++) {
+                        Criterios criterios = Criterios.alAzar();
+                        verificarResultado(criterios, criterios.crear(manager).ejecutar());
+                    }
+                    return CONSULTAS_CONCURRENTES;
+                } finally {
+                    consultando.set(false);
+                }
+            });
+            lector.get();
+            Verificar.verdadero(escritor.get() > 0, "El escritor no hizo cambios");
+        } finally {
+            consultando.set(false);
+            hilos.shutdown();
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Verifica que una consulta creada antes de recargar el catálogo se ejecuta sobre el catálogo nuevo.
+     *
+     * @param manager Catálogo a consultar.
+     * @throws Exception Si la prueba falla.
+     */
+    private static void verificarRecarga(ProductoManager manager) throws Exception {
+        Path directorio = Verificar.directorioTemporal("consulta-recarga");
+        try {
+            String archivo = directorio.resolve("catalogo.bin").toString();
+            ProductoManager otro = new ProductoManager();
+            for (int i = 0; i < 100; i++) {
+                otro.agregar(new Ropa(0, "Recargado " + i, 5000 + i, TallaRopa.L, "Lana"));
+            }
+            otro.serializar(archivo);
+            Consulta consulta = manager.consulta().tipo(Ropa.class).ordenarPor(new ComparadorPorPrecio()).limite(10);
+            Consulta deTipo = manager.consulta().tipo(Ropa.class);
+            manager.deserializar(archivo);
+            List<Producto> resultado = consulta.ejecutar();
+            Verificar.iguales(10, resultado.size(), "Resultados después de recargar");
+            Verificar.iguales("Recargado 0", resultado.get(0).getNombre(), "Primer resultado después de recargar");
+            Verificar.iguales(100, deTipo.explicar().getEstimado(), "Estimado después de recargar");
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Compara el resultado de una consulta con un recorrido completo de la lista.
+     *
+     * @param manager Catálogo consultado.
+     * @param criterios Criterios de la consulta a verificar.
+     */
+    private static void verificarContraRecorrido(ProductoManager manager, Criterios criterios) {
+        Consulta consulta = criterios.crear(manager);
+        List<Producto> obtenido = consulta.ejecutar();
+        verificarResultado(criterios, obtenido);
+        List<Producto> esperado = new ArrayList<>();
+        for (Producto p : manager.obtenerTodos()) {
+            if (criterios.cumple(p)) {
+                esperado.add(p);
+            }
+        }
+        if (criterios.orden != null) {
+            esperado.sort(criterios.orden);
+        }
+        int limite = criterios.limite < 0 ? esperado.size() : Math.min(criterios.limite, esperado.size());
+        Verificar.iguales(limite, obtenido.size(), "Cantidad de resultados de " + consulta.explicar());
+        if (criterios.orden != null) {
+            for (int i = 0; i < limite; i++) {
+                Verificar.iguales(0, criterios.orden.compare(esperado.get(i), obtenido.get(i)),
+                        "Resultado " + i + " de " + consulta.explicar());
+            }
+        }
+    }
+
+    /**
+     * Verifica que cada resultado cumple los criterios y que respeta el orden y el límite.
+     *
+     * @param criterios Criterios de la consulta ejecutada.
+     * @param resultado Resultado obtenido.
+     */
+    private static void verificarResultado(Criterios criterios, List<Producto> resultado) {
+        Verificar.verdadero(criterios.limite < 0 || resultado.size() <= criterios.limite, "Resultado más largo que el límite");
+        for (int i = 0; i < resultado.size(); i++) {
+            Verificar.verdadero(criterios.cumple(resultado.get(i)), "Resultado que no cumple la consulta: " + resultado.get(i).getNombre());
+            if (criterios.orden != null && i > 0) {
+                Verificar.verdadero(criterios.orden.compare(resultado.get(i - 1), resultado.get(i)) <= 0, "Resultado desordenado en " + i);
+            }
+        }
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo, nombre y precio según el número.
+     */
+    private static Producto producto(int i) {
+        try {
+            String nombre = "Producto " + i;
+            double precio = 1 + (i * 7919L) % 1000;
+            return switch (i % 3) {
+                case 0 -> new Alimento(0, nombre, precio, TipoAlimento.NO_PERECEDERO, 100);
+                case 1 -> new Electronico(0, nombre, precio, MarcaElectronicos.SAMSUNG, 12);
+                default -> new Ropa(0, nombre, precio, TallaRopa.S, "Lino");
+            };
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Criterios de una consulta al azar, para comparar el resultado con un recorrido completo.
+     */
+    private static class Criterios {
+        private Class<? extends Producto> tipo;
+        private boolean conPrecio;
+        private double desde;
+        private double hasta;
+        private String prefijo;
+        private Comparator<Producto> orden;
+        private int limite = -1;
+
+        /**
+         * Elige criterios al azar.
+         *
+         * @return Criterios nuevos.
+         */
+        static Criterios alAzar() {
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            Criterios c = new Criterios();
+            if (azar.nextBoolean()) {
+                c.tipo = azar.nextBoolean() ? Alimento.class : Electronico.class;
+            }
+            if (azar.nextBoolean()) {
+                c.conPrecio = true;
+                c.desde = azar.nextInt(1000);
+                c.hasta = c.desde + azar.nextInt(300);
+            }
+            if (azar.nextInt(3) == 0) {
+                c.prefijo = "Producto " + azar.nextInt(10);
+            }
+            int orden = azar.nextInt(3);
+            c.orden = orden == 0 ? null : orden == 1 ? new ComparadorPorPrecio() : new ComparadorPorNombre();
+            if (azar.nextBoolean()) {
+                c.limite = azar.nextInt(50);
+            }
+            return c;
+        }
+
+        /**
+         * Crea la consulta con estos criterios.
+         *
+         * @param manager Catálogo a consultar.
+         * @return Consulta nueva.
+         */
+        Consulta crear(ProductoManager manager) {
+            Consulta consulta = manager.consulta();
+            if (tipo != null) {
+                consulta.tipo(tipo);
+            }
+            if (conPrecio) {
+                consulta.precioEntre(desde, hasta);
+            }
+            if (prefijo != null) {
+                consulta.nombreComienzaCon(prefijo);
+            }
+            if (orden != null) {
+                consulta.ordenarPor(orden);
+            }
+            if (limite >= 0) {
+                consulta.limite(limite);
+            }
+            return consulta;
+        }
+
+        /**
+         * Indica si un producto cumple los criterios.
+         *
+         * @param p Producto.
+         * @return true si el producto cumple todos los criterios.
+         */
+        boolean cumple(Producto p) {
+            return (tipo == null || tipo.isInstance(p))
+                    && (!conPrecio || (p.getPrecio() >= desde && p.getPrecio() < hasta))
+                    && (prefijo == null || p.getNombre().startsWith(prefijo));
+        }
+    }
+}
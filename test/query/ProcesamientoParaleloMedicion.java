@@ -0,0 +1,138 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Mide filtrar, aplicar y filtrarPorTipo de ProductoManager contra sus versiones paralelas
+ * con catálogos de mil a un millón de productos, e informa para cada operación el cruce:
+ * el menor tamaño desde el cual la versión paralela es más rápida en todos los tamaños
+ * medidos, para que una medición ruidosa en un tamaño chico no lo adelante. Con menos
+ * productos que el umbral de ProductoManager las versiones paralelas corren en el hilo
+ * que llama, así que el cruce depende también del umbral.
+ *
+ * Uso: ant medir -Dmedicion=query.ProcesamientoParaleloMedicion [-Dmedir.args="segundos umbral"]
+ *
+ * @author joaxx
+ */
+public class ProcesamientoParaleloMedicion {
+
+    private static final int[] TAMANIOS = {1_000, 10_000, 100_000, 1_000_000};
+
+    private static volatile Object sumidero; // Evita que se descarten los resultados
+
+    /**
+     * Ejecuta la medición e imprime microsegundos por operación.
+     *
+     * @param args Segundos por medición (por defecto 1) y umbral de ProductoManager
+     *             (por defecto el suyo).
+     * @throws Exception Si falla la creación del catálogo.
+     */
+    public static void main(String[] args) throws Exception {
+        double segundos = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        int umbral = args.length > 1 ? Integer.parseInt(args[1]) : new ProductoManager().getUmbralParalelo();
+        System.out.printf("Núcleos: %d, umbral %d, %.1f s por medición%n", Runtime.getRuntime().availableProcessors(), umbral, segundos);
+        System.out.printf("%10s %16s %14s %14s %8s%n", "productos", "operación", "secuencial µs", "paralelo µs", "mejora");
+        Map<String, Integer> cruces = new LinkedHashMap<>();
+        Predicate<Producto> filtro = p -> p.getPrecio() > 500 && p.getNombre().indexOf('7') >= 0;
+        for (int tamanio : TAMANIOS) {
+            ProductoManager manager = new ProductoManager();
+            manager.setUmbralParalelo(umbral);
+            for (int i = 0; i < tamanio; i++) {
+                manager.agregar(producto(i));
+            }
+            List<Producto> todos = manager.obtenerTodos();
+            medir(cruces, tamanio, "filtrar", segundos,
+                    () -> sumidero = manager.filtrar(filtro),
+                    () -> sumidero = manager.filtrarParalelo(filtro));
+            medir(cruces, tamanio, "aplicar", segundos,
+                    () -> manager.aplicar(p -> p.setNombre(p.getNombre())),
+                    () -> manager.aplicarParalelo(p -> p.setNombre(p.getNombre())));
+            medir(cruces, tamanio, "filtrarPorTipo", segundos,
+                    () -> sumidero = manager.filtrarPorTipo(todos, Ropa.class),
+                    () -> sumidero = manager.filtrarPorTipoParalelo(todos, Ropa.class));
+        }
+        for (Map.Entry<String, Integer> cruce : cruces.entrySet()) {
+            System.out.printf("%s: el paralelo gana desde %s%n", cruce.getKey(),
+                    cruce.getValue() < 0 ? "ningún tamaño medido" : cruce.getValue() + " productos");
+        }
+    }
+
+    /**
+     * Mide una operación en sus versiones secuencial y paralela, imprime la fila y actualiza
+     * el cruce de la operación.
+     *
+     * @param cruces Menor tamaño desde el cual ganó siempre la versión paralela, o -1, por operación.
+     * @param tamanio Cantidad de productos del catálogo.
+     * @param operacion Nombre de la operación.
+     * @param segundos Duración de cada medición.
+     * @param secuencial Versión secuencial.
+     * @param paralela Versión paralela.
+     */
+    private static void medir(Map<String, Integer> cruces, int tamanio, String operacion, double segundos,
+            Runnable secuencial, Runnable paralela) {
+        double sec = microsPorOperacion(secuencial, segundos);
+        double par = microsPorOperacion(paralela, segundos);
+        System.out.printf("%10d %16s %14.1f %14.1f %7.2fx%n", tamanio, operacion, sec, par, sec / par);
+        if (par >= sec) {
+            cruces.put(operacion, -1);
+        } else if (cruces.getOrDefault(operacion, -1) < 0) {
+            cruces.put(operacion, tamanio);
+        }
+    }
+
+    /**
+     * Repite una operación durante el tiempo indicado, después de un calentamiento.
+     *
+     * @param operacion Operación a medir.
+     * @param segundos Duración de la medición.
+     * @return Microsegundos promedio por ejecución.
+     */
+    private static double microsPorOperacion(Runnable operacion, double segundos) {
+        long calentamiento = System.nanoTime() + (long) (segundos * 0.3e9);
+        while (System.nanoTime() < calentamiento) {
+            operacion.run();
+        }
+        long duracion = (long) (segundos * 1e9);
+        long inicio = System.nanoTime();
+        long veces = 0;
+        long transcurrido;
+        do {
+            operacion.run();
+            veces++;
+            transcurrido = System.nanoTime() - inicio;
+        } while (transcurrido < duracion);
+        return transcurrido / 1e3 / veces;
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y precio según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(int i) throws Exception {
+        double precio = 1 + (i * 31L) % 1000;
+        return switch (i % 3) {
+            case 0 -> new Alimento(0, "Alimento " + i, precio, TipoAlimento.PERECEDERO, 10);
+            case 1 -> new Electronico(0, "Electrónico " + i, precio, MarcaElectronicos.SONY, 12);
+            default -> new Ropa(0, "Ropa " + i, precio, TallaRopa.M, "Algodón");
+        };
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package query;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
+
+/**
+ * Verifica que las operaciones paralelas dan el mismo resultado, en el mismo orden, que
+ * las secuenciales: con bloques de un elemento, con bloques que no dividen la lista en
+ * partes iguales y con un solo bloque (también con umbrales cercanos a Integer.MAX_VALUE),
+ * y que aplicar procesa cada elemento una sola vez.
+ *
+ * @author joaxx
+ */
+public class ProcesamientoParaleloPrueba {
+
+    private static final int CANTIDAD = 10007;
+    private static final int[] UMBRALES = {1, 7, 1000, CANTIDAD, CANTIDAD * 2, Integer.MAX_VALUE / 2 + 1, Integer.MAX_VALUE};
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        List<Integer> numeros = new ArrayList<>();
+        for (int i = 0; i < CANTIDAD; i++) {
+            numeros.add((i * 7919) % CANTIDAD);
+        }
+        Predicate<Integer> impares = n -> n % 2 == 1;
+        List<Integer> esperado = new ArrayList<>();
+        for (Integer n : numeros) {
+            if (impares.test(n)) {
+                esperado.add(n);
+            }
+        }
+        for (int umbral : UMBRALES) {
+            Verificar.iguales(esperado, ProcesamientoParalelo.filtrar(numeros, impares, umbral), "filtrar con umbral " + umbral);
+            AtomicIntegerArray vistos = new AtomicIntegerArray(CANTIDAD);
+            ProcesamientoParalelo.aplicar(numeros, n -> vistos.incrementAndGet(n), umbral);
+            for (int i = 0; i < CANTIDAD; i++) {
+                Verificar.iguales(1, vistos.get(i), "aplicar con umbral " + umbral + ", elemento " + i);
+            }
+        }
+        Verificar.iguales(0, ProcesamientoParalelo.filtrar(new ArrayList<Integer>(), impares, 10).size(), "filtrar una lista vacía");
+
+        ProductoManager manager = new ProductoManager();
+        for (int i = 0; i < CANTIDAD; i++) {
+            manager.agregar(producto(i));
+        }
+        List<Producto> todos = manager.obtenerTodos();
+        for (int umbral : UMBRALES) {
+            manager.setUmbralParalelo(umbral);
+            Predicate<Producto> caros = p -> p.getPrecio() > 500;
+            Verificar.iguales(manager.filtrar(caros), manager.filtrarParalelo(caros), "filtrarParalelo con umbral " + umbral);
+            Verificar.iguales(manager.filtrarPorTipo(todos, Ropa.class), manager.filtrarPorTipoParalelo(todos, Ropa.class),
+                    "filtrarPorTipoParalelo con umbral " + umbral);
+        }
+        manager.setUmbralParalelo(1000);
+        manager.aplicarParalelo(p -> p.setNombre(p.getNombre() + "!"));
+        for (Producto p : manager.obtenerTodos()) {
+            Verificar.verdadero(p.getNombre().endsWith("!") && !p.getNombre().endsWith("!!"), "aplicarParalelo sobre " + p.getNombre());
+        }
+        Verificar.lanza(IllegalArgumentException.class, () -> manager.setUmbralParalelo(0), "Umbral no positivo");
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y precio según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(int i) throws Exception {
+        double precio = 1 + (i * 31L) % 1000;
+        return switch (i % 3) {
+            case 0 -> new Alimento(0, "Alimento " + i, precio, TipoAlimento.PERECEDERO, 10);
+            case 1 -> new Electronico(0, "Electrónico " + i, precio, MarcaElectronicos.SONY, 12);
+            default -> new Ropa(0, "Ropa " + i, precio, TallaRopa.M, "Algodón");
+        };
+    }
+}
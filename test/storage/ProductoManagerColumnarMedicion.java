@@ -0,0 +1,151 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import Interfaces.ProductoManager;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.util.Random;
+
+/**
+ * Compara ProductoManagerColumnar con ProductoManager: heap retenido después de las
+ * altas, búsqueda por rango de precio e incremento de todos los precios. Luego renombra
+ * productos al azar en el repositorio columnar e informa cómo evoluciona el diccionario
+ * de textos, que debe mantenerse acotado aunque cada nombre sea nuevo.
+ *
+ * Uso: ant medir -Dmedicion=storage.ProductoManagerColumnarMedicion
+ *      [-Dmedir.args="productos repeticiones renombres"]
+ *
+ * @author joaxx
+ */
+public class ProductoManagerColumnarMedicion {
+
+    private static volatile Object sumidero; // Evita que se descarten los resultados
+
+    /**
+     * Ejecuta la medición.
+     *
+     * @param args Cantidad de productos (por defecto 1000000), repeticiones de cada
+     *             recorrido (por defecto 5) y renombres (por defecto 2000000).
+     * @throws Exception Si un precio es inválido.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int renombres = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        System.out.printf("%d productos, mejor de %d repeticiones%n", cantidad, repeticiones);
+
+        long base = heapUsado();
+        ProductoManagerColumnar columnar = new ProductoManagerColumnar();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            columnar.agregar(producto(i));
+        }
+        long altasColumnar = System.nanoTime() - inicio;
+        long heapColumnar = heapUsado() - base;
+
+        base = heapUsado();
+        ProductoManager manager = new ProductoManager();
+        inicio = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            manager.agregar(producto(i));
+        }
+        long altasManager = System.nanoTime() - inicio;
+        long heapManager = heapUsado() - base;
+
+        long rangoColumnar = Long.MAX_VALUE;
+        long rangoManager = Long.MAX_VALUE;
+        long preciosColumnar = Long.MAX_VALUE;
+        long preciosManager = Long.MAX_VALUE;
+        for (int r = 0; r < repeticiones; r++) {
+            inicio = System.nanoTime();
+            int[] ids = columnar.idsPorRangoPrecio(100, 200);
+            rangoColumnar = Math.min(rangoColumnar, System.nanoTime() - inicio);
+            sumidero = ids;
+
+            inicio = System.nanoTime();
+            sumidero = manager.filtrarPorPrecio(100, 200);
+            rangoManager = Math.min(rangoManager, System.nanoTime() - inicio);
+
+            // Sube y baja para que los precios no crezcan entre repeticiones
+            double factor = r % 2 == 0 ? 1.10 : 1 / 1.10;
+            inicio = System.nanoTime();
+            columnar.multiplicarPrecios(factor);
+            preciosColumnar = Math.min(preciosColumnar, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            manager.aplicar(p -> {
+                try {
+                    p.setPrecio(p.getPrecio() * factor);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            preciosManager = Math.min(preciosManager, System.nanoTime() - inicio);
+        }
+        Verificar.iguales(manager.cantidad(), columnar.cantidad(), "Cantidad de productos");
+
+        System.out.printf("%-22s %14s %14s%n", "etapa", "columnar", "ProductoManager");
+        System.out.printf("%-22s %14.0f %14.0f%n", "altas (ms)", altasColumnar / 1e6, altasManager / 1e6);
+        System.out.printf("%-22s %14.1f %14.1f%n", "heap retenido (MB)", heapColumnar / 1e6, heapManager / 1e6);
+        System.out.printf("%-22s %14.2f %14.2f%n", "rango de precio (ms)", rangoColumnar / 1e6, rangoManager / 1e6);
+        System.out.printf("%-22s %14.2f %14.2f%n", "incremento (ms)", preciosColumnar / 1e6, preciosManager / 1e6);
+        manager = null;
+
+        System.out.printf("%nRenombres al azar, cada uno con un nombre nuevo%n");
+        System.out.printf("%-12s %12s %18s%n", "renombres", "textos", "diccionario (MB)");
+        System.out.printf("%-12d %12d %18.1f%n", 0, columnar.cantidadTextos(), columnar.bytesTextos() / 1e6);
+        Random azar = new Random(11);
+        inicio = System.nanoTime();
+        for (int i = 1; i <= renombres; i++) {
+            int id = 1 + azar.nextInt(cantidad);
+            Producto p = columnar.obtenerPorId(id);
+            p.setNombre("Renombrado " + i);
+            columnar.actualizar(p);
+            if (i % (renombres / 4) == 0) {
+                System.out.printf("%-12d %12d %18.1f%n", i, columnar.cantidadTextos(), columnar.bytesTextos() / 1e6);
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("%.0f renombres/s%n", renombres / segundos);
+    }
+
+    /**
+     * Obtiene el heap en uso después de pedir una recolección.
+     *
+     * @return Bytes usados del heap.
+     */
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y campos según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(int i) throws Exception {
+        String nombre = "Producto de catálogo número " + i;
+        double precio = 1 + i % 997;
+        return switch (i % 3) {
+            case 0 -> new Alimento(0, nombre, precio, TipoAlimento.PERECEDERO, i % 900);
+            case 1 -> new Electronico(0, nombre, precio, MarcaElectronicos.SAMSUNG, i % 36);
+            default -> new Ropa(0, nombre, precio, TallaRopa.L, "Algodón");
+        };
+    }
+}
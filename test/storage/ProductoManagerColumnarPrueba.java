@@ -0,0 +1,207 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import exceptions.ProductoNoEncontradoException;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Prueba de ProductoManagerColumnar contra un modelo en memoria: una secuencia al azar
+ * de altas, modificaciones (que cambian el tipo, el nombre y el material), bajas y
+ * búsquedas, con enums, nombres y materiales null y textos con caracteres no ASCII.
+ * Cada tanto compara todos los productos y el diccionario de textos con el modelo.
+ * Al final renombra muchas veces unos pocos productos y verifica que el diccionario
+ * no crezca con los textos que ya nadie usa.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerColumnarPrueba {
+
+    private static final int OPERACIONES = 60000;
+    private static final int RENOMBRES = 200000;
+    private static final long BYTES_MAXIMOS_TEXTOS = 1 << 20; // Los renombres escriben unos 10 MB de textos
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args Semilla opcional.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        long semilla = args.length > 0 ? Long.parseLong(args[0]) : 7;
+        Random azar = new Random(semilla);
+        ProductoManagerColumnar repositorio = new ProductoManagerColumnar();
+        TreeMap<Integer, Producto> modelo = new TreeMap<>();
+        int mayorId = 0;
+        for (int i = 0; i < OPERACIONES; i++) {
+            int operacion = azar.nextInt(100);
+            // Más altas al principio para que las columnas crezcan; luego predominan cambios y bajas
+            if (operacion < (i < OPERACIONES / 2 ? 50 : 25) || modelo.isEmpty()) {
+                Producto p = producto(azar, 0);
+                repositorio.agregar(p);
+                Verificar.verdadero(p.getId() > mayorId, "ID asignado " + p.getId() + " no mayor que " + mayorId);
+                mayorId = p.getId();
+                modelo.put(p.getId(), p);
+            } else if (operacion < 60) {
+                int id = existente(azar, modelo);
+                Producto p = producto(azar, id);
+                repositorio.actualizar(p);
+                modelo.put(id, p);
+            } else if (operacion < 80) {
+                int id = existente(azar, modelo);
+                repositorio.eliminar(id);
+                modelo.remove(id);
+            } else {
+                int id = 1 + azar.nextInt(mayorId + 10);
+                Producto esperado = modelo.get(id);
+                if (esperado == null) {
+                    Verificar.lanza(ProductoNoEncontradoException.class, () -> repositorio.obtenerPorId(id), "Buscar ID ausente " + id);
+                } else {
+                    Verificar.iguales(huella(esperado), huella(repositorio.obtenerPorId(id)), "Buscar ID " + id);
+                    Verificar.iguales(esperado.getPrecio(), repositorio.obtenerPrecio(id), "Precio del ID " + id);
+                }
+            }
+            if (i % 5000 == 4999) {
+                verificarTodos(repositorio, modelo, "Operación " + i);
+            }
+        }
+        int ausente = mayorId + 1;
+        Verificar.lanza(ProductoNoEncontradoException.class, () -> repositorio.eliminar(ausente), "Eliminar ID ausente");
+        Verificar.lanza(ProductoNoEncontradoException.class, () -> repositorio.actualizar(producto(azar, ausente)), "Actualizar ID ausente");
+
+        // Rango de precios sobre la columna
+        Set<Integer> enRango = new HashSet<>();
+        for (Producto p : modelo.values()) {
+            if (p.getPrecio() >= 100 && p.getPrecio() < 500) {
+                enRango.add(p.getId());
+            }
+        }
+        Set<Integer> encontrados = new HashSet<>();
+        for (int id : repositorio.idsPorRangoPrecio(100, 500)) {
+            encontrados.add(id);
+        }
+        Verificar.iguales(enRango, encontrados, "IDs por rango de precio");
+
+        // Renombrar muchas veces unos pocos productos no debe acumular textos
+        Integer[] ids = modelo.keySet().stream().limit(100).toArray(Integer[]::new);
+        for (int i = 0; i < RENOMBRES; i++) {
+            int id = ids[azar.nextInt(ids.length)];
+            Producto p = new Ropa(id, "Renombrado número " + i + " ñandú", i % 1000, TallaRopa.M, "Lino " + i);
+            repositorio.actualizar(p);
+            modelo.put(id, p);
+        }
+        verificarTodos(repositorio, modelo, "Después de los renombres");
+        Verificar.verdadero(repositorio.bytesTextos() < BYTES_MAXIMOS_TEXTOS,
+                "Bytes del diccionario después de los renombres: " + repositorio.bytesTextos());
+
+        // Vaciar el repositorio libera todos los textos
+        for (int id : modelo.keySet().toArray(Integer[]::new)) {
+            repositorio.eliminar(id);
+            modelo.remove(id);
+        }
+        verificarTodos(repositorio, modelo, "Después de eliminar todo");
+        Producto ultimo = producto(azar, 0);
+        repositorio.agregar(ultimo);
+        modelo.put(ultimo.getId(), ultimo);
+        verificarTodos(repositorio, modelo, "Alta después de eliminar todo");
+    }
+
+    /**
+     * Compara todos los productos y los textos del diccionario con el modelo.
+     *
+     * @param repositorio Repositorio a verificar.
+     * @param modelo Producto esperado por ID.
+     * @param caso Caso, para los mensajes.
+     */
+    private static void verificarTodos(ProductoManagerColumnar repositorio, TreeMap<Integer, Producto> modelo, String caso) {
+        Verificar.iguales(modelo.size(), repositorio.cantidad(), caso + ": cantidad");
+        List<Producto> todos = repositorio.obtenerTodos();
+        Verificar.iguales(modelo.size(), todos.size(), caso + ": productos recorridos");
+        TreeMap<Integer, String> recorridos = new TreeMap<>();
+        for (Producto p : todos) {
+            recorridos.put(p.getId(), huella(p));
+        }
+        Set<String> textos = new HashSet<>();
+        for (Map.Entry<Integer, Producto> esperado : modelo.entrySet()) {
+            Producto p = esperado.getValue();
+            Verificar.iguales(huella(p), recorridos.get(esperado.getKey()), caso + ": producto " + esperado.getKey());
+            if (p.getNombre() != null) {
+                textos.add(p.getNombre());
+            }
+            if (p instanceof Ropa && ((Ropa) p).getMaterial() != null) {
+                textos.add(((Ropa) p).getMaterial());
+            }
+        }
+        Verificar.iguales(textos.size(), repositorio.cantidadTextos(), caso + ": textos en el diccionario");
+    }
+
+    /**
+     * Elige al azar un ID del modelo.
+     *
+     * @param azar Generador de números al azar.
+     * @param modelo Modelo no vacío.
+     * @return ID existente.
+     */
+    private static int existente(Random azar, TreeMap<Integer, Producto> modelo) {
+        return modelo.ceilingKey(modelo.firstKey() + azar.nextInt(modelo.lastKey() - modelo.firstKey() + 1));
+    }
+
+    /**
+     * Resume todos los campos de un producto en un texto, para compararlo con el modelo.
+     *
+     * @param p Producto.
+     * @return Tipo, ID, precio y campos propios.
+     */
+    private static String huella(Producto p) {
+        String propios;
+        if (p instanceof Alimento) {
+            propios = ((Alimento) p).getTipo() + "|" + ((Alimento) p).getCalorias();
+        } else if (p instanceof Electronico) {
+            propios = ((Electronico) p).getMarca() + "|" + ((Electronico) p).getGarantiaMeses();
+        } else {
+            propios = ((Ropa) p).getTalla() + "|" + ((Ropa) p).getMaterial();
+        }
+        return p.getClass().getSimpleName() + "|" + p.getId() + "|" + p.getPrecio() + "|" + p.getNombre() + "|" + propios;
+    }
+
+    /**
+     * Crea un producto al azar. Uno de cada diez tiene el enum en null y uno de cada
+     * veinte el nombre o el material en null. Los nombres se repiten a menudo para
+     * que varias filas compartan el mismo código.
+     *
+     * @param azar Generador de números al azar.
+     * @param id ID del producto, o 0 para que se asigne al agregarlo.
+     * @return Producto nuevo.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(Random azar, int id) throws Exception {
+        String nombre = azar.nextInt(20) == 0 ? null : "Artículo " + azar.nextInt(2000) + (azar.nextBoolean() ? " año" : "");
+        double precio = azar.nextInt(100000) / 100.0;
+        boolean sinEnum = azar.nextInt(10) == 0;
+        return switch (azar.nextInt(3)) {
+            case 0 -> new Alimento(id, nombre, precio,
+                    sinEnum ? null : TipoAlimento.values()[azar.nextInt(TipoAlimento.values().length)], azar.nextInt(5000));
+            case 1 -> new Electronico(id, nombre, precio,
+                    sinEnum ? null : MarcaElectronicos.values()[azar.nextInt(MarcaElectronicos.values().length)], azar.nextInt(60));
+            default -> new Ropa(id, nombre, precio,
+                    sinEnum ? null : TallaRopa.values()[azar.nextInt(TallaRopa.values().length)],
+                    azar.nextInt(20) == 0 ? null : "Material " + azar.nextInt(50));
+        };
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Mide ProductoManagerPaginado con un catálogo más grande que el heap: altas, recorrido
+ * completo, búsquedas y actualizaciones por ID al azar, con las páginas leídas y escritas
+ * en cada etapa. Para que el catálogo no entre en el heap hay que limitarlo al ejecutar,
+ * por ejemplo con -Xmx64m; la medición informa el heap máximo y el tamaño del archivo.
+ *
+ * Uso: ant medir -Dmedicion=storage.ProductoManagerPaginadoMedicion -Dmedir.jvmargs="-Xmx64m"
+ *      [-Dmedir.args="productos paginasEnMemoria operaciones"]
+ *
+ * @author joaxx
+ */
+public class ProductoManagerPaginadoMedicion {
+
+    private static volatile Object sumidero; // Evita que se descarten los resultados
+
+    /**
+     * Ejecuta la medición.
+     *
+     * @param args Cantidad de productos (por defecto 3000000), páginas en memoria (por
+     *             defecto 4096, 32 MB fuera del heap) y operaciones al azar (por defecto 200000).
+     * @throws Exception Si falla la lectura o la escritura.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        int paginas = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int operaciones = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        Path directorio = Verificar.directorioTemporal("paginado-medicion");
+        try {
+            Path archivo = directorio.resolve("catalogo.pag");
+            try (ProductoManagerPaginado repositorio = new ProductoManagerPaginado(archivo, paginas)) {
+                System.out.printf("%d productos, %d páginas en memoria (%.0f MB), heap máximo %.0f MB%n", cantidad, paginas,
+                        paginas * (double) ProductoManagerPaginado.TAMANIO_PAGINA / 1e6, Runtime.getRuntime().maxMemory() / 1e6);
+                System.out.printf("%-14s %12s %12s %14s %14s%n", "etapa", "ms", "op/s", "páginas leídas", "escritas");
+
+                Etapa etapa = new Etapa(repositorio);
+                for (int i = 0; i < cantidad; i++) {
+                    repositorio.agregar(producto(i));
+                }
+                repositorio.vaciar();
+                etapa.imprimir("Altas", cantidad);
+                System.out.printf("Archivo: %.0f MB%n", Files.size(archivo) / 1e6);
+
+                etapa = new Etapa(repositorio);
+                long[] contados = {0};
+                repositorio.recorrer(p -> contados[0]++);
+                etapa.imprimir("Recorrido", cantidad);
+                Verificar.iguales((long) cantidad, contados[0], "Productos recorridos");
+
+                Random azar = new Random(3);
+                etapa = new Etapa(repositorio);
+                for (int i = 0; i < operaciones; i++) {
+                    sumidero = repositorio.obtenerPorId(1 + azar.nextInt(cantidad));
+                }
+                etapa.imprimir("Búsquedas", operaciones);
+
+                etapa = new Etapa(repositorio);
+                for (int i = 0; i < operaciones; i++) {
+                    Producto p = repositorio.obtenerPorId(1 + azar.nextInt(cantidad));
+                    p.setPrecio(p.getPrecio() + 1);
+                    repositorio.actualizar(p);
+                }
+                repositorio.vaciar();
+                etapa.imprimir("Actualizaciones", operaciones);
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Tiempo y páginas leídas y escritas desde el comienzo de una etapa.
+     */
+    private static class Etapa {
+        private final ProductoManagerPaginado repositorio;
+        private final long inicio = System.nanoTime();
+        private final long lecturas;
+        private final long escrituras;
+
+        /**
+         * Empieza una etapa.
+         *
+         * @param repositorio Repositorio medido.
+         */
+        Etapa(ProductoManagerPaginado repositorio) {
+            this.repositorio = repositorio;
+            this.lecturas = repositorio.getLecturasDePaginas();
+            this.escrituras = repositorio.getEscriturasDePaginas();
+        }
+
+        /**
+         * Imprime la fila de la etapa.
+         *
+         * @param nombre Nombre de la etapa.
+         * @param operaciones Operaciones realizadas.
+         */
+        void imprimir(String nombre, int operaciones) {
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("%-14s %12.0f %12.0f %14d %14d%n", nombre, segundos * 1e3, operaciones / segundos,
+                    repositorio.getLecturasDePaginas() - lecturas, repositorio.getEscriturasDePaginas() - escrituras);
+        }
+    }
+
+    /**
+     * Crea un producto de prueba.
+     *
+     * @param i Número del producto.
+     * @return Producto con tipo y campos según el número.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(int i) throws Exception {
+        String nombre = "Producto de catálogo número " + i;
+        double precio = 1 + i % 997;
+        return switch (i % 3) {
+            case 0 -> new Alimento(0, nombre, precio, TipoAlimento.PERECEDERO, i % 900);
+            case 1 -> new Electronico(0, nombre, precio, MarcaElectronicos.SAMSUNG, i % 36);
+            default -> new Ropa(0, nombre, precio, TallaRopa.L, "Algodón");
+        };
+    }
+}
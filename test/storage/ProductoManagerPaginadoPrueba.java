@@ -0,0 +1,197 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package storage;
+
+import exceptions.ProductoNoEncontradoException;
+import model.Producto.Alimento;
+import model.Producto.Electronico;
+import model.Producto.Producto;
+import model.Producto.Ropa;
+import model.enums.MarcaElectronicos;
+import model.enums.TallaRopa;
+import model.enums.TipoAlimento;
+import pruebas.Verificar;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Prueba de carga de ProductoManagerPaginado contra un modelo en memoria: una secuencia
+ * al azar de altas, modificaciones (que agrandan y achican los registros), bajas y
+ * búsquedas, con nombres de largo variable para forzar divisiones de hojas y nodos, y con
+ * el mínimo de páginas en memoria para forzar desalojos. Cada tanto compara el recorrido
+ * completo con el modelo y cierra y vuelve a abrir el archivo. Al final agrega productos
+ * con nombres largos hasta superar las hojas que entran bajo un solo nodo interno, para
+ * que también se divida la raíz interna.
+ *
+ * @author joaxx
+ */
+public class ProductoManagerPaginadoPrueba {
+
+    private static final int OPERACIONES = 60000;
+    private static final int PAGINAS_EN_MEMORIA = 8;
+    private static final int LARGO_MAXIMO_NOMBRE = 600; // Registros de hasta unas 13 celdas por hoja
+    private static final int ALTAS_LARGAS = 16000; // De a 12 por hoja: más hojas que hijos de un nodo interno
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args Semilla opcional.
+     * @throws Exception Si la prueba falla.
+     */
+    public static void main(String[] args) throws Exception {
+        long semilla = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        Random azar = new Random(semilla);
+        Path directorio = Verificar.directorioTemporal("paginado");
+        try {
+            Path archivo = directorio.resolve("catalogo.pag");
+            TreeMap<Integer, String> modelo = new TreeMap<>();
+            int mayorId = 0;
+            ProductoManagerPaginado repositorio = new ProductoManagerPaginado(archivo, PAGINAS_EN_MEMORIA);
+            try {
+                for (int i = 0; i < OPERACIONES; i++) {
+                    int operacion = azar.nextInt(100);
+                    // Más altas al principio para que el árbol crezca; luego predominan cambios y bajas
+                    if (operacion < (i < OPERACIONES / 2 ? 50 : 25) || modelo.isEmpty()) {
+                        Producto p = producto(azar, 0);
+                        repositorio.agregar(p);
+                        Verificar.verdadero(p.getId() > mayorId, "ID asignado " + p.getId() + " no mayor que " + mayorId);
+                        mayorId = p.getId();
+                        modelo.put(p.getId(), huella(p));
+                    } else if (operacion < 60) {
+                        int id = existente(azar, modelo);
+                        Producto p = producto(azar, id);
+                        repositorio.actualizar(p);
+                        modelo.put(id, huella(p));
+                    } else if (operacion < 80) {
+                        int id = existente(azar, modelo);
+                        repositorio.eliminar(id);
+                        modelo.remove(id);
+                    } else {
+                        int id = 1 + azar.nextInt(mayorId + 10);
+                        String esperado = modelo.get(id);
+                        if (esperado == null) {
+                            ProductoManagerPaginado abierto = repositorio;
+                            Verificar.lanza(ProductoNoEncontradoException.class, () -> abierto.obtenerPorId(id), "Buscar ID ausente " + id);
+                        } else {
+                            Verificar.iguales(esperado, huella(repositorio.obtenerPorId(id)), "Buscar ID " + id);
+                        }
+                    }
+                    if (i % 5000 == 4999) {
+                        verificarTodos(repositorio, modelo, "Operación " + i);
+                        repositorio.close();
+                        repositorio = new ProductoManagerPaginado(archivo, PAGINAS_EN_MEMORIA);
+                        verificarTodos(repositorio, modelo, "Reabierto en la operación " + i);
+                    }
+                }
+                int ausente = mayorId + 1;
+                ProductoManagerPaginado abierto = repositorio;
+                Verificar.lanza(ProductoNoEncontradoException.class, () -> abierto.eliminar(ausente), "Eliminar ID ausente");
+                Verificar.lanza(ProductoNoEncontradoException.class, () -> abierto.actualizar(producto(azar, ausente)), "Actualizar ID ausente");
+                Verificar.lanza(IllegalArgumentException.class,
+                        () -> abierto.agregar(new Ropa(0, "x".repeat(ProductoManagerPaginado.TAMANIO_PAGINA), 1, TallaRopa.S, "Lana")),
+                        "Producto más grande que una celda");
+
+                for (int i = 0; i < ALTAS_LARGAS; i++) {
+                    Producto p = new Alimento(0, "n".repeat(LARGO_MAXIMO_NOMBRE) + i, i, TipoAlimento.PERECEDERO, i);
+                    repositorio.agregar(p);
+                    modelo.put(p.getId(), huella(p));
+                    mayorId = p.getId();
+                }
+                verificarTodos(repositorio, modelo, "Altas largas");
+                repositorio.close();
+                repositorio = new ProductoManagerPaginado(archivo, PAGINAS_EN_MEMORIA);
+                verificarTodos(repositorio, modelo, "Altas largas reabierto");
+                for (int i = 0; i < 2000; i++) {
+                    int id = existente(azar, modelo);
+                    Verificar.iguales(modelo.get(id), huella(repositorio.obtenerPorId(id)), "Buscar ID " + id + " después de las altas largas");
+                }
+
+                // Vaciar el catálogo completo deja el árbol usable
+                for (int id : new ArrayList<>(modelo.keySet())) {
+                    repositorio.eliminar(id);
+                    modelo.remove(id);
+                }
+                verificarTodos(repositorio, modelo, "Después de eliminar todo");
+                Producto ultimo = producto(azar, 0);
+                repositorio.agregar(ultimo);
+                Verificar.verdadero(ultimo.getId() > mayorId, "ID después de eliminar todo");
+                modelo.put(ultimo.getId(), huella(ultimo));
+                verificarTodos(repositorio, modelo, "Alta después de eliminar todo");
+            } finally {
+                repositorio.close();
+            }
+        } finally {
+            Verificar.borrar(directorio);
+        }
+    }
+
+    /**
+     * Compara el recorrido completo y la cantidad del repositorio con el modelo.
+     *
+     * @param repositorio Repositorio a verificar.
+     * @param modelo Huella de cada producto por ID.
+     * @param caso Caso, para los mensajes.
+     */
+    private static void verificarTodos(ProductoManagerPaginado repositorio, TreeMap<Integer, String> modelo, String caso) {
+        Verificar.iguales(modelo.size(), repositorio.cantidad(), caso + ": cantidad");
+        List<Producto> todos = repositorio.obtenerTodos();
+        Verificar.iguales(modelo.size(), todos.size(), caso + ": productos recorridos");
+        int i = 0;
+        for (Map.Entry<Integer, String> esperado : modelo.entrySet()) {
+            Verificar.iguales(esperado.getValue(), huella(todos.get(i++)), caso + ": producto " + esperado.getKey());
+        }
+    }
+
+    /**
+     * Elige al azar un ID del modelo.
+     *
+     * @param azar Generador de números al azar.
+     * @param modelo Modelo no vacío.
+     * @return ID existente.
+     */
+    private static int existente(Random azar, TreeMap<Integer, String> modelo) {
+        return modelo.ceilingKey(modelo.firstKey() + azar.nextInt(modelo.lastKey() - modelo.firstKey() + 1));
+    }
+
+    /**
+     * Resume todos los campos de un producto en un texto, para compararlo con el modelo.
+     *
+     * @param p Producto.
+     * @return Tipo, ID, precio y descripción, que incluye el nombre y los campos propios.
+     */
+    private static String huella(Producto p) {
+        return p.getClass().getSimpleName() + "|" + p.getId() + "|" + p.getPrecio() + "|" + p.getDescripcion();
+    }
+
+    /**
+     * Crea un producto al azar con un nombre de largo variable.
+     *
+     * @param azar Generador de números al azar.
+     * @param id ID del producto, o 0 para que se asigne al agregarlo.
+     * @return Producto nuevo.
+     * @throws Exception Si el precio es inválido.
+     */
+    private static Producto producto(Random azar, int id) throws Exception {
+        int largo = azar.nextInt(10) == 0 ? azar.nextInt(LARGO_MAXIMO_NOMBRE) : azar.nextInt(40);
+        StringBuilder nombre = new StringBuilder(largo);
+        for (int i = 0; i < largo; i++) {
+            nombre.append(i % 17 == 16 ? 'ñ' : (char) ('a' + azar.nextInt(26)));
+        }
+        double precio = azar.nextInt(100000) / 100.0;
+        return switch (azar.nextInt(3)) {
+            case 0 -> new Alimento(id, nombre.toString(), precio,
+                    TipoAlimento.values()[azar.nextInt(TipoAlimento.values().length)], azar.nextInt(5000));
+            case 1 -> new Electronico(id, nombre.toString(), precio,
+                    MarcaElectronicos.values()[azar.nextInt(MarcaElectronicos.values().length)], azar.nextInt(60));
+            default -> new Ropa(id, nombre.toString(), precio,
+                    TallaRopa.values()[azar.nextInt(TallaRopa.values().length)], "Material " + azar.nextInt(50));
+        };
+    }
+}